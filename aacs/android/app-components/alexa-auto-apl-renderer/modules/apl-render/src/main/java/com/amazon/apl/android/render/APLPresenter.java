@@ -38,6 +38,7 @@ import com.amazon.apl.android.dependencies.IDataSourceFetchCallback;
 import com.amazon.apl.android.dependencies.ISendEventCallback;
 import com.amazon.apl.android.dependencies.IVisualContextListener;
 import com.amazon.apl.android.render.content.APLHttpContentRetriever;
+import com.amazon.apl.android.render.context.VisualContextTracker;
 import com.amazon.apl.android.render.dagger.component.ActivityComponent;
 import com.amazon.apl.android.render.dagger.component.ApplicationComponent;
 import com.amazon.apl.android.render.dagger.component.DaggerActivityComponent;
@@ -73,7 +74,7 @@ import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
 
 /**
@@ -106,7 +107,12 @@ public class APLPresenter implements IPresenter, ISendEventCallback, IDataSource
     private ILocalInfoDataConsumer mLocalInfoDataConsumer;
     private IDismissible mDismissibleCallback;
 
-    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    // Minimum time between two visual contexts sent while the document is scrolling or animating.
+    private static final long VISUAL_CONTEXT_MIN_PUSH_INTERVAL_MS = 500;
+
+    private final ScheduledExecutorService mExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final VisualContextTracker mVisualContextTracker =
+            new VisualContextTracker(mExecutor, this::sendVisualContext, VISUAL_CONTEXT_MIN_PUSH_INTERVAL_MS);
     private static Context mContext;
     private RootConfig mRootConfig;
 
@@ -290,11 +296,12 @@ public class APLPresenter implements IPresenter, ISendEventCallback, IDataSource
             mRootConfig = mActivityComponent.getRootConfig();
 
             Log.i(TAG, "APL render document token: " + mToken + " windowId: " + mRenderDocumentPayload.getWindowId());
+            mApplicationComponent.getPackageCache().recordDocumentImports(mRenderDocumentPayload.getDocument());
 
             // Set up content retriever and render callback
             APLHttpContentRetriever contentRetriever =
-                    new APLHttpContentRetriever(mApplicationComponent.getOkHttpClientWrapper(),
-                            mApplicationComponent.getNetworkExecutor(), mRenderDocumentPayload);
+                    new APLHttpContentRetriever(mApplicationComponent.getPackageFetcher(),
+                            mApplicationComponent.getPackageCache(), mRenderDocumentPayload);
             contentRetriever.addCompleteCallback(content -> doRender(content));
 
             // Inflate the document
@@ -321,6 +328,7 @@ public class APLPresenter implements IPresenter, ISendEventCallback, IDataSource
             mExecutor.submit(() -> {
                 Log.i(TAG, "Clearing card: token: " + token);
                 mLatestRenderedDocumentState = null;
+                mVisualContextTracker.reset();
                 mRenderDocumentPayload = null;
                 mToken = null;
                 sendDeviceWindowState();
@@ -435,20 +443,31 @@ public class APLPresenter implements IPresenter, ISendEventCallback, IDataSource
 
     @Override
     public void onVisualContextUpdate(JSONObject visualContext) {
-        Log.v(TAG, "Visual context update: " + visualContext);
-
-        if (mRenderDocumentPayload != null) {
-            JSONArray compsVisibleOnScreen = new JSONArray();
-            compsVisibleOnScreen.put(visualContext);
-            RenderedDocumentStatePayload payload =
-                    RenderedDocumentStatePayload.builder()
-                            .presentationToken(mRenderDocumentPayload.getPresentationToken())
-                            .presentationSession(mRenderDocumentPayload.getPresentationSession())
-                            .versionName(BuildConfig.VERSION_NAME)
-                            .componentsVisibleOnScreenArray(compsVisibleOnScreen)
-                            .build();
+        RenderDocumentPayload renderDocumentPayload = mRenderDocumentPayload;
+        if (renderDocumentPayload != null && renderDocumentPayload.getPresentationToken() != null) {
+            mVisualContextTracker.onVisualContextUpdate(renderDocumentPayload.getPresentationToken(), visualContext);
+        }
+    }
+
+    private void sendVisualContext(String token, String componentsVisibleOnScreen) {
+        RenderDocumentPayload renderDocumentPayload = mRenderDocumentPayload;
+        if (renderDocumentPayload == null || !token.equals(renderDocumentPayload.getPresentationToken())) {
+            // The document was cleared or replaced since the context was reported
+            return;
+        }
+        RenderedDocumentStatePayload payload =
+                RenderedDocumentStatePayload.builder()
+                        .presentationToken(token)
+                        .presentationSession(renderDocumentPayload.getPresentationSession())
+                        .versionName(BuildConfig.VERSION_NAME)
+                        .build();
+        try {
+            String state = payload.toJsonString(componentsVisibleOnScreen);
+            Log.v(TAG, "Visual context update: " + state);
             mLatestRenderedDocumentState = payload;
-            mAplEventSender.sendContext(mLatestRenderedDocumentState.toString());
+            mAplEventSender.sendContext(state);
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to serialize the rendered document state", e);
         }
     }
 
@@ -63,7 +63,17 @@ public class APLSingleton {
     private void startNetworkStack() {
         final NetworkExecutor networkExecutor = mApplicationComponent.getNetworkExecutor();
 
-        networkExecutor.execute(() -> mApplicationComponent.getOkHttpClientWrapper().init());
+        networkExecutor.execute(() -> {
+            mApplicationComponent.getOkHttpClientWrapper().init();
+            warmUpPackageCache();
+        });
+    }
+
+    /**
+     * Fetches the packages used by the recent documents, so rendering them does not wait for the network.
+     */
+    public void warmUpPackageCache() {
+        mApplicationComponent.getPackageCache().warmUp(mApplicationComponent.getPackageFetcher());
     }
 
     public ApplicationComponent getApplicationComponent() {
@@ -16,46 +16,76 @@ package com.amazon.apl.android.render.content;
 
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
 import com.amazon.apl.android.Content;
-import com.amazon.apl.android.render.network.OkHttpClientWrapper;
+import com.amazon.apl.android.render.network.PackageFetcher;
 import com.amazon.apl.android.render.payload.RenderDocumentPayload;
-import com.amazon.apl.android.thread.SequentialExecutor;
 
 import org.json.JSONObject;
 
-import java.io.IOException;
-
-import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.Response;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This class is used during the APL rendering process to download
  * resources such as packages, layouts, media, etc.
+ *
+ * Packages found in the {@link APLPackageCache} are added without a network request. Other packages are fetched in
+ * parallel through the {@link PackageFetcher}. When a package is received, its own imports are fetched right away,
+ * so the whole import graph is fetched breadth-first instead of one level per round trip of the APL core. The
+ * import latency of the document is logged once the content is complete.
  */
 public class APLHttpContentRetriever extends Content.Callback {
     private static final String TAG = APLHttpContentRetriever.class.getSimpleName();
 
     public static final String CLOUDFRONT_LOCATION_PREFIX = "https://d2na8397m465mh.cloudfront.net/packages/";
-    private static final String CLOUDFRONT_LOCATION_SUFFIX = "/document.json";
 
     // Name of the mainTemplate parameter to which entire datasources payload is bound to.
     private static final String PARAM_PAYLOAD = "payload";
 
-    private final OkHttpClientWrapper mOkHttpClient;
-    private final SequentialExecutor mNetworkExecutor;
+    // Number of times a package the APL core is waiting for is fetched before giving up
+    private static final int MAX_FETCH_ATTEMPTS = 2;
+
+    /**
+     * State of a package fetched for this document.
+     */
+    private static class PackageState {
+        final APLPackageCache.PackageKey mKey;
+        final List<Content.ImportRequest> mWaitingRequests = new ArrayList<>();
+        String mBody;
+        int mFetchAttempts = 1;
+
+        PackageState(APLPackageCache.PackageKey key) {
+            mKey = key;
+        }
+    }
+
+    private final PackageFetcher mPackageFetcher;
+    private final APLPackageCache mPackageCache;
     private final RenderDocumentPayload mPayload;
+    private final Map<String, PackageState> mPackages = new HashMap<>();
+    private final long mStartTimeMs = SystemClock.elapsedRealtime();
+    private Content mContent;
     private CompleteCallback mCallback;
 
-    public APLHttpContentRetriever(@NonNull OkHttpClientWrapper okHttpClient,
-            @NonNull SequentialExecutor networkExecutor, @NonNull RenderDocumentPayload payload) {
-        mNetworkExecutor = networkExecutor;
-        mOkHttpClient = okHttpClient;
+    // Import latency of the document
+    private int mCachedPackageCount;
+    private int mFetchedPackageCount;
+    private int mHttpCacheHitCount;
+    private long mSlowestFetchTimeMs;
+    private String mSlowestFetchUrl;
+
+    public APLHttpContentRetriever(@NonNull PackageFetcher packageFetcher, @NonNull APLPackageCache packageCache,
+            @NonNull RenderDocumentPayload payload) {
+        mPackageFetcher = packageFetcher;
+        mPackageCache = packageCache;
         mPayload = payload;
     }
 
@@ -65,21 +95,45 @@ public class APLHttpContentRetriever extends Content.Callback {
         mCallback = callback;
     }
 
-    private static String getDefaultPackageUrl(final String packageName, final String version) {
-        return CLOUDFRONT_LOCATION_PREFIX + packageName + "/" + version + CLOUDFRONT_LOCATION_SUFFIX;
-    }
-
     @Override
     public void onPackageRequest(final Content content, final Content.ImportRequest request) {
-        final String url = TextUtils.isEmpty(request.getSource())
-                ? getDefaultPackageUrl(request.getPackageName(), request.getVersion())
-                : request.getSource();
+        final APLPackageCache.PackageKey key =
+                new APLPackageCache.PackageKey(request.getPackageName(), request.getVersion(), request.getSource());
+        final APLPackageCache.Entry cachedEntry = mPackageCache.get(key);
+        if (cachedEntry != null) {
+            synchronized (this) {
+                mCachedPackageCount++;
+            }
+            prefetchImports(cachedEntry.getImports());
+            addPackage(content, request, cachedEntry.getDocument());
+            return;
+        }
+
+        final String url = key.getUrl();
         if (TextUtils.isEmpty(url)) {
             Log.e(TAG, "Empty url, cannot fetch package");
             return;
         }
 
-        mNetworkExecutor.execute(new LoadContentRequest(mOkHttpClient, url, content, request));
+        String body;
+        synchronized (this) {
+            mContent = content;
+            PackageState state = mPackages.get(url);
+            if (state == null) {
+                state = new PackageState(key);
+                state.mWaitingRequests.add(request);
+                mPackages.put(url, state);
+                mPackageFetcher.fetch(url, mFetchListener);
+                return;
+            }
+            if (state.mBody == null) {
+                state.mWaitingRequests.add(request);
+                return;
+            }
+            body = state.mBody;
+        }
+        // The package was prefetched while resolving the imports of another package
+        addPackage(content, request, body);
     }
 
     @Override
@@ -89,6 +143,7 @@ public class APLHttpContentRetriever extends Content.Callback {
 
     @Override
     public void onComplete(Content content) {
+        logImportLatency();
         Handler handler = new Handler(Looper.getMainLooper());
         handler.post(() -> {
             if (mCallback != null) {
@@ -100,63 +155,98 @@ public class APLHttpContentRetriever extends Content.Callback {
     @Override
     public void onError(final Content content) {
         Log.e(TAG, "On APL error");
-        mOkHttpClient.cancelAll();
+        mPackageFetcher.cancel(mFetchListener);
     }
 
-    static final class LoadContentRequest implements Runnable {
-        private final static int CONTENT_LENGTH_UNKNOWN_SIZE = -1;
-        private final String mUrl;
-        private final OkHttpClientWrapper mOkHttpClient;
-        private final Content mContent;
-        private final Content.ImportRequest mRequest;
-
-        LoadContentRequest(@NonNull final OkHttpClientWrapper okHttpClient, @NonNull final String url,
-                @NonNull final Content content, @NonNull final Content.ImportRequest request) {
-            mUrl = url;
-            mOkHttpClient = okHttpClient;
-            mContent = content;
-            mRequest = request;
+    private final PackageFetcher.Listener mFetchListener = new PackageFetcher.Listener() {
+        @Override
+        public void onPackageFetched(String url, String body, long fetchTimeMs, boolean isCacheHit) {
+            Content content;
+            APLPackageCache.PackageKey key;
+            List<Content.ImportRequest> requests;
+            synchronized (APLHttpContentRetriever.this) {
+                PackageState state = mPackages.get(url);
+                state.mBody = body;
+                key = state.mKey;
+                requests = new ArrayList<>(state.mWaitingRequests);
+                state.mWaitingRequests.clear();
+                content = mContent;
+
+                mFetchedPackageCount++;
+                if (isCacheHit) {
+                    mHttpCacheHitCount++;
+                }
+                if (fetchTimeMs >= mSlowestFetchTimeMs) {
+                    mSlowestFetchTimeMs = fetchTimeMs;
+                    mSlowestFetchUrl = url;
+                }
+            }
+            Log.i(TAG, "Package fetched in " + fetchTimeMs + "ms, cacheHit: " + isCacheHit + " url: " + url);
+
+            // An invalid package is not cached, the APL core reports it when it is added
+            APLPackageCache.Entry entry = APLPackageCache.parse(body);
+            if (entry != null) {
+                mPackageCache.put(key, entry);
+                prefetchImports(entry.getImports());
+            }
+            for (Content.ImportRequest request : requests) {
+                addPackage(content, request, body);
+            }
         }
 
         @Override
-        public void run() {
-            mOkHttpClient.newCall(mUrl).enqueue(new Callback() {
-                @Override
-                public void onFailure(@lombok.NonNull final Call call, @lombok.NonNull final IOException e) {
-                    Log.e(TAG, "OkHttp failure. " + e.getMessage());
+        public void onPackageFetchFailed(String url) {
+            synchronized (APLHttpContentRetriever.this) {
+                PackageState state = mPackages.get(url);
+                if (!state.mWaitingRequests.isEmpty() && state.mFetchAttempts < MAX_FETCH_ATTEMPTS) {
+                    state.mFetchAttempts++;
+                    Log.w(TAG, "Retrying package fetch: " + url);
+                    mPackageFetcher.fetch(url, mFetchListener);
+                    return;
                 }
+                // Forget the failure, so the package is fetched again if it is requested again
+                Log.e(TAG, "Package fetch failed: " + url);
+                mPackages.remove(url);
+            }
+        }
+    };
 
-                @Override
-                public void onResponse(@lombok.NonNull final Call call, @lombok.NonNull final Response response) {
-                    if (response.isSuccessful()) {
-                        assert response.body() != null;
-
-                        try {
-                            final boolean isCacheHit = response.cacheResponse() != null;
-                            final boolean isNetworkHit = response.networkResponse() != null;
-
-                            Log.i(TAG, "onResponse: cacheHit: " + isCacheHit + " networkHit: " + isNetworkHit);
-
-                            // If content length is -1, then this means that the response size is unknown
-                            // and is streamed to get the content. In this case we are reporting response
-                            // size as -1 and the whole set of imports size is ignored inside ImportTracker.
-                            final long contentLength = response.body().contentLength();
-                            mContent.addPackage(mRequest, response.body().string());
-                        } catch (IOException e) {
-                            Log.e(TAG, "OkHttp response error. " + e.getMessage());
-                        } catch (Content.ContentException ex) {
-                            Log.e(TAG, "Add package content failed.", ex);
-                        } finally {
-                            response.close();
-                        }
-                    } else {
-                        Log.e(TAG, "OkHttp response failure, code: " + response.code());
-                    }
+    /**
+     * Starts fetching the imports of a package that are not cached before the APL core requests them.
+     */
+    private void prefetchImports(List<APLPackageCache.PackageKey> imports) {
+        for (APLPackageCache.PackageKey key : imports) {
+            if (mPackageCache.get(key) != null) {
+                continue;
+            }
+            String url = key.getUrl();
+            synchronized (this) {
+                if (mPackages.containsKey(url)) {
+                    continue;
                 }
-            });
+                mPackages.put(url, new PackageState(key));
+            }
+            Log.v(TAG, "Prefetching import " + url);
+            mPackageFetcher.fetch(url, mFetchListener);
         }
     }
 
+    private static void addPackage(Content content, Content.ImportRequest request, String body) {
+        try {
+            content.addPackage(request, body);
+        } catch (Content.ContentException ex) {
+            Log.e(TAG, "Add package content failed.", ex);
+        }
+    }
+
+    private synchronized void logImportLatency() {
+        Log.i(TAG,
+                String.format("Imports resolved in %dms: %d packages from memory, %d fetched (%d from http cache), "
+                                + "slowest fetch %dms (%s)",
+                        SystemClock.elapsedRealtime() - mStartTimeMs, mCachedPackageCount, mFetchedPackageCount,
+                        mHttpCacheHitCount, mSlowestFetchTimeMs, mSlowestFetchUrl));
+    }
+
     void onDataSourceContentRequest(final Content content, final String dataId, final RenderDocumentPayload payload) {
         Log.v(TAG, String.format("onDataRequest: dataId: %s", dataId));
         final JSONObject dataSourcesPayload = payload.getDataSources();
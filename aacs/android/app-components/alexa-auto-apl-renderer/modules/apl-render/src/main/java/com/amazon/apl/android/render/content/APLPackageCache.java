@@ -0,0 +1,299 @@
+/*
+ * Copyright 2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.apl.android.render.content;
+
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.amazon.apl.android.render.network.OkHttpClientWrapper;
+import com.amazon.apl.android.render.network.PackageFetcher;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * In-memory LRU cache of APL packages shared by all the rendered documents. Each entry holds the package document
+ * together with its parsed import list, so a cached package is added to the {@link com.amazon.apl.android.Content}
+ * and its imports are resolved without a network request and without parsing the package again.
+ * <p>
+ * The packages imported by the recently rendered documents are remembered across restarts, and are the packages
+ * fetched when the cache is warmed up.
+ */
+public class APLPackageCache {
+    private static final String TAG = APLPackageCache.class.getSimpleName();
+
+    private static final String CLOUDFRONT_LOCATION_SUFFIX = "/document.json";
+
+    // Keys of the import list of an APL document.
+    private static final String KEY_IMPORT = "import";
+    private static final String KEY_NAME = "name";
+    private static final String KEY_VERSION = "version";
+    private static final String KEY_SOURCE = "source";
+
+    // Preference holding the recently imported packages, as the import list of an APL document.
+    private static final String PREFERENCE_RECENT_IMPORTS = "com.amazon.apl.render.recentImports";
+    // Number of recently imported packages remembered for the warm up.
+    private static final int MAX_RECENT_IMPORTS = 8;
+
+    /**
+     * Identifies a package by its name, version and source.
+     */
+    public static final class PackageKey {
+        private final String mName;
+        private final String mVersion;
+        private final String mSource;
+
+        public PackageKey(String name, String version, @Nullable String source) {
+            mName = name;
+            mVersion = version;
+            mSource = TextUtils.isEmpty(source) ? null : source;
+        }
+
+        /**
+         * @return the source of the package, or the default location of the package if it has no source.
+         */
+        public String getUrl() {
+            return mSource != null
+                    ? mSource
+                    : OkHttpClientWrapper.CLOUDFRONT_LOCATION_PREFIX + mName + "/" + mVersion
+                            + CLOUDFRONT_LOCATION_SUFFIX;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PackageKey)) {
+                return false;
+            }
+            PackageKey that = (PackageKey) o;
+            return Objects.equals(mName, that.mName) && Objects.equals(mVersion, that.mVersion)
+                    && Objects.equals(mSource, that.mSource);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mName, mVersion, mSource);
+        }
+
+        @Override
+        public String toString() {
+            return mName + ":" + mVersion;
+        }
+    }
+
+    /**
+     * A package document and the packages it imports.
+     */
+    public static final class Entry {
+        private final String mDocument;
+        private final List<PackageKey> mImports;
+
+        Entry(String document, List<PackageKey> imports) {
+            mDocument = document;
+            mImports = imports;
+        }
+
+        public String getDocument() {
+            return mDocument;
+        }
+
+        public List<PackageKey> getImports() {
+            return mImports;
+        }
+
+        // Strings are stored as UTF-16
+        long getSizeInBytes() {
+            return 2L * mDocument.length();
+        }
+    }
+
+    private final long mBudgetBytes;
+    @Nullable
+    private final SharedPreferences mPreferences;
+    private final LinkedHashMap<PackageKey, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long mSizeBytes;
+    // Most recently imported last
+    private final LinkedHashSet<PackageKey> mRecentImports = new LinkedHashSet<>();
+
+    /**
+     * @param budgetBytes the maximum size of the cached package documents.
+     * @param preferences where the recently imported packages are remembered, or {@code null} to only remember
+     *         them in memory.
+     */
+    public APLPackageCache(long budgetBytes, @Nullable SharedPreferences preferences) {
+        mBudgetBytes = budgetBytes;
+        mPreferences = preferences;
+        if (preferences != null) {
+            Entry recentImports = parse(preferences.getString(PREFERENCE_RECENT_IMPORTS, "{}"));
+            if (recentImports != null) {
+                mRecentImports.addAll(recentImports.getImports());
+            }
+        }
+    }
+
+    /**
+     * Parses the import list of a package document.
+     *
+     * @return the entry for the package, or {@code null} if the document is not a JSON object.
+     */
+    @Nullable
+    public static Entry parse(@NonNull String document) {
+        JSONArray imports;
+        try {
+            imports = new JSONObject(document).optJSONArray(KEY_IMPORT);
+        } catch (JSONException e) {
+            return null;
+        }
+
+        List<PackageKey> keys = new ArrayList<>();
+        for (int i = 0; imports != null && i < imports.length(); i++) {
+            JSONObject importObject = imports.optJSONObject(i);
+            if (importObject != null && importObject.has(KEY_NAME) && importObject.has(KEY_VERSION)) {
+                keys.add(new PackageKey(importObject.optString(KEY_NAME), importObject.optString(KEY_VERSION),
+                        importObject.optString(KEY_SOURCE)));
+            }
+        }
+        return new Entry(document, keys);
+    }
+
+    @Nullable
+    public synchronized Entry get(@NonNull PackageKey key) {
+        return mEntries.get(key);
+    }
+
+    public synchronized void put(@NonNull PackageKey key, @NonNull Entry entry) {
+        if (entry.getSizeInBytes() > mBudgetBytes) {
+            return;
+        }
+        Entry previous = mEntries.put(key, entry);
+        if (previous != null) {
+            mSizeBytes -= previous.getSizeInBytes();
+        }
+        mSizeBytes += entry.getSizeInBytes();
+
+        Iterator<Map.Entry<PackageKey, Entry>> iterator = mEntries.entrySet().iterator();
+        while (mSizeBytes > mBudgetBytes && iterator.hasNext()) {
+            Map.Entry<PackageKey, Entry> eldest = iterator.next();
+            mSizeBytes -= eldest.getValue().getSizeInBytes();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Remembers the packages imported by a rendered document, to fetch them when the cache is warmed up.
+     *
+     * @param document the APL document.
+     */
+    public void recordDocumentImports(@NonNull String document) {
+        Entry entry = parse(document);
+        if (entry == null || entry.getImports().isEmpty()) {
+            return;
+        }
+        String recentImports;
+        synchronized (this) {
+            List<PackageKey> previousImports = new ArrayList<>(mRecentImports);
+            for (PackageKey key : entry.getImports()) {
+                // Move the package to the most recent position
+                mRecentImports.remove(key);
+                mRecentImports.add(key);
+            }
+            Iterator<PackageKey> iterator = mRecentImports.iterator();
+            while (mRecentImports.size() > MAX_RECENT_IMPORTS) {
+                iterator.next();
+                iterator.remove();
+            }
+            if (mPreferences == null || previousImports.equals(new ArrayList<>(mRecentImports))) {
+                return;
+            }
+            recentImports = serialize(mRecentImports);
+        }
+        mPreferences.edit().putString(PREFERENCE_RECENT_IMPORTS, recentImports).apply();
+    }
+
+    /**
+     * @return the packages imported by the recently rendered documents, most recent last.
+     */
+    public synchronized List<PackageKey> getRecentImports() {
+        return new ArrayList<>(mRecentImports);
+    }
+
+    /**
+     * Fetches the packages imported by the recently rendered documents, and their imports, into the cache.
+     */
+    public void warmUp(@NonNull PackageFetcher packageFetcher) {
+        warmUp(packageFetcher, getRecentImports());
+    }
+
+    /**
+     * Fetches the given packages and their imports into the cache.
+     */
+    public void warmUp(@NonNull PackageFetcher packageFetcher, @NonNull List<PackageKey> keys) {
+        for (PackageKey key : keys) {
+            if (get(key) != null) {
+                continue;
+            }
+            packageFetcher.fetch(key.getUrl(), new PackageFetcher.Listener() {
+                @Override
+                public void onPackageFetched(String url, String body, long fetchTimeMs, boolean isCacheHit) {
+                    Entry entry = parse(body);
+                    if (entry != null) {
+                        put(key, entry);
+                        warmUp(packageFetcher, entry.getImports());
+                    }
+                }
+
+                @Override
+                public void onPackageFetchFailed(String url) {
+                    Log.w(TAG, "Failed to warm up " + key);
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the packages as the import list of an APL document, the format read by {@link #parse(String)}.
+     */
+    private static String serialize(Iterable<PackageKey> keys) {
+        JSONArray imports = new JSONArray();
+        try {
+            for (PackageKey key : keys) {
+                JSONObject importObject = new JSONObject().put(KEY_NAME, key.mName).put(KEY_VERSION, key.mVersion);
+                if (key.mSource != null) {
+                    importObject.put(KEY_SOURCE, key.mSource);
+                }
+                imports.put(importObject);
+            }
+            return new JSONObject().put(KEY_IMPORT, imports).toString();
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to serialize the recent imports", e);
+            return "{}";
+        }
+    }
+}
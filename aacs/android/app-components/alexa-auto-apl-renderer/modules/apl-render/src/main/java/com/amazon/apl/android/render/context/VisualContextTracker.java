@@ -0,0 +1,279 @@
+/*
+ * Copyright 2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.apl.android.render.context;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the visual context reported by the APL viewhost and decides when it has to be sent.
+ *
+ * Updates are coalesced so at most one context is pushed per {@code minPushIntervalMs}, which bounds the pushes
+ * while a list or sequence is scrolling. The serialized form of every component is cached with a hash of all its
+ * fields, and only the components whose fields changed are serialized again. Hashing walks the fields without
+ * building the JSON strings. A context that is identical to the last one reported for the same presentation token
+ * is not pushed.
+ */
+public class VisualContextTracker {
+    private static final String TAG = VisualContextTracker.class.getSimpleName();
+
+    private static final String FIELD_UID = "uid";
+    private static final String FIELD_CHILDREN = "children";
+
+    // 64-bit FNV-1a
+    private static final long HASH_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long HASH_PRIME = 0x100000001b3L;
+
+    /**
+     * Receives the visual contexts that have to be sent.
+     */
+    public interface Listener {
+        /**
+         * @param token the presentation token of the document.
+         * @param componentsVisibleOnScreen the serialized JSON array of the components visible on screen.
+         */
+        void onVisualContextChanged(String token, String componentsVisibleOnScreen);
+    }
+
+    /**
+     * Serialized fields of a component, except its children, together with the hash of the fields.
+     */
+    private static class CachedComponent {
+        final long mFieldsHash;
+        final String mFieldsJson;
+
+        CachedComponent(long fieldsHash, String fieldsJson) {
+            mFieldsHash = fieldsHash;
+            mFieldsJson = fieldsJson;
+        }
+    }
+
+    private final ScheduledExecutorService mExecutor;
+    private final Listener mListener;
+    private final long mMinPushIntervalMs;
+
+    // Guarded by this
+    private String mPendingToken;
+    private JSONObject mPendingContext;
+    private boolean mPushScheduled;
+    private long mLastPushTimeMs;
+
+    // Only accessed on the executor
+    private String mReportedToken;
+    private String mReportedContext;
+    private Map<String, CachedComponent> mComponents = new HashMap<>();
+    private int mSerializedComponentCount;
+
+    /**
+     * @param executor the executor on which the contexts are serialized and the listener is called.
+     * @param listener receives the contexts to send.
+     * @param minPushIntervalMs the minimum time between two pushed contexts.
+     */
+    public VisualContextTracker(
+            @NonNull ScheduledExecutorService executor, @NonNull Listener listener, long minPushIntervalMs) {
+        mExecutor = executor;
+        mListener = listener;
+        mMinPushIntervalMs = minPushIntervalMs;
+    }
+
+    /**
+     * Called with every visual context reported by the viewhost. The context is pushed when the push interval
+     * allows it, unless a newer context replaces it first.
+     */
+    public synchronized void onVisualContextUpdate(@NonNull String token, @NonNull JSONObject visualContext) {
+        mPendingToken = token;
+        mPendingContext = visualContext;
+        if (mPushScheduled) {
+            return;
+        }
+        mPushScheduled = true;
+        long delayMs = Math.max(0, mLastPushTimeMs + mMinPushIntervalMs - SystemClock.elapsedRealtime());
+        mExecutor.schedule(this::pushPendingContext, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Forgets the reported contexts, so the next context is pushed even if it did not change.
+     */
+    public void reset() {
+        synchronized (this) {
+            mPendingContext = null;
+        }
+        mExecutor.execute(() -> {
+            mReportedToken = null;
+            mReportedContext = null;
+            mComponents = new HashMap<>();
+        });
+    }
+
+    private void pushPendingContext() {
+        String token;
+        JSONObject visualContext;
+        synchronized (this) {
+            token = mPendingToken;
+            visualContext = mPendingContext;
+            mPendingContext = null;
+            mPushScheduled = false;
+            mLastPushTimeMs = SystemClock.elapsedRealtime();
+        }
+        if (visualContext == null) {
+            return;
+        }
+
+        if (!Objects.equals(token, mReportedToken)) {
+            mComponents = new HashMap<>();
+        }
+        Map<String, CachedComponent> components = new HashMap<>();
+        StringBuilder builder = new StringBuilder("[");
+        try {
+            appendComponent(visualContext, "", components, builder);
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to serialize visual context", e);
+            return;
+        }
+        String context = builder.append(']').toString();
+        // Components that are no longer on screen are dropped from the cache
+        mComponents = components;
+
+        if (token.equals(mReportedToken) && context.equals(mReportedContext)) {
+            Log.v(TAG, "Visual context unchanged, not sending it");
+            return;
+        }
+        mReportedToken = token;
+        mReportedContext = context;
+        mListener.onVisualContextChanged(token, context);
+    }
+
+    private void appendComponent(JSONObject component, String path, Map<String, CachedComponent> components,
+            StringBuilder builder) throws JSONException {
+        String key = component.has(FIELD_UID) ? component.getString(FIELD_UID) : path;
+        long fieldsHash = hashFields(component);
+
+        CachedComponent cached = mComponents.get(key);
+        if (cached == null || cached.mFieldsHash != fieldsHash) {
+            cached = new CachedComponent(fieldsHash, serializeFields(component));
+            mSerializedComponentCount++;
+        }
+        components.put(key, cached);
+
+        builder.append(cached.mFieldsJson, 0, cached.mFieldsJson.length() - 1);
+        JSONArray children = component.optJSONArray(FIELD_CHILDREN);
+        if (children != null) {
+            builder.append(cached.mFieldsJson.length() > 2 ? ",\"" : "\"").append(FIELD_CHILDREN).append("\":[");
+            for (int i = 0; i < children.length(); i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                appendComponent(children.getJSONObject(i), path + "/" + i, components, builder);
+            }
+            builder.append(']');
+        }
+        builder.append('}');
+    }
+
+    /**
+     * @return the number of times the fields of a component were serialized, to check the cache in tests.
+     */
+    @VisibleForTesting
+    int getSerializedComponentCount() {
+        return mSerializedComponentCount;
+    }
+
+    /**
+     * Hashes the names and values of the fields of a component except its children, in their serialization order.
+     */
+    private static long hashFields(JSONObject component) throws JSONException {
+        long hash = HASH_OFFSET_BASIS;
+        Iterator<String> names = component.keys();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (!FIELD_CHILDREN.equals(name)) {
+                hash = hashString(hash, name);
+                hash = hashValue(hash, component.get(name));
+            }
+        }
+        return hash;
+    }
+
+    private static long hashValue(long hash, Object value) throws JSONException {
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            hash = hashChar(hash, '{');
+            Iterator<String> names = object.keys();
+            while (names.hasNext()) {
+                String name = names.next();
+                hash = hashString(hash, name);
+                hash = hashValue(hash, object.get(name));
+            }
+            return hashChar(hash, '}');
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            hash = hashChar(hash, '[');
+            for (int i = 0; i < array.length(); i++) {
+                hash = hashValue(hash, array.get(i));
+            }
+            return hashChar(hash, ']');
+        }
+        if (value instanceof String) {
+            return hashString(hashChar(hash, '"'), (String) value);
+        }
+        // Numbers, booleans and null, tagged with their type so 1 and "1" differ
+        return hashString(hashString(hash, value.getClass().getName()), String.valueOf(value));
+    }
+
+    private static long hashString(long hash, String value) {
+        // The length keeps the boundaries of consecutive strings unambiguous
+        hash = hashChar(hash, (char) value.length());
+        hash = hashChar(hash, (char) (value.length() >>> 16));
+        for (int i = 0; i < value.length(); i++) {
+            hash = hashChar(hash, value.charAt(i));
+        }
+        return hash;
+    }
+
+    private static long hashChar(long hash, char value) {
+        hash = (hash ^ (value & 0xff)) * HASH_PRIME;
+        return (hash ^ (value >>> 8)) * HASH_PRIME;
+    }
+
+    /**
+     * Serializes the fields of a component except its children.
+     */
+    private static String serializeFields(JSONObject component) throws JSONException {
+        JSONObject fields = new JSONObject();
+        Iterator<String> names = component.keys();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (!FIELD_CHILDREN.equals(name)) {
+                fields.put(name, component.get(name));
+            }
+        }
+        return fields.toString();
+    }
+}
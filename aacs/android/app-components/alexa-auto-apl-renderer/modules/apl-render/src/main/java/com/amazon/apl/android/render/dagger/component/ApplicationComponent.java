@@ -17,6 +17,7 @@ package com.amazon.apl.android.render.dagger.component;
 
 import android.content.Context;
 
+import com.amazon.apl.android.render.content.APLPackageCache;
 import com.amazon.apl.android.render.dagger.ApplicationContext;
 import com.amazon.apl.android.render.dagger.ApplicationScope;
 import com.amazon.apl.android.render.dagger.module.ApplicationModule;
@@ -28,6 +29,7 @@ import com.amazon.apl.android.render.interfaces.IAPLTokenProvider;
 import com.amazon.apl.android.render.media.APLMediaPlayerProvider;
 import com.amazon.apl.android.render.network.NetworkExecutor;
 import com.amazon.apl.android.render.network.OkHttpClientWrapper;
+import com.amazon.apl.android.render.network.PackageFetcher;
 import com.amazon.apl.android.render.tts.APLTtsPlayerProvider;
 
 import java.util.concurrent.ExecutorService;
@@ -60,6 +62,16 @@ public interface ApplicationComponent {
      */
     OkHttpClientWrapper getOkHttpClientWrapper();
 
+    /**
+     * @return The {@link PackageFetcher}.
+     */
+    PackageFetcher getPackageFetcher();
+
+    /**
+     * @return The {@link APLPackageCache}.
+     */
+    APLPackageCache getPackageCache();
+
     /**
      * @return The {@link APLTtsPlayerProvider}
      */
@@ -17,10 +17,12 @@ package com.amazon.apl.android.render.dagger.module;
 
 import android.content.Context;
 
+import com.amazon.apl.android.render.content.APLPackageCache;
 import com.amazon.apl.android.render.dagger.ApplicationContext;
 import com.amazon.apl.android.render.dagger.ApplicationScope;
 import com.amazon.apl.android.render.network.NetworkExecutor;
 import com.amazon.apl.android.render.network.OkHttpClientWrapper;
+import com.amazon.apl.android.render.network.PackageFetcher;
 
 import dagger.Lazy;
 import dagger.Module;
@@ -34,6 +36,10 @@ import okhttp3.OkHttpClient;
 @Module(includes = {ApplicationModule.class})
 public class NetworkModule {
     private static final long CACHE_SIZE = 4L * 1024L * 1024L; // cache size 4MiB on disk
+    // Most documents import packages from the same host, which OkHttp limits to 5 parallel requests by default.
+    private static final int MAX_PARALLEL_PACKAGE_FETCHES = 8;
+    private static final long PACKAGE_CACHE_SIZE = 2L * 1024L * 1024L; // package cache size 2MiB in memory
+    private static final String PACKAGE_CACHE_PREFERENCES = "com.amazon.apl.render.packageCache";
 
     /**
      * Provides an instance of {@link OkHttpClient}.
@@ -44,7 +50,9 @@ public class NetworkModule {
     @Provides
     @ApplicationScope
     OkHttpClient provideOkHttpClient(final Cache cache) {
-        return new OkHttpClient.Builder().cache(cache).build();
+        OkHttpClient client = new OkHttpClient.Builder().cache(cache).build();
+        client.dispatcher().setMaxRequestsPerHost(MAX_PARALLEL_PACKAGE_FETCHES);
+        return client;
     }
 
     /**
@@ -59,6 +67,32 @@ public class NetworkModule {
         return new OkHttpClientWrapper(okHttpClient);
     }
 
+    /**
+     * Provides the fetcher of APL packages shared by all the documents, so concurrent documents share the fetches
+     * of common packages.
+     *
+     * @param okHttpClientWrapper the OkHttp client wrapper
+     * @return An instance of {@link PackageFetcher}
+     */
+    @Provides
+    @ApplicationScope
+    PackageFetcher providePackageFetcher(OkHttpClientWrapper okHttpClientWrapper) {
+        return new PackageFetcher(okHttpClientWrapper, MAX_PARALLEL_PACKAGE_FETCHES);
+    }
+
+    /**
+     * Provides the in-memory cache of APL packages shared by all the documents.
+     *
+     * @param context The application {@link Context}.
+     * @return An instance of {@link APLPackageCache}
+     */
+    @Provides
+    @ApplicationScope
+    APLPackageCache providePackageCache(@ApplicationContext final Context context) {
+        return new APLPackageCache(
+                PACKAGE_CACHE_SIZE, context.getSharedPreferences(PACKAGE_CACHE_PREFERENCES, Context.MODE_PRIVATE));
+    }
+
     /**
      * Provides an instance of the application {@link Cache}.
      *
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.apl.android.render.network;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+
+/**
+ * Fetches APL packages with a bounded number of parallel requests. Requests for a url that is already being
+ * fetched are attached to the ongoing request instead of starting another one. A failed fetch is forgotten, so the
+ * url is requested again the next time it is fetched.
+ */
+public class PackageFetcher {
+    private static final String TAG = PackageFetcher.class.getSimpleName();
+
+    /**
+     * Receives the result of a package fetch. Called on an OkHttp thread.
+     */
+    public interface Listener {
+        /**
+         * @param url the url of the package.
+         * @param body the package document.
+         * @param fetchTimeMs the time from the start of the request until the package was received.
+         * @param isCacheHit true if the package was served from the http cache.
+         */
+        void onPackageFetched(String url, String body, long fetchTimeMs, boolean isCacheHit);
+
+        void onPackageFetchFailed(String url);
+    }
+
+    private static class Fetch {
+        final String mUrl;
+        final List<Listener> mListeners = new ArrayList<>();
+        long mStartTimeMs;
+        Call mCall;
+        boolean mRunning;
+        boolean mFinished;
+
+        Fetch(String url) {
+            mUrl = url;
+        }
+    }
+
+    private final OkHttpClientWrapper mOkHttpClient;
+    private final int mMaxParallelFetches;
+    private final Map<String, Fetch> mFetches = new HashMap<>();
+    private final Queue<Fetch> mPendingFetches = new ArrayDeque<>();
+    private int mRunningFetches;
+
+    /**
+     * @param okHttpClient the client used to fetch the packages.
+     * @param maxParallelFetches the maximum number of packages fetched at the same time.
+     */
+    public PackageFetcher(@NonNull OkHttpClientWrapper okHttpClient, int maxParallelFetches) {
+        mOkHttpClient = okHttpClient;
+        mMaxParallelFetches = maxParallelFetches;
+    }
+
+    /**
+     * Fetches the package at the given url, or attaches the listener to the fetch of that url if it is in flight.
+     */
+    public void fetch(@NonNull String url, @NonNull Listener listener) {
+        synchronized (this) {
+            Fetch fetch = mFetches.get(url);
+            if (fetch != null) {
+                Log.v(TAG, "Joining in-flight fetch of " + url);
+                fetch.mListeners.add(listener);
+                return;
+            }
+            fetch = new Fetch(url);
+            fetch.mListeners.add(listener);
+            mFetches.put(url, fetch);
+            mPendingFetches.add(fetch);
+        }
+        startPendingFetches();
+    }
+
+    /**
+     * Detaches the listener from its fetches, for example when its document is discarded. The fetches no other
+     * listener is waiting for are cancelled. The listener is not notified.
+     */
+    public void cancel(@NonNull Listener listener) {
+        List<Call> calls = new ArrayList<>();
+        synchronized (this) {
+            for (Fetch fetch : new ArrayList<>(mFetches.values())) {
+                if (fetch.mListeners.remove(listener) && fetch.mListeners.isEmpty()) {
+                    Log.v(TAG, "Cancelling fetch of " + fetch.mUrl);
+                    cancelFetch(fetch, calls);
+                }
+            }
+        }
+        cancelCalls(calls);
+    }
+
+    /**
+     * Cancels all the running and pending fetches of this fetcher. Their listeners are notified of the failure.
+     * Other requests of the http client are not affected.
+     */
+    public void cancelAll() {
+        List<Fetch> fetches;
+        List<Call> calls = new ArrayList<>();
+        synchronized (this) {
+            fetches = new ArrayList<>(mFetches.values());
+            for (Fetch fetch : fetches) {
+                cancelFetch(fetch, calls);
+            }
+        }
+        cancelCalls(calls);
+        for (Fetch fetch : fetches) {
+            for (Listener listener : fetch.mListeners) {
+                listener.onPackageFetchFailed(fetch.mUrl);
+            }
+        }
+    }
+
+    /**
+     * Finishes the fetch and collects its call to cancel. Requires the lock.
+     */
+    private void cancelFetch(Fetch fetch, List<Call> calls) {
+        mPendingFetches.remove(fetch);
+        if (finishFetchLocked(fetch) && fetch.mCall != null) {
+            calls.add(fetch.mCall);
+        }
+    }
+
+    private void cancelCalls(List<Call> calls) {
+        // The failure callbacks of the cancelled calls find their fetch finished and are ignored
+        for (Call call : calls) {
+            call.cancel();
+        }
+        startPendingFetches();
+    }
+
+    private void startPendingFetches() {
+        List<Fetch> fetches = new ArrayList<>();
+        synchronized (this) {
+            while (mRunningFetches < mMaxParallelFetches && !mPendingFetches.isEmpty()) {
+                Fetch fetch = mPendingFetches.poll();
+                fetch.mStartTimeMs = SystemClock.elapsedRealtime();
+                fetch.mRunning = true;
+                mRunningFetches++;
+                fetches.add(fetch);
+            }
+        }
+        for (Fetch fetch : fetches) {
+            startFetch(fetch);
+        }
+    }
+
+    private void startFetch(Fetch fetch) {
+        Call call;
+        try {
+            call = mOkHttpClient.newCall(fetch.mUrl);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Invalid package url " + fetch.mUrl);
+            onFetchFailed(fetch);
+            return;
+        }
+        synchronized (this) {
+            if (fetch.mFinished) {
+                // Cancelled before the call was created
+                return;
+            }
+            fetch.mCall = call;
+        }
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull final Call call, @NonNull final IOException e) {
+                Log.e(TAG, "OkHttp failure. " + e.getMessage());
+                onFetchFailed(fetch);
+            }
+
+            @Override
+            public void onResponse(@NonNull final Call call, @NonNull final Response response) {
+                try {
+                    if (!response.isSuccessful() || response.body() == null) {
+                        Log.e(TAG, "OkHttp response failure, code: " + response.code());
+                        onFetchFailed(fetch);
+                        return;
+                    }
+                    String body = response.body().string();
+                    boolean isCacheHit = response.cacheResponse() != null && response.networkResponse() == null;
+                    onFetchSucceeded(fetch, body, isCacheHit);
+                } catch (IOException e) {
+                    Log.e(TAG, "OkHttp response error. " + e.getMessage());
+                    onFetchFailed(fetch);
+                } finally {
+                    response.close();
+                }
+            }
+        });
+    }
+
+    private void onFetchSucceeded(Fetch fetch, String body, boolean isCacheHit) {
+        List<Listener> listeners = finishFetch(fetch);
+        long fetchTimeMs = SystemClock.elapsedRealtime() - fetch.mStartTimeMs;
+        for (Listener listener : listeners) {
+            listener.onPackageFetched(fetch.mUrl, body, fetchTimeMs, isCacheHit);
+        }
+    }
+
+    private void onFetchFailed(Fetch fetch) {
+        for (Listener listener : finishFetch(fetch)) {
+            listener.onPackageFetchFailed(fetch.mUrl);
+        }
+    }
+
+    /**
+     * @return the listeners to notify, or none if the fetch was already finished, for example by a cancel.
+     */
+    private List<Listener> finishFetch(Fetch fetch) {
+        List<Listener> listeners = new ArrayList<>();
+        synchronized (this) {
+            if (finishFetchLocked(fetch)) {
+                listeners.addAll(fetch.mListeners);
+            }
+        }
+        startPendingFetches();
+        return listeners;
+    }
+
+    /**
+     * Removes the fetch and releases its slot, once. Requires the lock.
+     *
+     * @return false if the fetch was already finished.
+     */
+    private boolean finishFetchLocked(Fetch fetch) {
+        if (fetch.mFinished) {
+            return false;
+        }
+        fetch.mFinished = true;
+        // A newer fetch of the same url may have replaced this one
+        if (mFetches.get(fetch.mUrl) == fetch) {
+            mFetches.remove(fetch.mUrl);
+        }
+        if (fetch.mRunning) {
+            mRunningFetches--;
+        }
+        return true;
+    }
+}
@@ -52,4 +52,20 @@ public class RenderedDocumentStatePayload extends APLPayload {
                 .put(FIELD_VERSION, mVersionName)
                 .put(FIELD_COMPONENTS_VISIBLE_ON_SCREEN, mComponentsVisibleOnScreenArray);
     }
+
+    /**
+     * Serializes the payload with components visible on screen that are already serialized, instead of
+     * {@link #getComponentsVisibleOnScreenArray()}.
+     *
+     * @param componentsVisibleOnScreen the serialized JSON array of the components visible on screen.
+     */
+    public String toJsonString(String componentsVisibleOnScreen) throws JSONException {
+        String json = new JSONObject()
+                              .put(FIELD_TOKEN, getPresentationToken())
+                              .put(RenderDocumentPayload.FIELD_PRESENTATION_SESSION, mPresentationSession.toJson())
+                              .put(FIELD_VERSION, mVersionName)
+                              .toString();
+        return json.substring(0, json.length() - 1) + ",\"" + FIELD_COMPONENTS_VISIBLE_ON_SCREEN
+                + "\":" + componentsVisibleOnScreen + "}";
+    }
 }
@@ -0,0 +1,148 @@
+package com.amazon.apl.android.render.content;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.amazon.apl.android.render.network.PackageFetcher;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(RobolectricTestRunner.class)
+public class APLPackageCacheTest {
+    // Documents are stored as UTF-16, so each character takes 2 bytes of the budget
+    private static final long BUDGET_BYTES = 100;
+
+    private static final APLPackageCache.PackageKey LAYOUTS =
+            new APLPackageCache.PackageKey("alexa-layouts", "1.6.0", null);
+    private static final APLPackageCache.PackageKey STYLES =
+            new APLPackageCache.PackageKey("alexa-styles", "1.5.0", null);
+
+    private SharedPreferences mPreferences;
+    private APLPackageCache mClassUnderTest;
+
+    @Before
+    public void setup() {
+        mPreferences = RuntimeEnvironment.application.getSharedPreferences("test", Context.MODE_PRIVATE);
+        mPreferences.edit().clear().commit();
+        mClassUnderTest = new APLPackageCache(BUDGET_BYTES, mPreferences);
+    }
+
+    @Test
+    public void get_afterPut_returnsEntry() {
+        APLPackageCache.Entry entry = APLPackageCache.parse(importing(STYLES));
+        mClassUnderTest.put(LAYOUTS, entry);
+
+        Assert.assertSame(entry, mClassUnderTest.get(LAYOUTS));
+        Assert.assertEquals(Collections.singletonList(STYLES), entry.getImports());
+    }
+
+    @Test
+    public void get_unknownKey_returnsNull() {
+        mClassUnderTest.put(LAYOUTS, APLPackageCache.parse("{}"));
+
+        Assert.assertNull(mClassUnderTest.get(STYLES));
+        Assert.assertNull(mClassUnderTest.get(new APLPackageCache.PackageKey("alexa-layouts", "1.5.0", null)));
+    }
+
+    @Test
+    public void put_budgetExceeded_evictsLeastRecentlyUsed() {
+        APLPackageCache.PackageKey other = new APLPackageCache.PackageKey("other", "1.0", null);
+        // 40 bytes each, only two fit into the budget
+        mClassUnderTest.put(LAYOUTS, document(20));
+        mClassUnderTest.put(STYLES, document(20));
+        mClassUnderTest.get(LAYOUTS);
+
+        mClassUnderTest.put(other, document(20));
+
+        Assert.assertNotNull(mClassUnderTest.get(LAYOUTS));
+        Assert.assertNull(mClassUnderTest.get(STYLES));
+        Assert.assertNotNull(mClassUnderTest.get(other));
+    }
+
+    @Test
+    public void put_entryLargerThanBudget_isNotCached() {
+        mClassUnderTest.put(LAYOUTS, document((int) BUDGET_BYTES));
+
+        Assert.assertNull(mClassUnderTest.get(LAYOUTS));
+    }
+
+    @Test
+    public void recordDocumentImports_isRestoredByNewInstance() {
+        mClassUnderTest.recordDocumentImports(importing(LAYOUTS, STYLES));
+        mClassUnderTest.recordDocumentImports(importing(LAYOUTS));
+
+        Assert.assertEquals(Arrays.asList(STYLES, LAYOUTS), mClassUnderTest.getRecentImports());
+        Assert.assertEquals(Arrays.asList(STYLES, LAYOUTS),
+                new APLPackageCache(BUDGET_BYTES, mPreferences).getRecentImports());
+    }
+
+    @Test
+    public void recordDocumentImports_keepsMostRecentImports() {
+        for (int i = 0; i < 10; i++) {
+            mClassUnderTest.recordDocumentImports(
+                    importing(new APLPackageCache.PackageKey("package" + i, "1.0", "https://host/" + i)));
+        }
+
+        Assert.assertEquals(8, mClassUnderTest.getRecentImports().size());
+        Assert.assertEquals(new APLPackageCache.PackageKey("package2", "1.0", "https://host/2"),
+                mClassUnderTest.getRecentImports().get(0));
+    }
+
+    @Test
+    public void warmUp_fetchesRecentImportsNotCached() {
+        PackageFetcher packageFetcher = Mockito.mock(PackageFetcher.class);
+        mClassUnderTest.recordDocumentImports(importing(LAYOUTS, STYLES));
+        mClassUnderTest.put(STYLES, APLPackageCache.parse("{}"));
+
+        mClassUnderTest.warmUp(packageFetcher);
+
+        verify(packageFetcher).fetch(eq(LAYOUTS.getUrl()), any(PackageFetcher.Listener.class));
+        verify(packageFetcher, never()).fetch(eq(STYLES.getUrl()), any(PackageFetcher.Listener.class));
+    }
+
+    @Test
+    public void warmUp_nothingRendered_fetchesNothing() {
+        PackageFetcher packageFetcher = Mockito.mock(PackageFetcher.class);
+
+        mClassUnderTest.warmUp(packageFetcher);
+
+        verify(packageFetcher, never()).fetch(anyString(), any(PackageFetcher.Listener.class));
+    }
+
+    private static APLPackageCache.Entry document(int length) {
+        char[] padding = new char[length - 2];
+        Arrays.fill(padding, ' ');
+        return APLPackageCache.parse("{" + new String(padding) + "}");
+    }
+
+    private static String importing(APLPackageCache.PackageKey... keys) {
+        StringBuilder document = new StringBuilder("{\"import\":[");
+        for (int i = 0; i < keys.length; i++) {
+            String[] parts = keys[i].toString().split(":");
+            if (i > 0) {
+                document.append(',');
+            }
+            document.append("{\"name\":\"").append(parts[0]).append("\",\"version\":\"").append(parts[1]).append('"');
+            if (!keys[i].getUrl().startsWith("https://d2na8397m465mh.cloudfront.net/")) {
+                document.append(",\"source\":\"").append(keys[i].getUrl()).append('"');
+            }
+            document.append('}');
+        }
+        return document.append("]}").toString();
+    }
+}
@@ -0,0 +1,115 @@
+package com.amazon.apl.android.render.context;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class VisualContextTrackerTest {
+    private static final String TOKEN = "token";
+
+    private final List<String> mContexts = new ArrayList<>();
+    private VisualContextTracker mClassUnderTest;
+
+    @Before
+    public void setup() {
+        // Runs the pushes right away on the calling thread
+        ScheduledExecutorService executor = Mockito.mock(ScheduledExecutorService.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        })
+                .when(executor)
+                .schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        })
+                .when(executor)
+                .execute(any(Runnable.class));
+        mClassUnderTest = new VisualContextTracker(executor, (token, context) -> mContexts.add(context), 0);
+    }
+
+    @Test
+    public void update_unchangedComponents_areNotSerializedAgain() throws Exception {
+        mClassUnderTest.onVisualContextUpdate(TOKEN, createContext("0,0,100,100", "first"));
+        int serializedCount = mClassUnderTest.getSerializedComponentCount();
+
+        mClassUnderTest.onVisualContextUpdate(TOKEN, createContext("0,0,100,100", "first"));
+
+        Assert.assertEquals(2, serializedCount);
+        Assert.assertEquals(serializedCount, mClassUnderTest.getSerializedComponentCount());
+        // The unchanged context is not sent again
+        Assert.assertEquals(1, mContexts.size());
+    }
+
+    @Test
+    public void update_positionChanged_serializesChangedComponentOnly() throws Exception {
+        mClassUnderTest.onVisualContextUpdate(TOKEN, createContext("0,0,100,100", "first"));
+        int serializedCount = mClassUnderTest.getSerializedComponentCount();
+
+        mClassUnderTest.onVisualContextUpdate(TOKEN, createContext("0,-50,100,100", "first"));
+
+        Assert.assertEquals(serializedCount + 1, mClassUnderTest.getSerializedComponentCount());
+        Assert.assertEquals(2, mContexts.size());
+        Assert.assertEquals(serialize(createContext("0,-50,100,100", "first")), mContexts.get(1));
+    }
+
+    @Test
+    public void update_otherFieldChanged_sendsNewValue() throws Exception {
+        mClassUnderTest.onVisualContextUpdate(TOKEN, createContext("0,0,100,100", "first"));
+
+        mClassUnderTest.onVisualContextUpdate(TOKEN, createContext("0,0,100,100", "second"));
+
+        Assert.assertEquals(2, mContexts.size());
+        Assert.assertTrue(mContexts.get(1).contains("second"));
+        Assert.assertEquals(serialize(createContext("0,0,100,100", "second")), mContexts.get(1));
+    }
+
+    @Test
+    public void update_sameStringValueOfOtherType_isSerializedAgain() throws Exception {
+        JSONObject context = createContext("0,0,100,100", "first");
+        mClassUnderTest.onVisualContextUpdate(TOKEN, context);
+        int serializedCount = mClassUnderTest.getSerializedComponentCount();
+
+        context.put("id", 1);
+        mClassUnderTest.onVisualContextUpdate(TOKEN, context);
+        context.put("id", "1");
+        mClassUnderTest.onVisualContextUpdate(TOKEN, context);
+
+        Assert.assertEquals(serializedCount + 2, mClassUnderTest.getSerializedComponentCount());
+        Assert.assertEquals(3, mContexts.size());
+    }
+
+    private static JSONObject createContext(String childPosition, String childValue) throws Exception {
+        JSONObject child = new JSONObject()
+                                   .put("uid", ":1001")
+                                   .put("position", childPosition)
+                                   .put("visibility", 1)
+                                   .put("entities", new JSONArray().put(new JSONObject().put("value", childValue)));
+        return new JSONObject()
+                .put("uid", ":1000")
+                .put("id", "root")
+                .put("position", "0,0,1280,720")
+                .put("tags", new JSONObject().put("viewport", new JSONObject()))
+                .put("children", new JSONArray().put(child));
+    }
+
+    private static String serialize(JSONObject context) {
+        return "[" + context.toString() + "]";
+    }
+}
@@ -0,0 +1,211 @@
+package com.amazon.apl.android.render.network;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+@RunWith(RobolectricTestRunner.class)
+public class PackageFetcherTest {
+    private static final long TIMEOUT_MS = 5000;
+    private static final int MAX_PARALLEL_FETCHES = 2;
+
+    private MockWebServer mServer;
+    private OkHttpClient mOkHttpClient;
+    private PackageFetcher mClassUnderTest;
+    private final CountDownLatch mReleaseResponses = new CountDownLatch(1);
+    private final List<String> mRequestedPaths = Collections.synchronizedList(new ArrayList<>());
+    private volatile int mServerErrorsToReturn;
+
+    @Before
+    public void setup() throws IOException {
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                mRequestedPaths.add(request.getPath());
+                if (request.getPath().startsWith("/blocked")) {
+                    mReleaseResponses.await();
+                }
+                if (mServerErrorsToReturn > 0) {
+                    mServerErrorsToReturn--;
+                    return new MockResponse().setResponseCode(500);
+                }
+                return new MockResponse().setBody("body" + request.getPath());
+            }
+        });
+        mServer.start();
+        mOkHttpClient = new OkHttpClient();
+        mClassUnderTest = new PackageFetcher(new OkHttpClientWrapper(() -> mOkHttpClient), MAX_PARALLEL_FETCHES);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mReleaseResponses.countDown();
+        mServer.shutdown();
+    }
+
+    @Test
+    public void fetch_moreThanParallelLimit_runsAtMostLimitAtOnce() throws Exception {
+        RecordingListener listener = new RecordingListener(4);
+        for (int i = 0; i < 4; i++) {
+            mClassUnderTest.fetch(url("/blocked" + i), listener);
+        }
+
+        waitForRequests(MAX_PARALLEL_FETCHES);
+        Thread.sleep(200);
+        Assert.assertEquals(MAX_PARALLEL_FETCHES, mRequestedPaths.size());
+
+        mReleaseResponses.countDown();
+        Assert.assertTrue(listener.await());
+        Assert.assertEquals(4, listener.mFetched.size());
+        Assert.assertEquals(4, mRequestedPaths.size());
+    }
+
+    @Test
+    public void fetch_sameUrlInFlight_isRequestedOnce() throws Exception {
+        RecordingListener first = new RecordingListener(1);
+        RecordingListener second = new RecordingListener(1);
+        mClassUnderTest.fetch(url("/blocked"), first);
+        mClassUnderTest.fetch(url("/blocked"), second);
+
+        mReleaseResponses.countDown();
+        Assert.assertTrue(first.await());
+        Assert.assertTrue(second.await());
+        Assert.assertEquals(1, mRequestedPaths.size());
+        Assert.assertEquals(Collections.singletonList("body/blocked"), second.mFetched);
+    }
+
+    @Test
+    public void cancel_onlyCancelsFetchesOfListener() throws Exception {
+        RecordingListener cancelled = new RecordingListener(1);
+        RecordingListener other = new RecordingListener(2);
+        mClassUnderTest.fetch(url("/blocked1"), cancelled);
+        mClassUnderTest.fetch(url("/blocked2"), other);
+        // Pending until a running fetch finishes
+        mClassUnderTest.fetch(url("/pending"), other);
+        waitForRequests(MAX_PARALLEL_FETCHES);
+
+        mClassUnderTest.cancel(cancelled);
+
+        // The slot of the cancelled fetch is released for the pending fetch
+        Assert.assertEquals(2, other.mFetchedLatch.getCount());
+        waitForRequests(MAX_PARALLEL_FETCHES + 1);
+        mReleaseResponses.countDown();
+        Assert.assertTrue(other.await());
+        Assert.assertEquals(2, other.mFetched.size());
+        Assert.assertTrue(cancelled.mFetched.isEmpty());
+        Assert.assertTrue(cancelled.mFailed.isEmpty());
+    }
+
+    @Test
+    public void cancelAll_notifiesListenersAndKeepsOtherClientCalls() throws Exception {
+        RecordingListener listener = new RecordingListener(1);
+        mClassUnderTest.fetch(url("/blocked1"), listener);
+        CountDownLatch otherCallDone = new CountDownLatch(1);
+        boolean[] otherCallSucceeded = new boolean[1];
+        mOkHttpClient.newCall(new Request.Builder().url(url("/blocked2")).build()).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                otherCallDone.countDown();
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                otherCallSucceeded[0] = response.isSuccessful();
+                response.close();
+                otherCallDone.countDown();
+            }
+        });
+        waitForRequests(2);
+
+        mClassUnderTest.cancelAll();
+
+        Assert.assertTrue(listener.await());
+        Assert.assertEquals(Collections.singletonList(url("/blocked1")), listener.mFailed);
+        mReleaseResponses.countDown();
+        Assert.assertTrue(otherCallDone.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(otherCallSucceeded[0]);
+
+        // The fetch slots are all available again
+        RecordingListener next = new RecordingListener(MAX_PARALLEL_FETCHES);
+        for (int i = 0; i < MAX_PARALLEL_FETCHES; i++) {
+            mClassUnderTest.fetch(url("/next" + i), next);
+        }
+        Assert.assertTrue(next.await());
+        Assert.assertEquals(MAX_PARALLEL_FETCHES, next.mFetched.size());
+    }
+
+    @Test
+    public void fetch_afterFailure_requestsAgain() throws Exception {
+        mServerErrorsToReturn = 1;
+        RecordingListener failed = new RecordingListener(1);
+        mClassUnderTest.fetch(url("/package"), failed);
+        Assert.assertTrue(failed.await());
+        Assert.assertEquals(Collections.singletonList(url("/package")), failed.mFailed);
+
+        RecordingListener retried = new RecordingListener(1);
+        mClassUnderTest.fetch(url("/package"), retried);
+
+        Assert.assertTrue(retried.await());
+        Assert.assertEquals(Collections.singletonList("body/package"), retried.mFetched);
+        Assert.assertEquals(2, mRequestedPaths.size());
+    }
+
+    private String url(String path) {
+        return mServer.url(path).toString();
+    }
+
+    private void waitForRequests(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (mRequestedPaths.size() < count) {
+            Assert.assertTrue("Timed out waiting for " + count + " requests", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static class RecordingListener implements PackageFetcher.Listener {
+        final List<String> mFetched = Collections.synchronizedList(new ArrayList<>());
+        final List<String> mFailed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch mFetchedLatch;
+
+        RecordingListener(int count) {
+            mFetchedLatch = new CountDownLatch(count);
+        }
+
+        boolean await() throws InterruptedException {
+            return mFetchedLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void onPackageFetched(String url, String body, long fetchTimeMs, boolean isCacheHit) {
+            mFetched.add(body);
+            mFetchedLatch.countDown();
+        }
+
+        @Override
+        public void onPackageFetchFailed(String url) {
+            mFailed.add(url);
+            mFetchedLatch.countDown();
+        }
+    }
+}
@@ -16,6 +16,7 @@ package com.amazon.alexa.auto.apps.common.util.config;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Handler;
@@ -32,13 +33,22 @@ import com.amazon.alexa.auto.apps.common.util.LocaleUtil;
 import com.amazon.alexa.auto.apps.common.util.Preconditions;
 
 import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 
+import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.subjects.BehaviorSubject;
 
 /**
  * A helper object to provide Alexa property support.
+ *
+ * Property values are cached in the process once they are read, so repeated reads do not query the AACS property
+ * content provider again. The cache is kept up to date with the change notifications of the content provider.
  */
 public class AlexaPropertyManager {
     private static final String TAG = AlexaPropertyManager.class.getSimpleName();
@@ -51,19 +61,36 @@ public class AlexaPropertyManager {
     private final ExecutorService mExecutorService;
     @NonNull
     private final Handler mMainThreadHandler;
+    @NonNull
+    private final Map<String, Optional<String>> mPropertyCache = new ConcurrentHashMap<>();
+    @NonNull
+    private final Map<String, BehaviorSubject<Optional<String>>> mPropertySubjects = new ConcurrentHashMap<>();
+    @NonNull
+    private final ContentObserver mPropertyObserver;
+    private boolean mPropertyObserverRegistered;
 
     public AlexaPropertyManager(@NonNull WeakReference<Context> contextWk, @NonNull ExecutorService executorService) {
         mContextWk = contextWk;
         mExecutorService = executorService;
         mMainThreadHandler = new Handler(Looper.getMainLooper());
+        mPropertyObserver = new ContentObserver(mMainThreadHandler) {
+            @Override
+            public void onChange(boolean selfChange, Uri uri) {
+                onPropertyChanged(uri);
+            }
+        };
     }
 
     /**
-     * Query Alexa property with property name.
+     * Query Alexa property with property name. A cached value is returned without querying AACS.
      * @param propName property name.
      * @return future for property value.
      */
     public Single<Optional<String>> getAlexaProperty(String propName) {
+        Optional<String> cachedValue = mPropertyCache.get(propName);
+        if (cachedValue != null) {
+            return Single.just(cachedValue);
+        }
         return Single.create(emitter -> {
             mExecutorService.submit(() -> {
                 Optional<String> propValue = getAlexaPropertySync(propName);
@@ -72,6 +99,24 @@ public class AlexaPropertyManager {
         });
     }
 
+    /**
+     * Observe Alexa property with property name. The current value is emitted first, then every new value.
+     * Values are emitted on the main thread.
+     * @param propName property name.
+     * @return observable for property value.
+     */
+    public Observable<Optional<String>> observeAlexaProperty(String propName) {
+        BehaviorSubject<Optional<String>> subject = getPropertySubject(propName);
+        if (!subject.hasValue()) {
+            getAlexaProperty(propName).subscribe(propValue -> {
+                if (!subject.hasValue()) {
+                    subject.onNext(propValue);
+                }
+            });
+        }
+        return subject.hide();
+    }
+
     /**
      * Query Alexa property with property name.
      * @param propName property name.
@@ -140,16 +185,81 @@ public class AlexaPropertyManager {
     }
 
     private Optional<String> getAlexaPropertySync(String name) {
+        Optional<String> cachedValue = mPropertyCache.get(name);
+        if (cachedValue != null) {
+            return cachedValue;
+        }
+
+        registerPropertyObserver();
+        Optional<String> propValue = queryAlexaProperty(name);
+        if (!propValue.isPresent()) {
+            // AACS may not be started yet, the property is queried again on the next read
+            return propValue;
+        }
+        // A value reported by a change notification during the query is more recent
+        cachedValue = mPropertyCache.putIfAbsent(name, propValue);
+        return cachedValue != null ? cachedValue : propValue;
+    }
+
+    private Optional<String> queryAlexaProperty(String name) {
         try (Cursor cursor = mContextWk.get().getContentResolver().query(mUri, null, name, null, null)) {
-            if (cursor != null) {
-                cursor.moveToFirst();
-                return Optional.of(cursor.getString(1));
+            if (cursor != null && cursor.moveToFirst()) {
+                return Optional.ofNullable(cursor.getString(1));
             }
         }
 
         return Optional.empty();
     }
 
+    private synchronized void registerPropertyObserver() {
+        if (mPropertyObserverRegistered) {
+            return;
+        }
+        Context context = mContextWk.get();
+        Preconditions.checkNotNull(context);
+
+        // Changes are notified on the uri of the property, which is a descendant of the provider uri
+        context.getContentResolver().registerContentObserver(mUri, true, mPropertyObserver);
+        mPropertyObserverRegistered = true;
+    }
+
+    private BehaviorSubject<Optional<String>> getPropertySubject(String name) {
+        return mPropertySubjects.computeIfAbsent(name, key -> BehaviorSubject.create());
+    }
+
+    private void onPropertyChanged(Uri uri) {
+        String name = uri != null && !mUri.equals(uri) ? uri.getLastPathSegment() : null;
+        // The provider uri itself is notified by AACS versions that do not report the changed property
+        Set<String> names = new HashSet<>();
+        if (name != null) {
+            names.add(name);
+        } else {
+            names.addAll(mPropertyCache.keySet());
+            names.addAll(mPropertySubjects.keySet());
+        }
+        for (String changedName : names) {
+            if (!mPropertyCache.containsKey(changedName) && !mPropertySubjects.containsKey(changedName)) {
+                continue;
+            }
+            mExecutorService.submit(() -> {
+                Optional<String> propValue = queryAlexaProperty(changedName);
+                cacheProperty(changedName, propValue);
+            });
+        }
+    }
+
+    private void cacheProperty(String name, Optional<String> propValue) {
+        Optional<String> previousValue = mPropertyCache.put(name, propValue);
+        if (propValue.equals(previousValue)) {
+            return;
+        }
+        Log.d(TAG, "Property changed " + name);
+        BehaviorSubject<Optional<String>> subject = mPropertySubjects.get(name);
+        if (subject != null) {
+            mMainThreadHandler.post(() -> subject.onNext(propValue));
+        }
+    }
+
     private boolean updateAlexaPropertySync(String name, String value) {
         ContentValues values = new ContentValues();
         values.put(name, value);
@@ -158,6 +268,11 @@ public class AlexaPropertyManager {
         Preconditions.checkNotNull(context);
 
         // If one row is updated, we are through with update.
-        return context.getContentResolver().update(mUri, values, name, null) == 1;
+        registerPropertyObserver();
+        boolean updated = context.getContentResolver().update(mUri, values, name, null) == 1;
+        if (updated) {
+            cacheProperty(name, Optional.ofNullable(value));
+        }
+        return updated;
     }
 }
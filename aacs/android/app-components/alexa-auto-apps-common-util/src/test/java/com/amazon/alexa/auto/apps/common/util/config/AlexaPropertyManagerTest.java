@@ -0,0 +1,112 @@
+package com.amazon.alexa.auto.apps.common.util.config;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.MatrixCursor;
+import android.net.Uri;
+
+import com.amazon.aacsconstants.AACSConstants;
+import com.amazon.aacsconstants.AACSPropertyConstants;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.ref.WeakReference;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import io.reactivex.rxjava3.observers.TestObserver;
+
+@RunWith(RobolectricTestRunner.class)
+public class AlexaPropertyManagerTest {
+    private static final Uri PROPERTY_URI = Uri.parse("content://" + AACSConstants.AACS_PROPERTY_URI);
+
+    private ContentResolver mMockContentResolver;
+    private AlexaPropertyManager mClassUnderTest;
+    private String mLocale = "en-US";
+
+    @Before
+    public void setup() {
+        Context mockContext = Mockito.mock(Context.class);
+        mMockContentResolver = Mockito.mock(ContentResolver.class);
+        Mockito.when(mockContext.getContentResolver()).thenReturn(mMockContentResolver);
+        Mockito.when(mMockContentResolver.query(
+                             eq(PROPERTY_URI), isNull(), eq(AACSPropertyConstants.LOCALE), isNull(), isNull()))
+                .thenAnswer(invocation -> {
+                    MatrixCursor cursor = new MatrixCursor(new String[] {"name", "value"});
+                    cursor.addRow(new String[] {AACSPropertyConstants.LOCALE, mLocale});
+                    return cursor;
+                });
+
+        ExecutorService mockExecutor = Mockito.mock(ExecutorService.class);
+        Mockito.when(mockExecutor.submit(any(Runnable.class))).thenAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        });
+
+        mClassUnderTest = new AlexaPropertyManager(new WeakReference<>(mockContext), mockExecutor);
+    }
+
+    @Test
+    public void testRepeatedReadsAreServedFromCache() {
+        for (int i = 0; i < 3; i++) {
+            TestObserver<Optional<String>> observer =
+                    mClassUnderTest.getAlexaProperty(AACSPropertyConstants.LOCALE).test();
+            ShadowLooper.idleMainLooper();
+            observer.assertValue(Optional.of("en-US"));
+        }
+
+        Mockito.verify(mMockContentResolver, Mockito.times(1))
+                .query(eq(PROPERTY_URI), isNull(), eq(AACSPropertyConstants.LOCALE), isNull(), isNull());
+    }
+
+    @Test
+    public void testCacheIsRefreshedOnPropertyChange() {
+        TestObserver<Optional<String>> observer =
+                mClassUnderTest.observeAlexaProperty(AACSPropertyConstants.LOCALE).test();
+        ShadowLooper.idleMainLooper();
+        observer.assertValue(Optional.of("en-US"));
+
+        ArgumentCaptor<ContentObserver> contentObserver = ArgumentCaptor.forClass(ContentObserver.class);
+        Mockito.verify(mMockContentResolver).registerContentObserver(eq(PROPERTY_URI), anyBoolean(),
+                contentObserver.capture());
+
+        mLocale = "de-DE";
+        contentObserver.getValue().onChange(false, Uri.withAppendedPath(PROPERTY_URI, AACSPropertyConstants.LOCALE));
+        ShadowLooper.idleMainLooper();
+        observer.assertValues(Optional.of("en-US"), Optional.of("de-DE"));
+
+        TestObserver<Optional<String>> readObserver =
+                mClassUnderTest.getAlexaProperty(AACSPropertyConstants.LOCALE).test();
+        readObserver.assertValue(Optional.of("de-DE"));
+        Mockito.verify(mMockContentResolver, Mockito.times(2))
+                .query(eq(PROPERTY_URI), isNull(), eq(AACSPropertyConstants.LOCALE), isNull(), isNull());
+    }
+
+    @Test
+    public void testUpdatedValueIsCached() {
+        Mockito.when(mMockContentResolver.update(eq(PROPERTY_URI), any(), eq(AACSPropertyConstants.LOCALE), isNull()))
+                .thenReturn(1);
+
+        TestObserver<Boolean> updateObserver =
+                mClassUnderTest.updateAlexaProperty(AACSPropertyConstants.LOCALE, "fr-FR").test();
+        ShadowLooper.idleMainLooper();
+        updateObserver.assertValue(true);
+
+        mClassUnderTest.getAlexaProperty(AACSPropertyConstants.LOCALE).test().assertValue(Optional.of("fr-FR"));
+        Mockito.verify(mMockContentResolver, Mockito.never())
+                .query(eq(PROPERTY_URI), isNull(), eq(AACSPropertyConstants.LOCALE), isNull(), isNull());
+    }
+}
@@ -27,7 +27,10 @@ import org.json.JSONObject;
 import java.io.File;
 import java.io.FileInputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class CarControlHelper {
     public static final String TAG = CarControlHelper.class.getCanonicalName();
@@ -41,6 +44,12 @@ public class CarControlHelper {
     private SharedPreferences mAreaPref;
     private SharedPreferences mModePref;
 
+    // Compiled from the mapping stored in the SharedPreferences, and cleared when the mapping changes
+    private volatile RoutingTable mRoutingTable;
+    // SharedPreferences only keep a weak reference to their listeners
+    private final SharedPreferences.OnSharedPreferenceChangeListener mMappingChangeListener =
+            (sharedPreferences, key) -> mRoutingTable = null;
+
     public CarControlHelper(Context context) {
         mContext = context;
         mCapabilityPref = mContext.getSharedPreferences(AACS_CC_CAPABILITY_MAPPING_URI, mContext.MODE_PRIVATE);
@@ -88,11 +97,15 @@ public class CarControlHelper {
                 Log.e(TAG, "Error open Car Control mapping asset file " + e);
             }
         }
+
+        mCapabilityPref.registerOnSharedPreferenceChangeListener(mMappingChangeListener);
+        mAreaPref.registerOnSharedPreferenceChangeListener(mMappingChangeListener);
+        mRoutingTable = compileRoutingTable();
     }
 
     /**
-     * This method retrieves Android PropertyID, AreaID and Property DataType information from SharedPreference
-     * and assemble into PropertySetting object then return to {@link CarControlHandler} to be used by Set/Adjust
+     * This method retrieves Android PropertyID, AreaID and Property DataType information from the routing table
+     * and returns the PropertySetting to {@link CarControlHandler} to be used by Set/Adjust
      * Controller methods for POWER, TOGGLE and RANGE controller.
      * Note that there is no controllerId present in the payload if the controllerType is "POWER".
      *
@@ -104,45 +117,22 @@ public class CarControlHelper {
      * Instance - ControllerId
      */
     protected PropertySetting getPropertySetting(String endpointId, String capability, String instance) {
-        PropertySetting propertySetting = null;
-        if (mCapabilityPref.getBoolean(AACS_CC_MAPPING, false)) {
-            try {
-                JSONArray capabilitiesArray = new JSONArray(mCapabilityPref.getString(endpointId, ""));
-                for (int i = 0; i < capabilitiesArray.length(); i++) {
-                    if (capability.equals(capabilitiesArray.getJSONObject(i).getString(CarControlConstants.INTERFACE))
-                            && (!capabilitiesArray.getJSONObject(i).has(CarControlConstants.INSTANCE)
-                                    || instance.equals(capabilitiesArray.getJSONObject(i).getString(
-                                            CarControlConstants.INSTANCE)))) {
-                        int areaId = getAreaId(endpointId);
-                        if (capabilitiesArray.getJSONObject(i)
-                                        .getJSONObject(CarControlConstants.CONFIGURATION)
-                                        .has(CarControlConstants.AREA_ID)) {
-                            areaId = Integer.decode(capabilitiesArray.getJSONObject(i)
-                                                            .getJSONObject(CarControlConstants.CONFIGURATION)
-                                                            .getString(CarControlConstants.AREA_ID));
-                        }
-                        int propertyId = (int) VehiclePropertyIds.class
-                                                 .getField(capabilitiesArray.getJSONObject(i)
-                                                                   .getJSONObject(CarControlConstants.CONFIGURATION)
-                                                                   .getString(CarControlConstants.PROPERTY_ID))
-                                                 .get(null);
-                        CarControlConstants.DataType dataType =
-                                CarControlUtil.getDataType(capabilitiesArray.getJSONObject(i)
-                                                                   .getJSONObject(CarControlConstants.CONFIGURATION)
-                                                                   .getString(CarControlConstants.DATA_TYPE));
-                        propertySetting = new PropertySetting(propertyId, areaId, dataType, "");
-                    }
-                }
-            } catch (JSONException | NoSuchFieldException | IllegalAccessException e) {
-                Log.e(TAG, "Could not find Property Setting from AACS CarControl Config " + e);
-            }
+        RoutingTable routingTable = getRoutingTable();
+        PropertySetting propertySetting = routingTable.mSettings.get(routeKey(endpointId, capability, instance));
+        if (propertySetting == null) {
+            propertySetting = routingTable.mAnyInstanceSettings.get(routeKey(endpointId, capability, ""));
+        }
+        if (propertySetting == null) {
+            Log.e(TAG,
+                    String.format("Could not find Property Setting from AACS CarControl Config for %s, %s, %s",
+                            endpointId, capability, instance));
         }
         return propertySetting;
     }
 
     /**
-     * This method retrieves Android PropertyID, AreaID, Property DataType and Setting Value information from
-     * SharedPreference and assemble into PropertySetting list then return to {@link CarControlHandler} to be
+     * This method retrieves Android PropertyID, AreaID, Property DataType and Setting Value information from the
+     * routing table and returns the PropertySetting list to {@link CarControlHandler} to be
      * used by Set/Adjust Controller methods for MODE controller.
      *
      * @param endpointId
@@ -155,57 +145,127 @@ public class CarControlHelper {
      */
     protected List<PropertySetting> getPropertySettings(
             String endpointId, String capability, String instance, String value) {
-        List<PropertySetting> propertySettings = new ArrayList<>();
-        if (mCapabilityPref.getBoolean(AACS_CC_MAPPING, false)) {
-            try {
-                JSONArray supportedModes = getSupportedMode(endpointId, capability, instance);
-                for (int i = 0; i < supportedModes.length(); i++) {
-                    if (value.equals(supportedModes.getJSONObject(i).getString(CarControlConstants.VALUE))) {
-                        JSONArray propertySettingsJson =
-                                supportedModes.getJSONObject(i).getJSONArray(CarControlConstants.MODE_SETTINGS);
-                        for (int j = 0; j < propertySettingsJson.length(); j++) {
-                            int propertyId = (int) VehiclePropertyIds.class
-                                                     .getField(propertySettingsJson.getJSONObject(j).getString(
-                                                             CarControlConstants.PROPERTY_ID))
-                                                     .get(null);
-                            int areaId = getAreaId(endpointId);
-                            if (propertySettingsJson.getJSONObject(j).has(CarControlConstants.AREA_ID)) {
-                                areaId = Integer.decode(
-                                        propertySettingsJson.getJSONObject(j).getString(CarControlConstants.AREA_ID));
-                            }
-                            CarControlConstants.DataType dataType = CarControlUtil.getDataType(
-                                    propertySettingsJson.getJSONObject(j).getString(CarControlConstants.DATA_TYPE));
-                            String setValue =
-                                    propertySettingsJson.getJSONObject(j).getString(CarControlConstants.VALUE);
-                            propertySettings.add(new PropertySetting(propertyId, areaId, dataType, setValue));
-                        }
-                    }
+        ModeRoute modeRoute = getRoutingTable().mModes.get(routeKey(endpointId, capability, instance));
+        if (modeRoute == null || !modeRoute.mSettings.containsKey(value)) {
+            Log.e(TAG,
+                    String.format("Could not find Property Settings for Mode Controller %s, %s, %s, %s",
+                            endpointId, capability, instance, value));
+            return Collections.emptyList();
+        }
+        return modeRoute.mSettings.get(value);
+    }
+
+    protected JSONArray getSupportedMode(String endpointId, String capability, String instance) {
+        ModeRoute modeRoute = getRoutingTable().mModes.get(routeKey(endpointId, capability, instance));
+        return modeRoute != null ? modeRoute.mSupportedModes : new JSONArray();
+    }
+
+    /**
+     * Returns the routing table, compiling it from the stored mapping if the mapping changed since it was
+     * last compiled.
+     */
+    private RoutingTable getRoutingTable() {
+        RoutingTable routingTable = mRoutingTable;
+        if (routingTable == null) {
+            synchronized (this) {
+                routingTable = mRoutingTable;
+                if (routingTable == null) {
+                    routingTable = compileRoutingTable();
+                    mRoutingTable = routingTable;
                 }
-            } catch (JSONException | NoSuchFieldException | IllegalAccessException e) {
-                Log.e(TAG, "Could not find Property Settings for Mode Controller from AACS CarControl Config " + e);
             }
         }
-        return propertySettings;
+        return routingTable;
     }
 
-    protected JSONArray getSupportedMode(String endpointId, String capability, String instance) {
-        if (mCapabilityPref.getBoolean(AACS_CC_MAPPING, false)) {
+    private RoutingTable compileRoutingTable() {
+        Map<String, PropertySetting> settings = new HashMap<>();
+        Map<String, PropertySetting> anyInstanceSettings = new HashMap<>();
+        Map<String, ModeRoute> modes = new HashMap<>();
+        if (!mCapabilityPref.getBoolean(AACS_CC_MAPPING, false)) {
+            Log.w(TAG, "Car Control Mapping is not stored, routing table is empty");
+            return new RoutingTable(settings, anyInstanceSettings, modes);
+        }
+
+        // Property ids are resolved by reflection only once per property name
+        Map<String, Integer> propertyIds = new HashMap<>();
+        for (Map.Entry<String, ?> endpoint : mCapabilityPref.getAll().entrySet()) {
+            if (!(endpoint.getValue() instanceof String)) {
+                continue;
+            }
+            String endpointId = endpoint.getKey();
+            int endpointAreaId = getAreaId(endpointId);
             try {
-                JSONArray capabilitiesArray = new JSONArray(mCapabilityPref.getString(endpointId, ""));
+                JSONArray capabilitiesArray = new JSONArray((String) endpoint.getValue());
                 for (int i = 0; i < capabilitiesArray.length(); i++) {
-                    if (capability.equals(capabilitiesArray.getJSONObject(i).getString(CarControlConstants.INTERFACE))
-                            && instance.equals(
-                                    capabilitiesArray.getJSONObject(i).getString(CarControlConstants.INSTANCE))) {
-                        return capabilitiesArray.getJSONObject(i)
-                                .getJSONObject(CarControlConstants.CONFIGURATION)
-                                .getJSONArray(CarControlConstants.SUPPORTED_MODE);
+                    JSONObject capability = capabilitiesArray.getJSONObject(i);
+                    String capabilityInterface = capability.getString(CarControlConstants.INTERFACE);
+                    JSONObject configuration = capability.getJSONObject(CarControlConstants.CONFIGURATION);
+                    try {
+                        if (CarControlConstants.MODE_CONTROLLER.equals(capabilityInterface)) {
+                            String instance = capability.getString(CarControlConstants.INSTANCE);
+                            modes.put(routeKey(endpointId, capabilityInterface, instance),
+                                    compileModeRoute(configuration, endpointAreaId, propertyIds));
+                        } else if (capability.has(CarControlConstants.INSTANCE)) {
+                            String instance = capability.getString(CarControlConstants.INSTANCE);
+                            settings.put(routeKey(endpointId, capabilityInterface, instance),
+                                    compilePropertySetting(configuration, endpointAreaId, "", propertyIds));
+                        } else {
+                            anyInstanceSettings.put(routeKey(endpointId, capabilityInterface, ""),
+                                    compilePropertySetting(configuration, endpointAreaId, "", propertyIds));
+                        }
+                    } catch (JSONException | NoSuchFieldException | IllegalAccessException e) {
+                        Log.e(TAG,
+                                String.format("Skipping %s of %s in AACS CarControl Config: %s", capabilityInterface,
+                                        endpointId, e));
                     }
                 }
             } catch (JSONException e) {
-                Log.e(TAG, "Could not find PropertyID from AACS CarControl Config " + e);
+                Log.e(TAG, "Could not read capabilities of " + endpointId + " from AACS CarControl Config " + e);
+            }
+        }
+        Log.i(TAG, String.format("Compiled car control routing table with %d settings and %d mode controllers",
+                           settings.size() + anyInstanceSettings.size(), modes.size()));
+        return new RoutingTable(settings, anyInstanceSettings, modes);
+    }
+
+    private ModeRoute compileModeRoute(JSONObject configuration, int endpointAreaId, Map<String, Integer> propertyIds)
+            throws JSONException, NoSuchFieldException, IllegalAccessException {
+        JSONArray supportedModes = configuration.getJSONArray(CarControlConstants.SUPPORTED_MODE);
+        Map<String, List<PropertySetting>> settings = new HashMap<>();
+        for (int i = 0; i < supportedModes.length(); i++) {
+            JSONObject mode = supportedModes.getJSONObject(i);
+            JSONArray propertySettingsJson = mode.getJSONArray(CarControlConstants.MODE_SETTINGS);
+            List<PropertySetting> modeSettings = new ArrayList<>();
+            for (int j = 0; j < propertySettingsJson.length(); j++) {
+                JSONObject setting = propertySettingsJson.getJSONObject(j);
+                modeSettings.add(compilePropertySetting(
+                        setting, endpointAreaId, setting.getString(CarControlConstants.VALUE), propertyIds));
             }
+            settings.put(mode.getString(CarControlConstants.VALUE), Collections.unmodifiableList(modeSettings));
+        }
+        return new ModeRoute(supportedModes, settings);
+    }
+
+    private static PropertySetting compilePropertySetting(JSONObject setting, int endpointAreaId, String value,
+            Map<String, Integer> propertyIds) throws JSONException, NoSuchFieldException, IllegalAccessException {
+        String propertyName = setting.getString(CarControlConstants.PROPERTY_ID);
+        Integer propertyId = propertyIds.get(propertyName);
+        if (propertyId == null) {
+            propertyId = (int) VehiclePropertyIds.class.getField(propertyName).get(null);
+            propertyIds.put(propertyName, propertyId);
+        }
+        int areaId = endpointAreaId;
+        if (setting.has(CarControlConstants.AREA_ID)) {
+            areaId = Integer.decode(setting.getString(CarControlConstants.AREA_ID));
         }
-        return new JSONArray();
+        CarControlConstants.DataType dataType =
+                CarControlUtil.getDataType(setting.getString(CarControlConstants.DATA_TYPE));
+        return new PropertySetting(propertyId, areaId, dataType, value);
+    }
+
+    private static String routeKey(String endpointId, String capability, String instance) {
+        return endpointId + "|" + capability + "|" + instance;
     }
 
     protected void saveModeSettings(String endpointId, String instance, String value) {
@@ -234,6 +294,36 @@ public class CarControlHelper {
         return -1;
     }
 
+    /**
+     * Immutable lookup tables from endpointId, controllerType and instance to the property settings.
+     */
+    private static final class RoutingTable {
+        final Map<String, PropertySetting> mSettings;
+        // Settings of capabilities without an instance, such as the PowerController, which match any instance
+        final Map<String, PropertySetting> mAnyInstanceSettings;
+        final Map<String, ModeRoute> mModes;
+
+        RoutingTable(Map<String, PropertySetting> settings, Map<String, PropertySetting> anyInstanceSettings,
+                Map<String, ModeRoute> modes) {
+            mSettings = Collections.unmodifiableMap(settings);
+            mAnyInstanceSettings = Collections.unmodifiableMap(anyInstanceSettings);
+            mModes = Collections.unmodifiableMap(modes);
+        }
+    }
+
+    /**
+     * The supported modes of a ModeController and the property settings of each mode value.
+     */
+    private static final class ModeRoute {
+        final JSONArray mSupportedModes;
+        final Map<String, List<PropertySetting>> mSettings;
+
+        ModeRoute(JSONArray supportedModes, Map<String, List<PropertySetting>> settings) {
+            mSupportedModes = supportedModes;
+            mSettings = Collections.unmodifiableMap(settings);
+        }
+    }
+
     protected static class PropertySetting {
         public int propertyId;
         public int areaId;
@@ -52,6 +52,7 @@ public class CarControlHelperTests {
     private final int AREA_ID_FULL = 117;
     private final int AREA_ID_LEFT = 49;
     private final int AREA_ID_RIGHT = 68;
+    private final String CAPABILITY_MAPPING_URI = "com.amazon.aacscarcontrolmapping.CarControlHelper.capability";
 
     Context mContext;
     CarControlHelper mHelper;
@@ -134,4 +135,23 @@ public class CarControlHelperTests {
                 DEFAULT_AC_ENDPOINT, CarControlConstants.MODE_CONTROLLER, INTENSITY_INSTANCE, SUPERHIGH_VALUE);
         Assert.assertEquals(settingList.size(), 0);
     }
+
+    @Test
+    public void testGetPropertySettingAfterMappingChange() {
+        mContext.getSharedPreferences(CAPABILITY_MAPPING_URI, Context.MODE_PRIVATE)
+                .edit()
+                .putString(DEFAULT_FAN_ENDPOINT,
+                        "[{\"interface\":\"PowerController\",\"configuration\":"
+                                + "{\"propertyId\":\"HVAC_RECIRC_ON\",\"dataType\":\"boolean\"}}]")
+                .commit();
+
+        CarControlHelper.PropertySetting setting =
+                mHelper.getPropertySetting(DEFAULT_FAN_ENDPOINT, CarControlConstants.POWER_CONTROLLER, "");
+        Assert.assertEquals(setting.propertyId, PROPERTY_ID_HVAC_RECIRC_ON);
+        Assert.assertEquals(setting.areaId, AREA_ID_FULL);
+
+        // The previous capabilities of the endpoint are no longer routed
+        Assert.assertNull(
+                mHelper.getPropertySetting(DEFAULT_FAN_ENDPOINT, CarControlConstants.RANGE_CONTROLLER, SPEED_INSTANCE));
+    }
 }
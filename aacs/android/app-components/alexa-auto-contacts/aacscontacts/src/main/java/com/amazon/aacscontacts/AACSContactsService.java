@@ -97,6 +97,7 @@ public class AACSContactsService extends Service {
 
             switch (message.action) {
                 case Action.AddressBook.ADD_ADDRESS_BOOK:
+                case Action.AddressBook.COMMIT_ADDRESS_BOOK:
                     Log.i(TAG,
                             String.format(
                                     "AddressBook Adding %s with ReplyToId: %s", message.payload, message.replyToId));
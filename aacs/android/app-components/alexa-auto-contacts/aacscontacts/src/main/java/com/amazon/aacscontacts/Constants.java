@@ -30,4 +30,5 @@ public class Constants {
     public static final String LAST_NAME = "lastName";
     public static final String NICK_NAME = "nickname";
     public static final String NUMBER = "number";
+    public static final String CHUNK_COUNT = "chunkCount";
 }
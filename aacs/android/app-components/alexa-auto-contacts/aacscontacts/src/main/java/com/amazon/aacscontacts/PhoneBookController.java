@@ -37,7 +37,9 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -56,6 +58,15 @@ public class PhoneBookController {
     private final int REPLY_WAIT_DURATION = 5000;
     private ExecutorService mExecutor;
 
+    /** Maximum number of contact name and phone entries sent in one AppendAddressBookChunk message. */
+    static final int MAX_ENTRIES_PER_CHUNK = 100;
+
+    private static final String[] CONTACTS_PROJECTION = {ContactsContract.Data.CONTACT_ID,
+            ContactsContract.Data.MIMETYPE, ContactsContract.Data.DATA1, ContactsContract.Data.DATA2,
+            ContactsContract.Data.DATA3};
+    private static final String CONTACTS_SELECTION = ContactsContract.Data.MIMETYPE + " IN (?, ?, ?) AND "
+            + ContactsContract.RawContacts.ACCOUNT_NAME + " = ?";
+
     public PhoneBookController(@NonNull Context context) {
         mAACSSender = new AACSSender();
         mContext = context;
@@ -129,129 +140,57 @@ public class PhoneBookController {
 
     /**
      * Called by Contacts service when it receives intent from OEM app to start uploading contacts.
+     * The contacts are sent to the engine in chunks of at most {@link #MAX_ENTRIES_PER_CHUNK} entries
+     * while they are read, so the memory used does not depend on the size of the address book.
      *
      * @param addressBookSourceId A unique identifier for an address book.
      * @param addressBookName Friendly name of the address book, or an empty string if not available.
+     * @return The id of the CommitAddressBook message, or an empty string if there was nothing to upload.
      */
     String addAddressBook(String addressBookSourceId, String addressBookName) {
         Log.d(TAG, "addAddressBook");
-
-        Boolean hasContacts = false;
-        JSONObject addrBookData = new JSONObject();
-        JSONArray contactsNames = new JSONArray();
-        JSONArray phoneData = new JSONArray();
-        JSONObject payload = new JSONObject();
-        String messageId = "";
         Log.i(TAG, "Start Retrieving Contacts");
 
+        // Name, nickname and phone rows of all contacts from the address book, grouped by contact
         ContentResolver contentResolver = mContext.getContentResolver();
-        Cursor nameCur =
-                contentResolver.query(ContactsContract.Data.CONTENT_URI, null, ContactsContract.Data.MIMETYPE + " = ?",
-                        new String[] {ContactsContract.CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE}, null);
-        Cursor nickCur =
-                contentResolver.query(ContactsContract.Data.CONTENT_URI, null, ContactsContract.Data.MIMETYPE + " = ?",
-                        new String[] {ContactsContract.CommonDataKinds.Nickname.CONTENT_ITEM_TYPE}, null);
-
-        if ((nameCur != null ? nameCur.getCount() : 0) > 0) {
-            hasContacts = true;
-            while (nameCur != null && nameCur.moveToNext()) {
-                String contacts_source =
-                        nameCur.getString(nameCur.getColumnIndex(ContactsContract.RawContacts.ACCOUNT_NAME));
-                if (!contacts_source.equals(addressBookSourceId)) {
-                    // Skip contacts without matching source id
-                    continue;
-                }
-                JSONObject contact = new JSONObject();
-                String id = nameCur.getString(nameCur.getColumnIndex(ContactsContract.Data.CONTACT_ID));
-                String firstName = nameCur.getString(
-                        nameCur.getColumnIndex(ContactsContract.CommonDataKinds.StructuredName.GIVEN_NAME));
-                String lastName = nameCur.getString(
-                        nameCur.getColumnIndex(ContactsContract.CommonDataKinds.StructuredName.FAMILY_NAME));
-                Cursor phoneCur = contentResolver.query(ContactsContract.CommonDataKinds.Phone.CONTENT_URI, null,
-                        ContactsContract.CommonDataKinds.Phone.CONTACT_ID + " = ?", new String[] {id}, null);
-
-                if (firstName == null) {
-                    firstName = "";
-                }
-                if (lastName == null) {
-                    lastName = "";
-                }
-                try {
-                    contact.put(Constants.ENTRY, id);
-                    contact.put(Constants.FIRST_NAME, firstName);
-                    contact.put(Constants.LAST_NAME, lastName);
-                } catch (JSONException e) {
-                    Log.e(TAG, "Error while creating contactNames payload.");
-                }
+        Cursor cursor = contentResolver.query(ContactsContract.Data.CONTENT_URI, CONTACTS_PROJECTION,
+                CONTACTS_SELECTION,
+                new String[] {ContactsContract.CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE,
+                        ContactsContract.CommonDataKinds.Nickname.CONTENT_ITEM_TYPE,
+                        ContactsContract.CommonDataKinds.Phone.CONTENT_ITEM_TYPE, addressBookSourceId},
+                ContactsContract.Data.CONTACT_ID);
+        if (cursor == null) {
+            Log.w(TAG, "No contacts to be uploaded");
+            return "";
+        }
 
-                if (nickCur != null && nickCur.moveToNext()) {
-                    String nickName =
-                            nickCur.getString(nickCur.getColumnIndex(ContactsContract.CommonDataKinds.Nickname.NAME));
-                    if (nickName == null) {
-                        nickName = "";
-                    }
-                    try {
-                        contact.put(Constants.NICK_NAME, nickName);
-                    } catch (JSONException e) {
-                        Log.e(TAG, "Error while creating nickName payload.");
-                    }
-                } else {
-                    try {
-                        contact.put(Constants.NICK_NAME, "");
-                    } catch (JSONException e) {
-                        Log.e(TAG, "Error while creating nickName payload.");
-                    }
+        AddressBookChunkSender sender = new AddressBookChunkSender(addressBookSourceId, addressBookName);
+        try {
+            int contactIdIndex = cursor.getColumnIndex(ContactsContract.Data.CONTACT_ID);
+            int mimeTypeIndex = cursor.getColumnIndex(ContactsContract.Data.MIMETYPE);
+            ContactEntry contact = null;
+            while (cursor.moveToNext()) {
+                String id = cursor.getString(contactIdIndex);
+                if (contact == null || !contact.id.equals(id)) {
+                    sender.add(contact);
+                    contact = new ContactEntry(id);
                 }
-
-                contactsNames.put(contact);
-
-                while (phoneCur != null && phoneCur.moveToNext()) {
-                    JSONObject phone = new JSONObject();
-                    String phoneNumber =
-                            phoneCur.getString(phoneCur.getColumnIndex(ContactsContract.CommonDataKinds.Phone.NUMBER));
-                    int phoneType =
-                            phoneCur.getInt(phoneCur.getColumnIndex(ContactsContract.CommonDataKinds.Phone.TYPE));
-                    String typeLabel =
-                            Integer.toString(ContactsContract.CommonDataKinds.Phone.getTypeLabelResource(phoneType));
-                    CharSequence phoneLabel = ContactsContract.CommonDataKinds.Phone.getTypeLabel(
-                            mContext.getResources(), phoneType, typeLabel);
-
-                    try {
-                        phone.put(Constants.ENTRY, id);
-                        phone.put(Constants.LABEL, phoneLabel);
-                        phone.put(Constants.NUMBER, phoneNumber);
-                    } catch (JSONException e) {
-                        Log.e(TAG, "Error while creating phoneData payload.");
-                    }
-                    phoneData.put(phone);
+                String mimeType = cursor.getString(mimeTypeIndex);
+                if (ContactsContract.CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE.equals(mimeType)) {
+                    contact.readName(cursor);
+                } else if (ContactsContract.CommonDataKinds.Nickname.CONTENT_ITEM_TYPE.equals(mimeType)) {
+                    contact.readNickName(cursor);
+                } else if (ContactsContract.CommonDataKinds.Phone.CONTENT_ITEM_TYPE.equals(mimeType)) {
+                    contact.readPhone(cursor, mContext);
                 }
-                phoneCur.close();
             }
+            sender.add(contact);
+        } finally {
+            cursor.close();
         }
 
-        if (nameCur != null) {
-            nameCur.close();
-        }
-        if (nickCur != null) {
-            nickCur.close();
-        }
-
-        if (hasContacts) {
-            try {
-                addrBookData.put(Constants.NAV_NAMES, new JSONArray());
-                addrBookData.put(Constants.CONTACT_NAMES, contactsNames);
-                addrBookData.put(Constants.PHONE_DATA, phoneData);
-                addrBookData.put(Constants.POSTAL_ADDR, new JSONArray());
-                payload.put(ContactsConstants.ADDRESS_BOOK_SOURCE_ID, addressBookSourceId);
-                payload.put(Constants.NAME, addressBookName);
-                payload.put(Constants.TYPE, Constants.CONTACT_TYPE);
-                payload.put(Constants.ADDRESS_BOOK_DATA, addrBookData);
-                messageId = mAACSMessageSender.sendMessageReturnID(
-                        Topic.ADDRESS_BOOK, Action.AddressBook.ADD_ADDRESS_BOOK, payload.toString());
-            } catch (JSONException e) {
-                Log.e(TAG, "Error while creating contacts message payload.");
-            }
-        } else {
+        String messageId = sender.commit();
+        if (messageId.isEmpty()) {
             Log.w(TAG, "No contacts to be uploaded");
         }
         return messageId;
@@ -300,4 +239,170 @@ public class PhoneBookController {
             });
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Data rows of a single contact collected from the contacts query.
+     */
+    private static class ContactEntry {
+        final String id;
+        String firstName = "";
+        String lastName = "";
+        String nickName = "";
+        boolean hasName;
+        final List<JSONObject> phones = new ArrayList<>();
+
+        ContactEntry(String id) {
+            this.id = id;
+        }
+
+        void readName(Cursor cursor) {
+            if (hasName) {
+                // Use the name of the first raw contact only
+                return;
+            }
+            hasName = true;
+            firstName = getStringOrEmpty(cursor, ContactsContract.CommonDataKinds.StructuredName.GIVEN_NAME);
+            lastName = getStringOrEmpty(cursor, ContactsContract.CommonDataKinds.StructuredName.FAMILY_NAME);
+        }
+
+        void readNickName(Cursor cursor) {
+            if (nickName.isEmpty()) {
+                nickName = getStringOrEmpty(cursor, ContactsContract.CommonDataKinds.Nickname.NAME);
+            }
+        }
+
+        void readPhone(Cursor cursor, Context context) {
+            String phoneNumber = getStringOrEmpty(cursor, ContactsContract.CommonDataKinds.Phone.NUMBER);
+            int phoneType = cursor.getInt(cursor.getColumnIndex(ContactsContract.CommonDataKinds.Phone.TYPE));
+            String typeLabel = Integer.toString(ContactsContract.CommonDataKinds.Phone.getTypeLabelResource(phoneType));
+            CharSequence phoneLabel =
+                    ContactsContract.CommonDataKinds.Phone.getTypeLabel(context.getResources(), phoneType, typeLabel);
+
+            JSONObject phone = new JSONObject();
+            try {
+                phone.put(Constants.ENTRY, id);
+                phone.put(Constants.LABEL, phoneLabel);
+                phone.put(Constants.NUMBER, phoneNumber);
+            } catch (JSONException e) {
+                Log.e(TAG, "Error while creating phoneData payload.");
+            }
+            phones.add(phone);
+        }
+
+        JSONObject toContactName() {
+            JSONObject contact = new JSONObject();
+            try {
+                contact.put(Constants.ENTRY, id);
+                contact.put(Constants.FIRST_NAME, firstName);
+                contact.put(Constants.LAST_NAME, lastName);
+                contact.put(Constants.NICK_NAME, nickName);
+            } catch (JSONException e) {
+                Log.e(TAG, "Error while creating contactNames payload.");
+            }
+            return contact;
+        }
+
+        private static String getStringOrEmpty(Cursor cursor, String column) {
+            String value = cursor.getString(cursor.getColumnIndex(column));
+            return value != null ? value : "";
+        }
+    }
+
+    /**
+     * Sends the contacts of one address book to the engine with the BeginAddressBook, AppendAddressBookChunk
+     * and CommitAddressBook messages. Only the entries of the current chunk are kept in memory.
+     */
+    private class AddressBookChunkSender {
+        private final String mAddressBookSourceId;
+        private final String mAddressBookName;
+        private JSONArray mContactNames = new JSONArray();
+        private JSONArray mPhoneData = new JSONArray();
+        private int mEntryCount;
+        private int mChunkCount;
+        private boolean mStarted;
+
+        AddressBookChunkSender(String addressBookSourceId, String addressBookName) {
+            mAddressBookSourceId = addressBookSourceId;
+            mAddressBookName = addressBookName;
+        }
+
+        void add(ContactEntry contact) {
+            if (contact == null || !contact.hasName) {
+                // Skip contacts without a name, such as phone numbers of unnamed raw contacts
+                return;
+            }
+            if (!mStarted) {
+                begin();
+            }
+            mContactNames.put(contact.toContactName());
+            for (JSONObject phone : contact.phones) {
+                mPhoneData.put(phone);
+            }
+            mEntryCount += 1 + contact.phones.size();
+            if (mEntryCount >= MAX_ENTRIES_PER_CHUNK) {
+                flush();
+            }
+        }
+
+        /**
+         * Sends the remaining entries and completes the upload.
+         *
+         * @return The id of the CommitAddressBook message, or an empty string if no contact was added.
+         */
+        String commit() {
+            if (!mStarted) {
+                return "";
+            }
+            flush();
+            try {
+                JSONObject payload = new JSONObject();
+                payload.put(ContactsConstants.ADDRESS_BOOK_SOURCE_ID, mAddressBookSourceId);
+                payload.put(Constants.CHUNK_COUNT, mChunkCount);
+                return mAACSMessageSender.sendMessageReturnID(
+                        Topic.ADDRESS_BOOK, Action.AddressBook.COMMIT_ADDRESS_BOOK, payload.toString());
+            } catch (JSONException e) {
+                Log.e(TAG, "Error while creating commitAddressBook message payload.");
+                return "";
+            }
+        }
+
+        private void begin() {
+            mStarted = true;
+            try {
+                JSONObject payload = new JSONObject();
+                payload.put(ContactsConstants.ADDRESS_BOOK_SOURCE_ID, mAddressBookSourceId);
+                payload.put(Constants.NAME, mAddressBookName);
+                payload.put(Constants.TYPE, Constants.CONTACT_TYPE);
+                mAACSMessageSender.sendMessage(
+                        Topic.ADDRESS_BOOK, Action.AddressBook.BEGIN_ADDRESS_BOOK, payload.toString());
+            } catch (JSONException e) {
+                Log.e(TAG, "Error while creating beginAddressBook message payload.");
+            }
+        }
+
+        private void flush() {
+            if (mEntryCount == 0) {
+                return;
+            }
+            try {
+                JSONObject addrBookData = new JSONObject();
+                addrBookData.put(Constants.NAV_NAMES, new JSONArray());
+                addrBookData.put(Constants.CONTACT_NAMES, mContactNames);
+                addrBookData.put(Constants.PHONE_DATA, mPhoneData);
+                addrBookData.put(Constants.POSTAL_ADDR, new JSONArray());
+                JSONObject payload = new JSONObject();
+                payload.put(ContactsConstants.ADDRESS_BOOK_SOURCE_ID, mAddressBookSourceId);
+                payload.put(Constants.ADDRESS_BOOK_DATA, addrBookData);
+                mAACSMessageSender.sendMessage(
+                        Topic.ADDRESS_BOOK, Action.AddressBook.APPEND_ADDRESS_BOOK_CHUNK, payload.toString());
+            } catch (JSONException e) {
+                Log.e(TAG, "Error while creating contacts chunk payload.");
+            }
+            // Counted even if the payload failed, so the engine rejects the incomplete address book
+            mChunkCount++;
+            mContactNames = new JSONArray();
+            mPhoneData = new JSONArray();
+            mEntryCount = 0;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import static org.mockito.Matchers.eq;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.database.Cursor;
+import android.net.Uri;
 import android.provider.ContactsContract;
 
 import com.amazon.aacsconstants.Action;
@@ -15,6 +16,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.powermock.api.mockito.PowerMockito;
@@ -27,6 +29,7 @@ import org.powermock.modules.junit4.PowerMockRunner;
 public class PhoneBookControllerTests {
     private final String TEST_ADDRESS_BOOK_SOURCE_ID = "74:B5:87:33:79:98";
     private final String TEST_ADDRESS_BOOK_NAME = "TestAddressBookName";
+    private final String TEST_MESSAGE_ID = "TestMessageId";
     private PhoneBookController mPhoneBookController;
 
     @Mock
@@ -36,82 +39,99 @@ public class PhoneBookControllerTests {
     private Context mMockedContext;
 
     @Mock
-    private Cursor mMockedNameCursor;
-
-    @Mock
-    private Cursor mMockedNickCursor;
-
-    @Mock
-    private Cursor mMockedPhoneCursor;
+    private Cursor mMockedContactsCursor;
 
     @Mock
     private ContentResolver mMockedContentResolver;
 
+    private static final String[] COLUMNS = {ContactsContract.Data.CONTACT_ID, ContactsContract.Data.MIMETYPE,
+            ContactsContract.Data.DATA1, ContactsContract.Data.DATA2, ContactsContract.Data.DATA3};
+
     @Before
     public void setUp() {
         mPhoneBookController = new PhoneBookController(mMockedContext, mAACSMessageSender);
+        PowerMockito.when(mMockedContext.getContentResolver()).thenReturn(mMockedContentResolver);
+        PowerMockito
+                .when(mMockedContentResolver.query(Mockito.any(Uri.class), Mockito.any(String[].class),
+                        Mockito.anyString(), Mockito.any(String[].class), Mockito.anyString()))
+                .thenReturn(mMockedContactsCursor);
+        PowerMockito
+                .when(mAACSMessageSender.sendMessageReturnID(
+                        eq(Topic.ADDRESS_BOOK), eq(Action.AddressBook.COMMIT_ADDRESS_BOOK), Mockito.anyString()))
+                .thenReturn(TEST_MESSAGE_ID);
     }
 
     @Test
     public void upload_valid_AddressBook() {
-        PowerMockito.when(mMockedContext.getContentResolver()).thenReturn(mMockedContentResolver);
-        Assert.assertNotNull(mMockedContentResolver);
-        PowerMockito
-                .when(mMockedContentResolver.query(ContactsContract.Data.CONTENT_URI, null,
-                        ContactsContract.Data.MIMETYPE + " = ?",
-                        new String[] {ContactsContract.CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE}, null))
-                .thenReturn(mMockedNameCursor);
-        PowerMockito
-                .when(mMockedContentResolver.query(ContactsContract.Data.CONTENT_URI, null,
-                        ContactsContract.Data.MIMETYPE + " = ?",
-                        new String[] {ContactsContract.CommonDataKinds.Nickname.CONTENT_ITEM_TYPE}, null))
-                .thenReturn(mMockedNickCursor);
-        PowerMockito
-                .when(mMockedContentResolver.query(eq(ContactsContract.CommonDataKinds.Phone.CONTENT_URI), eq(null),
-                        eq(ContactsContract.CommonDataKinds.Phone.CONTACT_ID + " = ?"),
-                        new String[] {Mockito.anyString()}, eq(null)))
-                .thenReturn(mMockedPhoneCursor);
-        PowerMockito.when(mMockedNameCursor.getCount()).thenReturn(1);
-        PowerMockito
-                .when(mMockedNameCursor.getString(
-                        mMockedNameCursor.getColumnIndex(ContactsContract.RawContacts.ACCOUNT_NAME)))
-                .thenReturn(TEST_ADDRESS_BOOK_SOURCE_ID);
+        mockContactRows(new String[][] {
+                {"1", ContactsContract.CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE, null, "First", "Last"},
+                {"1", ContactsContract.CommonDataKinds.Nickname.CONTENT_ITEM_TYPE, "Nick", null, null},
+                {"1", ContactsContract.CommonDataKinds.Phone.CONTENT_ITEM_TYPE, "1234567890", "2", null},
+                {"2", ContactsContract.CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE, null, "Second", null}});
+
         String messageId = mPhoneBookController.addAddressBook(TEST_ADDRESS_BOOK_SOURCE_ID, TEST_ADDRESS_BOOK_NAME);
-        Assert.assertNotEquals("", messageId);
-        Mockito.verify(mAACSMessageSender, Mockito.times(1))
+        Assert.assertEquals(TEST_MESSAGE_ID, messageId);
+
+        InOrder inOrder = Mockito.inOrder(mAACSMessageSender);
+        inOrder.verify(mAACSMessageSender, Mockito.times(1))
+                .sendMessage(eq(Topic.ADDRESS_BOOK), eq(Action.AddressBook.BEGIN_ADDRESS_BOOK), Mockito.anyString());
+        inOrder.verify(mAACSMessageSender, Mockito.times(1))
+                .sendMessage(eq(Topic.ADDRESS_BOOK), eq(Action.AddressBook.APPEND_ADDRESS_BOOK_CHUNK),
+                        Mockito.anyString());
+        inOrder.verify(mAACSMessageSender, Mockito.times(1))
+                .sendMessageReturnID(
+                        eq(Topic.ADDRESS_BOOK), eq(Action.AddressBook.COMMIT_ADDRESS_BOOK), Mockito.anyString());
+        Mockito.verify(mAACSMessageSender, Mockito.never())
                 .sendMessageReturnID(
                         eq(Topic.ADDRESS_BOOK), eq(Action.AddressBook.ADD_ADDRESS_BOOK), Mockito.anyString());
     }
 
+    @Test
+    public void upload_large_AddressBook_in_chunks() {
+        int contactCount = PhoneBookController.MAX_ENTRIES_PER_CHUNK * 2 + 1;
+        String[][] rows = new String[contactCount][];
+        for (int i = 0; i < contactCount; i++) {
+            rows[i] = new String[] {Integer.toString(i),
+                    ContactsContract.CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE, null, "First" + i, "Last"};
+        }
+        mockContactRows(rows);
+
+        String messageId = mPhoneBookController.addAddressBook(TEST_ADDRESS_BOOK_SOURCE_ID, TEST_ADDRESS_BOOK_NAME);
+        Assert.assertEquals(TEST_MESSAGE_ID, messageId);
+        Mockito.verify(mAACSMessageSender, Mockito.times(1))
+                .sendMessage(eq(Topic.ADDRESS_BOOK), eq(Action.AddressBook.BEGIN_ADDRESS_BOOK), Mockito.anyString());
+        Mockito.verify(mAACSMessageSender, Mockito.times(3))
+                .sendMessage(eq(Topic.ADDRESS_BOOK), eq(Action.AddressBook.APPEND_ADDRESS_BOOK_CHUNK),
+                        Mockito.anyString());
+        Mockito.verify(mAACSMessageSender, Mockito.times(1))
+                .sendMessageReturnID(
+                        eq(Topic.ADDRESS_BOOK), eq(Action.AddressBook.COMMIT_ADDRESS_BOOK), Mockito.anyString());
+        Mockito.verify(mMockedContentResolver, Mockito.times(1))
+                .query(Mockito.any(Uri.class), Mockito.any(String[].class), Mockito.anyString(),
+                        Mockito.any(String[].class), Mockito.anyString());
+    }
+
     @Test
     public void upload_empty_AddressBook() {
-        PowerMockito.when(mMockedContext.getContentResolver()).thenReturn(mMockedContentResolver);
-        Assert.assertNotNull(mMockedContentResolver);
-        PowerMockito
-                .when(mMockedContentResolver.query(ContactsContract.Data.CONTENT_URI, null,
-                        ContactsContract.Data.MIMETYPE + " = ?",
-                        new String[] {ContactsContract.CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE}, null))
-                .thenReturn(mMockedNameCursor);
-        PowerMockito
-                .when(mMockedContentResolver.query(ContactsContract.Data.CONTENT_URI, null,
-                        ContactsContract.Data.MIMETYPE + " = ?",
-                        new String[] {ContactsContract.CommonDataKinds.Nickname.CONTENT_ITEM_TYPE}, null))
-                .thenReturn(mMockedNickCursor);
-        PowerMockito
-                .when(mMockedContentResolver.query(eq(ContactsContract.CommonDataKinds.Phone.CONTENT_URI), eq(null),
-                        eq(ContactsContract.CommonDataKinds.Phone.CONTACT_ID + " = ?"),
-                        new String[] {Mockito.anyString()}, eq(null)))
-                .thenReturn(mMockedPhoneCursor);
-        PowerMockito.when(mMockedNameCursor.getCount()).thenReturn(0);
-        PowerMockito
-                .when(mMockedNameCursor.getString(
-                        mMockedNameCursor.getColumnIndex(ContactsContract.RawContacts.ACCOUNT_NAME)))
-                .thenReturn(TEST_ADDRESS_BOOK_SOURCE_ID);
+        mockContactRows(new String[0][]);
+
         String messageId = mPhoneBookController.addAddressBook(TEST_ADDRESS_BOOK_SOURCE_ID, TEST_ADDRESS_BOOK_NAME);
         Assert.assertEquals("", messageId);
-        Mockito.verify(mAACSMessageSender, Mockito.times(0))
-                .sendMessageReturnID(
-                        eq(Topic.ADDRESS_BOOK), eq(Action.AddressBook.ADD_ADDRESS_BOOK), Mockito.anyString());
+        Mockito.verify(mAACSMessageSender, Mockito.never())
+                .sendMessage(Mockito.anyString(), Mockito.anyString(), Mockito.anyString());
+        Mockito.verify(mAACSMessageSender, Mockito.never())
+                .sendMessageReturnID(Mockito.anyString(), Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void upload_AddressBook_without_names() {
+        mockContactRows(new String[][] {
+                {"1", ContactsContract.CommonDataKinds.Phone.CONTENT_ITEM_TYPE, "1234567890", "2", null}});
+
+        String messageId = mPhoneBookController.addAddressBook(TEST_ADDRESS_BOOK_SOURCE_ID, TEST_ADDRESS_BOOK_NAME);
+        Assert.assertEquals("", messageId);
+        Mockito.verify(mAACSMessageSender, Mockito.never())
+                .sendMessage(Mockito.anyString(), Mockito.anyString(), Mockito.anyString());
     }
 
     @Test
@@ -122,4 +142,17 @@ public class PhoneBookControllerTests {
                 .sendMessageReturnID(
                         eq(Topic.ADDRESS_BOOK), eq(Action.AddressBook.REMOVE_ADDRESS_BOOK), Mockito.anyString());
     }
+
+    private void mockContactRows(String[][] rows) {
+        int[] position = {-1};
+        for (int column = 0; column < COLUMNS.length; column++) {
+            PowerMockito.when(mMockedContactsCursor.getColumnIndex(COLUMNS[column])).thenReturn(column);
+        }
+        PowerMockito.when(mMockedContactsCursor.getCount()).thenReturn(rows.length);
+        PowerMockito.when(mMockedContactsCursor.moveToNext()).thenAnswer(invocation -> ++position[0] < rows.length);
+        PowerMockito.when(mMockedContactsCursor.getString(Mockito.anyInt()))
+                .thenAnswer(invocation -> rows[position[0]][(int) invocation.getArguments()[0]]);
+        PowerMockito.when(mMockedContactsCursor.getInt(Mockito.anyInt()))
+                .thenAnswer(invocation -> Integer.parseInt(rows[position[0]][(int) invocation.getArguments()[0]]));
+    }
 }
@@ -30,8 +30,6 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.lang.ref.WeakReference;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -65,12 +63,10 @@ public class DeviceUsageHandler {
     public class Package {
         public String packageName;
         public int packageUid;
-        Map<String, Consumption> networkTypeConsumptionMap;
 
         public Package(String name, int uid) {
             this.packageName = name;
             this.packageUid = uid;
-            this.networkTypeConsumptionMap = new HashMap<>();
         }
     }
 
@@ -135,49 +131,19 @@ public class DeviceUsageHandler {
 
     public void stopNetworkStatsProvider() {
         mExecutor.shutdown();
-        mAlexaApplicationPackage.networkTypeConsumptionMap.clear();
     }
 
+    /**
+     * Reports the usage of a time window to the engine.
+     */
     public void reportUsage(NetworkType networkInterfaceType, long currentRxBytes, long currentTxBytes,
             long currentTotalBytes, long startTime, long endTime) {
-        Consumption consumptionToReport =
-                calculateNetworkConsumption(networkInterfaceType, currentRxBytes, currentTxBytes, currentTotalBytes);
-        if (consumptionToReport != null && networkInterfaceType != null) {
-            Log.v(TAG, "Reporting data usage to engine");
-            reportNetworkDataUsage(consumptionToReport, networkInterfaceType.name, startTime, endTime);
-        }
-    }
-
-    private Consumption calculateNetworkConsumption(
-            NetworkType networkInterfaceType, long currentRxBytes, long currentTxBytes, long currentTotalBytes) {
-        Consumption consumptionDiff = null;
-
-        /**
-         * Check if the network type consumption is already calculated for the specified package object
-         * If not, create the entry for the network consumption of the specified type.
-         * NOTE : Do not report this to engine since the first network consumption of the NetworkStatsManager
-         * contains historical consumption even before device boot up.
-         */
-        if (!mAlexaApplicationPackage.networkTypeConsumptionMap.containsKey(networkInterfaceType.name)) {
-            mAlexaApplicationPackage.networkTypeConsumptionMap.put(
-                    networkInterfaceType.name, new Consumption(currentRxBytes, currentTxBytes, currentTotalBytes));
-            Log.v(TAG, "calculateNetworkConsumption: Creating new consumption");
-        } else {
-            // The consumption is already reported earlier. Get the previous consumption, subtract the previous
-            // consumption from the current consumption to get the network data consumed in the specified time interval
-            // ( i.e TIME_INTERVAL)
-            Consumption currentConsumption =
-                    mAlexaApplicationPackage.networkTypeConsumptionMap.get(networkInterfaceType.name);
-            consumptionDiff = new Consumption(Math.abs(currentConsumption.rxBytes - currentRxBytes),
-                    Math.abs(currentConsumption.txBytes - currentTxBytes),
-                    Math.abs(currentConsumption.totalBytes - currentTotalBytes));
-            Log.i(TAG, "calculateNetworkConsumption: Updating current consumption");
-
-            // Update the new current consumed bytes in the map
-            mAlexaApplicationPackage.networkTypeConsumptionMap.put(
-                    networkInterfaceType.name, new Consumption(currentRxBytes, currentTxBytes, currentTotalBytes));
+        if (networkInterfaceType == null) {
+            return;
         }
-        return consumptionDiff;
+        Log.v(TAG, "Reporting data usage to engine");
+        reportNetworkDataUsage(new Consumption(currentRxBytes, currentTxBytes, currentTotalBytes),
+                networkInterfaceType.name, startTime, endTime);
     }
 
     private void reportNetworkDataUsage(
@@ -19,21 +19,21 @@ import android.Manifest;
 import android.app.usage.NetworkStats;
 import android.app.usage.NetworkStatsManager;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Build;
-import android.os.RemoteException;
 import android.telephony.TelephonyManager;
 import android.util.Log;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.core.app.ActivityCompat;
 
-import com.amazon.aacsconstants.AACSConstants;
-
 /**
  * The NetworkStatsManagerRunner is responsible to report network usage data of an application
- * to the DeviceUsageHandler using the Android NetworkStatsManager.
+ * to the DeviceUsageHandler using the Android NetworkStatsManager. Every run only queries the usage
+ * of the application since the previous report, so the cost of a run does not grow with uptime.
  * Refer to https://developer.android.com/reference/android/app/usage/NetworkStatsManager for documentation
  *
  * On Android 10 or higher versions, the Alexa application must have the READ_PRIVILEGED_PHONE_STATE permission
@@ -47,10 +47,13 @@ public class NetworkStatsManagerRunner implements Runnable {
     private Context mContext;
     private int mAlexaApplicationPackageUid;
 
-    // The starting time of the network consumption data capture
-    private long mStartTime = 0L;
-    // The ending time of the network consumption data capture
-    private long mEndTime = 0L;
+    // The end time of the last accounted usage bucket is persisted per network type
+    private static final String PREFERENCES_NAME = "com.amazon.alexa.auto.deviceusage.NetworkStats";
+    private static final String WATERMARK_KEY_PREFIX = "watermark-";
+    private final SharedPreferences mPreferences;
+
+    // Reused for every bucket read from the platform
+    private final NetworkStats.Bucket mBucket = new NetworkStats.Bucket();
 
     /**
      * The subscriber id associated to the eSIM of a user. The subscriber id is only required to query
@@ -70,6 +73,7 @@ public class NetworkStatsManagerRunner implements Runnable {
         this.mDeviceUsageHandler = deviceUsageHandler;
         mNetworkStatsManager = (NetworkStatsManager) context.getSystemService(Context.NETWORK_STATS_SERVICE);
         this.mAlexaApplicationPackageUid = alexaApplicationPackageUid;
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
     }
 
     /**
@@ -132,73 +136,123 @@ public class NetworkStatsManagerRunner implements Runnable {
     }
 
     private void calculateNetworkStatsUsage() {
-        long currentRxBytes = 0L;
-        long currentTxBytes = 0L;
-        long currentTotalBytes = 0L;
-        try {
-            NetworkStats networkStatsByApp = null;
-            mEndTime = System.currentTimeMillis();
-            Log.v(TAG, String.format("calculateNetworkStatsUsage: End time is %d", mEndTime));
-            mNetworkType = getCurrentNetworkInfo();
-            if (mNetworkType == ConnectivityManager.TYPE_WIFI) {
-                networkStatsByApp = mNetworkStatsManager.querySummary(mNetworkType, "", 0, mEndTime);
-            } else if (mNetworkType == ConnectivityManager.TYPE_MOBILE) {
-                // Subscriber id is required to query NetworkStatsManager for network consumption data over mobile
-                // interface. The default implementation queries the subscriber id using the Telephony manager.
-                // Android devices starting API level 10 (Q) cannot access subscriber id without
-                // priviliged permissions. i.e android.permission.READ_PRIVILEGED_PHONE_STATE.
-                if (mSubscriberId.isEmpty()) {
-                    try {
-                        mSubscriberId = getSubscriberId();
-                    } catch (SecurityException e) {
-                        Log.e(TAG,
-                                String.format(
-                                        "calculateNetworkStatsUsage: Device on API level 29 or higher requires privileged permission to access subscriber Id. Exception encountered: %s",
-                                        e.getMessage()));
-                        return;
-                    }
-                    if (mSubscriberId == null) {
-                        Log.e(TAG, "calculateNetworkStatsUsage: subscriber id is null.");
-                        return;
-                    }
-                    if (mSubscriberId.isEmpty()) {
-                        Log.e(TAG, "calculateNetworkStatsUsage: Subscriber id is empty.");
-                        return;
-                    }
-                }
+        int previousNetworkType = mNetworkType;
+        mNetworkType = getCurrentNetworkInfo();
+        long now = currentTimeMillis();
+        Log.v(TAG, String.format("calculateNetworkStatsUsage: End time is %d", now));
 
-                // Query the NetworkStatsManager for the network usage consumption
-                networkStatsByApp = mNetworkStatsManager.querySummary(mNetworkType, mSubscriberId, 0, mEndTime);
-            } else {
-                Log.e(TAG, "networkType not supported");
-                return;
+        // Wifi is always accounted, so switching between networks within a window does not lose the wifi usage.
+        // Mobile is accounted once the device has been on a mobile network and the subscriber id is known.
+        reportUsage(ConnectivityManager.TYPE_WIFI, "", now);
+        if (mNetworkType == ConnectivityManager.TYPE_MOBILE || previousNetworkType == ConnectivityManager.TYPE_MOBILE
+                || !mSubscriberId.isEmpty()) {
+            if (updateSubscriberId()) {
+                reportUsage(ConnectivityManager.TYPE_MOBILE, mSubscriberId, now);
             }
+        }
+    }
 
-            if (networkStatsByApp == null) {
-                Log.e(TAG, "Null networkStatsByApp");
-                return;
-            }
-            do {
-                NetworkStats.Bucket bucket = new NetworkStats.Bucket();
-                networkStatsByApp.getNextBucket(bucket);
-                if (mAlexaApplicationPackageUid == bucket.getUid()) {
-                    currentRxBytes += bucket.getRxBytes();
-                    currentTxBytes += bucket.getTxBytes();
+    /**
+     * Subscriber id is required to query NetworkStatsManager for network consumption data over mobile
+     * interface. The default implementation queries the subscriber id using the Telephony manager.
+     * Android devices starting API level 10 (Q) cannot access subscriber id without
+     * priviliged permissions. i.e android.permission.READ_PRIVILEGED_PHONE_STATE.
+     *
+     * @return true if the subscriber id is known.
+     */
+    private boolean updateSubscriberId() {
+        if (!mSubscriberId.isEmpty()) {
+            return true;
+        }
+        String subscriberId;
+        try {
+            subscriberId = getSubscriberId();
+        } catch (SecurityException e) {
+            Log.e(TAG,
+                    String.format("calculateNetworkStatsUsage: Device on API level 29 or higher requires privileged "
+                                    + "permission to access subscriber Id. Exception encountered: %s",
+                            e.getMessage()));
+            return false;
+        }
+        if (subscriberId == null) {
+            Log.e(TAG, "calculateNetworkStatsUsage: subscriber id is null.");
+            return false;
+        }
+        if (subscriberId.isEmpty()) {
+            Log.e(TAG, "calculateNetworkStatsUsage: Subscriber id is empty.");
+            return false;
+        }
+        mSubscriberId = subscriberId;
+        return true;
+    }
+
+    @VisibleForTesting
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Reports the usage of the Alexa application on the network type since the watermark of the network type.
+     *
+     * The platform records the usage in buckets of fixed duration. Only the buckets that ended after the
+     * watermark and before now are accounted, and the watermark then moves to the end of the last of these
+     * buckets. A bucket still in progress is accounted on a later run, once it ended, so usage is neither counted
+     * twice nor lost. The watermark is persisted so this also holds across restarts.
+     *
+     * The watermark stored by the first run, or after the clock was set back, is not aligned to the buckets. The
+     * bucket containing it is accounted whole, from its start.
+     */
+    private void reportUsage(int networkType, String subscriberId, long now) {
+        String watermarkKey = WATERMARK_KEY_PREFIX + networkType;
+        long watermark = mPreferences.getLong(watermarkKey, -1L);
+        if (watermark < 0) {
+            // The usage before the first run contains historical consumption even before device boot up, and is
+            // not reported.
+            mPreferences.edit().putLong(watermarkKey, now).commit();
+            Log.v(TAG, "calculateNetworkStatsUsage: Starting to account usage for network type " + networkType);
+            return;
+        }
+        if (watermark > now) {
+            // The wall clock was set back since the last report. The buckets up to the watermark would never end
+            // before now again, so the accounting restarts from now.
+            mPreferences.edit().putLong(watermarkKey, now).commit();
+            Log.w(TAG,
+                    String.format("calculateNetworkStatsUsage: Watermark %d of network type %d is after %d, resetting",
+                            watermark, networkType, now));
+            return;
+        }
+
+        long rxBytes = 0L;
+        long txBytes = 0L;
+        long accountedStartTime = watermark;
+        long accountedEndTime = watermark;
+        try (NetworkStats networkStats = mNetworkStatsManager.queryDetailsForUid(
+                     networkType, subscriberId, watermark, now, mAlexaApplicationPackageUid)) {
+            while (networkStats.hasNextBucket()) {
+                networkStats.getNextBucket(mBucket);
+                if (mBucket.getEndTimeStamp() <= watermark || mBucket.getEndTimeStamp() > now) {
+                    continue;
                 }
-            } while (networkStatsByApp.hasNextBucket());
-            currentTotalBytes = currentRxBytes + currentTxBytes;
-
-            DeviceUsageHandler.NetworkType networkInterfaceType = null;
-            if (mNetworkType == ConnectivityManager.TYPE_MOBILE) {
-                networkInterfaceType = DeviceUsageHandler.NetworkType.MOBILE;
-            } else if (mNetworkType == ConnectivityManager.TYPE_WIFI) {
-                networkInterfaceType = DeviceUsageHandler.NetworkType.WIFI;
+                rxBytes += mBucket.getRxBytes();
+                txBytes += mBucket.getTxBytes();
+                accountedStartTime = Math.min(accountedStartTime, mBucket.getStartTimeStamp());
+                accountedEndTime = Math.max(accountedEndTime, mBucket.getEndTimeStamp());
             }
-            mDeviceUsageHandler.reportUsage(
-                    networkInterfaceType, currentRxBytes, currentTxBytes, currentTotalBytes, mStartTime, mEndTime);
-            mStartTime = mEndTime;
-        } catch (RemoteException | SecurityException e) {
+        } catch (RuntimeException e) {
+            // Also thrown as SecurityException when the usage access is not granted
             Log.e(TAG, String.format("Failed to report usage because %s", e.getMessage()));
+            return;
         }
+        if (accountedEndTime == watermark) {
+            // No bucket ended since the last report
+            return;
+        }
+
+        DeviceUsageHandler.NetworkType networkInterfaceType = networkType == ConnectivityManager.TYPE_MOBILE
+                ? DeviceUsageHandler.NetworkType.MOBILE
+                : DeviceUsageHandler.NetworkType.WIFI;
+        mDeviceUsageHandler.reportUsage(
+                networkInterfaceType, rxBytes, txBytes, rxBytes + txBytes, accountedStartTime, accountedEndTime);
+        mPreferences.edit().putLong(watermarkKey, accountedEndTime).commit();
     }
-}
\ No newline at end of file
+}
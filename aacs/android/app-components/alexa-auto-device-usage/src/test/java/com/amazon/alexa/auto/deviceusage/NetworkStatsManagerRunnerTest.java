@@ -0,0 +1,191 @@
+package com.amazon.alexa.auto.deviceusage;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+import android.app.usage.NetworkStats;
+import android.app.usage.NetworkStatsManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class NetworkStatsManagerRunnerTest {
+    private static final int UID = 10123;
+    private static final String WATERMARK_KEY = "watermark-" + ConnectivityManager.TYPE_WIFI;
+    private static final long BUCKET_DURATION_MS = TimeUnit.HOURS.toMillis(2);
+    // Start of a bucket, the platform aligns the buckets to multiples of their duration
+    private static final long BUCKET_START_MS = 10000 * BUCKET_DURATION_MS;
+
+    private NetworkStatsManager mNetworkStatsManager;
+    private DeviceUsageHandler mDeviceUsageHandler;
+    private SharedPreferences mPreferences;
+    private NetworkStatsManagerRunner mClassUnderTest;
+
+    @Before
+    public void setup() {
+        mNetworkStatsManager = Mockito.mock(NetworkStatsManager.class);
+        mDeviceUsageHandler = Mockito.mock(DeviceUsageHandler.class);
+        mPreferences = RuntimeEnvironment.application.getSharedPreferences(
+                "com.amazon.alexa.auto.deviceusage.NetworkStats", Context.MODE_PRIVATE);
+        mPreferences.edit().clear().commit();
+
+        NetworkInfo networkInfo = Mockito.mock(NetworkInfo.class);
+        Mockito.when(networkInfo.isConnected()).thenReturn(true);
+        Mockito.when(networkInfo.getType()).thenReturn(ConnectivityManager.TYPE_WIFI);
+        ConnectivityManager connectivityManager = Mockito.mock(ConnectivityManager.class);
+        Mockito.when(connectivityManager.getActiveNetworkInfo()).thenReturn(networkInfo);
+
+        Context context = Mockito.mock(Context.class);
+        Mockito.when(context.getSystemService(Context.NETWORK_STATS_SERVICE)).thenReturn(mNetworkStatsManager);
+        Mockito.when(context.getSystemService(Context.CONNECTIVITY_SERVICE)).thenReturn(connectivityManager);
+        Mockito.when(context.getSharedPreferences(anyString(), anyInt())).thenReturn(mPreferences);
+        mClassUnderTest = new NetworkStatsManagerRunner(mDeviceUsageHandler, context, UID);
+    }
+
+    private static NetworkStats.Bucket bucket(long startTime, long endTime, long rxBytes, long txBytes) {
+        NetworkStats.Bucket bucket = new NetworkStats.Bucket();
+        ReflectionHelpers.setField(bucket, "mBeginTimeStamp", startTime);
+        ReflectionHelpers.setField(bucket, "mEndTimeStamp", endTime);
+        ReflectionHelpers.setField(bucket, "mRxBytes", rxBytes);
+        ReflectionHelpers.setField(bucket, "mTxBytes", txBytes);
+        return bucket;
+    }
+
+    private void mockBuckets(long watermark, NetworkStats.Bucket... buckets) {
+        ArrayDeque<NetworkStats.Bucket> remaining = new ArrayDeque<>(Arrays.asList(buckets));
+        NetworkStats networkStats = Mockito.mock(NetworkStats.class);
+        Mockito.when(networkStats.hasNextBucket()).thenAnswer(invocation -> !remaining.isEmpty());
+        Mockito.when(networkStats.getNextBucket(any())).thenAnswer(invocation -> {
+            NetworkStats.Bucket next = remaining.poll();
+            NetworkStats.Bucket target = invocation.getArgument(0);
+            for (String field : new String[] {"mBeginTimeStamp", "mEndTimeStamp", "mRxBytes", "mTxBytes"}) {
+                ReflectionHelpers.setField(target, field, ReflectionHelpers.getField(next, field));
+            }
+            return true;
+        });
+        Mockito.when(mNetworkStatsManager.queryDetailsForUid(
+                             eq(ConnectivityManager.TYPE_WIFI), eq(""), eq(watermark), anyLong(), eq(UID)))
+                .thenReturn(networkStats);
+    }
+
+    @Test
+    public void testFirstRunOnlyStoresWatermark() {
+        long before = System.currentTimeMillis();
+
+        mClassUnderTest.run();
+
+        long watermark = mPreferences.getLong(WATERMARK_KEY, -1L);
+        Assert.assertTrue(watermark >= before && watermark <= System.currentTimeMillis());
+        Mockito.verifyZeroInteractions(mNetworkStatsManager, mDeviceUsageHandler);
+    }
+
+    @Test
+    public void testOnlyEndedBucketsAfterWatermarkAreReported() {
+        long watermark = System.currentTimeMillis() - 3 * BUCKET_DURATION_MS;
+        mPreferences.edit().putLong(WATERMARK_KEY, watermark).commit();
+        mockBuckets(watermark,
+                // Started before the watermark, already accounted by the previous run
+                bucket(watermark - BUCKET_DURATION_MS, watermark, 1000, 2000),
+                bucket(watermark, watermark + BUCKET_DURATION_MS, 10, 20),
+                bucket(watermark + BUCKET_DURATION_MS, watermark + 2 * BUCKET_DURATION_MS, 30, 40),
+                // Still in progress, accounted by a later run
+                bucket(watermark + 2 * BUCKET_DURATION_MS, watermark + 4 * BUCKET_DURATION_MS, 500, 600));
+
+        mClassUnderTest.run();
+
+        ArgumentCaptor<Long> endTime = ArgumentCaptor.forClass(Long.class);
+        Mockito.verify(mDeviceUsageHandler)
+                .reportUsage(eq(DeviceUsageHandler.NetworkType.WIFI), eq(40L), eq(60L), eq(100L), eq(watermark),
+                        endTime.capture());
+        Assert.assertEquals(watermark + 2 * BUCKET_DURATION_MS, (long) endTime.getValue());
+        Assert.assertEquals(watermark + 2 * BUCKET_DURATION_MS, mPreferences.getLong(WATERMARK_KEY, -1L));
+    }
+
+    @Test
+    public void testNoReportWithoutEndedBucket() {
+        long watermark = System.currentTimeMillis() - BUCKET_DURATION_MS / 2;
+        mPreferences.edit().putLong(WATERMARK_KEY, watermark).commit();
+        mockBuckets(watermark, bucket(watermark, watermark + BUCKET_DURATION_MS, 10, 20));
+
+        mClassUnderTest.run();
+
+        Mockito.verifyZeroInteractions(mDeviceUsageHandler);
+        Assert.assertEquals(watermark, mPreferences.getLong(WATERMARK_KEY, -1L));
+    }
+
+    @Test
+    public void testWatermarkInFutureIsReset() {
+        long watermark = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+        mPreferences.edit().putLong(WATERMARK_KEY, watermark).commit();
+
+        mClassUnderTest.run();
+
+        Mockito.verifyZeroInteractions(mNetworkStatsManager, mDeviceUsageHandler);
+        Assert.assertTrue(mPreferences.getLong(WATERMARK_KEY, -1L) <= System.currentTimeMillis());
+
+        // The next run accounts the buckets from the reset watermark
+        long resetWatermark = mPreferences.getLong(WATERMARK_KEY, -1L);
+        mockBuckets(resetWatermark);
+        mClassUnderTest.run();
+        Mockito.verify(mNetworkStatsManager)
+                .queryDetailsForUid(eq(ConnectivityManager.TYPE_WIFI), eq(""), eq(resetWatermark), anyLong(), eq(UID));
+    }
+
+    @Test
+    public void testBucketStraddlingFirstRunWatermarkIsReported() {
+        NetworkStatsManagerRunner runner = Mockito.spy(mClassUnderTest);
+        long firstRun = BUCKET_START_MS + BUCKET_DURATION_MS / 2;
+        Mockito.doReturn(firstRun).when(runner).currentTimeMillis();
+        runner.run();
+        Assert.assertEquals(firstRun, mPreferences.getLong(WATERMARK_KEY, -1L));
+
+        mockBuckets(firstRun, bucket(BUCKET_START_MS, BUCKET_START_MS + BUCKET_DURATION_MS, 10, 20));
+        Mockito.doReturn(BUCKET_START_MS + BUCKET_DURATION_MS + 1000).when(runner).currentTimeMillis();
+        runner.run();
+
+        Mockito.verify(mDeviceUsageHandler)
+                .reportUsage(DeviceUsageHandler.NetworkType.WIFI, 10L, 20L, 30L, BUCKET_START_MS,
+                        BUCKET_START_MS + BUCKET_DURATION_MS);
+        Assert.assertEquals(BUCKET_START_MS + BUCKET_DURATION_MS, mPreferences.getLong(WATERMARK_KEY, -1L));
+    }
+
+    @Test
+    public void testBucketStraddlingResetWatermarkIsReported() {
+        NetworkStatsManagerRunner runner = Mockito.spy(mClassUnderTest);
+        long reset = BUCKET_START_MS + BUCKET_DURATION_MS / 2;
+        mPreferences.edit().putLong(WATERMARK_KEY, reset + TimeUnit.DAYS.toMillis(1)).commit();
+        Mockito.doReturn(reset).when(runner).currentTimeMillis();
+        runner.run();
+        Assert.assertEquals(reset, mPreferences.getLong(WATERMARK_KEY, -1L));
+
+        mockBuckets(reset, bucket(BUCKET_START_MS, BUCKET_START_MS + BUCKET_DURATION_MS, 10, 20),
+                // Still in progress, accounted by a later run
+                bucket(BUCKET_START_MS + BUCKET_DURATION_MS, BUCKET_START_MS + 2 * BUCKET_DURATION_MS, 30, 40));
+        Mockito.doReturn(BUCKET_START_MS + BUCKET_DURATION_MS + 1000).when(runner).currentTimeMillis();
+        runner.run();
+
+        Mockito.verify(mDeviceUsageHandler)
+                .reportUsage(DeviceUsageHandler.NetworkType.WIFI, 10L, 20L, 30L, BUCKET_START_MS,
+                        BUCKET_START_MS + BUCKET_DURATION_MS);
+        Assert.assertEquals(BUCKET_START_MS + BUCKET_DURATION_MS, mPreferences.getLong(WATERMARK_KEY, -1L));
+    }
+}
@@ -35,7 +35,7 @@ import com.amazon.alexa.auto.aacs.common.navi.PointOfInterest;
 import com.amazon.alexa.auto.aacs.common.navi.ShowAlternativeRoutes;
 import com.amazon.alexa.auto.aacs.common.navi.StartNavigation;
 import com.amazon.alexa.auto.navigation.providers.external.DefaultNaviProvider;
-import com.amazon.alexa.auto.navigation.util.AnnotationScanner;
+import com.amazon.alexa.auto.navigation.util.NaviProviderLoader;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.TestOnly;
@@ -120,8 +120,7 @@ public class GenericNaviProvider implements NaviProvider, NaviResponseReporter {
     }
 
     private void checkNaviProvider() {
-        AnnotationScanner annotationScanner = new AnnotationScanner();
-        mNaviProvider = annotationScanner.getNaviProvider(mWeakContext.get());
+        mNaviProvider = NaviProviderLoader.load();
         if (mNaviProvider == null) {
             Log.d(TAG, "checkNavigationProvider mNaviProvider is null, creating default");
             mNaviProvider = DefaultNaviProvider.getInstance();
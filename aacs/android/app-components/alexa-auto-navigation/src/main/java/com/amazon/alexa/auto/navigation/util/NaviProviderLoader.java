@@ -0,0 +1,76 @@
+/*
+ * Copyright 2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.alexa.auto.navigation.util;
+
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.amazon.alexa.auto.aacs_annotation_api.NaviProviderRegistry;
+import com.amazon.alexa.auto.navigation.providers.NaviProvider;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * Loads the navigation provider enabled with {@code @NaviProviderModule}. The annotation processor generates a
+ * {@link NaviProviderRegistry} in the package of the enabled provider and declares it in META-INF/services, so the
+ * provider is loaded with {@link ServiceLoader} instead of being looked up through the manifest meta-data and
+ * reflection. The build fails if more than one provider of a module is enabled. Providers enabled by several
+ * modules are only detected here, in which case none of them is loaded.
+ */
+public class NaviProviderLoader {
+    private static final String TAG = NaviProviderLoader.class.getSimpleName();
+
+    private NaviProviderLoader() {}
+
+    /**
+     * @return the enabled navigation provider, or null if no navigation provider or more than one is enabled.
+     */
+    @SuppressWarnings("rawtypes")
+    public static NaviProvider load() {
+        return load(ServiceLoader.load(NaviProviderRegistry.class, NaviProviderRegistry.class.getClassLoader()));
+    }
+
+    @VisibleForTesting
+    @SuppressWarnings("rawtypes")
+    static NaviProvider load(Iterable<NaviProviderRegistry> registries) {
+        try {
+            // A registry is generated in the package of its provider, so every registry class is another provider
+            List<NaviProviderRegistry> enabledRegistries = new ArrayList<>();
+            Set<String> registryNames = new LinkedHashSet<>();
+            for (NaviProviderRegistry registry : registries) {
+                if (registryNames.add(registry.getClass().getName())) {
+                    enabledRegistries.add(registry);
+                }
+            }
+            if (enabledRegistries.isEmpty()) {
+                return null;
+            }
+            if (enabledRegistries.size() > 1) {
+                Log.e(TAG, "More than one navigation provider is enabled, none is loaded: " + registryNames);
+                return null;
+            }
+            return (NaviProvider) enabledRegistries.get(0).getNaviProvider();
+        } catch (ServiceConfigurationError | ClassCastException e) {
+            Log.e(TAG, "Failed to load the navigation provider. Error message=" + e.getMessage());
+            return null;
+        }
+    }
+}
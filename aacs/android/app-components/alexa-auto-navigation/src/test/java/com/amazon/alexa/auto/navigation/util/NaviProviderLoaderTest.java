@@ -0,0 +1,54 @@
+package com.amazon.alexa.auto.navigation.util;
+
+import com.amazon.alexa.auto.aacs_annotation_api.NaviProviderRegistry;
+import com.amazon.alexa.auto.navigation.providers.NaviProvider;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(RobolectricTestRunner.class)
+public class NaviProviderLoaderTest {
+    private static final NaviProvider FIRST_PROVIDER = Mockito.mock(NaviProvider.class);
+    private static final NaviProvider SECOND_PROVIDER = Mockito.mock(NaviProvider.class);
+
+    private static class FirstRegistry implements NaviProviderRegistry<NaviProvider> {
+        @Override
+        public NaviProvider getNaviProvider() {
+            return FIRST_PROVIDER;
+        }
+    }
+
+    private static class SecondRegistry implements NaviProviderRegistry<NaviProvider> {
+        @Override
+        public NaviProvider getNaviProvider() {
+            return SECOND_PROVIDER;
+        }
+    }
+
+    @Test
+    public void loadWithoutRegistryReturnsNull() {
+        Assert.assertNull(NaviProviderLoader.load(Collections.emptyList()));
+    }
+
+    @Test
+    public void loadReturnsEnabledProvider() {
+        Assert.assertSame(FIRST_PROVIDER, NaviProviderLoader.load(Collections.singletonList(new FirstRegistry())));
+    }
+
+    @Test
+    public void loadIgnoresRegistryLoadedTwice() {
+        Assert.assertSame(
+                FIRST_PROVIDER, NaviProviderLoader.load(Arrays.asList(new FirstRegistry(), new FirstRegistry())));
+    }
+
+    @Test
+    public void loadWithSeveralProvidersReturnsNull() {
+        Assert.assertNull(NaviProviderLoader.load(Arrays.asList(new FirstRegistry(), new SecondRegistry())));
+    }
+}
@@ -50,7 +50,6 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.lang.ref.WeakReference;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
 
@@ -301,9 +300,7 @@ public class AACSTelephonyService extends Service {
                 return;
             }
 
-            HashMap<String, CallMap.CallInfo> callIdCallInfoMap =
-                    mPhoneCallController.getCallMap().getCallIdCallInfoMap();
-            if (callIdCallInfoMap.size() == 0) {
+            if (mPhoneCallController.getCallMap().getCallCount() == 0) {
                 Log.v(TAG, "No ongoing call. Marking service idle. Service would stop immediately");
                 mServiceIsBusy = false;
                 stopAACSTelephonyService();
@@ -18,36 +18,110 @@ package com.amazon.aacstelephony;
 import android.telecom.Call;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+
 import com.amazon.aacsconstants.AACSConstants;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Registry of the calls known to AACS Telephony. The calls are added and removed from the InCallService callbacks
+ * and looked up while handling the AASB directives, so all the indexes are updated together under a single lock.
+ *
+ * A call is indexed by its {@link Call} object and, once known, by its AASB call id. The calls reported by the
+ * platform before AASB created their call id are queued in the order the call ids were requested, and the outgoing
+ * calls placed by Alexa are queued until the platform reports their {@link Call} object. The calls are also indexed
+ * by their last known {@link Call} state.
+ */
 class CallMap {
     private static final String TAG = AACSConstants.AACS + "-"
             + "AACSTelephonyService"
             + "-" + CallMap.class.getSimpleName();
 
-    private static HashMap<Call, Call.Callback> mCallStateCallbackMap;
-    private static HashMap<String, CallInfo> mCallIdCallInfoMap;
-    private static HashMap<Call, CallInfo> mCallInfoMap;
+    /**
+     * Listener to the changes of the calls in the map. The listeners are called on the thread that changed the map,
+     * after the change is visible to the other threads.
+     */
+    interface Listener {
+        void onCallAdded(@NonNull CallInfo callInfo);
+
+        void onCallStateChanged(@NonNull CallInfo callInfo, int previousState);
+
+        void onCallRemoved(@NonNull CallInfo callInfo);
+    }
+
+    private final Object mLock = new Object();
+    private final Map<Call, Call.Callback> mCallStateCallbackMap = new HashMap<>();
+    private final Map<String, CallInfo> mCallIdCallInfoMap = new LinkedHashMap<>();
+    private final Map<Call, CallInfo> mCallInfoMap = new HashMap<>();
+    private final ArrayDeque<CallInfo> mCallsAwaitingCallId = new ArrayDeque<>();
+    private final ArrayDeque<CallInfo> mCallsAwaitingCall = new ArrayDeque<>();
+    private final Map<Integer, Set<CallInfo>> mCallStateIndex = new HashMap<>();
+    private final List<Listener> mListeners = new CopyOnWriteArrayList<>();
+
+    void addListener(@NonNull Listener listener) {
+        mListeners.add(listener);
+    }
 
-    CallMap() {
-        mCallStateCallbackMap = new HashMap<>();
-        mCallIdCallInfoMap = new HashMap<>();
-        mCallInfoMap = new HashMap<>();
+    void removeListener(@NonNull Listener listener) {
+        mListeners.remove(listener);
     }
 
+    /**
+     * Adds a call. If the call id is not known, the call must be known and waits for its call id, see
+     * {@link #assignCallId(String)}. If the call is not known, the call waits for its {@link Call} object, see
+     * {@link #setOutgoingCall(Call)}. A call already in the map is replaced.
+     */
     void addCall(Call call, String callId, String callerId) {
-        Log.i(TAG, "Call added to CallMap...");
+        if (call == null && callId == null) {
+            Log.e(TAG, "Call without Call object and call id cannot be added");
+            return;
+        }
+
         CallInfo callInfo = new CallInfo(call, callerId, callId);
-        if (call != null)
-            mCallInfoMap.put(call, callInfo);
-        if (callId != null)
-            mCallIdCallInfoMap.put(callId, callInfo);
+        CallInfo replacedByCall;
+        CallInfo replacedByCallId = null;
+        synchronized (mLock) {
+            replacedByCall = call != null ? removeLocked(mCallInfoMap.get(call)) : null;
+            if (callId != null) {
+                replacedByCallId = removeLocked(mCallIdCallInfoMap.get(callId));
+            }
+
+            if (call != null) {
+                mCallInfoMap.put(call, callInfo);
+                callInfo.mState = call.getState();
+                indexStateLocked(callInfo);
+            } else {
+                mCallsAwaitingCall.add(callInfo);
+            }
+            if (callId != null) {
+                mCallIdCallInfoMap.put(callId, callInfo);
+            } else {
+                mCallsAwaitingCallId.add(callInfo);
+            }
+        }
+
+        Log.i(TAG, "Call added to CallMap...");
+        notifyRemoved(replacedByCall);
+        notifyRemoved(replacedByCallId);
+        for (Listener listener : mListeners) {
+            listener.onCallAdded(callInfo);
+        }
     }
 
     void removeCall(Call call) {
-        CallInfo callInfo = mCallInfoMap.remove(call);
+        CallInfo callInfo;
+        synchronized (mLock) {
+            callInfo = removeLocked(mCallInfoMap.get(call));
+        }
 
         if (callInfo == null) {
             Log.e(TAG, "CallInfo to be removed not found");
@@ -55,13 +129,15 @@ class CallMap {
         }
 
         Log.i(TAG, "Call removed from CallMap...");
-        String callId = callInfo.getCallId();
-        mCallIdCallInfoMap.remove(callId);
+        notifyRemoved(callInfo);
     }
 
     Call getCall(String callId) {
-        CallInfo callInfo = mCallIdCallInfoMap.get(callId);
-        if (callInfo == null) {
+        CallInfo callInfo;
+        synchronized (mLock) {
+            callInfo = mCallIdCallInfoMap.get(callId);
+        }
+        if (callInfo == null || callInfo.getCall() == null) {
             Log.e(TAG, "No call with matching callId available");
             return null;
         }
@@ -69,70 +145,191 @@ class CallMap {
         return callInfo.getCall();
     }
 
-    HashMap<String, CallInfo> getCallIdCallInfoMap() {
-        return mCallIdCallInfoMap;
+    CallInfo getCallInfo(Call call) {
+        synchronized (mLock) {
+            return mCallInfoMap.get(call);
+        }
     }
 
-    CallInfo getCallInfoWithoutCallId() {
-        for (String callId : mCallIdCallInfoMap.keySet()) {
-            if (callId.equals(Constants.CallState.INBOUND_RINGING) || callId.equals(Constants.CallState.DIALING)
-                    || callId.equals(Constants.CallState.ACTIVE)) {
-                CallInfo callInfo = mCallIdCallInfoMap.get(callId);
-                Call call = callInfo.getCall();
+    /**
+     * @return a snapshot of all the calls, the calls with a call id first.
+     */
+    List<CallInfo> getCalls() {
+        synchronized (mLock) {
+            List<CallInfo> calls = new ArrayList<>(mCallIdCallInfoMap.values());
+            calls.addAll(mCallsAwaitingCallId);
+            return calls;
+        }
+    }
 
-                // remove the entries with outdated call id
-                mCallIdCallInfoMap.remove(callId);
-                mCallInfoMap.remove(call);
+    int getCallCount() {
+        synchronized (mLock) {
+            return mCallIdCallInfoMap.size() + mCallsAwaitingCallId.size();
+        }
+    }
 
-                return callInfo;
+    /**
+     * @return a snapshot of the calls which last known {@link Call} state is one of the given states.
+     */
+    List<CallInfo> getCallsInState(int... states) {
+        List<CallInfo> calls = new ArrayList<>();
+        synchronized (mLock) {
+            for (int state : states) {
+                Set<CallInfo> callsInState = mCallStateIndex.get(state);
+                if (callsInState != null) {
+                    calls.addAll(callsInState);
+                }
             }
         }
-        return null;
+        return calls;
     }
 
-    CallInfo getOutgoingCallInfo() {
-        for (String callId : mCallIdCallInfoMap.keySet()) {
-            CallInfo callInfo = mCallIdCallInfoMap.get(callId);
-            // For outgoing calls placed by Alexa, the map always has the call id before getting the Call object
-            if (callInfo != null && callInfo.getCall() == null) {
-                return callInfo;
+    /**
+     * Assigns the call id created by AASB to the call that waits for a call id the longest.
+     *
+     * @return the call, or null if no call waits for a call id.
+     */
+    CallInfo assignCallId(@NonNull String callId) {
+        CallInfo replacedByCallId;
+        CallInfo callInfo;
+        synchronized (mLock) {
+            callInfo = mCallsAwaitingCallId.poll();
+            if (callInfo == null) {
+                return null;
             }
+            replacedByCallId = removeLocked(mCallIdCallInfoMap.get(callId));
+            callInfo.mCallId = callId;
+            mCallIdCallInfoMap.put(callId, callInfo);
+        }
+
+        Log.i(TAG, "Call id assigned to call...");
+        notifyRemoved(replacedByCallId);
+        return callInfo;
+    }
+
+    /**
+     * @return the outgoing call placed by Alexa that waits for its {@link Call} object the longest.
+     */
+    CallInfo getOutgoingCallInfo() {
+        synchronized (mLock) {
+            return mCallsAwaitingCall.peek();
         }
-        return null;
     }
 
     void addCallback(Call call, Call.Callback callback) {
-        mCallStateCallbackMap.put(call, callback);
+        synchronized (mLock) {
+            mCallStateCallbackMap.put(call, callback);
+        }
     }
 
     Call.Callback removeCallback(Call call) {
-        return mCallStateCallbackMap.remove(call);
+        synchronized (mLock) {
+            return mCallStateCallbackMap.remove(call);
+        }
     }
 
-    void setCall(String callId, Call call) {
+    /**
+     * Sets the {@link Call} object of the outgoing call placed by Alexa that waits for it the longest.
+     *
+     * @return the call, or null if no outgoing call placed by Alexa waits for its {@link Call} object.
+     */
+    CallInfo setOutgoingCall(@NonNull Call call) {
+        CallInfo callInfo;
+        synchronized (mLock) {
+            callInfo = mCallsAwaitingCall.poll();
+            if (callInfo == null) {
+                return null;
+            }
+            callInfo.mCall = call;
+            callInfo.mState = call.getState();
+            mCallInfoMap.put(call, callInfo);
+            indexStateLocked(callInfo);
+        }
         Log.i(TAG, "Call object updated for outgoing call...");
-        CallInfo newCallInfo = mCallIdCallInfoMap.get(callId);
-        newCallInfo.setCall(call);
-        mCallIdCallInfoMap.put(callId, newCallInfo);
-        mCallInfoMap.put(call, newCallInfo);
+        return callInfo;
+    }
+
+    /**
+     * Updates the last known state of a call.
+     */
+    void updateCallState(Call call, int state) {
+        CallInfo callInfo;
+        int previousState;
+        synchronized (mLock) {
+            callInfo = mCallInfoMap.get(call);
+            if (callInfo == null || callInfo.mState == state) {
+                return;
+            }
+            previousState = callInfo.mState;
+            unindexStateLocked(callInfo);
+            callInfo.mState = state;
+            indexStateLocked(callInfo);
+        }
+
+        for (Listener listener : mListeners) {
+            listener.onCallStateChanged(callInfo, previousState);
+        }
     }
 
     void clear() {
-        mCallIdCallInfoMap.clear();
-        mCallIdCallInfoMap = null;
+        synchronized (mLock) {
+            mCallIdCallInfoMap.clear();
+            mCallInfoMap.clear();
+            mCallStateCallbackMap.clear();
+            mCallsAwaitingCallId.clear();
+            mCallsAwaitingCall.clear();
+            mCallStateIndex.clear();
+        }
+        mListeners.clear();
+    }
 
-        mCallInfoMap.clear();
-        mCallInfoMap = null;
+    private CallInfo removeLocked(CallInfo callInfo) {
+        if (callInfo == null) {
+            return null;
+        }
+        if (callInfo.mCall != null) {
+            mCallInfoMap.remove(callInfo.mCall);
+            unindexStateLocked(callInfo);
+        }
+        if (callInfo.mCallId != null) {
+            mCallIdCallInfoMap.remove(callInfo.mCallId);
+        }
+        mCallsAwaitingCallId.remove(callInfo);
+        mCallsAwaitingCall.remove(callInfo);
+        return callInfo;
+    }
 
-        mCallStateCallbackMap.clear();
-        mCallStateCallbackMap = null;
+    private void indexStateLocked(CallInfo callInfo) {
+        Set<CallInfo> callsInState = mCallStateIndex.get(callInfo.mState);
+        if (callsInState == null) {
+            callsInState = new LinkedHashSet<>();
+            mCallStateIndex.put(callInfo.mState, callsInState);
+        }
+        callsInState.add(callInfo);
     }
 
-    // CallInfo Struct
+    private void unindexStateLocked(CallInfo callInfo) {
+        Set<CallInfo> callsInState = mCallStateIndex.get(callInfo.mState);
+        if (callsInState != null && callsInState.remove(callInfo) && callsInState.isEmpty()) {
+            mCallStateIndex.remove(callInfo.mState);
+        }
+    }
+
+    private void notifyRemoved(CallInfo callInfo) {
+        if (callInfo == null) {
+            return;
+        }
+        for (Listener listener : mListeners) {
+            listener.onCallRemoved(callInfo);
+        }
+    }
+
+    // CallInfo Struct. Only the map updates the Call object, the call id and the state, under its lock.
     static class CallInfo {
-        private Call mCall;
-        private String mCallerId;
-        private String mCallId;
+        private volatile Call mCall;
+        private final String mCallerId;
+        private volatile String mCallId;
+        private volatile int mState = Call.STATE_NEW;
 
         CallInfo(Call call, String callerId, String callId) {
             mCall = call;
@@ -152,8 +349,12 @@ class CallMap {
             return mCallId;
         }
 
-        void setCall(Call call) {
-            mCall = call;
+        boolean hasCallId() {
+            return mCallId != null;
+        }
+
+        int getState() {
+            return mState;
         }
     }
 }
@@ -37,9 +37,15 @@ public class CallStateListener extends Call.Callback {
     private AACSMessageSender mAACSMessageSender;
     private String mPackageName;
     private ComponentName mTelephonyServiceComponent;
+    private CallMap mCallMap;
 
     public CallStateListener(@NonNull Context context, @NonNull String callId, @NonNull String callerId,
             @NonNull AACSMessageSender messageSender) {
+        this(context, callId, callerId, messageSender, null);
+    }
+
+    CallStateListener(@NonNull Context context, @NonNull String callId, @NonNull String callerId,
+            @NonNull AACSMessageSender messageSender, CallMap callMap) {
         mContext = context;
         mCallId = callId;
         mCallerId = callerId;
@@ -47,6 +53,7 @@ public class CallStateListener extends Call.Callback {
         mPackageName = mContext.getApplicationContext().getPackageName();
         Log.d(TAG, "AACS Telephony lib is in " + mPackageName);
         mTelephonyServiceComponent = new ComponentName(mPackageName, Constants.TELEPHONY_SERVICE_CLASS);
+        mCallMap = callMap;
     }
 
     @Override
@@ -54,6 +61,9 @@ public class CallStateListener extends Call.Callback {
         super.onStateChanged(call, state);
 
         Log.v(TAG, String.format("onStateChanged: callId=%s, state=%s", mCallId, Util.getAACSCallState(state)));
+        if (mCallMap != null) {
+            mCallMap.updateCallState(call, state);
+        }
         Util.publishCallStateToAACS(state, mAACSMessageSender, mCallId, mCallerId);
 
         if (state == Call.STATE_ACTIVE) {
@@ -43,7 +43,6 @@ import org.json.JSONStringer;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 public class PhoneCallController extends InCallService {
@@ -222,7 +221,7 @@ public class PhoneCallController extends InCallService {
     void callIdReceived(String callId) {
         Log.d(TAG, "callIdReceived");
 
-        CallMap.CallInfo currentCallInfo = mCallMap.getCallInfoWithoutCallId();
+        CallMap.CallInfo currentCallInfo = mCallMap.assignCallId(callId);
         if (currentCallInfo == null) {
             Log.e(TAG, "No call that is expecting Call Id found");
             return;
@@ -232,22 +231,19 @@ public class PhoneCallController extends InCallService {
         Call currentCall = currentCallInfo.getCall();
 
         Util.publishCallStateToAACS(currentCall.getState(), mAACSMessageSender, callId, currentCallerId);
-        Call.Callback callStateCallback =
-                new CallStateListener(mTelephonyServiceContext, callId, currentCallerId, mAACSMessageSender);
+        Call.Callback callStateCallback = new CallStateListener(
+                mTelephonyServiceContext, callId, currentCallerId, mAACSMessageSender, mCallMap);
         currentCall.registerCallback(callStateCallback);
-
-        // Add call to the map
         mCallMap.addCallback(currentCall, callStateCallback);
-        mCallMap.addCall(currentCall, callId, currentCallerId);
     }
 
     boolean initialCallStateCheck() {
         Log.d(TAG, "initialCallStateCheck");
 
-        HashMap<String, CallMap.CallInfo> callIdCallInfoMap = mCallMap.getCallIdCallInfoMap();
-        Log.i(TAG, "Active calls when AACS starts " + callIdCallInfoMap.size());
-        if (callIdCallInfoMap.size() > 0) {
-            Util.checkAndReportCurrentCalls(callIdCallInfoMap, mAACSMessageSender);
+        List<CallMap.CallInfo> calls = mCallMap.getCalls();
+        Log.i(TAG, "Active calls when AACS starts " + calls.size());
+        if (calls.size() > 0) {
+            Util.checkAndReportCurrentCalls(calls, mAACSMessageSender);
             return true;
         }
 
@@ -319,7 +315,7 @@ public class PhoneCallController extends InCallService {
         if (callState == Call.STATE_RINGING) {
             Util.sendQueryCallIdRequest(mAACSMessageSender);
             String currentCallerId = call.getDetails().getHandle().getSchemeSpecificPart();
-            mCallMap.addCall(call, Constants.CallState.INBOUND_RINGING, currentCallerId);
+            mCallMap.addCall(call, null, currentCallerId);
 
             Log.v(TAG, "New incoming call...");
             return;
@@ -329,7 +325,7 @@ public class PhoneCallController extends InCallService {
         if (callState == Call.STATE_ACTIVE) {
             Util.sendQueryCallIdRequest(mAACSMessageSender);
             String currentCallerId = call.getDetails().getHandle().getSchemeSpecificPart();
-            mCallMap.addCall(call, Constants.CallState.ACTIVE, currentCallerId);
+            mCallMap.addCall(call, null, currentCallerId);
 
             Log.v(TAG, "New active call...");
             return;
@@ -337,7 +333,7 @@ public class PhoneCallController extends InCallService {
 
         // Outgoing calls
         if (callState == Call.STATE_CONNECTING || callState == Call.STATE_DIALING) {
-            CallMap.CallInfo outgoingCallInfo = mCallMap.getOutgoingCallInfo();
+            CallMap.CallInfo outgoingCallInfo = mCallMap.setOutgoingCall(call);
             Log.v(TAG, "New outgoing call...");
 
             if (outgoingCallInfo != null) {
@@ -345,17 +341,16 @@ public class PhoneCallController extends InCallService {
                 String callerId = outgoingCallInfo.getCallerId();
                 String callId = outgoingCallInfo.getCallId();
 
-                Call.Callback callStateCallback = new CallStateListener(this, callId, callerId, mAACSMessageSender);
+                Call.Callback callStateCallback =
+                        new CallStateListener(this, callId, callerId, mAACSMessageSender, mCallMap);
                 call.registerCallback(callStateCallback);
-
-                mCallMap.setCall(callId, call);
                 mCallMap.addCallback(call, callStateCallback);
 
             } else {
                 // User initiates the call from head unit or phone
                 Util.sendQueryCallIdRequest(mAACSMessageSender);
                 String currentCallerId = call.getDetails().getHandle().getSchemeSpecificPart();
-                mCallMap.addCall(call, Constants.CallState.DIALING, currentCallerId);
+                mCallMap.addCall(call, null, currentCallerId);
             }
         }
     }
@@ -373,9 +368,9 @@ public class PhoneCallController extends InCallService {
             Log.w(TAG, "Callback is not found for the call");
         }
 
-        HashMap<String, CallMap.CallInfo> callIdCallInfoMap = mCallMap.getCallIdCallInfoMap();
-        if (callIdCallInfoMap.size() > 0) {
-            Util.checkAndReportCurrentCalls(callIdCallInfoMap, mAACSMessageSender);
+        List<CallMap.CallInfo> calls = mCallMap.getCalls();
+        if (calls.size() > 0) {
+            Util.checkAndReportCurrentCalls(calls, mAACSMessageSender);
         }
     }
 
@@ -45,7 +45,6 @@ import org.json.JSONStringer;
 
 import java.lang.annotation.Target;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 public class Util {
@@ -226,19 +225,13 @@ public class Util {
         sendNonAASBIntent(context, listeners, intent);
     }
 
-    static void checkAndReportCurrentCalls(@NonNull HashMap<String, CallMap.CallInfo> callIdCallInfoMap,
-            @NonNull AACSMessageSender aacsMessageSender) {
-        for (String callId : callIdCallInfoMap.keySet()) {
-            if (callId.equals(Constants.CallState.INBOUND_RINGING) || callId.equals(Constants.CallState.DIALING)
-                    || callId.equals(Constants.CallState.ACTIVE)) {
+    static void checkAndReportCurrentCalls(
+            @NonNull List<CallMap.CallInfo> calls, @NonNull AACSMessageSender aacsMessageSender) {
+        for (CallMap.CallInfo callInfo : calls) {
+            if (!callInfo.hasCallId()) {
                 sendQueryCallIdRequest(aacsMessageSender);
             } else {
-                CallMap.CallInfo callInfo = callIdCallInfoMap.get(callId);
-                if (callInfo == null) {
-                    Log.e(TAG, "No call info found with call Id " + callId);
-                    continue;
-                }
-
+                String callId = callInfo.getCallId();
                 String callerId = callInfo.getCallerId();
                 Call currentCall = callInfo.getCall();
                 if (currentCall == null) {
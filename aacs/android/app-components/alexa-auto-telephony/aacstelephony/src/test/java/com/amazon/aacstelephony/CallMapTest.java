@@ -0,0 +1,232 @@
+package com.amazon.aacstelephony;
+
+import android.telecom.Call;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(PowerMockRunner.class)
+public class CallMapTest {
+    private static String TEST_CALL_ID = "testCallID";
+    private static String TEST_CALL_NUMBER = "12345";
+    private static String TEST_WAITING_CALL_NUMBER = "67890";
+    private static final int STRESS_THREADS = 8;
+    private static final int STRESS_ITERATIONS = 500;
+    private static final int STRESS_CALLS_PER_THREAD = 3;
+
+    private CallMap mCallMap;
+    private RecordingListener mListener;
+
+    @Mock
+    private Call mCall;
+
+    @Mock
+    private Call mWaitingCall;
+
+    private static class RecordingListener implements CallMap.Listener {
+        final AtomicInteger mAdded = new AtomicInteger();
+        final AtomicInteger mStateChanged = new AtomicInteger();
+        final AtomicInteger mRemoved = new AtomicInteger();
+
+        @Override
+        public void onCallAdded(@NonNull CallMap.CallInfo callInfo) {
+            mAdded.incrementAndGet();
+        }
+
+        @Override
+        public void onCallStateChanged(@NonNull CallMap.CallInfo callInfo, int previousState) {
+            mStateChanged.incrementAndGet();
+        }
+
+        @Override
+        public void onCallRemoved(@NonNull CallMap.CallInfo callInfo) {
+            mRemoved.incrementAndGet();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mCallMap = new CallMap();
+        mListener = new RecordingListener();
+        mCallMap.addListener(mListener);
+    }
+
+    @Test
+    public void callWaiting_callIdsAssignedInOrder() {
+        PowerMockito.when(mCall.getState()).thenReturn(Call.STATE_ACTIVE);
+        PowerMockito.when(mWaitingCall.getState()).thenReturn(Call.STATE_RINGING);
+        mCallMap.addCall(mCall, null, TEST_CALL_NUMBER);
+        mCallMap.addCall(mWaitingCall, null, TEST_WAITING_CALL_NUMBER);
+        Assert.assertEquals(2, mCallMap.getCallCount());
+
+        CallMap.CallInfo callInfo = mCallMap.assignCallId(TEST_CALL_ID);
+        CallMap.CallInfo waitingCallInfo = mCallMap.assignCallId(TEST_CALL_ID + "2");
+        Assert.assertNull(mCallMap.assignCallId(TEST_CALL_ID + "3"));
+
+        Assert.assertEquals(TEST_CALL_NUMBER, callInfo.getCallerId());
+        Assert.assertEquals(TEST_WAITING_CALL_NUMBER, waitingCallInfo.getCallerId());
+        Assert.assertEquals(mCall, mCallMap.getCall(TEST_CALL_ID));
+        Assert.assertEquals(mWaitingCall, mCallMap.getCall(TEST_CALL_ID + "2"));
+        Assert.assertEquals(2, mCallMap.getCallCount());
+    }
+
+    @Test
+    public void outgoingCall_waitsForCallObject() {
+        mCallMap.addCall(null, TEST_CALL_ID, TEST_CALL_NUMBER);
+        Assert.assertNotNull(mCallMap.getOutgoingCallInfo());
+        Assert.assertNull(mCallMap.getCall(TEST_CALL_ID));
+
+        PowerMockito.when(mCall.getState()).thenReturn(Call.STATE_DIALING);
+        CallMap.CallInfo callInfo = mCallMap.setOutgoingCall(mCall);
+        Assert.assertEquals(TEST_CALL_ID, callInfo.getCallId());
+        Assert.assertEquals(mCall, mCallMap.getCall(TEST_CALL_ID));
+        Assert.assertNull(mCallMap.getOutgoingCallInfo());
+        Assert.assertEquals(1, mCallMap.getCallsInState(Call.STATE_DIALING).size());
+    }
+
+    @Test
+    public void stateIndex_followsStateChanges() {
+        PowerMockito.when(mCall.getState()).thenReturn(Call.STATE_ACTIVE);
+        PowerMockito.when(mWaitingCall.getState()).thenReturn(Call.STATE_RINGING);
+        mCallMap.addCall(mCall, TEST_CALL_ID, TEST_CALL_NUMBER);
+        mCallMap.addCall(mWaitingCall, TEST_CALL_ID + "2", TEST_WAITING_CALL_NUMBER);
+        Assert.assertEquals(2, mCallMap.getCallsInState(Call.STATE_ACTIVE, Call.STATE_RINGING).size());
+
+        mCallMap.updateCallState(mCall, Call.STATE_HOLDING);
+        mCallMap.updateCallState(mWaitingCall, Call.STATE_ACTIVE);
+        List<CallMap.CallInfo> activeCalls = mCallMap.getCallsInState(Call.STATE_ACTIVE);
+        Assert.assertEquals(1, activeCalls.size());
+        Assert.assertEquals(mWaitingCall, activeCalls.get(0).getCall());
+        Assert.assertEquals(Call.STATE_HOLDING, mCallMap.getCallInfo(mCall).getState());
+        Assert.assertTrue(mCallMap.getCallsInState(Call.STATE_RINGING).isEmpty());
+
+        mCallMap.updateCallState(mWaitingCall, Call.STATE_ACTIVE);
+        Assert.assertEquals(2, mListener.mStateChanged.get());
+    }
+
+    @Test
+    public void removeCall_removesAllIndexes() {
+        PowerMockito.when(mCall.getState()).thenReturn(Call.STATE_ACTIVE);
+        mCallMap.addCall(mCall, TEST_CALL_ID, TEST_CALL_NUMBER);
+        mCallMap.removeCall(mCall);
+
+        Assert.assertNull(mCallMap.getCall(TEST_CALL_ID));
+        Assert.assertNull(mCallMap.getCallInfo(mCall));
+        Assert.assertTrue(mCallMap.getCallsInState(Call.STATE_ACTIVE).isEmpty());
+        Assert.assertEquals(0, mCallMap.getCallCount());
+        Assert.assertEquals(1, mListener.mAdded.get());
+        Assert.assertEquals(1, mListener.mRemoved.get());
+    }
+
+    @Test
+    public void addCall_replacesCallWithSameCallId() {
+        mCallMap.addCall(mCall, TEST_CALL_ID, TEST_CALL_NUMBER);
+        mCallMap.addCall(mWaitingCall, TEST_CALL_ID, TEST_WAITING_CALL_NUMBER);
+
+        Assert.assertNull(mCallMap.getCallInfo(mCall));
+        Assert.assertEquals(mWaitingCall, mCallMap.getCall(TEST_CALL_ID));
+        Assert.assertEquals(1, mCallMap.getCallCount());
+        Assert.assertEquals(1, mListener.mRemoved.get());
+    }
+
+    @Test
+    public void concurrentCallStateChurn_keepsIndexesConsistent() throws Exception {
+        List<List<Call>> callsPerThread = new ArrayList<>();
+        for (int thread = 0; thread < STRESS_THREADS; thread++) {
+            List<Call> calls = new ArrayList<>();
+            for (int i = 0; i < STRESS_CALLS_PER_THREAD; i++) {
+                Call call = Mockito.mock(Call.class);
+                PowerMockito.when(call.getState()).thenReturn(Call.STATE_RINGING);
+                calls.add(call);
+            }
+            callsPerThread.add(calls);
+        }
+
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch writersDone = new CountDownLatch(STRESS_THREADS);
+        List<Thread> threads = new ArrayList<>();
+        for (int thread = 0; thread < STRESS_THREADS; thread++) {
+            List<Call> calls = callsPerThread.get(thread);
+            String callIdPrefix = "call-" + thread + "-";
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int iteration = 0; iteration < STRESS_ITERATIONS; iteration++) {
+                        for (int i = 0; i < calls.size(); i++) {
+                            Call call = calls.get(i);
+                            if (i % 2 == 0) {
+                                mCallMap.addCall(call, callIdPrefix + i, TEST_CALL_NUMBER);
+                            } else {
+                                // The call id may be assigned to the call of another thread, which may then be
+                                // replaced by a later call with the same call id
+                                mCallMap.addCall(call, null, TEST_CALL_NUMBER);
+                                mCallMap.assignCallId(callIdPrefix + i);
+                            }
+                            mCallMap.updateCallState(call, Call.STATE_ACTIVE);
+                            mCallMap.updateCallState(call, Call.STATE_HOLDING);
+                        }
+                        for (Call call : calls) {
+                            mCallMap.removeCall(call);
+                        }
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                } finally {
+                    writersDone.countDown();
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            try {
+                start.await();
+                while (writersDone.getCount() > 0) {
+                    for (CallMap.CallInfo callInfo : mCallMap.getCalls()) {
+                        Assert.assertNotNull(callInfo.getCall());
+                    }
+                    for (CallMap.CallInfo callInfo :
+                            mCallMap.getCallsInState(Call.STATE_RINGING, Call.STATE_ACTIVE, Call.STATE_HOLDING)) {
+                        Assert.assertNotNull(callInfo.getCall());
+                    }
+                    Assert.assertTrue(mCallMap.getCallCount() <= STRESS_THREADS * STRESS_CALLS_PER_THREAD);
+                }
+            } catch (Throwable t) {
+                failures.add(t);
+            }
+        }));
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.MINUTES.toMillis(1));
+            Assert.assertFalse(thread.isAlive());
+        }
+
+        Assert.assertTrue(failures.toString(), failures.isEmpty());
+        Assert.assertEquals(0, mCallMap.getCallCount());
+        Assert.assertTrue(mCallMap.getCalls().isEmpty());
+        Assert.assertTrue(
+                mCallMap.getCallsInState(Call.STATE_RINGING, Call.STATE_ACTIVE, Call.STATE_HOLDING).isEmpty());
+        Assert.assertNull(mCallMap.assignCallId(TEST_CALL_ID));
+        Assert.assertEquals(mListener.mAdded.get(), mListener.mRemoved.get());
+        Assert.assertEquals(STRESS_THREADS * STRESS_ITERATIONS * STRESS_CALLS_PER_THREAD, mListener.mAdded.get());
+        Assert.assertTrue(mListener.mStateChanged.get() > 0);
+    }
+}
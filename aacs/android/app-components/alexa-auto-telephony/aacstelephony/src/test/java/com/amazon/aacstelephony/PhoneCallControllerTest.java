@@ -177,7 +177,7 @@ public class PhoneCallControllerTest {
         mPhoneCallController.getCallMap().addCall(mCall, TEST_CALL_ID, TEST_CALL_NUMBER);
         mPhoneCallController.initialCallStateCheck();
         PowerMockito.verifyStatic(Mockito.times(1));
-        Util.checkAndReportCurrentCalls(mPhoneCallController.getCallMap().getCallIdCallInfoMap(), mAACSMessageSender);
+        Util.checkAndReportCurrentCalls(mPhoneCallController.getCallMap().getCalls(), mAACSMessageSender);
     }
 
     @Test
@@ -185,6 +185,6 @@ public class PhoneCallControllerTest {
         PowerMockito.mockStatic(Util.class);
         mPhoneCallController.initialCallStateCheck();
         PowerMockito.verifyStatic(Mockito.never());
-        Util.checkAndReportCurrentCalls(mPhoneCallController.getCallMap().getCallIdCallInfoMap(), mAACSMessageSender);
+        Util.checkAndReportCurrentCalls(mPhoneCallController.getCallMap().getCalls(), mAACSMessageSender);
     }
 }
@@ -99,6 +99,7 @@ public class AmazonTextToSpeechService extends TextToSpeechService {
     private static final long GET_AACS_STATUS_DEFAULT_TIMEOUT = 1000;
 
     private CompletableFuture<Boolean> mIsAACSRunningPingResponse;
+    private String mLoadedLocale;
 
     @Override
     public void onCreate() {
@@ -176,12 +177,26 @@ public class AmazonTextToSpeechService extends TextToSpeechService {
         }
 
         if (onIsLanguageAvailable(lang, country, variant) == TextToSpeech.LANG_COUNTRY_AVAILABLE) {
+            onLocaleLoaded(String.format(LOCALE_FORMAT, ISO3CodeUtil.getISO2LangCode(lang).get(),
+                    ISO3CodeUtil.getISO2CountryCode(country).get()));
             return TextToSpeech.LANG_COUNTRY_AVAILABLE;
         }
 
         return TextToSpeech.LANG_MISSING_DATA;
     }
 
+    /**
+     * Speech synthesized for the previous locale is not requested again after the locale changes,
+     * so the synthesis cache is cleared to free its space.
+     */
+    private void onLocaleLoaded(String locale) {
+        if (mLoadedLocale != null && !mLoadedLocale.equals(locale)) {
+            Log.i(TAG, String.format("Locale changed from %s to %s", mLoadedLocale, locale));
+            mSynthesizeTextUtil.invalidateSynthesisCache();
+        }
+        mLoadedLocale = locale;
+    }
+
     @Override
     protected void onStop() {
         Log.d(TAG, "onStop");
@@ -15,158 +15,464 @@
 
 package com.amazon.aacstts;
 
-import static android.media.MediaCodec.BUFFER_FLAG_END_OF_STREAM;
-
 import static com.amazon.aacstts.TTSConstants.AACS_TTS_LOG_PREFIX;
 
 import android.media.AudioFormat;
 import android.media.MediaCodec;
 import android.media.MediaFormat;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.util.Log;
 
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Wrapper class over {@link MediaCodec} responsible to decode Audio bytes.
+ * <p>
+ * The codec runs in asynchronous mode. The calling thread reads the encoded stream straight into the input buffers
+ * of the codec as they become available, and decoded output buffers are copied into a single reused array and handed
+ * to the {@link AudioSink} from the codec callback thread. No memory is allocated per buffer.
  */
 public class AudioDecoder {
-    private String TAG = AACS_TTS_LOG_PREFIX + AudioDecoder.class.getSimpleName();
+    private static final String TAG = AACS_TTS_LOG_PREFIX + AudioDecoder.class.getSimpleName();
+
+    private static final long INPUT_BUFFER_WAIT_IN_MILLISECONDS = 10;
+    // The end of the stream is awaited as long as the codec makes progress. The sink blocks at playback pace, so the
+    // codec may still hold seconds of audio when the end of the stream is queued.
+    private static final long END_OF_STREAM_IDLE_TIMEOUT_IN_MILLISECONDS = 2000;
+    private static final long END_OF_STREAM_POLL_IN_MILLISECONDS = 100;
+    private static final int MAX_INPUT_BUFFERS = 64;
+
+    // Upper bound of encoded bytes queued in one input buffer. A single read is done per input buffer, so
+    // this only limits the feed size when more data is already available in the stream.
+    @VisibleForTesting
+    static final int MAX_FEED_SIZE_IN_BYTES = 16 * 1024;
+
+    private final long mEndOfStreamIdleTimeoutInMillis;
+    private Codec mCodec;
+    private volatile ReadableByteChannel mChannel;
+    private final BlockingQueue<Integer> mFreeInputBuffers = new ArrayBlockingQueue<>(MAX_INPUT_BUFFERS);
+    private byte[] mOutputArray = new byte[0];
+    private volatile boolean mCancelled;
+    private volatile boolean mFailed;
+
+    /**
+     * Receives the decoded audio.
+     */
+    public interface AudioSink {
+        /**
+         * This is called when the output format is changed, before the audio of the new format is delivered.
+         * @param sampleRateInHz - The sample rate of the new format in Hz
+         * @param audioFormat - the changed audioFormat.
+         * @param channelCount - the number of channels supported.
+         */
+        void onOutputFormatChanged(int sampleRateInHz, int audioFormat, @IntRange(from = 1, to = 2) int channelCount);
+
+        /**
+         * This is called with each decoded buffer. The array is reused for the next buffer, so the data must be
+         * consumed or copied before returning.
+         */
+        void onAudioDecoded(byte[] buffer, int offset, int length);
+    }
+
+    /**
+     * Codec used by the decoder. Implemented with {@link MediaCodec} and replaced in unit tests.
+     */
+    interface Codec {
+        interface Listener {
+            void onInputBufferAvailable(int index);
+            void onOutputBufferAvailable(int index, int offset, int size, boolean endOfStream);
+            void onOutputFormatChanged(int sampleRateInHz, int audioFormat, int channelCount);
+            void onError(Exception error);
+        }
+
+        void start(Listener listener);
+        ByteBuffer getInputBuffer(int index);
+        void queueInputBuffer(int index, int size, boolean endOfStream);
+        ByteBuffer getOutputBuffer(int index);
+        void releaseOutputBuffer(int index);
+
+        /**
+         * Stops the codec, waits for the callbacks already posted to the listener and releases the codec.
+         */
+        void release();
+    }
+
+    public AudioDecoder() {
+        mEndOfStreamIdleTimeoutInMillis = END_OF_STREAM_IDLE_TIMEOUT_IN_MILLISECONDS;
+    }
 
-    private static long TIMEOUT_IN_MICROSECONDS = 10_000; // 10 milliseconds
-    private static int BITS_IN_A_BYTE = 8;
+    @VisibleForTesting
+    AudioDecoder(Codec codec) {
+        this(codec, END_OF_STREAM_IDLE_TIMEOUT_IN_MILLISECONDS);
+    }
 
-    private MediaCodec mDecoder;
-    private FormatChangedCallback mCallback;
+    @VisibleForTesting
+    AudioDecoder(Codec codec, long endOfStreamIdleTimeoutInMillis) {
+        mCodec = codec;
+        mEndOfStreamIdleTimeoutInMillis = endOfStreamIdleTimeoutInMillis;
+    }
 
     /**
      * Configuring the Audio Decoder to be used to decoding.
      * @param mimeType : The mime type of the input data. One of the mime types specified here : {@link MediaFormat}
      * @param sampleRateInHz : The sampling rate of the content.
      * @param channelCount : the audio channel count.
-     * @param callback: The callback handler to specify the action to be performed when Audio Format changes.
      * @return boolean: True if the decoder was configured successfully else False.
      */
-    public boolean configureDecoder(
-            @NonNull String mimeType, int sampleRateInHz, int channelCount, @NonNull FormatChangedCallback callback) {
+    public boolean configureDecoder(@NonNull String mimeType, int sampleRateInHz, int channelCount) {
         try {
-            final MediaFormat format = MediaFormat.createAudioFormat(mimeType, sampleRateInHz, channelCount);
-            mDecoder = MediaCodec.createDecoderByType(mimeType);
-            mDecoder.configure(format,
-                    null, // surface : required only for video encoding
-                    null, // crypto : required for encrypted data
-                    0 // 0 indicates that we are configuring to use this as decoder, whereas 1 would have indicated that
-                      // we want to use this as an encoder.
-            );
-            mCallback = callback;
+            mCodec = new MediaCodecAdapter(MediaFormat.createAudioFormat(mimeType, sampleRateInHz, channelCount));
             return true;
         } catch (final Exception e) {
-            mDecoder = null; // clearing the decoder as its not configured correctly.
-            Log.e(TAG, "Exception occurred while trying to configure the decoder. for ");
+            mCodec = null; // clearing the decoder as its not configured correctly.
+            Log.e(TAG, "Exception occurred while trying to configure the decoder.", e);
+            return false;
+        }
+    }
+
+    /**
+     * Decodes the encoded audio read from the input stream until the end of the stream is reached or
+     * {@link #cancel()} is called. The codec is released when this method returns, and the sink is not called
+     * afterwards.
+     *
+     * @param input - the stream with the encoded audio.
+     * @param sink - receives the decoded audio.
+     * @return true if the whole stream was decoded.
+     */
+    public boolean decode(@NonNull InputStream input, @NonNull AudioSink sink) {
+        final Codec codec;
+        synchronized (this) {
+            codec = mCodec;
+        }
+        if (codec == null) {
+            Log.e(TAG, "Decoder is not configured.");
+            return false;
+        }
+
+        ReadableByteChannel channel = input instanceof FileInputStream ? ((FileInputStream) input).getChannel()
+                                                                        : Channels.newChannel(input);
+        mChannel = channel;
+        if (mCancelled) {
+            closeChannel(channel);
+        }
+        CountDownLatch endOfStream = new CountDownLatch(1);
+        CodecListener listener = new CodecListener(codec, sink, endOfStream);
+        try {
+            codec.start(listener);
+            if (!feedInput(codec, channel)) {
+                return false;
+            }
+            if (!awaitEndOfStream(endOfStream, listener)) {
+                Log.e(TAG, "Timed out waiting for the end of the decoded stream.");
+                return false;
+            }
+            return !mFailed && !mCancelled;
+        } catch (IOException e) {
+            if (mCancelled) {
+                Log.i(TAG, "Decoding cancelled while reading the encoded stream.");
+            } else {
+                Log.e(TAG, "Failed to read the encoded stream.", e);
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Log.e(TAG, "Interrupted while decoding.");
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Exception occurred while decoding.", e);
             return false;
+        } finally {
+            mChannel = null;
+            // The codec may still deliver callbacks until it is stopped, ignore them from now on
+            listener.stop();
+            codec.release();
+            synchronized (this) {
+                if (mCodec == codec) {
+                    mCodec = null;
+                }
+            }
         }
     }
 
     /**
-     * If the decoder is configured accurately, start the decoder process.
-     * @return true if decoder is successfully started.
+     * Stops an ongoing {@link #decode(InputStream, AudioSink)}. Safe to call from any thread. The encoded stream is
+     * closed to unblock a pending read.
      */
-    public boolean start() {
-        if (mDecoder != null) {
-            mDecoder.start();
-            return true;
+    public void cancel() {
+        mCancelled = true;
+        ReadableByteChannel channel = mChannel;
+        if (channel != null) {
+            closeChannel(channel);
         }
-        return false;
     }
 
     /**
-     *  Takes in the byte array with the data that needs to be decoded.
-     *
-     * @param inputData - the byte array which is filled with data to be decoded.
-     * @param bytesToDecode - the total amount of data to be decoded.
-     * @return the byte array which consists of the decoded data.
+     * Stops the decoder and free up resources used by the codec instance. Must not be called during
+     * {@link #decode(InputStream, AudioSink)}, which releases the codec itself, use {@link #cancel()} instead.
      */
-    public byte[] decode(byte[] inputData, int bytesToDecode) {
-        // The decoder is not able to provide an input buffer if the
-        // byte array is not in the multiples of 8.
-        if (inputData.length % BITS_IN_A_BYTE != 0)
-            return null;
-
-        while (true) {
-            /*
-             * Loading the input data into the input buffers.
-             */
-            int inputBufferIndex = mDecoder.dequeueInputBuffer(TIMEOUT_IN_MICROSECONDS);
-            if (inputBufferIndex >= 0) {
-                mDecoder.getInputBuffer(inputBufferIndex).put(inputData);
-                if (bytesToDecode < 0) {
-                    mDecoder.queueInputBuffer(inputBufferIndex, 0, 0, 0, BUFFER_FLAG_END_OF_STREAM);
-                } else {
-                    int presentationTime = 0; // Only required if we are synchronizing audio and video.
-                    mDecoder.queueInputBuffer(inputBufferIndex, 0, bytesToDecode, presentationTime, 0);
-                }
-            } else {
-                Log.e(TAG, "Input Buffer is not available");
-            }
-
-            /*
-             * Checking if output buffers are ready with the decoded data
-             * and returning when they are ready
-             */
-            MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
-            int outputBufferIndex = mDecoder.dequeueOutputBuffer(bufferInfo, TIMEOUT_IN_MICROSECONDS);
-
-            if (outputBufferIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
-                MediaFormat outputFormat = mDecoder.getOutputFormat();
-                int sampleRate = outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE);
-                int channelCount = outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
-                int encoding = AudioFormat.ENCODING_PCM_16BIT;
-                if (outputFormat.containsKey(MediaFormat.KEY_PCM_ENCODING)) {
-                    encoding = outputFormat.getInteger(MediaFormat.KEY_PCM_ENCODING);
-                }
-                mCallback.onOutputFormatChanged(sampleRate, encoding, channelCount);
-            } else if (outputBufferIndex == MediaCodec.INFO_TRY_AGAIN_LATER) {
-                return null;
-            } else if (outputBufferIndex > 0) {
-                if (bufferInfo.flags == BUFFER_FLAG_END_OF_STREAM) {
-                    stopDecode();
-                    return null;
-                }
+    public void stopDecode() {
+        Codec codec;
+        synchronized (this) {
+            codec = mCodec;
+            mCodec = null;
+        }
+        if (codec != null) {
+            codec.release();
+        }
+    }
 
-                mDecoder.getOutputBuffer(outputBufferIndex).position(0);
-                ByteBuffer outputDataBuffer = mDecoder.getOutputBuffer(outputBufferIndex);
-                byte[] decodedData = new byte[bufferInfo.size];
-                // transfer the data from the output buffers to the byte array to be returned.
-                outputDataBuffer.get(decodedData);
-                mDecoder.releaseOutputBuffer(outputBufferIndex, false);
-                return decodedData;
+    private void closeChannel(ReadableByteChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close the encoded stream.", e);
+        }
+    }
+
+    /**
+     * Reads the stream into the input buffers of the codec until the end of the stream.
+     *
+     * @return false if the decoding was cancelled or failed.
+     */
+    private boolean feedInput(Codec codec, ReadableByteChannel channel) throws IOException, InterruptedException {
+        while (!mCancelled && !mFailed) {
+            Integer index = mFreeInputBuffers.poll(INPUT_BUFFER_WAIT_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+            if (index == null) {
+                continue;
+            }
+            ByteBuffer buffer = codec.getInputBuffer(index);
+            buffer.clear();
+            buffer.limit(Math.min(buffer.capacity(), MAX_FEED_SIZE_IN_BYTES));
+            int bytesRead = channel.read(buffer);
+            if (bytesRead < 0) {
+                codec.queueInputBuffer(index, 0, true);
+                return true;
             }
+            codec.queueInputBuffer(index, buffer.position(), false);
         }
+        return false;
     }
 
     /**
-     * Stops the decoder and free up resources used by the codec instance
+     * Waits until the codec delivered the end of the stream. The wait fails once the codec made no progress for the
+     * idle timeout, progress being an output buffer delivered or written to the sink.
+     *
+     * @return false if the codec stalled.
      */
-    public void stopDecode() {
-        if (mDecoder != null) {
-            mDecoder.stop();
-            mDecoder.release();
-            mDecoder = null;
+    private boolean awaitEndOfStream(CountDownLatch endOfStream, CodecListener listener) throws InterruptedException {
+        listener.onProgress();
+        while (!endOfStream.await(END_OF_STREAM_POLL_IN_MILLISECONDS, TimeUnit.MILLISECONDS)) {
+            if (listener.getIdleTimeInMillis() > mEndOfStreamIdleTimeoutInMillis) {
+                return false;
+            }
         }
+        return true;
     }
 
     /**
-     * Interface to provide callback operations when the output format changes.
+     * Listener of the codec of one {@link #decode(InputStream, AudioSink)}. It only uses the codec it was created
+     * for and ignores the callbacks delivered after the decoding stopped.
      */
-    public interface FormatChangedCallback {
+    private class CodecListener implements Codec.Listener {
+        private final Codec mListenedCodec;
+        private final AudioSink mSink;
+        private final CountDownLatch mEndOfStream;
+        private volatile boolean mStopped;
+        private volatile boolean mWritingToSink;
+        private volatile long mLastProgressNanos = System.nanoTime();
+
+        CodecListener(Codec codec, AudioSink sink, CountDownLatch endOfStream) {
+            mListenedCodec = codec;
+            mSink = sink;
+            mEndOfStream = endOfStream;
+        }
+
+        void stop() {
+            mStopped = true;
+        }
+
+        void onProgress() {
+            mLastProgressNanos = System.nanoTime();
+        }
+
         /**
-         * This is called when the output format is changed
-         * @param sampleRateInHz - The sample rate of the new format in Hz
-         * @param audioFormat - the changed audioFormat.
-         * @param channelCount - the number of channels supported.
+         * @return the time since the last progress of the codec, 0 while a buffer is written to the sink unless the
+         *         decoding was cancelled.
          */
-        void onOutputFormatChanged(int sampleRateInHz, int audioFormat, @IntRange(from = 1, to = 2) int channelCount);
+        long getIdleTimeInMillis() {
+            if (mWritingToSink && !mCancelled) {
+                return 0;
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mLastProgressNanos);
+        }
+
+        @Override
+        public void onInputBufferAvailable(int index) {
+            if (mStopped) {
+                return;
+            }
+            if (!mFreeInputBuffers.offer(index)) {
+                Log.w(TAG, "Too many input buffers, dropping index " + index);
+            }
+        }
+
+        @Override
+        public void onOutputBufferAvailable(int index, int offset, int size, boolean endOfStream) {
+            if (mStopped) {
+                return;
+            }
+            onProgress();
+            if (size > 0 && !mCancelled) {
+                ByteBuffer buffer = mListenedCodec.getOutputBuffer(index);
+                if (mOutputArray.length < size) {
+                    mOutputArray = new byte[size];
+                }
+                buffer.limit(offset + size);
+                buffer.position(offset);
+                buffer.get(mOutputArray, 0, size);
+                mWritingToSink = true;
+                try {
+                    mSink.onAudioDecoded(mOutputArray, 0, size);
+                } finally {
+                    mWritingToSink = false;
+                    onProgress();
+                }
+            }
+            mListenedCodec.releaseOutputBuffer(index);
+            if (endOfStream) {
+                mEndOfStream.countDown();
+            }
+        }
+
+        @Override
+        public void onOutputFormatChanged(int sampleRateInHz, int audioFormat, int channelCount) {
+            if (mStopped) {
+                return;
+            }
+            mSink.onOutputFormatChanged(sampleRateInHz, audioFormat, channelCount);
+        }
+
+        @Override
+        public void onError(Exception error) {
+            if (mStopped) {
+                return;
+            }
+            Log.e(TAG, "Codec error.", error);
+            mFailed = true;
+            mEndOfStream.countDown();
+        }
+    }
+
+    /**
+     * {@link Codec} backed by a {@link MediaCodec} in asynchronous mode. The codec callbacks run on a
+     * dedicated thread.
+     */
+    private static class MediaCodecAdapter implements Codec {
+        private static final long CALLBACK_THREAD_JOIN_TIMEOUT_IN_MILLISECONDS = 1000;
+
+        private final MediaFormat mFormat;
+        private final MediaCodec mMediaCodec;
+        private final HandlerThread mCallbackThread;
+
+        MediaCodecAdapter(MediaFormat format) throws IOException {
+            mFormat = format;
+            mMediaCodec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            mCallbackThread = new HandlerThread("AudioDecoderCallbackThread");
+        }
+
+        @Override
+        public void start(Listener listener) {
+            mCallbackThread.start();
+            // The callback must be set before the codec is configured to use asynchronous mode.
+            mMediaCodec.setCallback(new MediaCodec.Callback() {
+                @Override
+                public void onInputBufferAvailable(@NonNull MediaCodec codec, int index) {
+                    listener.onInputBufferAvailable(index);
+                }
+
+                @Override
+                public void onOutputBufferAvailable(
+                        @NonNull MediaCodec codec, int index, @NonNull MediaCodec.BufferInfo info) {
+                    listener.onOutputBufferAvailable(index, info.offset, info.size,
+                            (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0);
+                }
+
+                @Override
+                public void onError(@NonNull MediaCodec codec, @NonNull MediaCodec.CodecException e) {
+                    listener.onError(e);
+                }
+
+                @Override
+                public void onOutputFormatChanged(@NonNull MediaCodec codec, @NonNull MediaFormat format) {
+                    int encoding = AudioFormat.ENCODING_PCM_16BIT;
+                    if (format.containsKey(MediaFormat.KEY_PCM_ENCODING)) {
+                        encoding = format.getInteger(MediaFormat.KEY_PCM_ENCODING);
+                    }
+                    listener.onOutputFormatChanged(format.getInteger(MediaFormat.KEY_SAMPLE_RATE), encoding,
+                            format.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+                }
+            }, new Handler(mCallbackThread.getLooper()));
+            mMediaCodec.configure(mFormat,
+                    null, // surface : required only for video encoding
+                    null, // crypto : required for encrypted data
+                    0 // 0 indicates that we are configuring to use this as decoder, whereas 1 would have indicated that
+                      // we want to use this as an encoder.
+            );
+            mMediaCodec.start();
+        }
+
+        @Override
+        public ByteBuffer getInputBuffer(int index) {
+            return mMediaCodec.getInputBuffer(index);
+        }
+
+        @Override
+        public void queueInputBuffer(int index, int size, boolean endOfStream) {
+            int presentationTime = 0; // Only required if we are synchronizing audio and video.
+            mMediaCodec.queueInputBuffer(
+                    index, 0, size, presentationTime, endOfStream ? MediaCodec.BUFFER_FLAG_END_OF_STREAM : 0);
+        }
+
+        @Override
+        public ByteBuffer getOutputBuffer(int index) {
+            return mMediaCodec.getOutputBuffer(index);
+        }
+
+        @Override
+        public void releaseOutputBuffer(int index) {
+            mMediaCodec.releaseOutputBuffer(index, false);
+        }
+
+        @Override
+        public void release() {
+            try {
+                mMediaCodec.stop();
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "Codec was not running.");
+            }
+            // No callback is posted once the codec is stopped. Let the ones already posted run before releasing.
+            if (mCallbackThread.quitSafely()) {
+                try {
+                    mCallbackThread.join(CALLBACK_THREAD_JOIN_TIMEOUT_IN_MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            mMediaCodec.release();
+        }
     }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.aacstts;
+
+import android.speech.tts.SynthesisCallback;
+import android.speech.tts.TextToSpeech;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Optional;
+
+/**
+ * {@link SynthesisCallback} that passes everything to the callback of the request and keeps a copy of the audio
+ * written to it, so the synthesized speech can be added to the {@link TTSSynthesisCache}.
+ */
+class RecordingSynthesisCallback implements SynthesisCallback {
+    private final SynthesisCallback mCallback;
+    private final long mMaxRecordedBytes;
+    // Released once the recording is abandoned, so oversized speech is not buffered
+    private ByteArrayOutputStream mRecordedAudio = new ByteArrayOutputStream();
+
+    private int mSampleRateInHz;
+    private int mAudioFormat;
+    private int mChannelCount;
+    private boolean mStarted;
+
+    RecordingSynthesisCallback(SynthesisCallback callback, long maxRecordedBytes) {
+        mCallback = callback;
+        mMaxRecordedBytes = maxRecordedBytes;
+    }
+
+    /**
+     * @return the recorded speech, or empty if the synthesis failed, did not start, or was too large to record.
+     */
+    Optional<TTSSynthesisCache.Entry> getRecordedEntry() {
+        if (!mStarted || mRecordedAudio == null || mRecordedAudio.size() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new TTSSynthesisCache.Entry(
+                mSampleRateInHz, mAudioFormat, mChannelCount, mRecordedAudio.toByteArray()));
+    }
+
+    @Override
+    public int getMaxBufferSize() {
+        return mCallback.getMaxBufferSize();
+    }
+
+    @Override
+    public int start(int sampleRateInHz, int audioFormat, int channelCount) {
+        mSampleRateInHz = sampleRateInHz;
+        mAudioFormat = audioFormat;
+        mChannelCount = channelCount;
+        mStarted = true;
+        return mCallback.start(sampleRateInHz, audioFormat, channelCount);
+    }
+
+    @Override
+    public int audioAvailable(byte[] buffer, int offset, int length) {
+        if (mRecordedAudio != null) {
+            if (mRecordedAudio.size() + length > mMaxRecordedBytes) {
+                // Too large to cache, stop recording
+                stopRecording();
+            } else {
+                mRecordedAudio.write(buffer, offset, length);
+            }
+        }
+        int result = mCallback.audioAvailable(buffer, offset, length);
+        if (result != TextToSpeech.SUCCESS) {
+            stopRecording();
+        }
+        return result;
+    }
+
+    @Override
+    public int done() {
+        return mCallback.done();
+    }
+
+    @Override
+    public void error() {
+        stopRecording();
+        mCallback.error();
+    }
+
+    @Override
+    public void error(int errorCode) {
+        stopRecording();
+        mCallback.error(errorCode);
+    }
+
+    @Override
+    public boolean hasStarted() {
+        return mCallback.hasStarted();
+    }
+
+    @Override
+    public boolean hasFinished() {
+        return mCallback.hasFinished();
+    }
+
+    @Override
+    public void rangeStart(int markerInFrames, int start, int end) {
+        mCallback.rangeStart(markerInFrames, start, end);
+    }
+
+    private void stopRecording() {
+        mRecordedAudio = null;
+    }
+}
@@ -42,7 +42,9 @@ import com.amazon.alexa.auto.aacs.common.AACSMessageBuilder;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -78,14 +80,16 @@ public class SynthesizeTextUtil {
     private static final int DEFAULT_PROVIDER_AUDIO_CHANNEL_COUNT = 2;
     private static final int THREAD_JOIN_TIMEOUT_IN_MILLIS = 2000;
 
-    // This value is used for setting the size of the byte_array while reading the data from the stream.
-    // If the byte array is decoded to PCM, the size of the bytes to write is inflated 8 times by the MediaCodec.
-    // To avoid an overflow in the audioAvailable method the byte-array length should be selected low enough
-    // so that it would not exceed the max-buffer-size that is permitted by the synthesisCallback.
+    // This value is used for setting the size of the byte_array while reading PCM data from the stream.
+    // MP3 data is read by the AudioDecoder directly into the codec input buffers.
     // Note: We have also employed chunking technique to handle the buffer
     //       overflows in the audioAvailable method.
     private static final int STREAM_READ_BYTE_ARRAY_SIZE = 144;
 
+    private static final String SYNTHESIS_CACHE_DIRECTORY = "tts-cache";
+    private static final long SYNTHESIS_CACHE_DISK_BUDGET_BYTES = 16 * 1024 * 1024;
+    private static final long SYNTHESIS_CACHE_MEMORY_BUDGET_BYTES = 2 * 1024 * 1024;
+
     private static final String AUDIO_FORMAT_MP3 = "MP3";
     private static final String AUDIO_FORMAT_PCM = "PCM";
 
@@ -103,6 +107,10 @@ public class SynthesizeTextUtil {
     private Context mContext;
     private HandlerThread mFetchAudioHandlerThread;
     private Handler mFetchAudioHandler;
+    private volatile AudioDecoder mActiveDecoder;
+
+    @VisibleForTesting
+    protected TTSSynthesisCache mSynthesisCache;
 
     /**
      * Prepares the utility class before it can accept any Synthesis request.
@@ -117,6 +125,9 @@ public class SynthesizeTextUtil {
         mTarget = target;
         mContext = context;
         mMessageIdToFutureMap = new HashMap<>();
+        File cacheDir = context != null ? context.getCacheDir() : null;
+        mSynthesisCache = new TTSSynthesisCache(cacheDir != null ? new File(cacheDir, SYNTHESIS_CACHE_DIRECTORY) : null,
+                SYNTHESIS_CACHE_DISK_BUDGET_BYTES, SYNTHESIS_CACHE_MEMORY_BUDGET_BYTES);
         mFetchAudioHandlerThread = new HandlerThread("FetchAudioHandlerThread");
         mFetchAudioHandlerThread.start();
         mFetchAudioHandler = new Handler(mFetchAudioHandlerThread.getLooper());
@@ -135,6 +146,19 @@ public class SynthesizeTextUtil {
      */
     public void sendPrepareSpeechMessage(int networkTimeout, PrepareSpeechMessagePayload payload, String topic,
             String action, SynthesisCallback callback) {
+        // A new request resumes streaming after stopSynthesis, also when it is played from the cache
+        mIsStreamingEnabled = true;
+
+        Optional<String> cacheKey = buildCacheKey(payload);
+        if (cacheKey.isPresent()) {
+            Optional<TTSSynthesisCache.Entry> cachedSpeech = mSynthesisCache.get(cacheKey.get());
+            if (cachedSpeech.isPresent()) {
+                Log.d(TAG, String.format("Playing cached speech for speechId=%s", payload.getSpeechId()));
+                playCachedSpeech(cachedSpeech.get(), callback);
+                return;
+            }
+        }
+
         Optional<String> message = buildMessage(topic, action, payload);
 
         if (!message.isPresent()) {
@@ -146,8 +170,6 @@ public class SynthesizeTextUtil {
             return;
         }
 
-        mIsStreamingEnabled = true;
-
         Log.d(TAG,
                 String.format(
                         "Sending %s.%s message with payload [%s] and expecting reply.", topic, action, message.get()));
@@ -156,8 +178,10 @@ public class SynthesizeTextUtil {
         CompletableFuture<Object> waitForReply = new CompletableFuture<>();
         CompletableFuture<Object> waitForStream = new CompletableFuture<>();
 
-        TTSSynthesisFutureResponse ttsSynthesisFutureResponse =
-                new TTSSynthesisFutureResponse(waitForReply, waitForStream, callback, mAACSSender, mTarget, mContext);
+        RecordingSynthesisCallback recordingCallback =
+                new RecordingSynthesisCallback(callback, mSynthesisCache.getMaxEntryBytes());
+        TTSSynthesisFutureResponse ttsSynthesisFutureResponse = new TTSSynthesisFutureResponse(
+                waitForReply, waitForStream, recordingCallback, mAACSSender, mTarget, mContext);
 
         mMessageIdToFutureMap.put(payload.getSpeechId(), ttsSynthesisFutureResponse);
 
@@ -181,6 +205,10 @@ public class SynthesizeTextUtil {
         try {
             waitForStream.get();
             Log.d(TAG, String.format("Stream was fetched for speechId=%s", payload.getSpeechId()));
+            Optional<TTSSynthesisCache.Entry> recordedSpeech = recordingCallback.getRecordedEntry();
+            if (cacheKey.isPresent() && recordedSpeech.isPresent() && mIsStreamingEnabled) {
+                mSynthesisCache.put(cacheKey.get(), recordedSpeech.get());
+            }
         } catch (CancellationException | ExecutionException | InterruptedException e) {
             Log.d(TAG, "Error occurred during wait task execution: " + e.getMessage());
             callback.error(TextToSpeech.ERROR_SYNTHESIS);
@@ -189,6 +217,35 @@ public class SynthesizeTextUtil {
         return;
     }
 
+    /**
+     * Removes all the cached speech. Called when the locale changes.
+     */
+    public void invalidateSynthesisCache() {
+        mSynthesisCache.invalidate();
+    }
+
+    private Optional<String> buildCacheKey(PrepareSpeechMessagePayload payload) {
+        if (payload == null || payload.getOptions() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(TTSSynthesisCache.buildKey(payload.getText(), payload.getOptions().getLocale(),
+                payload.getOptions().getVoiceId(), payload.getProvider()));
+    }
+
+    private void playCachedSpeech(TTSSynthesisCache.Entry speech, SynthesisCallback callback) {
+        callback.start(speech.getSampleRateInHz(), speech.getAudioFormat(), speech.getChannelCount());
+        byte[] audio = speech.getAudio();
+        int maxBufferSize = Math.max(1, callback.getMaxBufferSize());
+        int offset = 0;
+        while (offset < audio.length && mIsStreamingEnabled) {
+            int bytesToWrite = Math.min(maxBufferSize, audio.length - offset);
+            if (callback.audioAvailable(audio, offset, bytesToWrite) != TextToSpeech.SUCCESS) {
+                return;
+            }
+            offset += bytesToWrite;
+        }
+    }
+
     private void removeSpeechIdFromMap(String speechId) {
         if (mMessageIdToFutureMap.containsKey(speechId)) {
             mMessageIdToFutureMap.remove(speechId);
@@ -260,59 +317,31 @@ public class SynthesizeTextUtil {
                     ParcelFileDescriptor.AutoCloseInputStream stream =
                             new ParcelFileDescriptor.AutoCloseInputStream(readPipe);
                     try (ParcelFileDescriptor.AutoCloseInputStream inputStream = stream) {
-                        AudioDecoder decoder = null;
+                        boolean isComplete;
                         if (requiresMP3Encoding) {
-                            Optional<AudioDecoder> audioDecoderOptional =
-                                    constructAudioDecoderForMP3(synthesisCallback);
-                            if (audioDecoderOptional.isPresent()) {
-                                decoder = audioDecoderOptional.get();
-                            } else {
+                            Optional<AudioDecoder> audioDecoderOptional = constructAudioDecoderForMP3();
+                            if (!audioDecoderOptional.isPresent()) {
                                 stream.close();
                                 ttsSynthesisFutureResponse.cancelFuture(WAIT_FOR_STREAM);
                                 return;
                             }
+                            isComplete = decodeMP3Stream(inputStream, audioDecoderOptional.get(), synthesisCallback);
+                        } else {
+                            isComplete = readPCMStream(inputStream, synthesisCallback);
                         }
 
-                        boolean isReading = true;
-
-                        while (isReading && mIsStreamingEnabled) {
-                            byte[] byteArray = new byte[STREAM_READ_BYTE_ARRAY_SIZE];
-                            int bytesAvailable = Math.max(1, Math.min(inputStream.available(), byteArray.length));
-                            int bytesRead = inputStream.read(byteArray, 0, bytesAvailable);
-                            Log.v(TAG, String.format(" reading [%s] bytes", bytesRead));
-                            byte[] bytesToBeWritten;
-                            if (requiresMP3Encoding) {
-                                bytesToBeWritten = decoder.decode(byteArray, bytesRead);
-                            } else {
-                                bytesToBeWritten = byteArray;
-                            }
-                            if (bytesToBeWritten != null && bytesToBeWritten.length > 0) {
-                                Log.d(TAG,
-                                        String.format("Bytes to be written: [%s], bytes read: [%s]",
-                                                bytesToBeWritten.length, bytesRead));
-                                int offset = 0;
-                                while (offset < bytesToBeWritten.length) {
-                                    int bytesToWrite = Math.min(
-                                            synthesisCallback.getMaxBufferSize(), bytesToBeWritten.length - offset);
-                                    Log.d(TAG, String.format("offset:[%s] and writing: [%s]", offset, bytesToWrite));
-                                    synthesisCallback.audioAvailable(bytesToBeWritten, offset, bytesToWrite);
-                                    offset += bytesToWrite;
-                                }
-                            }
-
-                            if (bytesRead < 0) {
-                                isReading = false;
-                            }
-
-                            // cancel fetching from the stream.
-                            if (!mIsStreamingEnabled) {
-                                mAACSSender.cancelFetch(streamId, mTarget, mContext);
-                                ttsSynthesisFutureResponse.cancelFuture(WAIT_FOR_STREAM);
-                                return;
-                            }
+                        // cancel fetching from the stream.
+                        if (!mIsStreamingEnabled) {
+                            mAACSSender.cancelFetch(streamId, mTarget, mContext);
+                            ttsSynthesisFutureResponse.cancelFuture(WAIT_FOR_STREAM);
+                            return;
                         }
                         closePipe(readPipe);
-                        ttsSynthesisFutureResponse.completeFuture(WAIT_FOR_STREAM);
+                        if (isComplete) {
+                            ttsSynthesisFutureResponse.completeFuture(WAIT_FOR_STREAM);
+                        } else {
+                            ttsSynthesisFutureResponse.cancelFuture(WAIT_FOR_STREAM);
+                        }
                     } catch (IOException e) {
                         Log.e(TAG, "onStreamFetchedFromServer: FAILED to read from stream.", e);
                         closePipe(readPipe);
@@ -383,34 +412,78 @@ public class SynthesizeTextUtil {
 
     /**
      * Constructs the {@link AudioDecoder} to decode MP3 data.
-     * @param synthesisCallback - to be called when the format of data is changed.
      * @return {@link AudioDecoder}
      */
-    private Optional<AudioDecoder> constructAudioDecoderForMP3(SynthesisCallback synthesisCallback) {
+    private Optional<AudioDecoder> constructAudioDecoderForMP3() {
         AudioDecoder decoder = new AudioDecoder();
-
-        AudioDecoder.FormatChangedCallback formatChangedCallback = new AudioDecoder.FormatChangedCallback() {
-            @Override
-            public void onOutputFormatChanged(int sampleRateInHz, int audioFormat, int channelCount) {
-                Log.i(TAG,
-                        String.format(
-                                "AudioDecoder.onOutputFormatChanged: sampleRate=%s, audioFormat=%s, channelCount=%s.",
-                                sampleRateInHz, audioFormat, channelCount));
-                synthesisCallback.start(sampleRateInHz, audioFormat, channelCount);
-            }
-        };
-
         if (!decoder.configureDecoder(MediaFormat.MIMETYPE_AUDIO_MPEG, DEFAULT_PROVIDER_SAMPLE_RATE_IN_HZ,
-                    DEFAULT_PROVIDER_AUDIO_CHANNEL_COUNT, formatChangedCallback)) {
+                    DEFAULT_PROVIDER_AUDIO_CHANNEL_COUNT)) {
             Log.e(TAG, "Decoder could not be configured.");
             return Optional.empty();
         }
+        return Optional.of(decoder);
+    }
 
-        if (!decoder.start()) {
-            Log.e(TAG, "Decoder could not start up.");
-            return Optional.empty();
+    /**
+     * Decodes the MP3 stream and writes the decoded audio to the synthesis callback.
+     * @return true if the whole stream was written.
+     */
+    private boolean decodeMP3Stream(
+            InputStream inputStream, AudioDecoder decoder, SynthesisCallback synthesisCallback) {
+        mActiveDecoder = decoder;
+        if (!mIsStreamingEnabled) {
+            decoder.cancel();
+        }
+        try {
+            return decoder.decode(inputStream, new AudioDecoder.AudioSink() {
+                @Override
+                public void onOutputFormatChanged(int sampleRateInHz, int audioFormat, int channelCount) {
+                    Log.i(TAG,
+                            String.format("AudioDecoder.onOutputFormatChanged: sampleRate=%s, audioFormat=%s, "
+                                            + "channelCount=%s.",
+                                    sampleRateInHz, audioFormat, channelCount));
+                    synthesisCallback.start(sampleRateInHz, audioFormat, channelCount);
+                }
+
+                @Override
+                public void onAudioDecoded(byte[] buffer, int offset, int length) {
+                    writeAudio(synthesisCallback, buffer, offset, length);
+                }
+            });
+        } finally {
+            mActiveDecoder = null;
+        }
+    }
+
+    /**
+     * Writes the PCM stream to the synthesis callback.
+     * @return true if the whole stream was written.
+     */
+    private boolean readPCMStream(InputStream inputStream, SynthesisCallback synthesisCallback) throws IOException {
+        byte[] byteArray = new byte[STREAM_READ_BYTE_ARRAY_SIZE];
+        while (mIsStreamingEnabled) {
+            int bytesAvailable = Math.max(1, Math.min(inputStream.available(), byteArray.length));
+            int bytesRead = inputStream.read(byteArray, 0, bytesAvailable);
+            Log.v(TAG, String.format(" reading [%s] bytes", bytesRead));
+            if (bytesRead < 0) {
+                return true;
+            }
+            writeAudio(synthesisCallback, byteArray, 0, bytesRead);
+        }
+        return false;
+    }
+
+    /**
+     * Writes the audio to the synthesis callback in chunks that do not exceed its maximum buffer size.
+     */
+    private void writeAudio(SynthesisCallback synthesisCallback, byte[] buffer, int offset, int length) {
+        int end = offset + length;
+        int maxBufferSize = Math.max(1, synthesisCallback.getMaxBufferSize());
+        while (offset < end) {
+            int bytesToWrite = Math.min(maxBufferSize, end - offset);
+            synthesisCallback.audioAvailable(buffer, offset, bytesToWrite);
+            offset += bytesToWrite;
         }
-        return Optional.of(decoder);
     }
 
     /**
@@ -418,6 +491,10 @@ public class SynthesizeTextUtil {
      */
     public synchronized void stopSynthesis() {
         mIsStreamingEnabled = false;
+        AudioDecoder decoder = mActiveDecoder;
+        if (decoder != null) {
+            decoder.cancel();
+        }
     }
 
     private Optional<String> buildMessage(String topic, String action, PrepareSpeechMessagePayload payload) {
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.aacstts;
+
+import static com.amazon.aacstts.TTSConstants.AACS_TTS_LOG_PREFIX;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content addressed cache of synthesized speech. Entries are keyed by the text, locale, voice and provider of the
+ * request and hold the decoded PCM audio, so a cache hit is played without a request to the engine and without
+ * decoding the audio again.
+ * <p>
+ * Recently used entries are kept in memory. All entries are also written to disk, where the least recently used
+ * entries are removed once the disk budget is exceeded.
+ */
+public class TTSSynthesisCache {
+    private static final String TAG = AACS_TTS_LOG_PREFIX + TTSSynthesisCache.class.getSimpleName();
+
+    private static final String FILE_SUFFIX = ".pcm";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final int FILE_FORMAT_VERSION = 1;
+
+    /**
+     * Decoded audio of a synthesized speech together with its format.
+     */
+    public static class Entry {
+        private final int mSampleRateInHz;
+        private final int mAudioFormat;
+        private final int mChannelCount;
+        private final byte[] mAudio;
+
+        public Entry(int sampleRateInHz, int audioFormat, int channelCount, byte[] audio) {
+            mSampleRateInHz = sampleRateInHz;
+            mAudioFormat = audioFormat;
+            mChannelCount = channelCount;
+            mAudio = audio;
+        }
+
+        public int getSampleRateInHz() {
+            return mSampleRateInHz;
+        }
+
+        public int getAudioFormat() {
+            return mAudioFormat;
+        }
+
+        public int getChannelCount() {
+            return mChannelCount;
+        }
+
+        public byte[] getAudio() {
+            return mAudio;
+        }
+    }
+
+    @Nullable
+    private final File mDirectory;
+    private final long mDiskBudgetBytes;
+    private final long mMemoryBudgetBytes;
+    private final long mMaxEntryBytes;
+
+    private final LinkedHashMap<String, Entry> mMemoryCache = new LinkedHashMap<>(16, 0.75f, true);
+    private long mMemoryBytes;
+    private long mDiskBytes = -1;
+    // Incremented by invalidate
+    private long mGeneration;
+
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+
+    /**
+     * @param directory         - the directory for the disk tier, or {@code null} to keep entries in memory only.
+     * @param diskBudgetBytes   - the maximum number of audio bytes kept on disk.
+     * @param memoryBudgetBytes - the maximum number of audio bytes kept in memory.
+     */
+    public TTSSynthesisCache(@Nullable File directory, long diskBudgetBytes, long memoryBudgetBytes) {
+        mDirectory = directory;
+        mDiskBudgetBytes = diskBudgetBytes;
+        mMemoryBudgetBytes = memoryBudgetBytes;
+        // An entry must fit into both tiers, otherwise it would evict everything else and be evicted itself
+        mMaxEntryBytes = Math.min(diskBudgetBytes, memoryBudgetBytes);
+    }
+
+    /**
+     * Builds the cache key of a synthesis request.
+     */
+    public static String buildKey(String text, String locale, String voiceId, String provider) {
+        String content = String.join("\u0000", text, locale, voiceId, provider);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the maximum size of the audio of a single entry. Larger synthesized speech is not cached.
+     */
+    public long getMaxEntryBytes() {
+        return mMaxEntryBytes;
+    }
+
+    /**
+     * Returns the entry of the key. An entry not in memory is read from disk without holding the lock of the cache,
+     * so a slow read does not block the other requests.
+     */
+    public Optional<Entry> get(String key) {
+        Entry entry;
+        long generation;
+        synchronized (this) {
+            entry = mMemoryCache.get(key);
+            generation = mGeneration;
+        }
+        if (entry == null) {
+            entry = readFromDisk(key);
+            if (entry != null) {
+                synchronized (this) {
+                    // Do not bring back an entry removed by invalidate while it was read
+                    if (generation == mGeneration) {
+                        putInMemory(key, entry);
+                    }
+                }
+            }
+        } else {
+            touchOnDisk(key);
+        }
+
+        if (entry == null) {
+            mMissCount.incrementAndGet();
+            return Optional.empty();
+        }
+        mHitCount.incrementAndGet();
+        Log.d(TAG, String.format("Cache hit, hits=%s, misses=%s", mHitCount.get(), mMissCount.get()));
+        return Optional.of(entry);
+    }
+
+    public synchronized void put(String key, Entry entry) {
+        if (entry.getAudio().length == 0 || entry.getAudio().length > mMaxEntryBytes) {
+            return;
+        }
+        putInMemory(key, entry);
+        writeToDisk(key, entry);
+    }
+
+    /**
+     * Removes all the entries, for example when the locale changes and the cached speech will not be requested
+     * again.
+     */
+    public synchronized void invalidate() {
+        Log.i(TAG, "Invalidating the synthesis cache");
+        mGeneration++;
+        mMemoryCache.clear();
+        mMemoryBytes = 0;
+        for (File file : listCacheFiles()) {
+            deleteFile(file);
+        }
+        mDiskBytes = 0;
+    }
+
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    @VisibleForTesting
+    synchronized int getMemoryEntryCount() {
+        return mMemoryCache.size();
+    }
+
+    private void putInMemory(String key, Entry entry) {
+        Entry previous = mMemoryCache.put(key, entry);
+        if (previous != null) {
+            mMemoryBytes -= previous.getAudio().length;
+        }
+        mMemoryBytes += entry.getAudio().length;
+
+        Iterator<Map.Entry<String, Entry>> iterator = mMemoryCache.entrySet().iterator();
+        while (mMemoryBytes > mMemoryBudgetBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            mMemoryBytes -= eldest.getValue().getAudio().length;
+            iterator.remove();
+        }
+    }
+
+    @Nullable
+    private Entry readFromDisk(String key) {
+        if (mDirectory == null) {
+            return null;
+        }
+        File file = new File(mDirectory, key + FILE_SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != FILE_FORMAT_VERSION) {
+                throw new IOException("Unsupported cache file version");
+            }
+            int sampleRateInHz = input.readInt();
+            int audioFormat = input.readInt();
+            int channelCount = input.readInt();
+            byte[] audio = new byte[input.readInt()];
+            input.readFully(audio);
+            file.setLastModified(System.currentTimeMillis());
+            return new Entry(sampleRateInHz, audioFormat, channelCount, audio);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read cached speech, removing it", e);
+            synchronized (this) {
+                deleteFile(file);
+                mDiskBytes = -1;
+            }
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, Entry entry) {
+        if (mDirectory == null || (!mDirectory.isDirectory() && !mDirectory.mkdirs())) {
+            return;
+        }
+        File file = new File(mDirectory, key + FILE_SUFFIX);
+        File tempFile = new File(mDirectory, key + TEMP_FILE_SUFFIX);
+        try (DataOutputStream output =
+                        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            output.writeInt(FILE_FORMAT_VERSION);
+            output.writeInt(entry.getSampleRateInHz());
+            output.writeInt(entry.getAudioFormat());
+            output.writeInt(entry.getChannelCount());
+            output.writeInt(entry.getAudio().length);
+            output.write(entry.getAudio());
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write speech to the cache", e);
+            deleteFile(tempFile);
+            return;
+        }
+
+        long previousLength = file.length();
+        if (!tempFile.renameTo(file)) {
+            Log.w(TAG, "Failed to move speech into the cache");
+            deleteFile(tempFile);
+            return;
+        }
+        if (mDiskBytes >= 0) {
+            mDiskBytes += file.length() - previousLength;
+        }
+        trimDisk();
+    }
+
+    private void touchOnDisk(String key) {
+        if (mDirectory != null) {
+            new File(mDirectory, key + FILE_SUFFIX).setLastModified(System.currentTimeMillis());
+        }
+    }
+
+    private void trimDisk() {
+        File[] files = listCacheFiles();
+        if (mDiskBytes < 0) {
+            mDiskBytes = 0;
+            for (File file : files) {
+                mDiskBytes += file.length();
+            }
+        }
+        if (mDiskBytes <= mDiskBudgetBytes) {
+            return;
+        }
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (mDiskBytes <= mDiskBudgetBytes) {
+                break;
+            }
+            long length = file.length();
+            if (deleteFile(file)) {
+                mDiskBytes -= length;
+            }
+        }
+    }
+
+    private File[] listCacheFiles() {
+        if (mDirectory == null) {
+            return new File[0];
+        }
+        File[] files = mDirectory.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        return files != null ? files : new File[0];
+    }
+
+    private boolean deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Failed to delete " + file.getName());
+            return false;
+        }
+        return true;
+    }
+}
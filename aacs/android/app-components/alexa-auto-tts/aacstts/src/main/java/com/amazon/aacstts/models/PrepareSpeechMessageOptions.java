@@ -24,6 +24,14 @@ public class PrepareSpeechMessageOptions {
         mVoiceId = voiceId;
     }
 
+    public String getLocale() {
+        return mLocale;
+    }
+
+    public String getVoiceId() {
+        return mVoiceId;
+    }
+
     @Override
     public String toString() {
         return "PrepareSpeechMessageOptions{"
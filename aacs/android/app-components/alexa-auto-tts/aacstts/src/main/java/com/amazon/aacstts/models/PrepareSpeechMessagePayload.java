@@ -35,6 +35,18 @@ public class PrepareSpeechMessagePayload {
         return mSpeechId;
     }
 
+    public String getText() {
+        return mText;
+    }
+
+    public String getProvider() {
+        return mProvider;
+    }
+
+    public PrepareSpeechMessageOptions getOptions() {
+        return options;
+    }
+
     @Override
     public String toString() {
         return "PrepareSpeechMessagePayload{"
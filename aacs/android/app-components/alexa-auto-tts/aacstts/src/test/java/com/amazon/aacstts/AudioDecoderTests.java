@@ -0,0 +1,310 @@
+package com.amazon.aacstts;
+
+import android.media.AudioFormat;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class to unit test the {@link AudioDecoder} class.
+ * <p>
+ * MediaCodec is not available on the JVM, so the tests use a codec that inflates every encoded byte into
+ * {@link #PCM_BYTES_PER_ENCODED_BYTE} PCM bytes, which is roughly the ratio of the bundled MP3 fixture. This
+ * exercises the feeding and draining done by the decoder.
+ */
+public class AudioDecoderTests {
+    private static final String MP3_FIXTURE = "/tts/silence_24khz_mono.mp3";
+    private static final int PCM_BYTES_PER_ENCODED_BYTE = 12;
+    private static final int TEST_SAMPLE_RATE = 24000;
+    private static final int INPUT_BUFFER_COUNT = 4;
+    private static final int INPUT_BUFFER_SIZE = 8 * 1024;
+    private static final long CANCEL_TIMEOUT_IN_MILLISECONDS = 5000;
+    private static final long TEST_IDLE_TIMEOUT_IN_MILLISECONDS = 100;
+    private static final long SLOW_SINK_DELAY_IN_MILLISECONDS = 150;
+
+    private byte[] mFixture;
+
+    @Before
+    public void setup() throws Exception {
+        mFixture = readFixture();
+    }
+
+    @Test
+    public void decode_mp3Fixture_deliversAllDecodedAudio() {
+        FakeCodec codec = new FakeCodec();
+        CountingSink sink = new CountingSink();
+
+        boolean result = new AudioDecoder(codec).decode(new ByteArrayInputStream(mFixture), sink);
+
+        Assert.assertTrue(result);
+        Assert.assertEquals(1, sink.mFormatChangedCount);
+        Assert.assertEquals((long) mFixture.length * PCM_BYTES_PER_ENCODED_BYTE, sink.mDecodedBytes);
+        Assert.assertTrue(codec.mReleased);
+    }
+
+    @Test
+    public void decode_cancelledBySink_returnsFalseAndReleasesCodec() {
+        FakeCodec codec = new FakeCodec();
+        AudioDecoder decoder = new AudioDecoder(codec);
+        CountingSink sink = new CountingSink() {
+            @Override
+            public void onAudioDecoded(byte[] buffer, int offset, int length) {
+                super.onAudioDecoded(buffer, offset, length);
+                decoder.cancel();
+            }
+        };
+
+        boolean result = decoder.decode(new ByteArrayInputStream(mFixture), sink);
+
+        Assert.assertFalse(result);
+        Assert.assertTrue(sink.mDecodedBytes < (long) mFixture.length * PCM_BYTES_PER_ENCODED_BYTE);
+        Assert.assertTrue(codec.mReleased);
+    }
+
+    @Test
+    public void decode_codecError_returnsFalse() {
+        FakeCodec codec = new FakeCodec();
+        codec.mFailAfterInputBuffers = 2;
+
+        boolean result = new AudioDecoder(codec).decode(new ByteArrayInputStream(mFixture), new CountingSink());
+
+        Assert.assertFalse(result);
+        Assert.assertTrue(codec.mReleased);
+    }
+
+    @Test
+    public void decode_slowSink_waitsForTheEndOfStreamWhileTheCodecMakesProgress() {
+        FakeCodec codec = new FakeCodec();
+        codec.mOutputExecutor = Executors.newSingleThreadExecutor();
+        CountingSink sink = new CountingSink() {
+            @Override
+            public void onAudioDecoded(byte[] buffer, int offset, int length) {
+                super.onAudioDecoded(buffer, offset, length);
+                try {
+                    Thread.sleep(SLOW_SINK_DELAY_IN_MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        boolean result = new AudioDecoder(codec, TEST_IDLE_TIMEOUT_IN_MILLISECONDS)
+                                 .decode(new ByteArrayInputStream(mFixture), sink);
+
+        Assert.assertTrue(result);
+        Assert.assertEquals((long) mFixture.length * PCM_BYTES_PER_ENCODED_BYTE, sink.mDecodedBytes);
+        Assert.assertTrue(codec.mReleased);
+    }
+
+    @Test
+    public void decode_codecStalls_returnsFalseAfterIdleTimeout() {
+        FakeCodec codec = new FakeCodec();
+        codec.mDropEndOfStream = true;
+
+        boolean result = new AudioDecoder(codec, TEST_IDLE_TIMEOUT_IN_MILLISECONDS)
+                                 .decode(new ByteArrayInputStream(mFixture), new CountingSink());
+
+        Assert.assertFalse(result);
+        Assert.assertTrue(codec.mReleased);
+    }
+
+    @Test
+    public void decode_notConfigured_returnsFalse() {
+        Assert.assertFalse(new AudioDecoder().decode(new ByteArrayInputStream(mFixture), new CountingSink()));
+    }
+
+    @Test
+    public void decode_callbacksAfterRelease_areIgnored() {
+        FakeCodec codec = new FakeCodec();
+        CountingSink sink = new CountingSink();
+
+        Assert.assertTrue(new AudioDecoder(codec).decode(new ByteArrayInputStream(mFixture), sink));
+        long decodedBytes = sink.mDecodedBytes;
+        codec.mListener.onOutputFormatChanged(TEST_SAMPLE_RATE, AudioFormat.ENCODING_PCM_16BIT, 1);
+        codec.mListener.onOutputBufferAvailable(0, 0, INPUT_BUFFER_SIZE, false);
+
+        Assert.assertEquals(1, sink.mFormatChangedCount);
+        Assert.assertEquals(decodedBytes, sink.mDecodedBytes);
+        Assert.assertEquals(0, codec.mOutputBuffersReleasedAfterRelease);
+    }
+
+    @Test
+    public void cancel_blockedRead_closesStreamAndReturnsFalse() throws Exception {
+        FakeCodec codec = new FakeCodec();
+        AudioDecoder decoder = new AudioDecoder(codec);
+        BlockingInputStream input = new BlockingInputStream();
+        boolean[] result = new boolean[] {true};
+        Thread decodeThread = new Thread(() -> result[0] = decoder.decode(input, new CountingSink()));
+        decodeThread.start();
+
+        Assert.assertTrue(input.mReadStarted.await(CANCEL_TIMEOUT_IN_MILLISECONDS, TimeUnit.MILLISECONDS));
+        decoder.cancel();
+        decodeThread.join(CANCEL_TIMEOUT_IN_MILLISECONDS);
+
+        Assert.assertFalse(decodeThread.isAlive());
+        Assert.assertFalse(result[0]);
+        Assert.assertTrue(codec.mReleased);
+    }
+
+    private byte[] readFixture() throws IOException {
+        try (InputStream input = AudioDecoderTests.class.getResourceAsStream(MP3_FIXTURE)) {
+            Assert.assertNotNull("Missing fixture " + MP3_FIXTURE, input);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+
+    /**
+     * Stream that blocks reading until it is closed.
+     */
+    private static class BlockingInputStream extends InputStream {
+        final CountDownLatch mReadStarted = new CountDownLatch(1);
+        private final CountDownLatch mClosed = new CountDownLatch(1);
+
+        @Override
+        public int read() throws IOException {
+            mReadStarted.countDown();
+            try {
+                mClosed.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            throw new IOException("Stream closed");
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            return read();
+        }
+
+        @Override
+        public void close() {
+            mClosed.countDown();
+        }
+    }
+
+    private static class CountingSink implements AudioDecoder.AudioSink {
+        int mFormatChangedCount;
+        long mDecodedBytes;
+
+        @Override
+        public void onOutputFormatChanged(int sampleRateInHz, int audioFormat, int channelCount) {
+            mFormatChangedCount++;
+        }
+
+        @Override
+        public void onAudioDecoded(byte[] buffer, int offset, int length) {
+            mDecodedBytes += length;
+        }
+    }
+
+    /**
+     * Codec with pooled direct buffers that decodes when an input buffer is queued, synchronously or on the output
+     * executor when it is set.
+     */
+    private static class FakeCodec implements AudioDecoder.Codec {
+        private final ByteBuffer[] mInputBuffers = new ByteBuffer[INPUT_BUFFER_COUNT];
+        private final ByteBuffer mOutputBuffer =
+                ByteBuffer.allocateDirect(INPUT_BUFFER_SIZE * PCM_BYTES_PER_ENCODED_BYTE);
+        Listener mListener;
+        ExecutorService mOutputExecutor;
+        boolean mDropEndOfStream;
+        int mFailAfterInputBuffers = -1;
+        int mQueuedInputBuffers;
+        int mOutputBuffersReleasedAfterRelease;
+        boolean mReleased;
+
+        FakeCodec() {
+            for (int i = 0; i < INPUT_BUFFER_COUNT; i++) {
+                mInputBuffers[i] = ByteBuffer.allocateDirect(INPUT_BUFFER_SIZE);
+            }
+        }
+
+        @Override
+        public void start(Listener listener) {
+            mListener = listener;
+            mListener.onOutputFormatChanged(TEST_SAMPLE_RATE, AudioFormat.ENCODING_PCM_16BIT, 1);
+            for (int i = 0; i < INPUT_BUFFER_COUNT; i++) {
+                mListener.onInputBufferAvailable(i);
+            }
+        }
+
+        @Override
+        public ByteBuffer getInputBuffer(int index) {
+            return mInputBuffers[index];
+        }
+
+        @Override
+        public void queueInputBuffer(int index, int size, boolean endOfStream) {
+            if (++mQueuedInputBuffers == mFailAfterInputBuffers) {
+                mListener.onError(new IllegalStateException("Test codec failure"));
+                return;
+            }
+            if (endOfStream && mDropEndOfStream) {
+                return;
+            }
+            if (mOutputExecutor != null) {
+                mOutputExecutor.execute(() -> decode(index, endOfStream));
+            } else {
+                decode(index, endOfStream);
+            }
+        }
+
+        private void decode(int index, boolean endOfStream) {
+            ByteBuffer input = mInputBuffers[index];
+            input.flip();
+            mOutputBuffer.clear();
+            while (input.hasRemaining()) {
+                byte value = input.get();
+                for (int i = 0; i < PCM_BYTES_PER_ENCODED_BYTE; i++) {
+                    mOutputBuffer.put(value);
+                }
+            }
+            mOutputBuffer.flip();
+            mListener.onOutputBufferAvailable(0, 0, mOutputBuffer.limit(), endOfStream);
+            mListener.onInputBufferAvailable(index);
+        }
+
+        @Override
+        public ByteBuffer getOutputBuffer(int index) {
+            return mOutputBuffer;
+        }
+
+        @Override
+        public void releaseOutputBuffer(int index) {
+            if (mReleased) {
+                mOutputBuffersReleasedAfterRelease++;
+            }
+        }
+
+        @Override
+        public void release() {
+            if (mOutputExecutor != null) {
+                mOutputExecutor.shutdown();
+                try {
+                    mOutputExecutor.awaitTermination(CANCEL_TIMEOUT_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            mReleased = true;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.amazon.aacstts;
 import static com.amazon.aacsipc.AACSSender.StreamFetchedFromReceiverCallback;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.times;
@@ -10,6 +11,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
+import android.media.AudioFormat;
 import android.speech.tts.SynthesisCallback;
 import android.speech.tts.TextToSpeech;
 
@@ -56,6 +58,8 @@ public class SynthesizeTextUtilTests {
     private static final String TEST_AUDIO_FOMAT_MP3 = "MP3";
     private static final String TEST_TEXT = "text";
     private static final String TEST_PROVIDER = "textProvider";
+    private static final int TEST_SAMPLE_RATE = 24000;
+    private static final int TEST_MAX_BUFFER_SIZE = 4096;
 
     @Mock
     private AACSSender mockAACSSender;
@@ -161,6 +165,77 @@ public class SynthesizeTextUtilTests {
         verify(mockCallback, times(1)).error(TextToSpeech.ERROR_SYNTHESIS);
     }
 
+    /**
+     * @see SynthesizeTextUtil#sendPrepareSpeechMessage(int, PrepareSpeechMessagePayload, String, String,
+     *         SynthesisCallback)
+     */
+    @Test
+    public void sendPrepareSpeechMessage_speechIsCached_playsCachedSpeechWithoutRequest() {
+        PrepareSpeechMessagePayload payload = constructPrepareSpeechPayload();
+        byte[] audio = new byte[TEST_MAX_BUFFER_SIZE + 1];
+        mSynthesizeTextUtil.mSynthesisCache.put(
+                TTSSynthesisCache.buildKey(TEST_TEXT, TEST_LOCALE, TEST_VOICE_ID, TEST_PROVIDER),
+                new TTSSynthesisCache.Entry(TEST_SAMPLE_RATE, AudioFormat.ENCODING_PCM_16BIT, 1, audio));
+        when(mockCallback.getMaxBufferSize()).thenReturn(TEST_MAX_BUFFER_SIZE);
+
+        mSynthesizeTextUtil.sendPrepareSpeechMessage(
+                TEST_NETWORK_TIMEOUT, payload, TEST_TOPIC, TEST_AACS_ACTION, mockCallback);
+
+        verify(mockAACSSender, times(0))
+                .sendAASBMessageAnySize(
+                        anyString(), anyString(), anyString(), any(TargetComponent.class), any(Context.class));
+        verify(mockCallback, times(1)).start(TEST_SAMPLE_RATE, AudioFormat.ENCODING_PCM_16BIT, 1);
+        verify(mockCallback, times(1)).audioAvailable(audio, 0, TEST_MAX_BUFFER_SIZE);
+        verify(mockCallback, times(1)).audioAvailable(audio, TEST_MAX_BUFFER_SIZE, 1);
+        Assert.assertEquals(1, mSynthesizeTextUtil.mSynthesisCache.getHitCount());
+    }
+
+    /**
+     * @see SynthesizeTextUtil#sendPrepareSpeechMessage(int, PrepareSpeechMessagePayload, String, String,
+     *         SynthesisCallback)
+     */
+    @Test
+    public void sendPrepareSpeechMessage_speechIsCachedAfterStop_playsCachedSpeech() {
+        PrepareSpeechMessagePayload payload = constructPrepareSpeechPayload();
+        byte[] audio = new byte[TEST_MAX_BUFFER_SIZE + 1];
+        mSynthesizeTextUtil.mSynthesisCache.put(
+                TTSSynthesisCache.buildKey(TEST_TEXT, TEST_LOCALE, TEST_VOICE_ID, TEST_PROVIDER),
+                new TTSSynthesisCache.Entry(TEST_SAMPLE_RATE, AudioFormat.ENCODING_PCM_16BIT, 1, audio));
+        when(mockCallback.getMaxBufferSize()).thenReturn(TEST_MAX_BUFFER_SIZE);
+
+        mSynthesizeTextUtil.stopSynthesis();
+        mSynthesizeTextUtil.sendPrepareSpeechMessage(
+                TEST_NETWORK_TIMEOUT, payload, TEST_TOPIC, TEST_AACS_ACTION, mockCallback);
+
+        verify(mockCallback, times(1)).start(TEST_SAMPLE_RATE, AudioFormat.ENCODING_PCM_16BIT, 1);
+        verify(mockCallback, times(1)).audioAvailable(audio, 0, TEST_MAX_BUFFER_SIZE);
+        verify(mockCallback, times(1)).audioAvailable(audio, TEST_MAX_BUFFER_SIZE, 1);
+    }
+
+    /**
+     * @see SynthesizeTextUtil#sendPrepareSpeechMessage(int, PrepareSpeechMessagePayload, String, String,
+     *         SynthesisCallback)
+     */
+    @Test
+    public void sendPrepareSpeechMessage_stoppedWhilePlayingCachedSpeech_stopsPlayback() {
+        PrepareSpeechMessagePayload payload = constructPrepareSpeechPayload();
+        byte[] audio = new byte[TEST_MAX_BUFFER_SIZE + 1];
+        mSynthesizeTextUtil.mSynthesisCache.put(
+                TTSSynthesisCache.buildKey(TEST_TEXT, TEST_LOCALE, TEST_VOICE_ID, TEST_PROVIDER),
+                new TTSSynthesisCache.Entry(TEST_SAMPLE_RATE, AudioFormat.ENCODING_PCM_16BIT, 1, audio));
+        when(mockCallback.getMaxBufferSize()).thenReturn(TEST_MAX_BUFFER_SIZE);
+        when(mockCallback.audioAvailable(any(byte[].class), anyInt(), anyInt())).thenAnswer(invocation -> {
+            mSynthesizeTextUtil.stopSynthesis();
+            return TextToSpeech.SUCCESS;
+        });
+
+        mSynthesizeTextUtil.sendPrepareSpeechMessage(
+                TEST_NETWORK_TIMEOUT, payload, TEST_TOPIC, TEST_AACS_ACTION, mockCallback);
+
+        verify(mockCallback, times(1)).audioAvailable(audio, 0, TEST_MAX_BUFFER_SIZE);
+        verify(mockCallback, times(0)).audioAvailable(audio, TEST_MAX_BUFFER_SIZE, 1);
+    }
+
     /**
      * @see SynthesizeTextUtil#handlePrepareSpeechResponse(String)
      */
@@ -0,0 +1,148 @@
+package com.amazon.aacstts;
+
+import android.media.AudioFormat;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Class to unit test the {@link TTSSynthesisCache} class
+ */
+public class TTSSynthesisCacheTests {
+    private static final int TEST_SAMPLE_RATE = 24000;
+    private static final int TEST_CHANNEL_COUNT = 1;
+    private static final long TEST_DISK_BUDGET = 100;
+    private static final long TEST_MEMORY_BUDGET = 40;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File mCacheDirectory;
+    private TTSSynthesisCache mCache;
+
+    @Before
+    public void setup() throws Exception {
+        mCacheDirectory = mTemporaryFolder.newFolder("tts-cache");
+        mCache = new TTSSynthesisCache(mCacheDirectory, TEST_DISK_BUDGET, TEST_MEMORY_BUDGET);
+    }
+
+    @Test
+    public void buildKey_differentLocaleOrVoice_returnsDifferentKeys() {
+        String key = TTSSynthesisCache.buildKey("text", "en-US", "voice", "provider");
+        Assert.assertEquals(key, TTSSynthesisCache.buildKey("text", "en-US", "voice", "provider"));
+        Assert.assertFalse(key.equals(TTSSynthesisCache.buildKey("text", "de-DE", "voice", "provider")));
+        Assert.assertFalse(key.equals(TTSSynthesisCache.buildKey("text", "en-US", "voice2", "provider")));
+        Assert.assertFalse(key.equals(TTSSynthesisCache.buildKey("text2", "en-US", "voice", "provider")));
+    }
+
+    @Test
+    public void get_afterPut_returnsEntryAndCountsHit() {
+        mCache.put("key", createEntry(10, (byte) 1));
+
+        Optional<TTSSynthesisCache.Entry> entry = mCache.get("key");
+
+        Assert.assertTrue(entry.isPresent());
+        Assert.assertEquals(TEST_SAMPLE_RATE, entry.get().getSampleRateInHz());
+        Assert.assertEquals(AudioFormat.ENCODING_PCM_16BIT, entry.get().getAudioFormat());
+        Assert.assertEquals(TEST_CHANNEL_COUNT, entry.get().getChannelCount());
+        Assert.assertEquals(10, entry.get().getAudio().length);
+        Assert.assertEquals(1, mCache.getHitCount());
+        Assert.assertEquals(0, mCache.getMissCount());
+    }
+
+    @Test
+    public void get_unknownKey_countsMiss() {
+        Assert.assertFalse(mCache.get("key").isPresent());
+        Assert.assertEquals(0, mCache.getHitCount());
+        Assert.assertEquals(1, mCache.getMissCount());
+    }
+
+    @Test
+    public void get_entryEvictedFromMemory_isReadFromDisk() {
+        mCache.put("key1", createEntry(30, (byte) 1));
+        mCache.put("key2", createEntry(30, (byte) 2));
+        Assert.assertEquals(1, mCache.getMemoryEntryCount());
+
+        Optional<TTSSynthesisCache.Entry> entry = mCache.get("key1");
+
+        Assert.assertTrue(entry.isPresent());
+        Assert.assertEquals(1, entry.get().getAudio()[0]);
+    }
+
+    @Test
+    public void get_newCacheInstance_readsEntriesWrittenBefore() {
+        mCache.put("key", createEntry(10, (byte) 3));
+
+        TTSSynthesisCache cache = new TTSSynthesisCache(mCacheDirectory, TEST_DISK_BUDGET, TEST_MEMORY_BUDGET);
+        Optional<TTSSynthesisCache.Entry> entry = cache.get("key");
+
+        Assert.assertTrue(entry.isPresent());
+        Assert.assertEquals(3, entry.get().getAudio()[9]);
+    }
+
+    @Test
+    public void put_diskBudgetExceeded_removesLeastRecentlyUsedEntries() {
+        // Each file holds 25 bytes of audio and a 20 byte header, so only two fit into the disk budget
+        mCache.put("key1", createEntry(25, (byte) 1));
+        new File(mCacheDirectory, "key1.pcm").setLastModified(1000);
+        mCache.put("key2", createEntry(25, (byte) 2));
+        new File(mCacheDirectory, "key2.pcm").setLastModified(2000);
+        mCache.put("key3", createEntry(25, (byte) 3));
+
+        Assert.assertFalse(new File(mCacheDirectory, "key1.pcm").exists());
+        Assert.assertTrue(new File(mCacheDirectory, "key2.pcm").exists());
+        Assert.assertTrue(new File(mCacheDirectory, "key3.pcm").exists());
+    }
+
+    @Test
+    public void put_entryLargerThanBudget_isNotCached() {
+        mCache.put("key", createEntry((int) TEST_DISK_BUDGET + 1, (byte) 1));
+
+        Assert.assertFalse(mCache.get("key").isPresent());
+        Assert.assertEquals(0, mCacheDirectory.listFiles().length);
+    }
+
+    @Test
+    public void put_entryLargerThanMemoryBudget_isNotCached() {
+        Assert.assertEquals(TEST_MEMORY_BUDGET, mCache.getMaxEntryBytes());
+
+        mCache.put("key", createEntry((int) TEST_MEMORY_BUDGET + 1, (byte) 1));
+
+        Assert.assertFalse(mCache.get("key").isPresent());
+        Assert.assertEquals(0, mCacheDirectory.listFiles().length);
+    }
+
+    @Test
+    public void invalidate_removesAllEntries() {
+        mCache.put("key1", createEntry(10, (byte) 1));
+        mCache.put("key2", createEntry(10, (byte) 2));
+
+        mCache.invalidate();
+
+        Assert.assertFalse(mCache.get("key1").isPresent());
+        Assert.assertFalse(mCache.get("key2").isPresent());
+        Assert.assertEquals(0, mCacheDirectory.listFiles().length);
+    }
+
+    @Test
+    public void get_memoryOnlyCache_returnsEntry() {
+        TTSSynthesisCache cache = new TTSSynthesisCache(null, TEST_DISK_BUDGET, TEST_MEMORY_BUDGET);
+        cache.put("key", createEntry(10, (byte) 1));
+
+        Assert.assertTrue(cache.get("key").isPresent());
+    }
+
+    private TTSSynthesisCache.Entry createEntry(int length, byte value) {
+        byte[] audio = new byte[length];
+        Arrays.fill(audio, value);
+        return new TTSSynthesisCache.Entry(TEST_SAMPLE_RATE, AudioFormat.ENCODING_PCM_16BIT, TEST_CHANNEL_COUNT, audio);
+    }
+}
@@ -15,77 +15,102 @@
 package com.amazon.alexa.auto.voice.ui.earcon;
 
 import android.content.Context;
-import android.media.MediaPlayer;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.RawRes;
 
 import com.amazon.alexa.auto.apis.alexaCustomAssistant.EarconProvider;
 import com.amazon.alexa.auto.apis.app.AlexaApp;
 import com.amazon.alexa.auto.apps.common.util.EarconSoundSettingsProvider;
 import com.amazon.alexa.auto.voice.ui.R;
 
+import java.util.Optional;
+
 /**
  * Alexa Auto Earcon Controller.
+ *
+ * Earcons are played through the {@link EarconPlayer}, which keeps them decoded and ready to play for the lifetime
+ * of the process, so the listening cue starts without a resource lookup or decoder setup on each wake event.
  */
 public class EarconController {
     private static final String TAG = EarconController.class.getCanonicalName();
 
+    private static final int NO_EARCON = 0;
+
     @NonNull
     private final Context mContext;
+    private final EarconPlayer mEarconPlayer;
 
-    private MediaPlayer mAudioCueStartVoice; // Voice-initiated listening audio cue
-    private MediaPlayer mAudioCueStartTouch; // Touch-initiated listening audio cue
-    private MediaPlayer mAudioCueEnd; // End of listening audio cue
+    @RawRes
+    private int mAudioCueStartVoice = R.raw.med_ui_wakesound; // Voice-initiated listening audio cue
+    @RawRes
+    private int mAudioCueStartTouch = R.raw.med_ui_wakesound_touch; // Touch-initiated listening audio cue
+    @RawRes
+    private int mAudioCueEnd = R.raw.med_ui_endpointing; // End of listening audio cue
 
-    private MediaPlayer mAlternativeAudioCueStartVoice; // Alternative Voice-initiated listening audio cue
-    private MediaPlayer mAlternativeAudioCueEnd; // Alternative End of listening audio cue
+    @RawRes
+    private int mAlternativeAudioCueStartVoice = NO_EARCON; // Alternative Voice-initiated listening audio cue
+    @RawRes
+    private int mAlternativeAudioCueEnd = NO_EARCON; // Alternative End of listening audio cue
 
     public EarconController(@NonNull Context context) {
         mContext = context;
+        mEarconPlayer = EarconPlayer.getInstance();
     }
 
     public void initEarcon() {
         Log.d(TAG, "Initialize Alexa Auto Earcon...");
-        mAudioCueStartVoice = MediaPlayer.create(mContext, R.raw.med_ui_wakesound);
-        mAudioCueStartTouch = MediaPlayer.create(mContext, R.raw.med_ui_wakesound_touch);
-        mAudioCueEnd = MediaPlayer.create(mContext, R.raw.med_ui_endpointing);
-
-        if (mContext != null) {
-            AlexaApp app = AlexaApp.from(mContext);
-            if (app.getRootComponent().getComponent(EarconProvider.class).isPresent()) {
-                Log.d(TAG, "Initialize Alternative Alexa Auto Earcon...");
-                int alternativeAudioCueStartVoiceRes =
-                        app.getRootComponent().getComponent(EarconProvider.class).get().getAudioCueStartVoice();
-                mAlternativeAudioCueStartVoice = MediaPlayer.create(mContext, alternativeAudioCueStartVoiceRes);
-                int alternativeAudioCueEndRes =
-                        app.getRootComponent().getComponent(EarconProvider.class).get().getAudioCueEnd();
-                mAlternativeAudioCueEnd = MediaPlayer.create(mContext, alternativeAudioCueEndRes);
-            }
+        prepareEarcon(mAudioCueStartVoice);
+        prepareEarcon(mAudioCueStartTouch);
+        prepareEarcon(mAudioCueEnd);
+
+        Optional<EarconProvider> earconProvider =
+                AlexaApp.from(mContext).getRootComponent().getComponent(EarconProvider.class);
+        if (earconProvider.isPresent()) {
+            Log.d(TAG, "Initialize Alternative Alexa Auto Earcon...");
+            setAlternativeEarcons(
+                    earconProvider.get().getAudioCueStartVoice(), earconProvider.get().getAudioCueEnd());
         }
     }
 
     public void uninitEarcon() {
+        // The prepared earcons are kept by the earcon player, so the next session plays them without delay.
         Log.d(TAG, "Uninitialize Alexa Auto Earcon...");
-        if (mAudioCueStartVoice != null) {
-            mAudioCueStartVoice.release();
-            mAudioCueStartVoice = null;
-        }
-        if (mAudioCueStartTouch != null) {
-            mAudioCueStartTouch.release();
-            mAudioCueStartTouch = null;
-        }
-        if (mAudioCueEnd != null) {
-            mAudioCueEnd.release();
-            mAudioCueEnd = null;
-        }
-        AlexaApp app = AlexaApp.from(mContext);
-        if (app.getRootComponent().getComponent(EarconProvider.class).isPresent()) {
-            mAlternativeAudioCueStartVoice.release();
-            mAlternativeAudioCueStartVoice = null;
-            mAlternativeAudioCueEnd.release();
-            mAlternativeAudioCueEnd = null;
-        }
+    }
+
+    /**
+     * Replaces the earcons of the listening cues. The new earcons are prepared before they are used, and the
+     * replaced earcons are released.
+     *
+     * @param startVoice the raw resource of the voice-initiated listening audio cue.
+     * @param startTouch the raw resource of the touch-initiated listening audio cue.
+     * @param end the raw resource of the end of listening audio cue.
+     */
+    public void setEarcons(@RawRes int startVoice, @RawRes int startTouch, @RawRes int end) {
+        int[] previous = {mAudioCueStartVoice, mAudioCueStartTouch, mAudioCueEnd};
+        prepareEarcon(startVoice);
+        prepareEarcon(startTouch);
+        prepareEarcon(end);
+        mAudioCueStartVoice = startVoice;
+        mAudioCueStartTouch = startTouch;
+        mAudioCueEnd = end;
+        releaseUnusedEarcons(previous);
+    }
+
+    /**
+     * Replaces the alternative earcons of the listening cues.
+     *
+     * @param startVoice the raw resource of the alternative voice-initiated listening audio cue.
+     * @param end the raw resource of the alternative end of listening audio cue.
+     */
+    public void setAlternativeEarcons(@RawRes int startVoice, @RawRes int end) {
+        int[] previous = {mAlternativeAudioCueStartVoice, mAlternativeAudioCueEnd};
+        prepareEarcon(startVoice);
+        prepareEarcon(end);
+        mAlternativeAudioCueStartVoice = startVoice;
+        mAlternativeAudioCueEnd = end;
+        releaseUnusedEarcons(previous);
     }
 
     public void playAudioCueStartVoice() {
@@ -95,22 +120,18 @@ public class EarconController {
     public void playAudioCueStartVoice(boolean alternative) {
         if (EarconSoundSettingsProvider.isStartEarconSettingEnabled(mContext)) {
             if (alternative) {
-                if (mAlternativeAudioCueStartVoice != null) {
-                    mAlternativeAudioCueStartVoice.start();
-                }
+                playEarcon(mAlternativeAudioCueStartVoice);
             } else {
-                if (mAudioCueStartVoice != null) {
-                    Log.d(TAG, "Start playing voice-initiated listening audio cue...");
-                    mAudioCueStartVoice.start();
-                }
+                Log.d(TAG, "Start playing voice-initiated listening audio cue...");
+                playEarcon(mAudioCueStartVoice);
             }
         }
     }
 
     public void playAudioCueStartTouch() {
-        if (mAudioCueStartTouch != null && EarconSoundSettingsProvider.isStartEarconSettingEnabled(mContext)) {
+        if (EarconSoundSettingsProvider.isStartEarconSettingEnabled(mContext)) {
             Log.d(TAG, "Start playing touch-initiated listening audio cue...");
-            mAudioCueStartTouch.start();
+            playEarcon(mAudioCueStartTouch);
         }
     }
 
@@ -121,14 +142,32 @@ public class EarconController {
     public void playAudioCueEnd(boolean alternative) {
         if (EarconSoundSettingsProvider.isEndEarconSettingEnabled(mContext)) {
             if (alternative) {
-                if (mAlternativeAudioCueEnd != null) {
-                    mAlternativeAudioCueEnd.start();
-                }
+                playEarcon(mAlternativeAudioCueEnd);
             } else {
-                if (mAudioCueEnd != null) {
-                    Log.d(TAG, "Start playing end audio cue...");
-                    mAudioCueEnd.start();
-                }
+                Log.d(TAG, "Start playing end audio cue...");
+                playEarcon(mAudioCueEnd);
+            }
+        }
+    }
+
+    private void prepareEarcon(@RawRes int earcon) {
+        if (earcon != NO_EARCON) {
+            mEarconPlayer.prepare(mContext, earcon);
+        }
+    }
+
+    private void playEarcon(@RawRes int earcon) {
+        if (earcon != NO_EARCON) {
+            mEarconPlayer.play(earcon);
+        }
+    }
+
+    private void releaseUnusedEarcons(int[] earcons) {
+        for (int earcon : earcons) {
+            if (earcon != NO_EARCON && earcon != mAudioCueStartVoice && earcon != mAudioCueStartTouch
+                    && earcon != mAudioCueEnd && earcon != mAlternativeAudioCueStartVoice
+                    && earcon != mAlternativeAudioCueEnd) {
+                mEarconPlayer.release(earcon);
             }
         }
     }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.alexa.auto.voice.ui.earcon;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.media.MediaPlayer;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RawRes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Plays earcons with low latency. Each earcon is decoded once per process and written to a static
+ * {@link AudioTrack} in low latency mode, so playing it only rewinds and starts the track. Earcons that are not
+ * 16 bit PCM WAV files are played with a prepared {@link MediaPlayer} instead.
+ */
+class EarconPlayer {
+    private static final String TAG = EarconPlayer.class.getCanonicalName();
+
+    private static final EarconPlayer INSTANCE = new EarconPlayer();
+
+    private interface PreparedEarcon {
+        void play();
+        void release();
+    }
+
+    private final Map<Integer, PreparedEarcon> mEarcons = new HashMap<>();
+
+    static EarconPlayer getInstance() {
+        return INSTANCE;
+    }
+
+    private EarconPlayer() {}
+
+    /**
+     * Decodes the earcon and creates its player, unless the earcon is already prepared.
+     */
+    synchronized void prepare(@NonNull Context context, @RawRes int resId) {
+        if (mEarcons.containsKey(resId)) {
+            return;
+        }
+        PreparedEarcon earcon = prepareAudioTrack(context, resId);
+        if (earcon == null) {
+            earcon = prepareMediaPlayer(context, resId);
+        }
+        if (earcon != null) {
+            mEarcons.put(resId, earcon);
+        }
+    }
+
+    /**
+     * Plays the earcon from its start. The earcon must have been prepared.
+     */
+    void play(@RawRes int resId) {
+        PreparedEarcon earcon;
+        synchronized (this) {
+            earcon = mEarcons.get(resId);
+        }
+        if (earcon == null) {
+            Log.w(TAG, "Earcon is not prepared: " + resId);
+            return;
+        }
+        earcon.play();
+    }
+
+    /**
+     * Releases the player of the earcon, for example when it is replaced by another earcon.
+     */
+    synchronized void release(@RawRes int resId) {
+        PreparedEarcon earcon = mEarcons.remove(resId);
+        if (earcon != null) {
+            earcon.release();
+        }
+    }
+
+    private static PreparedEarcon prepareAudioTrack(Context context, @RawRes int resId) {
+        WavDecoder.PcmAudio audio;
+        try (InputStream input = context.getResources().openRawResource(resId)) {
+            audio = WavDecoder.decode(input);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to decode earcon " + resId, e);
+            return null;
+        }
+        if (audio == null || audio.mData.length == 0) {
+            return null;
+        }
+
+        AudioTrack track;
+        try {
+            track = new AudioTrack.Builder()
+                            .setAudioAttributes(new AudioAttributes.Builder()
+                                                        .setUsage(AudioAttributes.USAGE_MEDIA)
+                                                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                                                        .build())
+                            .setAudioFormat(new AudioFormat.Builder()
+                                                    .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                                                    .setSampleRate(audio.mSampleRateInHz)
+                                                    .setChannelMask(audio.mChannelCount == 1
+                                                                    ? AudioFormat.CHANNEL_OUT_MONO
+                                                                    : AudioFormat.CHANNEL_OUT_STEREO)
+                                                    .build())
+                            .setTransferMode(AudioTrack.MODE_STATIC)
+                            .setBufferSizeInBytes(audio.mData.length)
+                            .setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY)
+                            .build();
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            Log.w(TAG, "Failed to create audio track for earcon " + resId, e);
+            return null;
+        }
+        if (track.write(audio.mData, 0, audio.mData.length) != audio.mData.length) {
+            Log.w(TAG, "Failed to load earcon " + resId + " into the audio track");
+            track.release();
+            return null;
+        }
+        return new PreparedEarcon() {
+            @Override
+            public void play() {
+                if (track.getPlayState() != AudioTrack.PLAYSTATE_STOPPED) {
+                    track.stop();
+                }
+                // A static track is rewound by reloading its data, which does not copy the audio again
+                track.reloadStaticData();
+                track.play();
+            }
+
+            @Override
+            public void release() {
+                track.release();
+            }
+        };
+    }
+
+    private static PreparedEarcon prepareMediaPlayer(Context context, @RawRes int resId) {
+        MediaPlayer player = MediaPlayer.create(context, resId);
+        if (player == null) {
+            Log.e(TAG, "Failed to create media player for earcon " + resId);
+            return null;
+        }
+        return new PreparedEarcon() {
+            @Override
+            public void play() {
+                player.seekTo(0);
+                player.start();
+            }
+
+            @Override
+            public void release() {
+                player.release();
+            }
+        };
+    }
+}
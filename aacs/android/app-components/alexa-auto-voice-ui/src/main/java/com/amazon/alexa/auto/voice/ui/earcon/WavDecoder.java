@@ -0,0 +1,106 @@
+/*
+ * Copyright 2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.alexa.auto.voice.ui.earcon;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes 16 bit PCM WAV files, which is the format of the earcons, into raw PCM audio.
+ */
+class WavDecoder {
+    private static final int RIFF_HEADER_SIZE = 12;
+    private static final int CHUNK_HEADER_SIZE = 8;
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int BITS_PER_SAMPLE = 16;
+
+    /**
+     * Raw PCM audio with 16 bit little endian samples.
+     */
+    static class PcmAudio {
+        final int mSampleRateInHz;
+        final int mChannelCount;
+        final byte[] mData;
+
+        PcmAudio(int sampleRateInHz, int channelCount, byte[] data) {
+            mSampleRateInHz = sampleRateInHz;
+            mChannelCount = channelCount;
+            mData = data;
+        }
+    }
+
+    private WavDecoder() {}
+
+    /**
+     * @return the decoded audio, or {@code null} if the stream is not a 16 bit PCM WAV file.
+     */
+    @Nullable
+    static PcmAudio decode(@NonNull InputStream input) throws IOException {
+        ByteBuffer wav = ByteBuffer.wrap(readFully(input)).order(ByteOrder.LITTLE_ENDIAN);
+        if (wav.remaining() < RIFF_HEADER_SIZE || wav.getInt(0) != fourCC("RIFF") || wav.getInt(8) != fourCC("WAVE")) {
+            return null;
+        }
+
+        int sampleRateInHz = 0;
+        int channelCount = 0;
+        boolean isPcm16 = false;
+        int position = RIFF_HEADER_SIZE;
+        while (position + CHUNK_HEADER_SIZE <= wav.limit()) {
+            int chunkId = wav.getInt(position);
+            int chunkSize = wav.getInt(position + 4);
+            int chunkStart = position + CHUNK_HEADER_SIZE;
+            if (chunkSize < 0 || chunkStart + chunkSize > wav.limit()) {
+                return null;
+            }
+            if (chunkId == fourCC("fmt ")) {
+                isPcm16 = wav.getShort(chunkStart) == WAVE_FORMAT_PCM
+                        && wav.getShort(chunkStart + 14) == BITS_PER_SAMPLE;
+                channelCount = wav.getShort(chunkStart + 2);
+                sampleRateInHz = wav.getInt(chunkStart + 4);
+            } else if (chunkId == fourCC("data")) {
+                if (!isPcm16 || channelCount < 1 || channelCount > 2) {
+                    return null;
+                }
+                byte[] data = new byte[chunkSize];
+                wav.position(chunkStart);
+                wav.get(data);
+                return new PcmAudio(sampleRateInHz, channelCount, data);
+            }
+            // Chunks are padded to an even size
+            position = chunkStart + chunkSize + (chunkSize & 1);
+        }
+        return null;
+    }
+
+    private static int fourCC(String id) {
+        return (id.charAt(0)) | (id.charAt(1) << 8) | (id.charAt(2) << 16) | (id.charAt(3) << 24);
+    }
+
+    private static byte[] readFully(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(input.available(), 1024));
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) >= 0) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+}
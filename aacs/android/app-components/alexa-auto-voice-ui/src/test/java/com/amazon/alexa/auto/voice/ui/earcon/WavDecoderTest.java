@@ -0,0 +1,72 @@
+package com.amazon.alexa.auto.voice.ui.earcon;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+public class WavDecoderTest {
+    private static final int SAMPLE_RATE = 48000;
+
+    @Test
+    public void testDecodePcm16Wav() throws Exception {
+        byte[] samples = {1, 2, 3, 4, 5, 6, 7, 8};
+
+        WavDecoder.PcmAudio audio =
+                WavDecoder.decode(new ByteArrayInputStream(createWav(1, 2, 16, samples, false)));
+
+        Assert.assertNotNull(audio);
+        Assert.assertEquals(SAMPLE_RATE, audio.mSampleRateInHz);
+        Assert.assertEquals(2, audio.mChannelCount);
+        Assert.assertArrayEquals(samples, audio.mData);
+    }
+
+    @Test
+    public void testDecodeWavWithExtraChunk() throws Exception {
+        byte[] samples = {1, 2, 3, 4};
+
+        WavDecoder.PcmAudio audio =
+                WavDecoder.decode(new ByteArrayInputStream(createWav(1, 1, 16, samples, true)));
+
+        Assert.assertNotNull(audio);
+        Assert.assertEquals(1, audio.mChannelCount);
+        Assert.assertArrayEquals(samples, audio.mData);
+    }
+
+    @Test
+    public void testDecodeUnsupportedFormatReturnsNull() throws Exception {
+        byte[] samples = {1, 2, 3, 4};
+
+        Assert.assertNull(WavDecoder.decode(new ByteArrayInputStream(createWav(1, 1, 8, samples, false))));
+        Assert.assertNull(WavDecoder.decode(new ByteArrayInputStream(createWav(3, 1, 16, samples, false))));
+    }
+
+    @Test
+    public void testDecodeNotWavReturnsNull() throws Exception {
+        byte[] mp3 = {(byte) 0xFF, (byte) 0xF3, 0x44, (byte) 0xC0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+
+        Assert.assertNull(WavDecoder.decode(new ByteArrayInputStream(mp3)));
+        Assert.assertNull(WavDecoder.decode(new ByteArrayInputStream(new byte[0])));
+    }
+
+    private static byte[] createWav(int format, int channels, int bitsPerSample, byte[] samples, boolean extraChunk) {
+        // The extra chunk has an odd size to check that the padding byte is skipped
+        int extraChunkSize = extraChunk ? 8 + 3 + 1 : 0;
+        ByteBuffer wav = ByteBuffer.allocate(12 + 24 + extraChunkSize + 8 + samples.length)
+                                 .order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(wav.capacity() - 8);
+        wav.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        wav.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16);
+        wav.putShort((short) format).putShort((short) channels).putInt(SAMPLE_RATE);
+        wav.putInt(SAMPLE_RATE * channels * bitsPerSample / 8);
+        wav.putShort((short) (channels * bitsPerSample / 8)).putShort((short) bitsPerSample);
+        if (extraChunk) {
+            wav.put("LIST".getBytes(StandardCharsets.US_ASCII)).putInt(3).put(new byte[] {1, 2, 3, 0});
+        }
+        wav.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(samples.length).put(samples);
+        return wav.array();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.alexa.auto.aacs_annotation_api;
+
+import java.util.List;
+
+/**
+ * Registry of the broadcast receivers annotated with {@link ContextBroadcastReceiver}, generated at compile time for
+ * every package that contains such receivers. The generated registries are declared as services in
+ * META-INF/services, so AACS finds them with {@link java.util.ServiceLoader} without scanning classes.
+ */
+public interface ContextBroadcastReceiverRegistry {
+    /**
+     * @return the receivers of the package with their intent filters.
+     */
+    List<Registration> getRegistrations();
+
+    /**
+     * A broadcast receiver with its intent filter and optional permission.
+     */
+    final class Registration {
+        private final Object mReceiver;
+        private final String[] mCategories;
+        private final String[] mActions;
+        private final String mPermission;
+
+        /**
+         * @param receiver the {@code android.content.BroadcastReceiver} singleton.
+         * @param categories the categories of the intent filter.
+         * @param actions the actions of the intent filter.
+         * @param permission the permission the broadcaster must hold, or {@code null} if none is required.
+         */
+        public Registration(Object receiver, String[] categories, String[] actions, String permission) {
+            mReceiver = receiver;
+            mCategories = categories;
+            mActions = actions;
+            mPermission = permission;
+        }
+
+        public Object getReceiver() {
+            return mReceiver;
+        }
+
+        public String[] getCategories() {
+            return mCategories;
+        }
+
+        public String[] getActions() {
+            return mActions;
+        }
+
+        public String getPermission() {
+            return mPermission;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.alexa.auto.aacs_annotation_api;
+
+/**
+ * Registry of the navigation provider enabled with {@link NaviProviderModule}, generated at compile time in the
+ * package of the provider. The generated registry is declared as a service in META-INF/services, so the navigation
+ * component finds it with {@link java.util.ServiceLoader} without scanning classes.
+ *
+ * @param <T> the navigation provider interface implemented by the provider.
+ */
+public interface NaviProviderRegistry<T> {
+    /**
+     * @return the navigation provider singleton.
+     */
+    T getNaviProvider();
+}
@@ -15,8 +15,10 @@
 package com.amazon.alexa.auto.aacs_annotation_processor;
 
 import com.amazon.alexa.auto.aacs_annotation_api.ContextBroadcastReceiver;
+import com.amazon.alexa.auto.aacs_annotation_api.ContextBroadcastReceiverRegistry;
 import com.amazon.alexa.auto.aacs_annotation_api.ILifecycleObserver;
 import com.amazon.alexa.auto.aacs_annotation_api.NaviProviderModule;
+import com.amazon.alexa.auto.aacs_annotation_api.NaviProviderRegistry;
 import com.amazon.alexa.auto.aacs_annotation_processor.model.IntentFilter;
 import com.amazon.alexa.auto.aacs_annotation_processor.model.IntentFilterBindingSet;
 import com.amazon.alexa.auto.aacs_annotation_processor.model.IntentFilterClassBinding;
@@ -39,22 +41,31 @@ import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 
-import java.util.Collections;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Messager;
 import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.TypeMirror;
 import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
 
 @SuppressWarnings("unused")
 /**
@@ -63,6 +74,18 @@ import javax.tools.Diagnostic;
  *  permissions.
  */
 public class AACSAnnotationProcessor extends AbstractProcessor {
+    private static final String CONTEXT_BROADCAST_RECEIVERS = "ContextBroadcastReceivers";
+    private static final String NAVI_PROVIDER_MODULES = "NaviProviderModules";
+    private static final String GET_INSTANCE = "getInstance";
+
+    // Qualified names of the generated registries, declared as services once processing is over
+    private final Set<String> mGeneratedRegistries = new TreeSet<>();
+    private final Set<String> mGeneratedNaviProviderRegistries = new TreeSet<>();
+    // The navigation provider enabled with @NaviProviderModule, only one can be enabled
+    private String mEnabledNaviProvider;
+    // Receivers by intent filter, to detect receivers registered twice for the same intents
+    private final Map<String, String> mReceiversByIntentFilter = new HashMap<>();
+
     /**
      * Processes a set of annotation types on type elements originating from the prior round and
      * returns whether or not these annotations are claimed by this processor. If true is returned,
@@ -103,6 +126,11 @@ public class AACSAnnotationProcessor extends AbstractProcessor {
         naviProviderElementsToBind.forEach(element -> addElementBinding(naviProviderBindingSet, element));
         Set<JavaFile> naviProviderJavaFiles = generateNaviProviderBindingClasses(naviProviderBindingSet);
         Utility.writeFiles(processingEnv, naviProviderJavaFiles);
+
+        if (roundEnvironment.processingOver()) {
+            writeServices(ContextBroadcastReceiverRegistry.class, mGeneratedRegistries);
+            writeServices(NaviProviderRegistry.class, mGeneratedNaviProviderRegistries);
+        }
         return true;
     }
 
@@ -114,7 +142,9 @@ public class AACSAnnotationProcessor extends AbstractProcessor {
      */
     @Override
     public Set<String> getSupportedAnnotationTypes() {
-        return Collections.singleton(ContextBroadcastReceiver.class.getCanonicalName());
+        return new HashSet<>(Arrays.asList(ContextBroadcastReceiver.class.getCanonicalName(),
+                com.amazon.alexa.auto.aacs_annotation_api.LifecycleObserver.class.getCanonicalName(),
+                NaviProviderModule.class.getCanonicalName()));
     }
 
     /**
@@ -137,6 +167,9 @@ public class AACSAnnotationProcessor extends AbstractProcessor {
         if (elementBinding != null) {
             TypeElement classElement = (TypeElement) element;
             if ("android.content.BroadcastReceiver".equals(classElement.getSuperclass().toString())) {
+                if (!hasGetInstance(classElement) || !isIntentFilterUnique(classElement, elementBinding)) {
+                    return;
+                }
                 PackageElement packageElement = Utility.getPackage(classElement);
                 intentFilterBindingSet.addBinding(packageElement, classElement, elementBinding);
             } else {
@@ -147,6 +180,60 @@ public class AACSAnnotationProcessor extends AbstractProcessor {
         }
     }
 
+    /**
+     * Checks that the class provides its singleton with a public static getInstance() method
+     * @param classElement receiver or navigation provider class
+     * @return true if the method exists, otherwise an error is reported
+     */
+    private boolean hasGetInstance(TypeElement classElement) {
+        for (Element enclosed : classElement.getEnclosedElements()) {
+            if (enclosed.getKind() != ElementKind.METHOD || !GET_INSTANCE.equals(enclosed.getSimpleName().toString())) {
+                continue;
+            }
+            ExecutableElement method = (ExecutableElement) enclosed;
+            if (method.getModifiers().contains(Modifier.PUBLIC) && method.getModifiers().contains(Modifier.STATIC)
+                    && method.getParameters().isEmpty()
+                    && processingEnv.getTypeUtils().isSameType(method.getReturnType(), classElement.asType())) {
+                return true;
+            }
+        }
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                classElement.getSimpleName() + " must provide its singleton with public static "
+                        + classElement.getSimpleName() + " getInstance()",
+                classElement);
+        return false;
+    }
+
+    /**
+     * Checks that no other receiver is registered for the same action and categories
+     * @param classElement receiver class
+     * @param intentFilter intent filter of the receiver
+     * @return true if the intent filter is unique, otherwise an error is reported
+     */
+    private boolean isIntentFilterUnique(TypeElement classElement, IntentFilter intentFilter) {
+        if (intentFilter.getActions().length == 0) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    classElement.getSimpleName() + " must declare at least one action", classElement);
+            return false;
+        }
+        String[] categories = intentFilter.getCategories().clone();
+        Arrays.sort(categories);
+        String receiver = classElement.getQualifiedName().toString();
+        boolean unique = true;
+        for (String action : intentFilter.getActions()) {
+            String key = action + Arrays.toString(categories);
+            String previous = mReceiversByIntentFilter.putIfAbsent(key, receiver);
+            if (previous != null && !previous.equals(receiver)) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        String.format("%s and %s are both registered for action %s with categories %s", previous,
+                                receiver, action, Arrays.toString(categories)),
+                        classElement);
+                unique = false;
+            }
+        }
+        return unique;
+    }
+
     /**
      * Returns intent filter based on the read annotations for all the elements
      * @param element class elements having annotation of type ContextBroadcastReceiver
@@ -182,100 +269,75 @@ public class AACSAnnotationProcessor extends AbstractProcessor {
 
             JavaFile javaFile = JavaFile.builder(packageName, binderClass).build();
             files.add(javaFile);
+            mGeneratedRegistries.add(packageName + "." + CONTEXT_BROADCAST_RECEIVERS);
         }
         return files;
     }
 
     /**
      * This method contains all the business logic for automatically generating
-     * ContextBroadcastReceivers class using javapoet library
+     * ContextBroadcastReceivers class using javapoet library. The class is a
+     * {@link ContextBroadcastReceiverRegistry} that gets the receiver singletons directly, so neither the receivers
+     * nor the registry are looked up by reflection.
      * @param packageBinding
      * @return
      */
     private TypeSpec generateContextBroadcastReceivers(PackageBinding packageBinding) {
-        TypeName map = ParameterizedTypeName.get(
-                ClassName.get(Map.class), ClassName.get(String.class), ArrayTypeName.of(String.class));
-
-        FieldSpec mBroadcastReceiverCategories =
-                FieldSpec.builder(map, "mBroadcastReceiverCategories")
-                        .addModifiers(Modifier.PRIVATE, Modifier.FINAL, Modifier.STATIC)
-                        .initializer("new $T<>()", ClassName.get("java.util", "HashMap"))
-                        .build();
-
-        FieldSpec mBroadcastReceiverActions = FieldSpec.builder(map, "mBroadcastReceiverActions")
-                                                      .addModifiers(Modifier.PRIVATE, Modifier.FINAL, Modifier.STATIC)
-                                                      .initializer("new $T<>()", ClassName.get("java.util", "HashMap"))
-                                                      .build();
-
-        FieldSpec mPermission = null;
+        ClassName registration = ClassName.get(ContextBroadcastReceiverRegistry.Registration.class);
+        TypeName listOfRegistrations = ParameterizedTypeName.get(ClassName.get(List.class), registration);
+        ArrayTypeName stringArray = ArrayTypeName.of(String.class);
 
-        CodeBlock.Builder staticBuilder = CodeBlock.builder();
+        MethodSpec.Builder getRegistrations = MethodSpec.methodBuilder("getRegistrations")
+                                                      .addAnnotation(Override.class)
+                                                      .addModifiers(Modifier.PUBLIC)
+                                                      .returns(listOfRegistrations);
+        getRegistrations.addStatement("$T registrations = new $T<>()", listOfRegistrations, ArrayList.class);
         for (IntentFilterClassBinding cls : packageBinding.getIntentFilterClassBindings()) {
             for (IntentFilter elementBinding : cls.getIntentFilter()) {
-                ArrayTypeName stringArray = ArrayTypeName.of(String.class);
-                String literal = "{\"" + String.join("\",\"", elementBinding.getCategories()) + "\"}";
-
-                staticBuilder.addStatement("mBroadcastReceiverCategories.put($S, new $T $L)", elementBinding.getType(),
-                        stringArray, literal);
-                literal = "{\"" + String.join("\",\"", elementBinding.getActions()) + "\"}";
-                staticBuilder.addStatement(
-                        "mBroadcastReceiverActions.put($S, new $T $L)", elementBinding.getType(), stringArray, literal);
-
-                if (!"".equals(elementBinding.getPermission())) {
-                    mPermission = FieldSpec.builder(String.class, "mPermission")
-                                          .addModifiers(Modifier.PRIVATE, Modifier.FINAL, Modifier.STATIC)
-                                          .initializer("new String($S)", elementBinding.getPermission())
-                                          .build();
-                }
+                String permission = elementBinding.getPermission();
+                getRegistrations.addStatement("registrations.add(new $T($T.getInstance(), new $T $L, new $T $L, $S))",
+                        registration, ClassName.get(cls.getClassElement()), stringArray,
+                        toArrayInitializer(elementBinding.getCategories()), stringArray,
+                        toArrayInitializer(elementBinding.getActions()), "".equals(permission) ? null : permission);
             }
         }
+        getRegistrations.addStatement("return registrations");
 
-        TypeSpec.Builder classBuilder = TypeSpec.classBuilder("ContextBroadcastReceivers")
-                                                .addModifiers(Modifier.PUBLIC)
-                                                .addField(mBroadcastReceiverCategories)
-                                                .addField(mBroadcastReceiverActions);
-        if (mPermission != null) {
-            classBuilder.addField(mPermission);
-        }
-        classBuilder.addStaticBlock(staticBuilder.build());
-
-        ClassName set = ClassName.get("java.util", "Set");
-        TypeName setOfPackages = ParameterizedTypeName.get(set, TypeName.get(String.class));
-        MethodSpec.Builder getReceiversBuilder =
-                MethodSpec.methodBuilder("getReceiversBuilder").addModifiers(Modifier.PUBLIC, Modifier.STATIC);
-        getReceiversBuilder.returns(setOfPackages);
-        getReceiversBuilder.addStatement("return mBroadcastReceiverCategories.keySet()");
-        classBuilder.addMethod(getReceiversBuilder.build());
+        return TypeSpec.classBuilder(CONTEXT_BROADCAST_RECEIVERS)
+                .addModifiers(Modifier.PUBLIC)
+                .addSuperinterface(ContextBroadcastReceiverRegistry.class)
+                .addMethod(getRegistrations.build())
+                .build();
+    }
 
-        ArrayTypeName stringArray = ArrayTypeName.of(String.class);
-        TypeName paramTypeName = TypeName.get(String.class);
-        ParameterSpec paramSpec = ParameterSpec.builder(paramTypeName, "className").build();
-
-        MethodSpec.Builder getCategories =
-                MethodSpec.methodBuilder("getCategories").addModifiers(Modifier.PUBLIC, Modifier.STATIC);
-        getCategories.returns(stringArray);
-        getCategories.addParameter(paramSpec);
-        getCategories.addStatement("return mBroadcastReceiverCategories.get(className)");
-        classBuilder.addMethod(getCategories.build());
-
-        MethodSpec.Builder getActions =
-                MethodSpec.methodBuilder("getActions").addModifiers(Modifier.PUBLIC, Modifier.STATIC);
-        getActions.returns(stringArray);
-        getActions.addParameter(paramSpec);
-        getActions.addStatement("return mBroadcastReceiverActions.get(className)");
-        classBuilder.addMethod(getActions.build());
-
-        MethodSpec.Builder getPermission =
-                MethodSpec.methodBuilder("getPermission").addModifiers(Modifier.PUBLIC, Modifier.STATIC);
-        getPermission.returns(ClassName.get(String.class));
-        if (mPermission != null) {
-            getPermission.addStatement("return mPermission");
-        } else {
-            getPermission.addStatement("return null");
+    private static CodeBlock toArrayInitializer(String[] values) {
+        CodeBlock.Builder builder = CodeBlock.builder().add("{");
+        for (int i = 0; i < values.length; i++) {
+            builder.add(i == 0 ? "$S" : ", $S", values[i]);
         }
-        classBuilder.addMethod(getPermission.build());
+        return builder.add("}").build();
+    }
 
-        return classBuilder.build();
+    /**
+     * Declares the generated registries as services, so they are loaded with {@link java.util.ServiceLoader}.
+     * @param service the registry interface
+     * @param registries qualified names of the generated registries
+     */
+    private void writeServices(Class<?> service, Set<String> registries) {
+        if (registries.isEmpty()) {
+            return;
+        }
+        String resourceName = "META-INF/services/" + service.getCanonicalName();
+        try (Writer writer = processingEnv.getFiler()
+                                     .createResource(StandardLocation.CLASS_OUTPUT, "", resourceName)
+                                     .openWriter()) {
+            for (String registry : registries) {
+                writer.write(registry + "\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.ERROR, String.format("Unable to write %s: %s", resourceName, e.getMessage()));
+        }
     }
 
     /**
@@ -368,19 +430,33 @@ public class AACSAnnotationProcessor extends AbstractProcessor {
         return classBuilder.build();
     }
 
+    /**
+     * Check every navigation provider and add the enabled one in the binding set. The build fails if more than one
+     * navigation provider is enabled, so exactly one provider is bound: the enabled one, or the default provider of
+     * the navigation component if none is enabled.
+     * @param naviProviderBindingSet model class maintaining the classes
+     * @param element classes
+     */
     private void addElementBinding(NaviProviderBindingSet naviProviderBindingSet, Element element) {
         NaviProvider elementBinding = getNaviProviderBinding(element);
-        if (elementBinding != null) {
-            TypeElement classElement = (TypeElement) element;
-            Iterator<TypeMirror> itr = (Iterator<TypeMirror>) classElement.getInterfaces().iterator();
-            while (itr.hasNext()) {
-                String temp = itr.next().toString();
-                if (temp.endsWith("NaviProvider") || temp.endsWith("NaviSearchProvider")) {
-                    PackageElement packageElement = Utility.getPackage(classElement);
-                    naviProviderBindingSet.addBinding(packageElement, classElement, elementBinding);
-                }
-            }
+        if (elementBinding == null || !elementBinding.isEnabled()) {
+            return;
         }
+        TypeElement classElement = (TypeElement) element;
+        if (!hasGetInstance(classElement)) {
+            return;
+        }
+        String naviProvider = classElement.getQualifiedName().toString();
+        if (mEnabledNaviProvider != null && !mEnabledNaviProvider.equals(naviProvider)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    String.format("%s and %s are both enabled navigation providers, only one can be enabled",
+                            mEnabledNaviProvider, naviProvider),
+                    classElement);
+            return;
+        }
+        mEnabledNaviProvider = naviProvider;
+        PackageElement packageElement = Utility.getPackage(classElement);
+        naviProviderBindingSet.addBinding(packageElement, classElement, elementBinding);
     }
 
     private NaviProvider getNaviProviderBinding(Element element) {
@@ -390,51 +466,63 @@ public class AACSAnnotationProcessor extends AbstractProcessor {
                     Diagnostic.Kind.ERROR, "Field not accessible, it cannot be private or static to bind");
             return null;
         }
+        TypeElement classElement = (TypeElement) element;
+        TypeMirror providerInterface = null;
+        for (TypeMirror implemented : classElement.getInterfaces()) {
+            String name = implemented.toString();
+            if (name.endsWith("NaviProvider") || name.endsWith("NaviSearchProvider")) {
+                providerInterface = implemented;
+                break;
+            }
+        }
+        if (providerInterface == null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    classElement.getSimpleName() + " must implement the NaviProvider interface", classElement);
+            return null;
+        }
         com.amazon.alexa.auto.aacs_annotation_api.NaviProviderModule annotation =
                 element.getAnnotation(com.amazon.alexa.auto.aacs_annotation_api.NaviProviderModule.class);
         boolean enabled = annotation.enabled();
         TypeMirror type = element.asType();
         String name = element.getSimpleName().toString();
-        return new NaviProvider(type, name, enabled);
+        return new NaviProvider(type, name, enabled, providerInterface);
     }
 
     private Set<JavaFile> generateNaviProviderBindingClasses(NaviProviderBindingSet naviProviderBindingSet) {
         Set<JavaFile> files = new HashSet<>();
         for (PackageBinding packageBinding : naviProviderBindingSet.getPackageBindings()) {
             String packageName = packageBinding.getPackageName();
-            TypeSpec binderClass = generateNaviProvider(packageBinding);
-            JavaFile javaFile = JavaFile.builder(packageName, binderClass).build();
-            files.add(javaFile);
-        }
-        return files;
-    }
-
-    private TypeSpec generateNaviProvider(PackageBinding packageBinding) {
-        ClassName hashSet = ClassName.get("java.util", "HashSet");
-        FieldSpec mNaviProviderModules = FieldSpec.builder(hashSet, "mNaviProviderModules")
-                                                 .addModifiers(Modifier.PRIVATE, Modifier.FINAL, Modifier.STATIC)
-                                                 .initializer("new $T()", hashSet)
-                                                 .build();
-        CodeBlock.Builder staticBuilder = CodeBlock.builder();
-        for (NaviProviderClassBinding cls : packageBinding.getNaviProviderClassBinding()) {
-            for (NaviProvider elementBinding : cls.getNaviProviderModules()) {
-                if (elementBinding.isEnabled()) {
-                    staticBuilder.addStatement("mNaviProviderModules.add($S)", elementBinding.getType());
+            for (NaviProviderClassBinding cls : packageBinding.getNaviProviderClassBinding()) {
+                for (NaviProvider elementBinding : cls.getNaviProviderModules()) {
+                    TypeSpec binderClass = generateNaviProvider(cls.getClassElement(), elementBinding);
+                    files.add(JavaFile.builder(packageName, binderClass).build());
+                    mGeneratedNaviProviderRegistries.add(packageName + "." + NAVI_PROVIDER_MODULES);
                 }
             }
         }
-        TypeSpec.Builder classBuilder = TypeSpec.classBuilder("NaviProviderModules")
-                                                .addModifiers(Modifier.PUBLIC)
-                                                .addField(mNaviProviderModules);
-        classBuilder.addStaticBlock(staticBuilder.build());
+        return files;
+    }
 
-        ClassName set = ClassName.get("java.util", "Set");
-        TypeName setOfPackages = ParameterizedTypeName.get(set, TypeName.get(String.class));
-        MethodSpec.Builder getNaviProviderModules =
-                MethodSpec.methodBuilder("getNaviProviderModules").addModifiers(Modifier.PUBLIC, Modifier.STATIC);
-        getNaviProviderModules.returns(setOfPackages);
-        getNaviProviderModules.addStatement("return mNaviProviderModules");
-        classBuilder.addMethod(getNaviProviderModules.build());
-        return classBuilder.build();
+    /**
+     * Generates the NaviProviderModules class, a {@link NaviProviderRegistry} typed with the navigation provider
+     * interface that gets the provider singleton directly, so the provider is not looked up by reflection.
+     * @param classElement the enabled navigation provider
+     * @param naviProvider binding of the navigation provider
+     * @return the registry class
+     */
+    private TypeSpec generateNaviProvider(TypeElement classElement, NaviProvider naviProvider) {
+        TypeName providerInterface = TypeName.get(naviProvider.getProviderInterface());
+        MethodSpec getNaviProvider = MethodSpec.methodBuilder("getNaviProvider")
+                                             .addAnnotation(Override.class)
+                                             .addModifiers(Modifier.PUBLIC)
+                                             .returns(providerInterface)
+                                             .addStatement("return $T.getInstance()", ClassName.get(classElement))
+                                             .build();
+        return TypeSpec.classBuilder(NAVI_PROVIDER_MODULES)
+                .addModifiers(Modifier.PUBLIC)
+                .addSuperinterface(
+                        ParameterizedTypeName.get(ClassName.get(NaviProviderRegistry.class), providerInterface))
+                .addMethod(getNaviProvider)
+                .build();
     }
 }
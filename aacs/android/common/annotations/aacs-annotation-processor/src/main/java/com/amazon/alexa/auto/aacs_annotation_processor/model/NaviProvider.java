@@ -20,11 +20,13 @@ public class NaviProvider {
     private final TypeMirror type;
     private final String name;
     private final boolean enabled;
+    private final TypeMirror providerInterface;
 
-    public NaviProvider(TypeMirror type, String name, boolean enabled) {
+    public NaviProvider(TypeMirror type, String name, boolean enabled, TypeMirror providerInterface) {
         this.type = type;
         this.name = name;
         this.enabled = enabled;
+        this.providerInterface = providerInterface;
     }
 
     public TypeMirror getType() {
@@ -38,4 +40,8 @@ public class NaviProvider {
     public boolean isEnabled() {
         return enabled;
     }
+
+    public TypeMirror getProviderInterface() {
+        return providerInterface;
+    }
 }
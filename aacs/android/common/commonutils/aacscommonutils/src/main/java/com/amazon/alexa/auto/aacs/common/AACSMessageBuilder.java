@@ -29,15 +29,25 @@ import com.amazon.aacsipc.IPCConstants;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 import java.util.UUID;
 
 /**
  * Builder class to convert AACS message from message json to object and
- * vice versa.
+ * vice versa. Messages are built in a single pass: the header and the
+ * serialized payload are appended to a reusable buffer, without parsing
+ * the payload again.
  */
 public class AACSMessageBuilder {
     private static final String TAG = AACSMessageBuilder.class.getSimpleName();
+    private static final String VERSION = "4.0";
+    private static final String PUBLISH = "Publish";
+    private static final String REPLY = "Reply";
+    private static final int MAX_RETAINED_BUFFER_CAPACITY = 64 * 1024;
+
+    // Messages are written into a buffer reused by every message built on the same thread
+    private static final ThreadLocal<StringBuilder> sBuffer = ThreadLocal.withInitial(() -> new StringBuilder(1024));
 
     /**
      * Parse the message json to construct @c AACSMessage object from it.
@@ -118,36 +128,21 @@ public class AACSMessageBuilder {
      * @param replyToId If a message is a response to earlier message.
      * @param topic Topic of the message.
      * @param action Action of the message.
-     * @param payload Payload of the message.
+     * @param payload Payload of the message, a serialized JSON object. It is copied as-is without being parsed.
      *
      * @return Message encoded as JSON.
      */
     public static Optional<String> buildReplyMessage(
             @NonNull String replyToId, @NonNull String topic, @NonNull String action, String payload) {
-        String uniqueID = UUID.randomUUID().toString();
-        try {
-            String aasbMessage = "{\n"
-                    + "  \"header\" : {\n"
-                    + "    \"version\" : \"4.0\",\n"
-                    + "    \"messageType\" : \"Reply\",\n"
-                    + "    \"id\" : \"" + uniqueID + "\",\n"
-                    + "    \"messageDescription\" : {\n"
-                    + "      \"topic\" : \"" + topic + "\",\n"
-                    + "      \"action\" : \"" + action + "\",\n"
-                    + "      \"replyToId\" : \"" + replyToId + "\"\n"
-                    + "    }\n"
-                    + "  }\n"
-                    + "}";
-            JSONObject msgObj = new JSONObject(aasbMessage);
-            if (payload != null && !payload.isEmpty()) {
-                JSONObject payloadJson = new JSONObject(payload);
-                msgObj.put("payload", payloadJson);
-            }
-            return Optional.of(msgObj.toString());
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to construct AACS message. Error: " + e);
+        if (!isJsonObject(payload)) {
+            Log.e(TAG, "Failed to construct AACS message. Payload is not a JSON object");
             return Optional.empty();
         }
+        StringBuilder buffer = beginMessage(REPLY, UUID.randomUUID().toString(), topic, action, replyToId);
+        if (payload != null && !payload.isEmpty()) {
+            buffer.append(",\"" + AASBConstants.PAYLOAD + "\":").append(payload);
+        }
+        return Optional.of(endMessage(buffer));
     }
 
     /**
@@ -171,43 +166,128 @@ public class AACSMessageBuilder {
         }
     }
 
+    /**
+     * Build a AACS Message JSON from its constituents, with a payload that is already serialized as UTF-8, for
+     * example by a JSON writer streaming into a byte array. The payload is copied as-is without being parsed.
+     *
+     * @param topic Topic of the message.
+     * @param action Action of the message.
+     * @param payload Payload of the message, a JSON object encoded in UTF-8.
+     *
+     * @return Message encoded as JSON.
+     */
+    public static Optional<String> buildMessage(@NonNull String topic, @NonNull String action, byte[] payload) {
+        StringBuilder buffer = beginMessage(PUBLISH, UUID.randomUUID().toString(), topic, action, null);
+        if (payload != null && payload.length > 0) {
+            buffer.append(",\"" + AASBConstants.PAYLOAD + "\":");
+            int payloadStart = buffer.length();
+            appendUtf8(buffer, payload);
+            if (!isJsonObject(buffer.subSequence(payloadStart, buffer.length()))) {
+                Log.w(TAG, "Failed to build AACS payload for message. Topic: " + topic + " Action: " + action);
+                return Optional.empty();
+            }
+        }
+        return Optional.of(endMessage(buffer));
+    }
+
     /**
      * Build a AACS Message JSON from its constituents.
      *
      * @param topic Topic of the message.
      * @param action Action of the message.
-     * @param payload Payload of the message.
+     * @param payload Payload of the message, a serialized JSON object. It is copied as-is without being parsed.
      *
      * @return Message encoded as JSON and unique ID for messageId
      */
     public static Optional<String[]> buildMessageReturnID(
             @NonNull String topic, @NonNull String action, String payload) {
+        if (!isJsonObject(payload)) {
+            Log.e(TAG, "Failed to construct AACS message. Payload is not a JSON object");
+            return Optional.empty();
+        }
         String uniqueID = UUID.randomUUID().toString();
-        try {
-            String aasbMessage = "{\n"
-                    + "  \"header\" : {\n"
-                    + "    \"version\" : \"4.0\",\n"
-                    + "    \"messageType\" : \"Publish\",\n"
-                    + "    \"id\" : \"" + uniqueID + "\",\n"
-                    + "    \"messageDescription\" : {\n"
-                    + "      \"topic\" : \"" + topic + "\",\n"
-                    + "      \"action\" : \"" + action + "\"\n"
-                    + "    }\n"
-                    + "  }\n"
-                    + "}";
-
-            JSONObject msgObj = new JSONObject(aasbMessage);
-            if (payload != null && !payload.isEmpty()) {
-                JSONObject payloadJson = new JSONObject(payload);
-                msgObj.put("payload", payloadJson);
+        StringBuilder buffer = beginMessage(PUBLISH, uniqueID, topic, action, null);
+        if (payload != null && !payload.isEmpty()) {
+            buffer.append(",\"" + AASBConstants.PAYLOAD + "\":").append(payload);
+        }
+
+        // return both message JSON string at position [0] and unique messageId at position [1] as String array
+        return Optional.of(new String[] {endMessage(buffer), uniqueID});
+    }
+
+    /**
+     * Writes the message up to the end of its header into the buffer of the calling thread.
+     */
+    private static StringBuilder beginMessage(
+            String messageType, String id, String topic, String action, String replyToId) {
+        StringBuilder buffer = sBuffer.get();
+        buffer.setLength(0);
+        buffer.append("{\"" + AASBConstants.HEADER + "\":{\"version\":\"" + VERSION + "\",\"messageType\":\"")
+                .append(messageType)
+                .append("\",\"" + AASBConstants.ID + "\":");
+        appendString(buffer, id);
+        buffer.append(",\"" + AASBConstants.MESSAGE_DESCRIPTION + "\":{\"" + AASBConstants.TOPIC + "\":");
+        appendString(buffer, topic);
+        buffer.append(",\"" + AASBConstants.ACTION + "\":");
+        appendString(buffer, action);
+        if (replyToId != null) {
+            buffer.append(",\"" + AASBConstants.REPLY_TO_ID + "\":");
+            appendString(buffer, replyToId);
+        }
+        return buffer.append("}}");
+    }
+
+    private static String endMessage(StringBuilder buffer) {
+        String message = buffer.append('}').toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER_CAPACITY) {
+            // Do not hold on to the buffer of an unusually large message
+            sBuffer.remove();
+        }
+        return message;
+    }
+
+    private static void appendString(StringBuilder buffer, String value) {
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer.append('\\').append(c);
+            } else if (c < 0x20) {
+                buffer.append(String.format("\\u%04x", (int) c));
+            } else {
+                buffer.append(c);
             }
+        }
+        buffer.append('"');
+    }
 
-            // return both message JSON string at position [0] and unique messageId at position [1] as String array
-            return Optional.of(new String[] {msgObj.toString(), uniqueID});
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to construct AACS message. Error: " + e);
-            return Optional.empty();
+    private static void appendUtf8(StringBuilder buffer, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] < 0) {
+                // Decode the rest of the payload only when it is not ASCII
+                buffer.append(new String(bytes, i, bytes.length - i, StandardCharsets.UTF_8));
+                return;
+            }
+            buffer.append((char) bytes[i]);
+        }
+    }
+
+    /**
+     * Checks that the payload is delimited as a JSON object, without parsing it.
+     */
+    private static boolean isJsonObject(CharSequence payload) {
+        if (payload == null || payload.length() == 0) {
+            return true;
+        }
+        int start = 0;
+        int end = payload.length() - 1;
+        while (start < end && Character.isWhitespace(payload.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(payload.charAt(end))) {
+            end--;
         }
+        return payload.charAt(start) == '{' && payload.charAt(end) == '}';
     }
 
     /**
@@ -23,21 +23,87 @@ import com.amazon.alexa.auto.aacs.common.navi.LocalSearchDetailTemplate;
 import com.amazon.alexa.auto.aacs.common.navi.LocalSearchDetailTemplateJsonAdapter;
 import com.amazon.alexa.auto.aacs.common.navi.LocalSearchListTemplate;
 import com.amazon.alexa.auto.aacs.common.navi.LocalSearchListTemplateJsonAdapter;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.JsonReader;
 import com.squareup.moshi.Moshi;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
+import java.io.IOException;
 import java.util.Optional;
 
+import okio.Buffer;
+
 /**
  * Parse Template Runtime messages and send Template Runtime messages to
  * AACS with this helper.
+ *
+ * The template of a Template Runtime message is a JSON string in the "payload" field of the message payload. The
+ * message payload is read once with a streaming reader, the template type is found without decoding the template,
+ * and the template is decoded in a single pass directly into its model. The receivers get the template type and
+ * then parse the template of the same message, so the last read message payload is kept. RenderPlayerInfo is
+ * received on every track change and playback state change, mostly with the same template, so the last decoded
+ * player info template is also kept and reused.
  */
 public class TemplateRuntimeMessages {
     private static final String TAG = TemplateRuntimeMessages.class.getSimpleName();
     public static final String LOCAL_SEARCH_LIST_TEMPLATE_2 = "LocalSearchListTemplate2";
 
+    private static final JsonReader.Options MESSAGE_FIELDS =
+            JsonReader.Options.of("payload", "audioPlayerState", "offset", "focusState");
+    private static final int MESSAGE_PAYLOAD = 0;
+    private static final int MESSAGE_AUDIO_PLAYER_STATE = 1;
+    private static final int MESSAGE_OFFSET = 2;
+    private static final int MESSAGE_FOCUS_STATE = 3;
+    private static final JsonReader.Options TEMPLATE_FIELDS = JsonReader.Options.of("type");
+
+    // Moshi and the adapters are thread safe, they are created once
+    private static final Moshi MOSHI = new Moshi.Builder().build();
+    private static final JsonAdapter<RenderPlayerInfoPayload> RENDER_PLAYER_INFO_PAYLOAD_ADAPTER =
+            new RenderPlayerInfoPayloadJsonAdapter(MOSHI);
+    private static final JsonAdapter<LocalSearchListTemplate> LOCAL_SEARCH_LIST_TEMPLATE_ADAPTER =
+            new LocalSearchListTemplateJsonAdapter(MOSHI);
+    private static final JsonAdapter<LocalSearchDetailTemplate> LOCAL_SEARCH_DETAIL_TEMPLATE_ADAPTER =
+            new LocalSearchDetailTemplateJsonAdapter(MOSHI);
+    private static final JsonAdapter<WeatherTemplate> WEATHER_TEMPLATE_ADAPTER = new WeatherTemplateJsonAdapter(MOSHI);
+    private static final JsonAdapter<BodyTemplate> BODY_TEMPLATE_ADAPTER = new BodyTemplateJsonAdapter(MOSHI);
+    private static final JsonAdapter<ListTemplate> LIST_TEMPLATE_ADAPTER = new ListTemplateJsonAdapter(MOSHI);
+
+    private static volatile TemplateMessage sLastMessage;
+    private static volatile PlayerInfoTemplate sLastPlayerInfoTemplate;
+
+    /**
+     * Fields of a Template Runtime message payload.
+     */
+    private static final class TemplateMessage {
+        final String json;
+        final String template;
+        final String audioPlayerState;
+        final Integer offset;
+        final String focusState;
+        volatile String templateType;
+
+        TemplateMessage(String json, String template, String audioPlayerState, Integer offset, String focusState) {
+            this.json = json;
+            this.template = template;
+            this.audioPlayerState = audioPlayerState;
+            this.offset = offset;
+            this.focusState = focusState;
+        }
+    }
+
+    /**
+     * A decoded player info template.
+     */
+    private static final class PlayerInfoTemplate {
+        final String template;
+        final RenderPlayerInfoPayload payload;
+
+        PlayerInfoTemplate(String template, RenderPlayerInfoPayload payload) {
+            this.template = template;
+            this.payload = payload;
+        }
+    }
+
     /**
      * Parse Template Runtime RenderPlayerInfo message.
      *
@@ -45,15 +111,23 @@ public class TemplateRuntimeMessages {
      * @return RenderPlayerInfo if available.
      */
     public static Optional<RenderPlayerInfo> parseRenderPlayerInfo(@NonNull String json) {
-        Moshi moshi = new Moshi.Builder().build();
-        RenderPlayerInfoJsonAdapter jsonAdapter = new RenderPlayerInfoJsonAdapter(moshi);
-
         try {
-            JSONObject messagePayload = new JSONObject(json);
-            messagePayload.put("payload", new JSONObject(messagePayload.getString("payload")));
+            TemplateMessage message = readMessage(json);
+            if (message.audioPlayerState == null || message.offset == null || message.focusState == null) {
+                throw new JsonDataException("Missing player state");
+            }
 
-            RenderPlayerInfo renderPlayerInfo = jsonAdapter.fromJson(messagePayload.toString());
-            return renderPlayerInfo != null ? Optional.of(renderPlayerInfo) : Optional.<RenderPlayerInfo>empty();
+            PlayerInfoTemplate playerInfoTemplate = sLastPlayerInfoTemplate;
+            if (playerInfoTemplate == null || !playerInfoTemplate.template.equals(message.template)) {
+                RenderPlayerInfoPayload payload = RENDER_PLAYER_INFO_PAYLOAD_ADAPTER.fromJson(message.template);
+                if (payload == null) {
+                    return Optional.empty();
+                }
+                playerInfoTemplate = new PlayerInfoTemplate(message.template, payload);
+                sLastPlayerInfoTemplate = playerInfoTemplate;
+            }
+            return Optional.of(new RenderPlayerInfo(
+                    playerInfoTemplate.payload, message.audioPlayerState, message.offset, message.focusState));
         } catch (Exception exception) {
             Log.e(TAG, "Failed to parse RenderPlayerInfo message | exception: " + exception.getMessage());
             return Optional.empty();
@@ -67,13 +141,11 @@ public class TemplateRuntimeMessages {
      * @return LocalSearchListTemplate if available.
      */
     public static Optional<LocalSearchListTemplate> parseLocalSearchListTemplate(@NonNull String json) {
-        Moshi moshi = new Moshi.Builder().build();
         try {
-            JSONObject messagePayload = new JSONObject(json);
-            messagePayload = new JSONObject(messagePayload.getString("payload"));
-            if (messagePayload.get("type").equals(LOCAL_SEARCH_LIST_TEMPLATE_2)) {
-                LocalSearchListTemplateJsonAdapter jsonAdapter = new LocalSearchListTemplateJsonAdapter(moshi);
-                LocalSearchListTemplate localSearchListTemplate = jsonAdapter.fromJson(messagePayload.toString());
+            TemplateMessage message = readMessage(json);
+            if (LOCAL_SEARCH_LIST_TEMPLATE_2.equals(readTemplateType(message))) {
+                LocalSearchListTemplate localSearchListTemplate =
+                        LOCAL_SEARCH_LIST_TEMPLATE_ADAPTER.fromJson(message.template);
                 return localSearchListTemplate != null ? Optional.of(localSearchListTemplate) : Optional.empty();
             }
             return Optional.empty();
@@ -90,12 +162,9 @@ public class TemplateRuntimeMessages {
      * @return WeatherTemplate if available.
      */
     public static Optional<WeatherTemplate> parseWeatherTemplate(@NonNull String json) {
-        Moshi moshi = new Moshi.Builder().build();
         try {
-            JSONObject messagePayload = new JSONObject(json);
-            messagePayload = new JSONObject(messagePayload.getString("payload"));
-            WeatherTemplateJsonAdapter jsonAdapter = new WeatherTemplateJsonAdapter(moshi);
-            WeatherTemplate weatherTemplatePayload = jsonAdapter.fromJson(messagePayload.toString());
+            TemplateMessage message = readMessage(json);
+            WeatherTemplate weatherTemplatePayload = WEATHER_TEMPLATE_ADAPTER.fromJson(message.template);
             return weatherTemplatePayload != null ? Optional.of(weatherTemplatePayload) : Optional.empty();
         } catch (Exception exception) {
             Log.e(TAG, "Failed to parse WeatherTemplate | exception: " + exception.getMessage());
@@ -110,13 +179,11 @@ public class TemplateRuntimeMessages {
      * @return LocalSearchListTemplate if available.
      */
     public static Optional<LocalSearchDetailTemplate> parseLocalSearchDetailTemplate(@NonNull String json) {
-        Moshi moshi = new Moshi.Builder().build();
         try {
-            JSONObject messagePayload = new JSONObject(json);
-            messagePayload = new JSONObject(messagePayload.getString("payload"));
-            if (messagePayload.get("type").equals(TemplateRuntimeConstants.TEMPLATE_TYPE_LOCAL_SEARCH_DETAIL)) {
-                LocalSearchDetailTemplateJsonAdapter jsonAdapter = new LocalSearchDetailTemplateJsonAdapter(moshi);
-                LocalSearchDetailTemplate localSearchDetailTemplate = jsonAdapter.fromJson(messagePayload.toString());
+            TemplateMessage message = readMessage(json);
+            if (TemplateRuntimeConstants.TEMPLATE_TYPE_LOCAL_SEARCH_DETAIL.equals(readTemplateType(message))) {
+                LocalSearchDetailTemplate localSearchDetailTemplate =
+                        LOCAL_SEARCH_DETAIL_TEMPLATE_ADAPTER.fromJson(message.template);
                 return localSearchDetailTemplate != null ? Optional.of(localSearchDetailTemplate) : Optional.empty();
             }
             return Optional.empty();
@@ -133,14 +200,11 @@ public class TemplateRuntimeMessages {
      * @return BodyTemplate if available
      */
     public static Optional<BodyTemplate> parseBodyTemplate(@NonNull String json) {
-        Moshi moshi = new Moshi.Builder().build();
         try {
-            JSONObject messagePayload = new JSONObject(json);
-            messagePayload = new JSONObject(messagePayload.getString("payload"));
-
-            if (messagePayload.get("type").toString().startsWith(TemplateRuntimeConstants.TEMPLATE_TYPE_BODY)) {
-                BodyTemplateJsonAdapter jsonAdapter = new BodyTemplateJsonAdapter(moshi);
-                BodyTemplate bodyTemplate = jsonAdapter.fromJson(messagePayload.toString());
+            TemplateMessage message = readMessage(json);
+            String type = readTemplateType(message);
+            if (type != null && type.startsWith(TemplateRuntimeConstants.TEMPLATE_TYPE_BODY)) {
+                BodyTemplate bodyTemplate = BODY_TEMPLATE_ADAPTER.fromJson(message.template);
                 return bodyTemplate != null ? Optional.of(bodyTemplate) : Optional.empty();
             }
 
@@ -158,13 +222,10 @@ public class TemplateRuntimeMessages {
      * @return ListTemplate if available.
      */
     public static Optional<ListTemplate> parseListTemplate(@NonNull String json) {
-        Moshi moshi = new Moshi.Builder().build();
         try {
-            JSONObject messagePayload = new JSONObject(json);
-            messagePayload = new JSONObject(messagePayload.getString("payload"));
-            if (TemplateRuntimeConstants.TEMPLATE_TYPE_LIST.equals(messagePayload.get("type"))) {
-                ListTemplateJsonAdapter jsonAdapter = new ListTemplateJsonAdapter(moshi);
-                ListTemplate listTemplate = jsonAdapter.fromJson(messagePayload.toString());
+            TemplateMessage message = readMessage(json);
+            if (TemplateRuntimeConstants.TEMPLATE_TYPE_LIST.equals(readTemplateType(message))) {
+                ListTemplate listTemplate = LIST_TEMPLATE_ADAPTER.fromJson(message.template);
                 return listTemplate != null ? Optional.of(listTemplate) : Optional.empty();
             }
             return Optional.empty();
@@ -182,13 +243,84 @@ public class TemplateRuntimeMessages {
      */
     public static Optional<String> getTemplateType(@NonNull String json) {
         try {
-            JSONObject messagePayload = new JSONObject(json);
-            messagePayload = new JSONObject(messagePayload.getString("payload"));
-            String messageType = messagePayload.getString("type");
-            return messageType.isEmpty() ? Optional.empty() : Optional.of(messageType);
-        } catch (JSONException exception) {
+            String messageType = readTemplateType(readMessage(json));
+            return messageType == null || messageType.isEmpty() ? Optional.empty() : Optional.of(messageType);
+        } catch (IOException | RuntimeException exception) {
             Log.e(TAG, "Failed to get template type | exception: " + exception.getMessage());
             return Optional.empty();
         }
     }
+
+    /**
+     * Reads the fields of a message payload, skipping the other fields. The last read message payload is reused
+     * when the same payload is read again.
+     */
+    private static TemplateMessage readMessage(String json) throws IOException {
+        TemplateMessage message = sLastMessage;
+        // The receivers pass the same payload instance to every parse method, comparing the instance is enough
+        if (message != null && message.json == json) {
+            return message;
+        }
+
+        String template = null;
+        String audioPlayerState = null;
+        Integer offset = null;
+        String focusState = null;
+        try (JsonReader reader = JsonReader.of(new Buffer().writeUtf8(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                int field = reader.selectName(MESSAGE_FIELDS);
+                if (field == -1) {
+                    reader.skipName();
+                    reader.skipValue();
+                } else if (reader.peek() == JsonReader.Token.NULL) {
+                    reader.skipValue();
+                } else if (field == MESSAGE_PAYLOAD) {
+                    // The template is a JSON string, but may also be sent as a JSON object
+                    template = reader.peek() == JsonReader.Token.BEGIN_OBJECT
+                            ? MOSHI.adapter(Object.class).toJson(reader.readJsonValue())
+                            : reader.nextString();
+                } else if (field == MESSAGE_AUDIO_PLAYER_STATE) {
+                    audioPlayerState = reader.nextString();
+                } else if (field == MESSAGE_OFFSET) {
+                    offset = reader.nextInt();
+                } else if (field == MESSAGE_FOCUS_STATE) {
+                    focusState = reader.nextString();
+                }
+            }
+            reader.endObject();
+        }
+        if (template == null) {
+            throw new JsonDataException("No payload");
+        }
+
+        message = new TemplateMessage(json, template, audioPlayerState, offset, focusState);
+        sLastMessage = message;
+        return message;
+    }
+
+    /**
+     * Reads the type of the template of a message, skipping the other fields of the template without decoding them.
+     *
+     * @return the template type, or null if the template has no type.
+     */
+    private static String readTemplateType(TemplateMessage message) throws IOException {
+        if (message.templateType != null) {
+            return message.templateType;
+        }
+        try (JsonReader reader = JsonReader.of(new Buffer().writeUtf8(message.template))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.selectName(TEMPLATE_FIELDS) == 0 && reader.peek() == JsonReader.Token.STRING) {
+                    message.templateType = reader.nextString();
+                    return message.templateType;
+                }
+                if (reader.peek() == JsonReader.Token.NAME) {
+                    reader.skipName();
+                }
+                reader.skipValue();
+            }
+        }
+        return null;
+    }
 }
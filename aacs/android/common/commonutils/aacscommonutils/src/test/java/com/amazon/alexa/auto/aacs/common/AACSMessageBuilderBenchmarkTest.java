@@ -0,0 +1,124 @@
+package com.amazon.alexa.auto.aacs.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONObject;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Microbenchmark of {@link AACSMessageBuilder} against the previous implementation, which concatenated the header,
+ * parsed it, parsed the payload and serialized the whole message again. Reports ns/op and allocated bytes/op of the
+ * calling thread. The benchmark only runs when enabled with -Daacs.benchmark=true, the output comparison always runs.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AACSMessageBuilderBenchmarkTest {
+    private static final String TOPIC = "AudioPlayer";
+    private static final String ACTION = "OnPlaybackStateChanged";
+    private static final String PAYLOAD = "{\"channel\":\"AudioPlayer\",\"token\":\"" + UUID.randomUUID()
+            + "\",\"state\":\"PLAYING\",\"offset\":123456,\"metadata\":{\"title\":\"Title\",\"artist\":\"Artist\","
+            + "\"album\":\"Album\",\"duration\":240000,\"art\":[\"https://example.com/small.png\","
+            + "\"https://example.com/large.png\"]}}";
+    private static final String BENCHMARK_PROPERTY = "aacs.benchmark";
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int MEASURED_ITERATIONS = 50000;
+
+    private static class Result {
+        final double mNanosPerOp;
+        final double mBytesPerOp;
+
+        Result(double nanosPerOp, double bytesPerOp) {
+            mNanosPerOp = nanosPerOp;
+            mBytesPerOp = bytesPerOp;
+        }
+    }
+
+    @Test
+    public void benchmarkBuildMessage() {
+        Assume.assumeTrue("Benchmark not enabled with -D" + BENCHMARK_PROPERTY, Boolean.getBoolean(BENCHMARK_PROPERTY));
+        byte[] payloadBytes = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        Result legacy = measure(() -> legacyBuildMessage(TOPIC, ACTION, PAYLOAD));
+        Result streaming = measure(() -> AACSMessageBuilder.buildMessage(TOPIC, ACTION, PAYLOAD));
+        Result streamingBytes = measure(() -> AACSMessageBuilder.buildMessage(TOPIC, ACTION, payloadBytes));
+
+        report("legacy", legacy);
+        report("streaming", streaming);
+        report("streaming (bytes)", streamingBytes);
+        if (!Double.isNaN(legacy.mBytesPerOp)) {
+            assertTrue("Streaming builder should allocate less", streaming.mBytesPerOp < legacy.mBytesPerOp);
+        }
+    }
+
+    @Test
+    public void testStreamingOutputMatchesLegacyOutput() throws Exception {
+        JSONObject legacy = new JSONObject(legacyBuildMessage(TOPIC, ACTION, PAYLOAD).get());
+        JSONObject streaming = new JSONObject(AACSMessageBuilder.buildMessage(TOPIC, ACTION, PAYLOAD).get());
+
+        // The ids are unique per message
+        legacy.getJSONObject("header").remove("id");
+        streaming.getJSONObject("header").remove("id");
+        assertEquals(legacy.toString(), streaming.toString());
+    }
+
+    private static Result measure(Supplier<Optional<String>> operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            assertTrue(operation.get().isPresent());
+        }
+        long startBytes = allocatedBytes();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            operation.get();
+        }
+        long duration = System.nanoTime() - startTime;
+        long allocated = allocatedBytes() - startBytes;
+        return new Result((double) duration / MEASURED_ITERATIONS,
+                startBytes < 0 ? Double.NaN : (double) allocated / MEASURED_ITERATIONS);
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static void report(String name, Result result) {
+        System.out.println(String.format(
+                "AACSMessageBuilder %s: %.0f ns/op, %.0f bytes/op", name, result.mNanosPerOp, result.mBytesPerOp));
+    }
+
+    private static Optional<String> legacyBuildMessage(String topic, String action, String payload) {
+        String uniqueID = UUID.randomUUID().toString();
+        try {
+            String aasbMessage = "{\n"
+                    + "  \"header\" : {\n"
+                    + "    \"version\" : \"4.0\",\n"
+                    + "    \"messageType\" : \"Publish\",\n"
+                    + "    \"id\" : \"" + uniqueID + "\",\n"
+                    + "    \"messageDescription\" : {\n"
+                    + "      \"topic\" : \"" + topic + "\",\n"
+                    + "      \"action\" : \"" + action + "\"\n"
+                    + "    }\n"
+                    + "  }\n"
+                    + "}";
+            JSONObject msgObj = new JSONObject(aasbMessage);
+            if (payload != null && !payload.isEmpty()) {
+                msgObj.put("payload", new JSONObject(payload));
+            }
+            return Optional.of(msgObj.toString());
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+}
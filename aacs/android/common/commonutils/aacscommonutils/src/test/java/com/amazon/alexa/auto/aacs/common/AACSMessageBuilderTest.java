@@ -1,6 +1,7 @@
 package com.amazon.alexa.auto.aacs.common;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import android.content.Intent;
@@ -11,6 +12,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 
 @RunWith(RobolectricTestRunner.class)
@@ -68,6 +70,31 @@ public class AACSMessageBuilderTest {
         assertEquals(payload, message.get().payload);
     }
 
+    @Test
+    public void testCanBuildMessageFromPayloadBytes() {
+        String payload = "{\"test\":\"caf\u00e9\"}";
+        Optional<String> message = AACSMessageBuilder.buildMessage(
+                "topic", "action", payload.getBytes(StandardCharsets.UTF_8));
+        assertTrue(message.isPresent());
+
+        Optional<AACSMessage> parsedMessage = AACSMessageBuilder.parseMessage(message.get());
+        assertTrue(parsedMessage.isPresent());
+        assertEquals(payload, parsedMessage.get().payload);
+    }
+
+    @Test
+    public void testHeaderValuesAreEscaped() {
+        String topic = "to\"pic";
+        String action = "act\\ion\n";
+        testSimpleMessage(topic, action, null);
+    }
+
+    @Test
+    public void testPayloadMustBeJsonObject() {
+        assertFalse(AACSMessageBuilder.buildMessage("topic", "action", "[1, 2]").isPresent());
+        assertFalse(AACSMessageBuilder.buildReplyMessage("id", "topic", "action", "test").isPresent());
+    }
+
     private void testSimpleMessage(@NonNull String topic, @NonNull String action, String payload) {
         Optional<String> message = AACSMessageBuilder.buildMessage(topic, action, payload);
         assertTrue(message.isPresent());
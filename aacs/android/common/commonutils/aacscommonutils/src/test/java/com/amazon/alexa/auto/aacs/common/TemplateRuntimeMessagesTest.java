@@ -1,5 +1,8 @@
 package com.amazon.alexa.auto.aacs.common;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import com.amazon.alexa.auto.aacs.common.navi.LocalSearchDetailTemplate;
@@ -44,4 +47,51 @@ public class TemplateRuntimeMessagesTest {
                 TemplateRuntimeMessages.parseLocalSearchDetailTemplate(localSearchDetailTemplateJson.get());
         assertTrue(localSearchDetailTemplate.isPresent());
     }
+
+    @Test
+    public void testParseRenderPlayerInfoReusesUnchangedTemplate() {
+        Optional<String> renderInfoJson =
+                TestResourceFileReader.readFileContent("aacs/TemplateRuntimePlayerRenderInfo.json");
+        assertTrue(renderInfoJson.isPresent());
+
+        RenderPlayerInfo stopped = TemplateRuntimeMessages.parseRenderPlayerInfo(renderInfoJson.get()).get();
+        assertEquals("STOPPED", stopped.getAudioPlayerState());
+        assertEquals("FOREGROUND", stopped.getFocusState());
+        assertEquals(169313, stopped.getOffset());
+        assertEquals("Sia", stopped.getPayload().getContent().getHeader());
+
+        String playingJson = renderInfoJson.get()
+                                     .replace("\"STOPPED\"", "\"PLAYING\"")
+                                     .replace("\"offset\":169313", "\"offset\":170313");
+        RenderPlayerInfo playing = TemplateRuntimeMessages.parseRenderPlayerInfo(playingJson).get();
+        assertEquals("PLAYING", playing.getAudioPlayerState());
+        assertEquals(170313, playing.getOffset());
+        assertSame(stopped.getPayload(), playing.getPayload());
+    }
+
+    @Test
+    public void testParseRenderPlayerInfoWithoutPlayerState() {
+        assertFalse(TemplateRuntimeMessages.parseRenderPlayerInfo("{\"payload\":\"{}\"}").isPresent());
+    }
+
+    @Test
+    public void testParseBodyTemplate() {
+        String json = "{\"focusState\":\"FOREGROUND\",\"payload\":\"{\\\"token\\\":\\\"token\\\","
+                + "\\\"title\\\":{\\\"mainTitle\\\":\\\"Who is Alexa\\\",\\\"type\\\":\\\"title\\\"},"
+                + "\\\"textField\\\":\\\"Alexa is a cloud based voice service\\\","
+                + "\\\"type\\\":\\\"BodyTemplate1\\\"}\"}";
+
+        assertEquals(Optional.of("BodyTemplate1"), TemplateRuntimeMessages.getTemplateType(json));
+        Optional<BodyTemplate> bodyTemplate = TemplateRuntimeMessages.parseBodyTemplate(json);
+        assertTrue(bodyTemplate.isPresent());
+        assertEquals("Who is Alexa", bodyTemplate.get().getTitle().getMainTitle());
+        assertFalse(TemplateRuntimeMessages.parseListTemplate(json).isPresent());
+    }
+
+    @Test
+    public void testGetTemplateTypeOfInvalidPayload() {
+        assertFalse(TemplateRuntimeMessages.getTemplateType("{\"payload\":\"{}\"}").isPresent());
+        assertFalse(TemplateRuntimeMessages.getTemplateType("{}").isPresent());
+        assertFalse(TemplateRuntimeMessages.getTemplateType("not json").isPresent());
+    }
 }
@@ -26,6 +26,9 @@ public class Action {
 
     public static class AddressBook {
         public static final String ADD_ADDRESS_BOOK = "AddAddressBook";
+        public static final String BEGIN_ADDRESS_BOOK = "BeginAddressBook";
+        public static final String APPEND_ADDRESS_BOOK_CHUNK = "AppendAddressBookChunk";
+        public static final String COMMIT_ADDRESS_BOOK = "CommitAddressBook";
         public static final String REMOVE_ADDRESS_BOOK = "RemoveAddressBook";
     }
 
@@ -35,6 +35,7 @@ public class Topic {
     public static final String NOTIFICATIONS = "Notifications";
     public static final String PLAYBACK_CONTROLLER = "PlaybackController";
     public static final String SPEECH_RECOGNIZER = "SpeechRecognizer";
+    public static final String SPEECH_SYNTHESIZER = "SpeechSynthesizer";
     public static final String TEMPLATE_RUNTIME = "TemplateRuntime";
     public static final String APL = "APL";
     public static final String AUDIO_INPUT = "AudioInput";
@@ -44,6 +45,7 @@ public class Topic {
     public static final String CUSTOM_DOMAIN = "CustomDomain";
     public static final String ALEXA_CONNECTIVITY = "AlexaConnectivity";
     public static final String LOCATION_PROVIDER = "LocationProvider";
+    public static final String LOGGER = "Logger";
     public static final String MEDIA_PLAYBACK_REQUESTER = "MediaPlaybackRequestor";
     public static final String MESSAGING = "Messaging";
     public static final String NAVIGATION = "Navigation";
@@ -17,41 +17,201 @@ package com.amazon.alexaautoclientservice;
 
 import static java.lang.System.currentTimeMillis;
 
+import android.os.SystemClock;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.amazon.aacsconstants.AACSConstants;
 import com.amazon.aacsconstants.AASBConstants;
 import com.amazon.aacsconstants.Action;
+import com.amazon.alexaautoclientservice.util.AASBTrace;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.FileWriter;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Logs AASB messages to a file for instrumentation.
+ *
+ * Messages are put on a bounded queue and written by a single writer thread, in batches, so logging never blocks the
+ * thread handling the messages. Messages that do not fit in the queue are dropped and counted. The log file is
+ * rotated when it reaches the maximum size: the rotated segments are named after the log file with the suffixes
+ * ".1" (the most recent) to ".&lt;retention count&gt;", and are optionally compressed with gzip. A log file left
+ * by a previous start is rotated the same way before logging starts. Every segment is a complete JSON array.
+ *
+ * Optionally the complete messages and the stream data are also recorded in an {@link AASBTrace} file, which the
+ * unit test harness can replay offline. The trace records dropped from the queue are recorded as a gap at the time
+ * of the next record written, so the replay reports them.
+ */
 public class AACSMessageLogger {
     private final String TAG = AACSConstants.AACS + "-" + AACSMessageLogger.class.getSimpleName();
-    private HashMap<String, String> mReplyMessageIdActionMap;
-    private HashSet<String> mReplyActionList;
-    private HashMap<String, Long> mReplyMessageTimeMap;
-    private String mFileLocation;
     public static final String FROM_ENGINE = "FROM_ENGINE";
     public static final String TO_ENGINE = "TO_ENGINE";
+    public static final long DEFAULT_MAX_FILE_SIZE = 8 * 1024 * 1024;
+    public static final int DEFAULT_RETENTION_COUNT = 4;
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final int WRITER_BUFFER_SIZE = 64 * 1024;
+    private static final String SEGMENT_START = "[";
+    private static final String SEGMENT_END = "{}]";
+    private static final String COMPRESSED_SUFFIX = ".gz";
     private final int sTimeout = 500;
     private final SimpleDateFormat sTimeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.getDefault());
 
-    public AACSMessageLogger() {
+    private static final AACSMessageLogger sInstance = new AACSMessageLogger();
+
+    /**
+     * A message, or a start or stop of the logging, waiting for the writer thread.
+     */
+    private static class Record {
+        final String mDirection;
+        final String mTopic;
+        final String mAction;
+        final String mPayload;
+        final String mMessageId;
+        final String mReplyToId;
+        final long mTimeMillis;
+
+        Record(String direction, String topic, String action, String payload, String messageId, String replyToId,
+                long timeMillis) {
+            mDirection = direction;
+            mTopic = topic;
+            mAction = action;
+            mPayload = payload;
+            mMessageId = messageId;
+            mReplyToId = replyToId;
+            mTimeMillis = timeMillis;
+        }
+    }
+
+    private static class StartRecord extends Record {
+        final String mFileLocation;
+        final long mMaxFileSize;
+        final int mRetentionCount;
+        final boolean mCompress;
+
+        StartRecord(String fileLocation, long maxFileSize, int retentionCount, boolean compress) {
+            super(null, null, null, null, null, null, 0);
+            mFileLocation = fileLocation;
+            mMaxFileSize = maxFileSize;
+            mRetentionCount = retentionCount;
+            mCompress = compress;
+        }
+    }
+
+    private static class TraceStartRecord extends Record {
+        final String mFileLocation;
+        // Trace records dropped before the trace started, not part of its gaps
+        final long mDroppedTraceCount;
+
+        TraceStartRecord(String fileLocation, long droppedTraceCount) {
+            super(null, null, null, null, null, null, 0);
+            mFileLocation = fileLocation;
+            mDroppedTraceCount = droppedTraceCount;
+        }
+    }
+
+    /**
+     * A message or stream data to record in the trace.
+     */
+    private static class TraceRecord extends Record {
+        final boolean mToEngine;
+        final String mStreamId;
+        final byte[] mData;
+        final String mMessage;
+        final long mTimeUs;
+
+        TraceRecord(boolean toEngine, String streamId, byte[] data, String message, long timeUs) {
+            super(null, null, null, null, null, null, 0);
+            mToEngine = toEngine;
+            mStreamId = streamId;
+            mData = data;
+            mMessage = message;
+            mTimeUs = timeUs;
+        }
+    }
+
+    /**
+     * Signals the waiting thread once the records queued before it are written.
+     */
+    private static class FlushRecord extends Record {
+        final CountDownLatch mWritten = new CountDownLatch(1);
+
+        FlushRecord() {
+            super(null, null, null, null, null, null, 0);
+        }
+    }
+
+    private static final Record STOP_RECORD = new Record(null, null, null, null, null, null, 0);
+
+    private final BlockingQueue<Record> mQueue;
+    private final ThreadFactory mWriterThreadFactory;
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private final AtomicLong mDroppedTraceCount = new AtomicLong();
+    private Thread mWriterThread;
+    private volatile boolean mStarted;
+    private volatile boolean mTracing;
+
+    // Only accessed on the writer thread
+    private HashSet<String> mReplyActionList;
+    private HashMap<String, String> mReplyMessageIdActionMap;
+    private HashMap<String, Long> mReplyMessageTimeMap;
+    private StartRecord mConfig;
+    private Writer mWriter;
+    private AASBTrace.Writer mTraceWriter;
+    private String mTraceFileLocation;
+    // Dropped trace records already written to the trace as gaps
+    private long mTracedDroppedCount;
+    private long mFileSize;
+    private long mReportedDroppedCount;
+
+    public static AACSMessageLogger getInstance() {
+        return sInstance;
+    }
+
+    private AACSMessageLogger() {
+        this(QUEUE_CAPACITY, runnable -> {
+            Thread thread = new Thread(runnable, "AACSMessageLogger");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    @VisibleForTesting
+    AACSMessageLogger(int queueCapacity, @NonNull ThreadFactory writerThreadFactory) {
+        mQueue = new ArrayBlockingQueue<>(queueCapacity);
+        mWriterThreadFactory = writerThreadFactory;
+
         // Init HashSet to store all actions that need response
-        String[] replyList = {Action.AddressBook.ADD_ADDRESS_BOOK, Action.AddressBook.REMOVE_ADDRESS_BOOK,
+        String[] replyList = {Action.AddressBook.ADD_ADDRESS_BOOK, Action.AddressBook.COMMIT_ADDRESS_BOOK,
+                Action.AddressBook.REMOVE_ADDRESS_BOOK,
                 Action.AlexaConnectivity.CONNECTIVITY_STATE_CHANGE, Action.AlexaConnectivity.GET_CONNECTIVITY_STATE,
                 Action.AlexaConnectivity.GET_IDENTIFIER, Action.AudioOutput.GET_DURATION,
                 Action.AudioOutput.GET_NUM_BYTES_BUFFERED, Action.AudioOutput.GET_POSITION,
@@ -74,30 +234,194 @@ public class AACSMessageLogger {
         mReplyMessageTimeMap = new HashMap<>();
     }
 
-    public void setLogFileLocation(String filePath) {
-        mFileLocation = filePath;
+    /**
+     * Starts logging to the given file, closing the current log file if logging is already started.
+     *
+     * @param filePath the log file.
+     * @param maxFileSize the size in bytes at which the log file is rotated.
+     * @param retentionCount the number of rotated segments that are kept.
+     * @param compress true to compress the rotated segments.
+     */
+    public synchronized void start(@NonNull String filePath, long maxFileSize, int retentionCount, boolean compress) {
+        startWriterThread();
+        enqueueControl(new StartRecord(filePath, maxFileSize, Math.max(retentionCount, 0), compress));
+        mStarted = true;
+    }
+
+    /**
+     * Starts recording a trace to the given file, closing the current trace if one is already recorded. The trace is
+     * compressed if the file name ends with ".gz". The trace is not rotated.
+     */
+    public synchronized void startTrace(@NonNull String filePath) {
+        startWriterThread();
+        enqueueControl(new TraceStartRecord(filePath, mDroppedTraceCount.get()));
+        mTracing = true;
+    }
+
+    /**
+     * Writes the messages still in the queue and closes the log and trace files.
+     */
+    public synchronized void stop() {
+        if (mStarted || mTracing) {
+            mStarted = false;
+            mTracing = false;
+            enqueueControl(STOP_RECORD);
+        }
+    }
+
+    private void startWriterThread() {
+        if (mWriterThread == null) {
+            mWriterThread = mWriterThreadFactory.newThread(this::writeRecords);
+            mWriterThread.start();
+        }
+    }
+
+    /**
+     * Waits until the records queued so far are written and flushed.
+     */
+    @VisibleForTesting
+    void awaitWritten() throws InterruptedException {
+        if (mWriterThread == null) {
+            return;
+        }
+        FlushRecord record = new FlushRecord();
+        enqueueControl(record);
+        record.mWritten.await();
+    }
+
+    /**
+     * @return the number of messages and trace records dropped because the queue was full.
+     */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
     }
 
     public void buffer(String direction, String topic, String action, String payload, @Nullable String messageId,
             @Nullable String replyToId) {
+        if (!mStarted) {
+            return;
+        }
+        // The message is serialized on the writer thread
+        enqueue(new Record(direction, topic, action, payload, messageId, replyToId, currentTimeMillis()));
+    }
+
+    /**
+     * Records a complete AASB message in the trace.
+     */
+    public void traceMessage(boolean toEngine, @NonNull String message) {
+        if (mTracing) {
+            enqueue(new TraceRecord(toEngine, null, null, message, SystemClock.elapsedRealtimeNanos() / 1000));
+        }
+    }
+
+    /**
+     * Records data of a stream in the trace. The data is copied.
+     */
+    public void traceStream(boolean toEngine, @NonNull String streamId, @NonNull byte[] data, int offset, int length) {
+        if (mTracing) {
+            enqueue(new TraceRecord(toEngine, streamId, Arrays.copyOfRange(data, offset, offset + length), null,
+                    SystemClock.elapsedRealtimeNanos() / 1000));
+        }
+    }
+
+    private void enqueue(Record record) {
+        if (!mQueue.offer(record)) {
+            mDroppedCount.incrementAndGet();
+            if (record instanceof TraceRecord) {
+                mDroppedTraceCount.incrementAndGet();
+            }
+        }
+    }
+
+    private void enqueueControl(Record record) {
+        // Start and stop must not be dropped, wait for the writer to make room
+        try {
+            mQueue.put(record);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.e(TAG, "Interrupted while starting or stopping message logging");
+        }
+    }
+
+    private void writeRecords() {
+        List<Record> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (true) {
+            try {
+                batch.add(mQueue.take());
+            } catch (InterruptedException e) {
+                Log.w(TAG, "Message logger interrupted");
+                closeLogFile();
+                closeTraceFile();
+                return;
+            }
+            mQueue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            for (Record record : batch) {
+                if (record == STOP_RECORD) {
+                    closeLogFile();
+                    closeTraceFile();
+                } else if (record instanceof StartRecord) {
+                    closeLogFile();
+                    mConfig = (StartRecord) record;
+                    // Appending to the log of a previous start would not be valid JSON
+                    if (new File(mConfig.mFileLocation).length() > 0) {
+                        rotateSegments();
+                    }
+                    openLogFile();
+                } else if (record instanceof TraceStartRecord) {
+                    closeTraceFile();
+                    openTraceFile((TraceStartRecord) record);
+                } else if (record instanceof FlushRecord) {
+                    flush();
+                    ((FlushRecord) record).mWritten.countDown();
+                } else if (record instanceof TraceRecord) {
+                    writeTraceRecord((TraceRecord) record);
+                } else {
+                    writeRecord(record);
+                }
+            }
+            batch.clear();
+            flush();
+        }
+    }
+
+    private void writeRecord(Record record) {
+        if (mWriter == null) {
+            return;
+        }
+        String entry = toJson(record).toString() + ",\n";
+        try {
+            mWriter.write(entry);
+        } catch (IOException e) {
+            Log.e(TAG, "Error Writing Log entry to file: ", e);
+            return;
+        }
+        // Log entries are almost always ASCII, the length is a close enough estimate of the size
+        mFileSize += entry.length();
+        if (mFileSize >= mConfig.mMaxFileSize) {
+            rotate();
+        }
+    }
+
+    private JSONObject toJson(Record record) {
         JSONObject logJSON = new JSONObject();
-        Date currentTime = Calendar.getInstance().getTime();
-        Long currentTimeMill = currentTimeMillis();
+        String action = record.mAction;
+        String messageId = record.mMessageId;
+        String replyToId = record.mReplyToId;
         try {
-            logJSON.put("timeStamp", sTimeFormat.format(currentTime));
-            logJSON.put("MessageDirection", direction);
-            logJSON.put("topic", topic);
+            logJSON.put("timeStamp", sTimeFormat.format(new Date(record.mTimeMillis)));
+            logJSON.put("MessageDirection", record.mDirection);
+            logJSON.put("topic", record.mTopic);
             logJSON.put("action", action);
 
             // Add MessageId to hashMap when topic is expected to have a reply
             if (mReplyActionList.contains(action) && messageId != null && replyToId.isEmpty()) {
                 mReplyMessageIdActionMap.put(messageId, action);
-                mReplyMessageTimeMap.put(messageId, currentTimeMill);
+                mReplyMessageTimeMap.put(messageId, record.mTimeMillis);
                 logJSON.put("replyExpected", true);
             } else if (mReplyActionList.contains(action) && messageId != null && !replyToId.isEmpty()) {
                 // Remove MessageId and Log the ReplyToId when expected message reply received
                 if (mReplyMessageIdActionMap.containsKey(replyToId) && mReplyMessageTimeMap.containsKey(replyToId)) {
-                    if (currentTimeMill - mReplyMessageTimeMap.get(replyToId) <= sTimeout) {
+                    if (record.mTimeMillis - mReplyMessageTimeMap.get(replyToId) <= sTimeout) {
                         logJSON.put("replyReceivedTimeout", false);
                     } else {
                         logJSON.put("replyReceivedTimeout", true);
@@ -113,8 +437,8 @@ public class AACSMessageLogger {
                 // Log regular messageId
                 logJSON.put("messageId", messageId);
             }
-            if (payload != null && !payload.isEmpty()) {
-                logJSON.put(AASBConstants.PAYLOAD, new JSONObject(payload).toString());
+            if (record.mPayload != null && !record.mPayload.isEmpty()) {
+                logJSON.put(AASBConstants.PAYLOAD, new JSONObject(record.mPayload).toString());
             } else {
                 logJSON.put(AASBConstants.PAYLOAD, "None");
             }
@@ -122,13 +446,169 @@ public class AACSMessageLogger {
         } catch (JSONException e) {
             Log.e(TAG, "Error creating instrumentation JSON: ", e);
         }
+        return logJSON;
+    }
 
+    private void openLogFile() {
+        File file = new File(mConfig.mFileLocation);
         try {
-            FileWriter logFile = new FileWriter(mFileLocation, true);
-            logFile.write(logJSON.toString() + ",\n");
-            logFile.close();
+            mWriter = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), WRITER_BUFFER_SIZE);
+            mWriter.write(SEGMENT_START);
+            mFileSize = SEGMENT_START.length();
         } catch (IOException e) {
-            Log.e(TAG, "Error Writing Log entry to file: ", e);
+            Log.e(TAG, "Error opening log file " + mConfig.mFileLocation, e);
+            mWriter = null;
+        }
+    }
+
+    private void closeLogFile() {
+        if (mWriter == null) {
+            return;
+        }
+        try {
+            mWriter.write(SEGMENT_END);
+            mWriter.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing log file " + mConfig.mFileLocation, e);
+        }
+        mWriter = null;
+        reportDroppedMessages();
+    }
+
+    private void flush() {
+        if (mTraceWriter != null) {
+            try {
+                mTraceWriter.flush();
+            } catch (IOException e) {
+                Log.e(TAG, "Error flushing trace file " + mTraceFileLocation, e);
+            }
+        }
+        if (mWriter == null) {
+            return;
+        }
+        try {
+            mWriter.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "Error flushing log file " + mConfig.mFileLocation, e);
+        }
+        reportDroppedMessages();
+    }
+
+    private void openTraceFile(TraceStartRecord record) {
+        String fileLocation = record.mFileLocation;
+        mTraceFileLocation = fileLocation;
+        mTracedDroppedCount = record.mDroppedTraceCount;
+        try {
+            mTraceWriter = AASBTrace.create(new File(fileLocation), currentTimeMillis());
+        } catch (IOException e) {
+            Log.e(TAG, "Error opening trace file " + fileLocation, e);
+            mTraceWriter = null;
+        }
+    }
+
+    private void writeTraceRecord(TraceRecord record) {
+        if (mTraceWriter == null) {
+            return;
+        }
+        try {
+            writeTraceGap(record.mTimeUs);
+            if (record.mStreamId == null) {
+                mTraceWriter.writeMessage(record.mToEngine, record.mMessage, record.mTimeUs);
+            } else {
+                mTraceWriter.writeStreamData(
+                        record.mToEngine, record.mStreamId, record.mData, 0, record.mData.length, record.mTimeUs);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing trace file " + mTraceFileLocation, e);
+            closeTraceFile();
+        }
+    }
+
+    private void closeTraceFile() {
+        if (mTraceWriter == null) {
+            return;
+        }
+        try {
+            writeTraceGap(SystemClock.elapsedRealtimeNanos() / 1000);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing trace file " + mTraceFileLocation, e);
+        }
+        try {
+            mTraceWriter.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing trace file " + mTraceFileLocation, e);
+        }
+        mTraceWriter = null;
+    }
+
+    /**
+     * Writes a gap for the trace records dropped since the last gap, if any.
+     */
+    private void writeTraceGap(long timeUs) throws IOException {
+        long droppedCount = mDroppedTraceCount.get();
+        if (droppedCount != mTracedDroppedCount) {
+            mTraceWriter.writeGap(droppedCount - mTracedDroppedCount, timeUs);
+            mTracedDroppedCount = droppedCount;
+        }
+    }
+
+    private void reportDroppedMessages() {
+        long droppedCount = mDroppedCount.get();
+        if (droppedCount != mReportedDroppedCount) {
+            Log.w(TAG, String.format("%d messages dropped since logging started, the writer cannot keep up",
+                    droppedCount));
+            mReportedDroppedCount = droppedCount;
+        }
+    }
+
+    private void rotate() {
+        closeLogFile();
+        rotateSegments();
+        openLogFile();
+    }
+
+    private void rotateSegments() {
+        String suffix = mConfig.mCompress ? COMPRESSED_SUFFIX : "";
+        String location = mConfig.mFileLocation;
+        if (mConfig.mRetentionCount == 0) {
+            deleteFile(new File(location));
+        } else {
+            deleteFile(new File(location + "." + mConfig.mRetentionCount + suffix));
+            for (int i = mConfig.mRetentionCount - 1; i >= 1; i--) {
+                File segment = new File(location + "." + i + suffix);
+                if (segment.exists() && !segment.renameTo(new File(location + "." + (i + 1) + suffix))) {
+                    Log.w(TAG, "Failed to rotate " + segment);
+                }
+            }
+            File rotated = new File(location + ".1");
+            if (!new File(location).renameTo(rotated)) {
+                Log.w(TAG, "Failed to rotate " + location);
+            } else if (mConfig.mCompress) {
+                compress(rotated, new File(rotated.getPath() + COMPRESSED_SUFFIX));
+            }
+        }
+    }
+
+    private void compress(File source, File destination) {
+        byte[] buffer = new byte[WRITER_BUFFER_SIZE];
+        try (InputStream input = new FileInputStream(source);
+                OutputStream output = new GZIPOutputStream(new FileOutputStream(destination))) {
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                output.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error compressing " + source, e);
+            deleteFile(destination);
+            return;
+        }
+        deleteFile(source);
+    }
+
+    private void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Failed to delete " + file);
         }
     }
 }
@@ -19,4 +19,8 @@ public class MessageLoggerConstants {
     public static final String START_INSTRUMENTATION = "com.amazon.aacs.startinstrumentation";
     public static final String STOP_INSTRUMENTATION = "com.amazon.aacs.stopinstrumentation";
     public static final String LOG_FILE_LOCATION = "fileLocation";
+    public static final String LOG_MAX_FILE_SIZE = "maxFileSize";
+    public static final String LOG_RETENTION_COUNT = "retentionCount";
+    public static final String LOG_COMPRESS = "compress";
+    public static final String TRACE_FILE_LOCATION = "traceFileLocation";
 }
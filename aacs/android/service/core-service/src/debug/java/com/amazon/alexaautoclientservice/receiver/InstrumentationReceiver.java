@@ -23,11 +23,9 @@ import android.content.Intent;
 import android.util.Log;
 
 import com.amazon.aacsconstants.AACSConstants;
+import com.amazon.alexaautoclientservice.AACSMessageLogger;
 import com.amazon.alexaautoclientservice.constants.MessageLoggerConstants;
 
-import java.io.FileWriter;
-import java.io.IOException;
-
 public class InstrumentationReceiver extends BroadcastReceiver {
     private final String TAG = AACSConstants.AACS + "-" + InstrumentationReceiver.class.getSimpleName();
     public static boolean mIsLogEnabled;
@@ -50,22 +48,20 @@ public class InstrumentationReceiver extends BroadcastReceiver {
             } else {
                 mFileLocation = "/sdcard/" + currentTimeMill.toString() + ".log";
             }
-            try {
-                FileWriter logFile = new FileWriter(mFileLocation, true);
-                logFile.write("[");
-                logFile.close();
-            } catch (IOException e) {
-                Log.e(TAG, "Error Writing Log entry to file: ", e);
+            long maxFileSize = intent.getLongExtra(
+                    MessageLoggerConstants.LOG_MAX_FILE_SIZE, AACSMessageLogger.DEFAULT_MAX_FILE_SIZE);
+            int retentionCount = intent.getIntExtra(
+                    MessageLoggerConstants.LOG_RETENTION_COUNT, AACSMessageLogger.DEFAULT_RETENTION_COUNT);
+            boolean compress = intent.getBooleanExtra(MessageLoggerConstants.LOG_COMPRESS, false);
+            AACSMessageLogger.getInstance().start(mFileLocation, maxFileSize, retentionCount, compress);
+            if (intent.hasExtra(MessageLoggerConstants.TRACE_FILE_LOCATION)) {
+                String traceFileLocation = intent.getStringExtra(MessageLoggerConstants.TRACE_FILE_LOCATION);
+                Log.i(TAG, "TraceFileLocation: " + traceFileLocation);
+                AACSMessageLogger.getInstance().startTrace(traceFileLocation);
             }
         } else if (MessageLoggerConstants.STOP_INSTRUMENTATION.equals(intent.getAction())) {
-            try {
-                FileWriter logFile = new FileWriter(mFileLocation, true);
-                logFile.write("{}]");
-                logFile.close();
-            } catch (IOException e) {
-                Log.e(TAG, "Error Writing Log entry to file: ", e);
-            }
             mIsLogEnabled = false;
+            AACSMessageLogger.getInstance().stop();
         }
     }
 }
@@ -77,7 +77,7 @@ public class AACSPropertyContentProvider extends ContentProvider {
     public static void updatePropertyAndNotifyObservers(String name, String value, boolean updated) {
         if (updated) {
             mPreferences.edit().putString(name, value).apply();
-            mContext.getContentResolver().notifyChange(Uri.parse("content://" + AACSConstants.AACS_PROPERTY_URI), null);
+            notifyPropertyChanged(name);
         }
         if (mUpdatePropertyToFutureMap != null && mUpdatePropertyToFutureMap.containsKey(name)) {
             mUpdatePropertyToFutureMap.get(name).complete(updated);
@@ -88,7 +88,16 @@ public class AACSPropertyContentProvider extends ContentProvider {
 
     public static void updatePropertyAndNotifyObservers(String name, String value) {
         mPreferences.edit().putString(name, value).apply();
-        mContext.getContentResolver().notifyChange(Uri.parse("content://" + AACSConstants.AACS_PROPERTY_URI), null);
+        notifyPropertyChanged(name);
+    }
+
+    /**
+     * Notifies the change on the uri of the property, so observers of the provider uri that observe its
+     * descendants know which property changed.
+     */
+    private static void notifyPropertyChanged(String name) {
+        Uri uri = Uri.withAppendedPath(Uri.parse("content://" + AACSConstants.AACS_PROPERTY_URI), name);
+        mContext.getContentResolver().notifyChange(uri, null);
     }
 
     /**
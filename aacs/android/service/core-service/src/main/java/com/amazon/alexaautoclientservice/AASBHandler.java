@@ -46,6 +46,7 @@ import com.amazon.alexaautoclientservice.modules.audioInput.AudioInputMessageHan
 import com.amazon.alexaautoclientservice.modules.audioOutput.AudioOutputMessageHandler;
 import com.amazon.alexaautoclientservice.modules.customDomain.CustomDomainMessageDispatcher;
 import com.amazon.alexaautoclientservice.receiver.InstrumentationReceiver;
+import com.amazon.alexaautoclientservice.util.AASBMessageScheduler;
 import com.amazon.alexaautoclientservice.util.AASBUtil;
 import com.amazon.alexaautoclientservice.util.FileUtil;
 import com.amazon.alexaautoclientservice.util.PropertyUtil;
@@ -55,6 +56,7 @@ import org.json.JSONObject;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class AASBHandler {
     private static final String TAG = AACSConstants.AACS + "-" + AASBHandler.class.getSimpleName();
@@ -67,14 +69,16 @@ public class AASBHandler {
     private AudioInputFocusManager mAudioInputFocusManager;
     private AlexaClientMessageHandler mAlexaClient;
     private CustomDomainMessageDispatcher mCustomDomainMessageDispatcher;
+    private AASBMessageScheduler mMessageScheduler;
     private HashMap<String, String> mAudioInputStreamMap;
-    private long mCachedBufferedBytes;
+    private volatile long mCachedBufferedBytes;
     private static AACSMessageLogger mAACSMessageLogger;
 
     public AASBHandler(@NonNull Context context, @NonNull MessageBroker messageBroker) {
         mContext = context;
         int cacheCapacity = FileUtil.getIPCCacheCapacity();
 
+        mMessageScheduler = AASBMessageScheduler.create(FileUtil.getAASBMessageSchedulerConfiguration());
         mMessageBroker = messageBroker;
         mMessageBroker.subscribe(this::messageReceived, "*", "*");
 
@@ -85,7 +89,7 @@ public class AASBHandler {
         mAudioInput = new AudioInputMessageHandler(context, mAACSSender, mAudioInputFocusManager);
         mAudioInputStreamMap = new HashMap<>();
         if (BuildConfig.DEBUG) {
-            mAACSMessageLogger = new AACSMessageLogger();
+            mAACSMessageLogger = AACSMessageLogger.getInstance();
         }
 
         if (FileUtil.isDefaultImplementationEnabled(FileUtil.AACS_CONFIG_CUSTOM_DOMAIN_MESSAGE_DISPATCHER)) {
@@ -121,10 +125,9 @@ public class AASBHandler {
             }
 
             String messageId = aasbMessage.getJSONObject(AASBConstants.HEADER).getString(AASBConstants.ID);
-            String payload = "";
-            if (aasbMessage.has(AASBConstants.PAYLOAD) && !aasbMessage.isNull(AASBConstants.PAYLOAD)) {
-                payload = aasbMessage.getJSONObject(AASBConstants.PAYLOAD).toString();
-            }
+            String payload = aasbMessage.has(AASBConstants.PAYLOAD) && !aasbMessage.isNull(AASBConstants.PAYLOAD)
+                    ? aasbMessage.getJSONObject(AASBConstants.PAYLOAD).toString()
+                    : "";
 
             if (!action.equals(Action.AudioOutput.GET_NUM_BYTES_BUFFERED)) {
                 Log.v(TAG, String.format("Receiving AASBMessage: Topic: %s, Action: %s", topic, action));
@@ -132,7 +135,6 @@ public class AASBHandler {
 
             if (BuildConfig.DEBUG) {
                 if (InstrumentationReceiver.mIsLogEnabled && !message.isEmpty()) {
-                    mAACSMessageLogger.setLogFileLocation(InstrumentationReceiver.mFileLocation);
                     if (isToEngine) {
                         mAACSMessageLogger.buffer(
                                 AACSMessageLogger.TO_ENGINE, topic, action, payload, messageId, replyToId);
@@ -140,13 +142,21 @@ public class AASBHandler {
                         mAACSMessageLogger.buffer(
                                 AACSMessageLogger.FROM_ENGINE, topic, action, payload, messageId, replyToId);
                     }
+                    mAACSMessageLogger.traceMessage(isToEngine, message);
                 }
             }
-            if (isToEngine) {
+            if (isToEngine && !replyToId.isEmpty()) {
+                // The Engine waits for the reply synchronously, so it does not wait behind the messages of its topic
                 publishMessage(messageId, topic, action, payload, message);
-            } else {
-                sendDirective(messageId, topic, action, payload, message);
+                return;
             }
+            mMessageScheduler.schedule(topic, () -> {
+                if (isToEngine) {
+                    publishMessage(messageId, topic, action, payload, message);
+                } else {
+                    sendDirective(messageId, topic, action, payload, message);
+                }
+            });
 
         } catch (Exception e) {
             Log.e(TAG, String.format("Failed to handle AASB message: %s. Exception: %s", message, e.getMessage()));
@@ -249,11 +259,15 @@ public class AASBHandler {
         publish("", topic, action, payload);
     }
 
+    /**
+     * Publishes a message of AACS to the Engine. The message is scheduled after the messages of its topic received
+     * so far, except a reply, which is published immediately as the Engine waits for it synchronously.
+     */
     public void publish(
             @NonNull String replyToId, @NonNull String topic, @NonNull String action, @NonNull String payload) {
-        Pair<String, String> messageWithID = AASBUtil.constructAASBMessageReturnID(replyToId,
-                removePackageNameFromString(mContext.getPackageName(), topic),
-                removePackageNameFromString(mContext.getPackageName(), action), payload);
+        String aasbTopic = removePackageNameFromString(mContext.getPackageName(), topic);
+        Pair<String, String> messageWithID = AASBUtil.constructAASBMessageReturnID(
+                replyToId, aasbTopic, removePackageNameFromString(mContext.getPackageName(), action), payload);
         String messageID = messageWithID.first;
         String message = messageWithID.second;
 
@@ -264,13 +278,17 @@ public class AASBHandler {
 
             if (BuildConfig.DEBUG) {
                 if (InstrumentationReceiver.mIsLogEnabled && !message.isEmpty()) {
-                    mAACSMessageLogger.setLogFileLocation(InstrumentationReceiver.mFileLocation);
                     mAACSMessageLogger.buffer(
                             AACSMessageLogger.TO_ENGINE, topic, action, payload, messageID, replyToId);
+                    mAACSMessageLogger.traceMessage(true, message);
                 }
             }
 
-            mMessageBroker.publish(message);
+            if (!replyToId.isEmpty()) {
+                mMessageBroker.publish(message);
+            } else {
+                mMessageScheduler.schedule(aasbTopic, () -> mMessageBroker.publish(message));
+            }
         } else {
             Log.e(TAG, "Failed to publish AASB message");
         }
@@ -297,7 +315,16 @@ public class AASBHandler {
         mCachedBufferedBytes = Long.parseLong(value);
     }
 
+    /**
+     * @return the queue latency of every priority class of the messages exchanged with the engine.
+     */
+    public Map<AASBMessageScheduler.Priority, AASBMessageScheduler.Metrics> getMessageSchedulerMetrics() {
+        return mMessageScheduler.getMetrics();
+    }
+
     public void cleanUp() {
+        mMessageScheduler.shutDown();
+
         if (mAACSSender != null) {
             mAACSSender.shutDown();
             mAACSSender = null;
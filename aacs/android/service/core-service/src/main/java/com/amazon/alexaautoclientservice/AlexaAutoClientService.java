@@ -61,6 +61,7 @@ import com.amazon.aacsipc.IPCUtils;
 import com.amazon.alexaautoclientservice.aacs_extra.AACSContext;
 import com.amazon.alexaautoclientservice.aacs_extra.AACSModuleFactoryInterface;
 import com.amazon.alexaautoclientservice.aacs_extra.EngineStatusListener;
+import com.amazon.alexaautoclientservice.aacs_extra.StreamFlowListener;
 import com.amazon.alexaautoclientservice.modules.bluetooth.BluetoothProviderHandler;
 import com.amazon.alexaautoclientservice.modules.externalMediaPlayer.MACCPlayer;
 import com.amazon.alexaautoclientservice.modules.locationProvider.LocationProviderHandler;
@@ -69,19 +70,25 @@ import com.amazon.alexaautoclientservice.modules.mediaManager.LocalSessionHandle
 import com.amazon.alexaautoclientservice.modules.mediaManager.MediaSource;
 import com.amazon.alexaautoclientservice.modules.networkInfoProvider.NetworkInfoProviderHandler;
 import com.amazon.alexaautoclientservice.modules.propertyManager.PropertyManagerHandler;
-import com.amazon.alexaautoclientservice.receiver.BroadcastReceiverScanner;
+import com.amazon.alexaautoclientservice.receiver.ContextBroadcastReceiverLoader;
+import com.amazon.alexaautoclientservice.receiver.InstrumentationReceiver;
 import com.amazon.alexaautoclientservice.receiver.PingReceiver;
 import com.amazon.alexaautoclientservice.receiver.ServiceMetadataRequestReceiver;
 import com.amazon.alexaautoclientservice.receiver.SystemPropertyChangeReceiver;
 import com.amazon.alexaautoclientservice.util.AACSStateObserver;
+import com.amazon.alexaautoclientservice.util.AASBMessageScheduler;
 import com.amazon.alexaautoclientservice.util.FileUtil;
 import com.amazon.alexaautoclientservice.util.LVCUtil;
+import com.amazon.alexaautoclientservice.util.StartupOrchestrator;
+import com.amazon.alexaautoclientservice.util.StreamFlowController;
 
 import org.json.JSONObject;
 
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintWriter;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -103,9 +110,6 @@ public class AlexaAutoClientService extends Service implements AACSContext {
     private static final double CURRENT_VERSION = 2.0;
 
     private static final int THREAD_JOIN_TIMEOUT_IN_MILLIS = 2000;
-    private static final int FETCH_READ_BUFFER_CHUNK_SIZE = 4096;
-    private static final int PUSH_WRITE_BUFFER_CHUNK_SIZE = 300;
-    private static final int PUSH_WRITE_BUFFER_MIN_CHUNK_SIZE = 20;
     private static final String AACS_CHANNEL_ID = "com.amazon.alexaautoclientservice";
     private static final String AACS_CHANNEL_NAME = "AACS";
     private static final int AACS_SERVICE_STARTED_NOTIFICATION_ID = 1;
@@ -113,6 +117,7 @@ public class AlexaAutoClientService extends Service implements AACSContext {
     private Context mContext = this;
     private AASBHandler mAASBHandler;
     private NetworkInfoProviderHandler mNetworkInfoProviderHandler;
+    private LocationProviderHandler mLocationProviderHandler;
     private Engine mEngine;
     private AACSStateMachine mStateMachine;
     private Set<AACSStateObserver> mAACSStateObservers = new HashSet<>();
@@ -134,10 +139,11 @@ public class AlexaAutoClientService extends Service implements AACSContext {
     private BluetoothProviderHandler mBluetoothProviderHandler;
     private MACCPlayer mMACCPlayer;
     private LocalSessionHandler mLocalSessionHandler;
-    private BroadcastReceiverScanner mBroadcastReceiverScanner;
+    private ContextBroadcastReceiverLoader mContextBroadcastReceiverLoader;
 
     private ConcurrentHashMap<String, ParcelFileDescriptor.AutoCloseOutputStream> mOutputStreamMap =
             new ConcurrentHashMap<>();
+    private final StreamFlowController mStreamFlowController = new StreamFlowController();
     private Long mOnCreateTimeMs;
     private Thread mStopServiceTimerThread;
     private final AtomicBoolean mStopServiceThreadRunning = new AtomicBoolean(false);
@@ -175,6 +181,26 @@ public class AlexaAutoClientService extends Service implements AACSContext {
         return null;
     }
 
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        AASBHandler aasbHandler = mAASBHandler;
+        if (aasbHandler == null) {
+            writer.println("AASB handler is not initialized");
+            return;
+        }
+        writer.println("AASB message scheduler:");
+        for (AASBMessageScheduler.Metrics metrics : aasbHandler.getMessageSchedulerMetrics().values()) {
+            writer.println("  " + metrics);
+        }
+        writer.println("Streams:");
+        for (StreamFlowController.Counters counters : mStreamFlowController.getTotalCounters().values()) {
+            writer.println("  " + counters);
+        }
+        for (StreamFlowController.Counters counters : mStreamFlowController.getStreamCounters()) {
+            writer.println("  " + counters);
+        }
+    }
+
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         Log.d(TAG, "onStartCommand, " + intent);
@@ -256,11 +282,11 @@ public class AlexaAutoClientService extends Service implements AACSContext {
     }
 
     private void initContextBroadcastReceiver() {
-        if (mBroadcastReceiverScanner == null) {
-            mBroadcastReceiverScanner = new BroadcastReceiverScanner();
+        if (mContextBroadcastReceiverLoader == null) {
+            mContextBroadcastReceiverLoader = new ContextBroadcastReceiverLoader();
         }
         Map<BroadcastReceiver, Pair<IntentFilter, String>> map =
-                mBroadcastReceiverScanner.getBroadcastReceivers(getApplicationContext());
+                mContextBroadcastReceiverLoader.getBroadcastReceivers();
         Iterator<BroadcastReceiver> itr = map.keySet().iterator();
         while (itr.hasNext()) {
             BroadcastReceiver receiver = itr.next();
@@ -278,7 +304,7 @@ public class AlexaAutoClientService extends Service implements AACSContext {
 
     private void unregisterBroadcastReceivers() {
         Map<BroadcastReceiver, Pair<IntentFilter, String>> map =
-                mBroadcastReceiverScanner.getBroadcastReceivers(getApplicationContext());
+                mContextBroadcastReceiverLoader.getBroadcastReceivers();
         Iterator<BroadcastReceiver> itr = map.keySet().iterator();
         while (itr.hasNext()) {
             BroadcastReceiver receiver = itr.next();
@@ -328,6 +354,15 @@ public class AlexaAutoClientService extends Service implements AACSContext {
             return false;
         }
         mAASBHandler = new AASBHandler(this, messageBroker);
+        mStreamFlowController.configure(FileUtil.getStreamFlowControlConfiguration());
+        if (BuildConfig.DEBUG) {
+            mStreamFlowController.setStreamTap((direction, streamId, data, offset, length) -> {
+                if (InstrumentationReceiver.mIsLogEnabled) {
+                    AACSMessageLogger.getInstance().traceStream(
+                            direction == StreamFlowController.Direction.PUSH, streamId, data, offset, length);
+                }
+            });
+        }
         return true;
     }
 
@@ -378,13 +413,8 @@ public class AlexaAutoClientService extends Service implements AACSContext {
                     Log.i(TAG,
                             "onStreamRequested handler's post Begin.  Getting MessageStream by streamId: " + streamId);
                     try (ParcelFileDescriptor.AutoCloseOutputStream autoCloseOutputStream = stream) {
-                        byte[] buffer = new byte[FETCH_READ_BUFFER_CHUNK_SIZE];
-                        int size;
-                        while (mOutputStreamMap.containsKey(streamId) && !messageStream.isClosed()) {
-                            size = messageStream.read(buffer);
-                            if (size > 0)
-                                autoCloseOutputStream.write(buffer, 0, size);
-                        }
+                        mStreamFlowController.fetch(streamId, messageStream, autoCloseOutputStream,
+                                () -> mOutputStreamMap.containsKey(streamId));
                         Log.i(TAG, "onStreamRequested: Finished copying from messageStream");
                     } catch (IOException e) {
                         Log.e(TAG, "onStreamRequested: exception when writing to fetch stream.  e = " + e);
@@ -438,20 +468,7 @@ public class AlexaAutoClientService extends Service implements AACSContext {
                             return;
                         }
 
-                        byte[] buffer = new byte[PUSH_WRITE_BUFFER_CHUNK_SIZE];
-                        boolean isReading = true;
-
-                        while (isReading) {
-                            int bytesAvailable = Math.max(Math.min(autoCloseInputStream.available(), buffer.length),
-                                    PUSH_WRITE_BUFFER_MIN_CHUNK_SIZE);
-                            int bytesRead = autoCloseInputStream.read(buffer, 0, bytesAvailable);
-                            if (bytesRead > 0) {
-                                messageStream.write(buffer, 0, bytesRead);
-                            }
-                            if (bytesRead < 0) {
-                                isReading = false;
-                            }
-                        }
+                        mStreamFlowController.push(streamId, autoCloseInputStream, messageStream);
                     } catch (IOException e) {
                         Log.e(TAG,
                                 "onStreamPushedFromSenderCallback: exception when writing to fetch stream.  e = " + e);
@@ -521,38 +538,139 @@ public class AlexaAutoClientService extends Service implements AACSContext {
         }
     }
 
+    /**
+     * Creates, configures and starts the engine. The startup steps that do not depend on each other run in parallel.
+     */
     private boolean startEngine() {
-        List<AACSModuleFactoryInterface> extraFactories = getExtraModuleFactories();
+        List<AACSModuleFactoryInterface> extraFactories = new ArrayList<>();
+        ArrayList<EngineConfiguration> extraConfiguration = new ArrayList<>();
+        ArrayList<EngineConfiguration> configuration = new ArrayList<>();
+        List<String> platformInterfaceSteps = new ArrayList<>();
+        StartupOrchestrator orchestrator = new StartupOrchestrator();
+
+        // Loads the native libraries of the modules, which all the engine objects need
+        orchestrator.addStep("loadModuleLibraries", () -> {
+            mEngine = Engine.create(getContext());
+            return true;
+        });
+
+        orchestrator.addStep("discoverExtraModules", () -> {
+            extraFactories.addAll(getExtraModuleFactories());
+            return true;
+        });
+
+        orchestrator.addCallerThreadStep("initializeAASB", () -> {
+            Log.d(TAG, "Initializing AASBHandler");
+            if (!initializeAASB()) {
+                Log.e(TAG, "Failed to initialize AASBHandler");
+                return false;
+            }
+            if (FileUtil.isEnabledInAACSGeneralConfig(SYNC_SYSTEM_PROPERTY_CHANGE)) {
+                initSystemPropertyChangeReceiver();
+            }
+            return true;
+        }, "loadModuleLibraries");
+
+        orchestrator.addStep("buildExtrasConfiguration", () -> {
+            getExtrasConfiguration(this, extraFactories, extraConfiguration);
+            return true;
+        }, "loadModuleLibraries", "discoverExtraModules");
 
         // Generate extras config first, since this may require removing extras modules from OEM config.
-        ArrayList<EngineConfiguration> extraConfiguration = new ArrayList<>();
-        getExtrasConfiguration(this, extraFactories, extraConfiguration);
+        orchestrator.addStep("buildEngineConfiguration", () -> {
+            configuration.addAll(FileUtil.getEngineConfiguration(this));
+            configuration.addAll(extraConfiguration);
+            return true;
+        }, "buildExtrasConfiguration");
+
+        orchestrator.addCallerThreadStep("configureEngine", () -> {
+            EngineConfiguration[] configurationArray =
+                    configuration.toArray(new EngineConfiguration[configuration.size()]);
+            if (!mEngine.configure(configurationArray)) {
+                Log.e(TAG, "Could not configure engine! Please check the provided configuration.");
+                return false;
+            }
+            return true;
+        }, "initializeAASB", "buildEngineConfiguration");
 
-        ArrayList<EngineConfiguration> configuration = FileUtil.getEngineConfiguration(this);
-        configuration.addAll(extraConfiguration);
-        EngineConfiguration[] configurationArray = configuration.toArray(new EngineConfiguration[configuration.size()]);
+        // The platform interfaces are created in parallel and registered in order once the engine is configured
+        if (isDefaultImplementationEnabled(FileUtil.AACS_CONFIG_LOCATION_PROVIDER)) {
+            platformInterfaceSteps.add("createLocationProvider");
+            orchestrator.addStep("createLocationProvider", () -> {
+                mLocationProviderHandler = new LocationProviderHandler(this);
+                return true;
+            }, "loadModuleLibraries");
+        }
 
-        if (!mEngine.configure(configurationArray)) {
-            Log.e(TAG, "Could not configure engine! Please check the provided configuration.");
-            return false;
+        if (isDefaultImplementationEnabled(FileUtil.AACS_CONFIG_NETWORK_INFO_PROVIDER)) {
+            platformInterfaceSteps.add("createNetworkInfoProvider");
+            orchestrator.addStep("createNetworkInfoProvider", () -> {
+                mNetworkInfoProviderHandler = new NetworkInfoProviderHandler(this);
+                return true;
+            }, "loadModuleLibraries");
         }
 
+        if (isDefaultImplementationEnabled(FileUtil.AACS_CONFIG_EXTERNAL_MEDIA_ADAPTER)) {
+            // MACCPlayer posts the media app discovery on the looper of the engine thread
+            platformInterfaceSteps.add("createMACCPlayer");
+            orchestrator.addCallerThreadStep("createMACCPlayer", () -> {
+                mMACCPlayer = new MACCPlayer(this);
+                return true;
+            }, "loadModuleLibraries");
+        }
+
+        if (isDefaultImplementationEnabled(FileUtil.AACS_CONFIG_PROPERTY_MANAGER)) {
+            platformInterfaceSteps.add("createPropertyManager");
+            orchestrator.addStep("createPropertyManager", () -> {
+                mPropertyManagerHandler = new PropertyManagerHandler(this);
+                return true;
+            }, "loadModuleLibraries");
+        }
+
+        platformInterfaceSteps.add("createBluetoothProvider");
+        orchestrator.addStep("createBluetoothProvider", () -> {
+            mBluetoothProviderHandler = new BluetoothProviderHandler(this);
+            return true;
+        }, "loadModuleLibraries");
+
+        platformInterfaceSteps.add("configureEngine");
+        orchestrator.addCallerThreadStep("registerPlatformInterfaces", () -> {
+            registerPlatformInterfaces(extraFactories);
+            return true;
+        }, platformInterfaceSteps.toArray(new String[0]));
+
+        orchestrator.addCallerThreadStep("startEngine", () -> {
+            if (!mEngine.start())
+                throw new RuntimeException("Could not start engine");
+
+            // Initialize Property Content Provider only after engine starts and config setting to true
+            if (isDefaultImplementationEnabled(FileUtil.AACS_CONFIG_PROPERTY_MANAGER)) {
+                mAPCP = getContentResolver().acquireContentProviderClient(
+                        Uri.parse("content://" + AACSConstants.AACS_PROPERTY_URI));
+                AACSPropertyContentProvider apcp = (AACSPropertyContentProvider) mAPCP.getLocalContentProvider();
+                apcp.setPropertyManagerHandler(mPropertyManagerHandler);
+            }
+            return true;
+        }, "registerPlatformInterfaces");
+
+        return orchestrator.run();
+    }
+
+    private void registerPlatformInterfaces(List<AACSModuleFactoryInterface> extraFactories) {
         loadExtrasPlatformInterfaces(extraFactories);
 
-        if (isDefaultImplementationEnabled(FileUtil.AACS_CONFIG_LOCATION_PROVIDER)) {
-            LocationProviderHandler locationProvider;
-            mEngine.registerPlatformInterface(locationProvider = new LocationProviderHandler(this));
+        if (mLocationProviderHandler != null) {
+            mEngine.registerPlatformInterface(mLocationProviderHandler);
             Log.v(TAG, "registerPlatformInterface LocationProviderHandler");
-            addEngineStatusListener(locationProvider);
+            addEngineStatusListener(mLocationProviderHandler);
         }
 
-        if (isDefaultImplementationEnabled(FileUtil.AACS_CONFIG_NETWORK_INFO_PROVIDER)) {
-            mEngine.registerPlatformInterface(mNetworkInfoProviderHandler = new NetworkInfoProviderHandler(this));
+        if (mNetworkInfoProviderHandler != null) {
+            mEngine.registerPlatformInterface(mNetworkInfoProviderHandler);
             Log.v(TAG, "registerPlatformInterface mNetworkInfoProviderHandler");
         }
 
-        if (isDefaultImplementationEnabled(FileUtil.AACS_CONFIG_EXTERNAL_MEDIA_ADAPTER)) {
-            mMACCPlayer = new MACCPlayer(this);
+        if (mMACCPlayer != null) {
             mEngine.registerPlatformInterface(mMACCPlayer);
             mMACCPlayer.runDiscovery();
             Log.v(TAG, "registerPlatformInterface mMACCPlayer");
@@ -585,27 +703,13 @@ public class AlexaAutoClientService extends Service implements AACSContext {
             Log.w(TAG, "Default Local media is not added in the config");
         }
 
-        if (isDefaultImplementationEnabled(FileUtil.AACS_CONFIG_PROPERTY_MANAGER)) {
-            mPropertyManagerHandler = new PropertyManagerHandler(this);
+        if (mPropertyManagerHandler != null) {
             mEngine.registerPlatformInterface(mPropertyManagerHandler);
             Log.v(TAG, "registerPlatformInterface mPropertyManagerHandler");
         }
 
-        mBluetoothProviderHandler = new BluetoothProviderHandler(this);
         mEngine.registerPlatformInterface(mBluetoothProviderHandler);
         Log.v(TAG, "registerPlatformInterface mBluetoothProviderHandler");
-
-        if (!mEngine.start())
-            throw new RuntimeException("Could not start engine");
-
-        // Initialize Property Content Provider only after engine starts and config setting to true
-        if (isDefaultImplementationEnabled(FileUtil.AACS_CONFIG_PROPERTY_MANAGER)) {
-            mAPCP = getContentResolver().acquireContentProviderClient(
-                    Uri.parse("content://" + AACSConstants.AACS_PROPERTY_URI));
-            AACSPropertyContentProvider apcp = (AACSPropertyContentProvider) mAPCP.getLocalContentProvider();
-            apcp.setPropertyManagerHandler(mPropertyManagerHandler);
-        }
-        return true;
     }
 
     private void createNotificationAndStartForegroundService() {
@@ -811,19 +915,6 @@ public class AlexaAutoClientService extends Service implements AACSContext {
                 @Override
                 public void run() {
                     if (isConfiguredVersionValid()) {
-                        mEngine = Engine.create(getContext());
-
-                        Log.d(TAG, "Initializing AASBHandler");
-
-                        if (!initializeAASB()) {
-                            Log.e(TAG, "Failed to initialize AASBHandler");
-                            return;
-                        }
-
-                        if (FileUtil.isEnabledInAACSGeneralConfig(SYNC_SYSTEM_PROPERTY_CHANGE)) {
-                            initSystemPropertyChangeReceiver();
-                        }
-
                         Log.d(TAG, "Starting engine");
                         boolean success = startEngine();
                         Log.d(TAG, "Start engine result: " + success);
@@ -1048,4 +1139,18 @@ public class AlexaAutoClientService extends Service implements AACSContext {
             }
         }
     }
+
+    @Override
+    public void addStreamFlowListener(StreamFlowListener listener) {
+        if (listener != null) {
+            mStreamFlowController.addListener(listener);
+        }
+    }
+
+    @Override
+    public void removeStreamFlowListener(StreamFlowListener listener) {
+        if (listener != null) {
+            mStreamFlowController.removeListener(listener);
+        }
+    }
 }
@@ -214,40 +214,35 @@ public class MACCPlayer extends ExternalMediaAdapter implements IDiscoveredPlaye
             Log.i(TAG, "Something went wrong");
             return false;
         }
-        MediaAppMetaData metaData = state.getMediaAppPlaybackState().getMediaAppMetaData();
+        MediaAppPlaybackState playbackState = state.getMediaAppPlaybackState();
+        MediaAppMetaData metaData = playbackState.getMediaAppMetaData();
         stateToReturn.playbackState = new PlaybackState();
-        stateToReturn.playbackState.state = state.getMediaAppPlaybackState().getPlaybackState() == null
+        stateToReturn.playbackState.state = playbackState.getPlaybackState() == null
                 ? PlayBackStateFields.State.IDLE.toString()
-                : state.getMediaAppPlaybackState().getPlaybackState().toString();
+                : playbackState.getPlaybackState().toString();
         stateToReturn.playbackState.supportedOperations =
-                getSupportedOperations(state.getMediaAppPlaybackState().getSupportedOperations());
-        stateToReturn.playbackState.trackOffset = state.getMediaAppPlaybackState().getPositionMilliseconds();
-        stateToReturn.playbackState.shuffleEnabled = (state.getMediaAppPlaybackState().isShuffleEnabled() == null)
+                getSupportedOperations(playbackState.getSupportedOperations());
+        stateToReturn.playbackState.trackOffset = playbackState.getPositionMilliseconds();
+        stateToReturn.playbackState.shuffleEnabled = (playbackState.isShuffleEnabled() == null)
                 ? false
-                : state.getMediaAppPlaybackState().isShuffleEnabled().equals(PlayBackStateFields.shuffle.SHUFFLED);
-        stateToReturn.playbackState.repeatEnabled = (state.getMediaAppPlaybackState().getRepeatMode() == null)
+                : playbackState.isShuffleEnabled().equals(PlayBackStateFields.shuffle.SHUFFLED);
+        stateToReturn.playbackState.repeatEnabled = (playbackState.getRepeatMode() == null)
                 ? false
-                : !state.getMediaAppPlaybackState().getRepeatMode().equals(PlayBackStateFields.repeat.NOT_REPEATED);
-        stateToReturn.playbackState.favorites = getFavorites(state.getMediaAppPlaybackState().getFavourite());
+                : !playbackState.getRepeatMode().equals(PlayBackStateFields.repeat.NOT_REPEATED);
+        stateToReturn.playbackState.favorites = getFavorites(playbackState.getFavourite());
         stateToReturn.playbackState.type = "ExternalMediaPlayerMusicItem";
-        stateToReturn.playbackState.playbackSource =
-                state.getMediaAppPlaybackState().getMediaAppMetaData().getPlaybackSource();
-        stateToReturn.playbackState.playbackSourceId =
-                state.getMediaAppPlaybackState().getMediaAppMetaData().getPlaybackSourceId();
-        stateToReturn.playbackState.trackName = state.getMediaAppPlaybackState().getMediaAppMetaData().getTrackName();
+        stateToReturn.playbackState.playbackSource = metaData.getPlaybackSource();
+        stateToReturn.playbackState.playbackSourceId = metaData.getPlaybackSourceId();
+        stateToReturn.playbackState.trackName = metaData.getTrackName();
         stateToReturn.playbackState.trackId = "";
-        stateToReturn.playbackState.trackNumber =
-                state.getMediaAppPlaybackState().getMediaAppMetaData().getTrackNumber();
-        stateToReturn.playbackState.artistName = state.getMediaAppPlaybackState().getMediaAppMetaData().getArtist();
+        stateToReturn.playbackState.trackNumber = metaData.getTrackNumber();
+        stateToReturn.playbackState.artistName = metaData.getArtist();
         stateToReturn.playbackState.artistId = "";
-        stateToReturn.playbackState.albumName = state.getMediaAppPlaybackState().getMediaAppMetaData().getAlbum();
+        stateToReturn.playbackState.albumName = metaData.getAlbum();
         stateToReturn.playbackState.albumId = "";
-        stateToReturn.playbackState.mediaProvider =
-                state.getMediaAppPlaybackState().getMediaAppMetaData().getMediaProvider();
-        stateToReturn.playbackState.mediaType =
-                getMediaType(state.getMediaAppPlaybackState().getMediaAppMetaData().getMediaType());
-        stateToReturn.playbackState.duration =
-                state.getMediaAppPlaybackState().getMediaAppMetaData().getDurationInMilliseconds();
+        stateToReturn.playbackState.mediaProvider = metaData.getMediaProvider();
+        stateToReturn.playbackState.mediaType = getMediaType(metaData.getMediaType());
+        stateToReturn.playbackState.duration = metaData.getDurationInMilliseconds();
         stateToReturn.sessionState = new SessionState();
         stateToReturn.sessionState.endpointId = state.getMediaAppSessionState().getPlayerid();
         stateToReturn.sessionState.loggedIn = true; // irrelevant/non-functional to MACC
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.alexaautoclientservice.modules.locationProvider;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.amazon.aacsconstants.AACSConstants;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Resolves the country of a location without blocking the caller.
+ *
+ * Countries are cached per geohash cell. A location in a cell that was already resolved is answered from the
+ * cache. A location in a cell that was not resolved yet is answered with the last resolved country, marked as
+ * stale, while the cell is resolved in the background. Cells are resolved again in the background once their
+ * entry is older than the time to live.
+ */
+public class CountryResolver {
+    private static final String TAG = AACSConstants.AACS + "-" + CountryResolver.class.getSimpleName();
+
+    /**
+     * Length of the geohash of a cell. A cell of precision 4 is about 39 km by 20 km, small enough to follow
+     * borders closely and large enough to keep the geocoder idle while driving.
+     */
+    public static final int DEFAULT_CELL_PRECISION = 4;
+    private static final int MAX_CACHED_CELLS = 256;
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    /**
+     * Looks up the country code of a location. Called on the background executor.
+     */
+    public interface CountryLookup {
+        /**
+         * @return the ISO 3166-1 alpha-2 country code, or {@code null} if the location has no country.
+         */
+        @Nullable
+        String getCountryCode(double latitude, double longitude) throws IOException;
+    }
+
+    /**
+     * A resolved country.
+     */
+    public static class Result {
+        private final String mCountryCode;
+        private final boolean mStale;
+
+        Result(String countryCode, boolean stale) {
+            mCountryCode = countryCode;
+            mStale = stale;
+        }
+
+        /**
+         * @return the country code, or an empty string if no country was resolved yet.
+         */
+        @NonNull
+        public String getCountryCode() {
+            return mCountryCode;
+        }
+
+        /**
+         * @return true if the country was not resolved for the cell of the location, or was resolved longer than
+         * the time to live ago.
+         */
+        public boolean isStale() {
+            return mStale;
+        }
+    }
+
+    private static class CachedCountry {
+        final String mCountryCode;
+        final long mResolvedTimeMs;
+
+        CachedCountry(String countryCode, long resolvedTimeMs) {
+            mCountryCode = countryCode;
+            mResolvedTimeMs = resolvedTimeMs;
+        }
+    }
+
+    private final CountryLookup mLookup;
+    private final Executor mExecutor;
+    private final int mCellPrecision;
+    private final long mTimeToLiveMs;
+
+    // Guarded by this
+    private final LinkedHashMap<String, CachedCountry> mCells =
+            new LinkedHashMap<String, CachedCountry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedCountry> eldest) {
+                    return size() > MAX_CACHED_CELLS;
+                }
+            };
+    private final Set<String> mPendingCells = new HashSet<>();
+    private String mLastCountryCode = "";
+
+    /**
+     * @param lookup looks up the country of a location, usually with the platform geocoder.
+     * @param executor the executor on which the lookups run.
+     * @param cellPrecision the geohash length of the cells.
+     * @param timeToLiveMs the time after which a resolved cell is resolved again.
+     */
+    public CountryResolver(@NonNull CountryLookup lookup, @NonNull Executor executor, int cellPrecision,
+            long timeToLiveMs) {
+        mLookup = lookup;
+        mExecutor = executor;
+        mCellPrecision = cellPrecision;
+        mTimeToLiveMs = timeToLiveMs;
+    }
+
+    /**
+     * Returns the cached country of the location immediately and resolves its cell in the background if the cell
+     * is not cached or its entry expired.
+     */
+    @NonNull
+    public Result resolve(double latitude, double longitude) {
+        String cell = encodeGeohash(latitude, longitude, mCellPrecision);
+        synchronized (this) {
+            return resolveCached(cell, latitude, longitude);
+        }
+    }
+
+    /**
+     * Same as {@link #resolve(double, double)}, except that while no country was resolved at all, typically for the
+     * first request after boot, it waits up to {@code maxWaitMs} for the background lookup of the cell. The lookup
+     * never runs on the caller thread.
+     */
+    @NonNull
+    public Result resolveNow(double latitude, double longitude, long maxWaitMs) {
+        String cell = encodeGeohash(latitude, longitude, mCellPrecision);
+        synchronized (this) {
+            Result result = resolveCached(cell, latitude, longitude);
+            if (!result.getCountryCode().isEmpty()) {
+                return result;
+            }
+            long deadline = System.currentTimeMillis() + maxWaitMs;
+            long remaining = maxWaitMs;
+            while (remaining > 0 && mPendingCells.contains(cell)) {
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                remaining = deadline - System.currentTimeMillis();
+            }
+            CachedCountry cached = mCells.get(cell);
+            if (cached != null) {
+                return new Result(cached.mCountryCode, false);
+            }
+            return new Result(mLastCountryCode, true);
+        }
+    }
+
+    // Called holding the lock
+    private Result resolveCached(String cell, double latitude, double longitude) {
+        CachedCountry cached = mCells.get(cell);
+        boolean expired = cached == null || System.currentTimeMillis() - cached.mResolvedTimeMs > mTimeToLiveMs;
+        if (expired) {
+            refreshCell(cell, latitude, longitude);
+        }
+        if (cached == null) {
+            return new Result(mLastCountryCode, true);
+        }
+        mLastCountryCode = cached.mCountryCode;
+        return new Result(cached.mCountryCode, expired);
+    }
+
+    /**
+     * Called with every location update so a newly entered cell is resolved before the country is requested.
+     */
+    public void onLocationChanged(double latitude, double longitude) {
+        String cell = encodeGeohash(latitude, longitude, mCellPrecision);
+        synchronized (this) {
+            if (!mCells.containsKey(cell)) {
+                refreshCell(cell, latitude, longitude);
+            }
+        }
+    }
+
+    // Called holding the lock
+    private void refreshCell(String cell, double latitude, double longitude) {
+        if (!mPendingCells.add(cell)) {
+            return;
+        }
+        try {
+            mExecutor.execute(() -> {
+                String countryCode = lookUp(cell, latitude, longitude);
+                synchronized (this) {
+                    mPendingCells.remove(cell);
+                    // On failure the previous entry is kept, it is retried on the next request for the cell
+                    if (countryCode != null) {
+                        cacheCountry(cell, countryCode);
+                    }
+                    notifyAll();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Country lookup rejected for cell " + cell);
+            mPendingCells.remove(cell);
+        }
+    }
+
+    @Nullable
+    private String lookUp(String cell, double latitude, double longitude) {
+        try {
+            return mLookup.getCountryCode(latitude, longitude);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, String.format("Country lookup failed for cell %s. Error message=%s", cell, e.getMessage()));
+            return null;
+        }
+    }
+
+    // Called holding the lock
+    private void cacheCountry(String cell, String countryCode) {
+        mCells.put(cell, new CachedCountry(countryCode, System.currentTimeMillis()));
+        mLastCountryCode = countryCode;
+        Log.v(TAG, String.format("Resolved country %s for cell %s", countryCode, cell));
+    }
+
+    /**
+     * Encodes a location into a geohash of the given length.
+     */
+    @NonNull
+    public static String encodeGeohash(double latitude, double longitude, int precision) {
+        double minLatitude = -90;
+        double maxLatitude = 90;
+        double minLongitude = -180;
+        double maxLongitude = 180;
+        StringBuilder geohash = new StringBuilder(precision);
+        boolean isLongitudeBit = true;
+        int bit = 0;
+        int index = 0;
+        while (geohash.length() < precision) {
+            if (isLongitudeBit) {
+                double middle = (minLongitude + maxLongitude) / 2;
+                if (longitude >= middle) {
+                    index = (index << 1) | 1;
+                    minLongitude = middle;
+                } else {
+                    index <<= 1;
+                    maxLongitude = middle;
+                }
+            } else {
+                double middle = (minLatitude + maxLatitude) / 2;
+                if (latitude >= middle) {
+                    index = (index << 1) | 1;
+                    minLatitude = middle;
+                } else {
+                    index <<= 1;
+                    maxLatitude = middle;
+                }
+            }
+            isLongitudeBit = !isLongitudeBit;
+            if (++bit == 5) {
+                geohash.append(BASE32.charAt(index));
+                bit = 0;
+                index = 0;
+            }
+        }
+        return geohash.toString();
+    }
+}
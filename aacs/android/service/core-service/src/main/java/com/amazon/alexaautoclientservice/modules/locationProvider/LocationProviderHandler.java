@@ -33,20 +33,28 @@ import com.amazon.alexaautoclientservice.aacs_extra.EngineStatusListener;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class LocationProviderHandler extends LocationProvider implements LocationListener, EngineStatusListener {
     private static final String TAG = AACSConstants.AACS + "-" + LocationProvider.class.getSimpleName();
     private static final int MIN_REFRESH_TIME = 60000;
     private static final int MIN_REFRESH_DISTANCE = 0;
     private static final int LOCATION_UPDATE_TIMEOUT = 120000;
+    private static final long COUNTRY_TIME_TO_LIVE = 24 * 60 * 60 * 1000;
+    private static final long FIRST_COUNTRY_MAX_WAIT = 500;
 
     private final LocationManager mLocationManager;
     private final Geocoder mGeocoder;
+    private final ExecutorService mGeocoderExecutor = Executors.newSingleThreadExecutor();
+    private final CountryResolver mCountryResolver;
     private android.location.Location mCurrentLocation;
     private HashSet<String> mAvailableProviders;
 
     public LocationProviderHandler(@NonNull Context context) {
         mGeocoder = new Geocoder(context);
+        mCountryResolver = new CountryResolver(this::getCountryCode, mGeocoderExecutor,
+                CountryResolver.DEFAULT_CELL_PRECISION, COUNTRY_TIME_TO_LIVE);
         mLocationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
 
         mAvailableProviders = new HashSet<>();
@@ -92,19 +100,22 @@ public class LocationProviderHandler extends LocationProvider implements Locatio
             return "";
         }
 
-        try {
-            List<Address> addressList = mGeocoder.getFromLocation(latitude, longitude, 1);
-            Address currentAddress = addressList.get(0);
-            if (currentAddress != null) {
-                return currentAddress.getCountryCode();
-            }
-        } catch (IOException e) {
-            Log.e(TAG,
-                    String.format("Error encountered when trying to get the current address. Error message=%s",
-                            e.getMessage()));
+        // The geocoder may block for seconds without connectivity, so the country is answered from the cache and
+        // resolved in the background. While no country is known, typically after boot, the request waits shortly
+        // for the background lookup, as it has no country to fall back to
+        CountryResolver.Result country = mCountryResolver.resolveNow(latitude, longitude, FIRST_COUNTRY_MAX_WAIT);
+        if (country.isStale()) {
+            Log.v(TAG, String.format("Returning stale country \"%s\" while it is resolved", country.getCountryCode()));
+        }
+        return country.getCountryCode();
+    }
+
+    private String getCountryCode(double latitude, double longitude) throws IOException {
+        List<Address> addressList = mGeocoder.getFromLocation(latitude, longitude, 1);
+        if (addressList == null || addressList.isEmpty() || addressList.get(0) == null) {
+            return null;
         }
-        Log.v(TAG, "No location found. Returning empty string. ");
-        return "";
+        return addressList.get(0).getCountryCode();
     }
 
     @Override
@@ -181,6 +192,9 @@ public class LocationProviderHandler extends LocationProvider implements Locatio
         } else {
             mCurrentLocation = location;
         }
+        if (mCurrentLocation == location) {
+            mCountryResolver.onLocationChanged(location.getLatitude(), location.getLongitude());
+        }
     }
 
     private String locationToString(android.location.Location location) {
@@ -210,5 +224,7 @@ public class LocationProviderHandler extends LocationProvider implements Locatio
     @Override
     public void onEngineStop() {
         mLocationManager.removeUpdates(this);
+        // Lookups still queued are dropped, a running one ends with the geocoder call
+        mGeocoderExecutor.shutdownNow();
     }
 }
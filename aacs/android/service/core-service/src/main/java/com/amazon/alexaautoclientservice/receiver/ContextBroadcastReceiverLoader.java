@@ -0,0 +1,134 @@
+/*
+ * Copyright 2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.alexaautoclientservice.receiver;
+
+import android.content.BroadcastReceiver;
+import android.content.IntentFilter;
+import android.util.Log;
+import android.util.Pair;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.amazon.aacsconstants.AACSConstants;
+import com.amazon.alexa.auto.aacs_annotation_api.ContextBroadcastReceiverRegistry;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * Loads the context broadcast receivers of the application. The annotation processor generates a
+ * {@link ContextBroadcastReceiverRegistry} for every package with receivers annotated with
+ * {@code @ContextBroadcastReceiver} and declares it in META-INF/services, so the registries are loaded with
+ * {@link ServiceLoader} instead of being looked up through the manifest meta-data and reflection. Loading the
+ * service with the class loader of the interface lets R8 replace the lookup with direct instantiations.
+ *
+ * Registries are generated per module, so a receiver can be registered more than once when several modules share a
+ * package or a module is packaged twice. Such duplicates are logged as errors and only their first registration is
+ * kept.
+ */
+public class ContextBroadcastReceiverLoader {
+    private static final String TAG = AACSConstants.AACS + "-" + ContextBroadcastReceiverLoader.class.getSimpleName();
+
+    private final Iterable<ContextBroadcastReceiverRegistry> mRegistries;
+    private Map<BroadcastReceiver, Pair<IntentFilter, String>> mBroadcastReceiverMap;
+
+    public ContextBroadcastReceiverLoader() {
+        // The registries are looked up on first use, the annotation API might not be packaged
+        this(null);
+    }
+
+    @VisibleForTesting
+    ContextBroadcastReceiverLoader(Iterable<ContextBroadcastReceiverRegistry> registries) {
+        mRegistries = registries;
+    }
+
+    /**
+     * This method provides list of all the context broadcast receivers in the alexa application.
+     * If any class must appear in the map, it should use the class level annotation @ContextBroadcastReceiver and
+     * provide list of categories, actions and permissions. This class must extend the
+     * {@link android.content.BroadcastReceiver} and provide the singleton object using getInstance() method, which
+     * is checked when the application is compiled.
+     *
+     * @return Map of {@link android.content.BroadcastReceiver} and pair of IntentFilter and optional permission
+     */
+    public Map<BroadcastReceiver, Pair<IntentFilter, String>> getBroadcastReceivers() {
+        if (mBroadcastReceiverMap == null) {
+            mBroadcastReceiverMap = new HashMap<>();
+            try {
+                load();
+            } catch (NoClassDefFoundError e) {
+                // The annotation API is not packaged when no application component uses the annotations
+                Log.i(TAG, "No context broadcast receiver registry is packaged");
+            }
+        }
+        return mBroadcastReceiverMap;
+    }
+
+    private void load() {
+        Iterable<ContextBroadcastReceiverRegistry> registries = mRegistries;
+        if (registries == null) {
+            registries = ServiceLoader.load(
+                    ContextBroadcastReceiverRegistry.class, ContextBroadcastReceiverRegistry.class.getClassLoader());
+        }
+        Set<String> registryNames = new HashSet<>();
+        Map<String, String> receiverRegistries = new HashMap<>();
+        try {
+            for (ContextBroadcastReceiverRegistry registry : registries) {
+                String registryName = registry.getClass().getName();
+                if (!registryNames.add(registryName)) {
+                    Log.e(TAG, "Context broadcast receiver registry loaded more than once: " + registryName);
+                    continue;
+                }
+                for (ContextBroadcastReceiverRegistry.Registration registration : registry.getRegistrations()) {
+                    add(registration, registryName, receiverRegistries);
+                }
+            }
+        } catch (ServiceConfigurationError e) {
+            Log.e(TAG, "Failed to load context broadcast receivers. Error message=" + e.getMessage());
+        }
+    }
+
+    private void add(ContextBroadcastReceiverRegistry.Registration registration, String registryName,
+            Map<String, String> receiverRegistries) {
+        if (!(registration.getReceiver() instanceof BroadcastReceiver)) {
+            Log.e(TAG, "Not a broadcast receiver: " + registration.getReceiver());
+            return;
+        }
+        String receiverName = registration.getReceiver().getClass().getName();
+        String previousRegistryName = receiverRegistries.put(receiverName, registryName);
+        if (previousRegistryName != null) {
+            // Registering the receiver twice would deliver every broadcast to it twice
+            receiverRegistries.put(receiverName, previousRegistryName);
+            Log.e(TAG,
+                    String.format("Context broadcast receiver %s registered by both %s and %s, ignoring the latter",
+                            receiverName, previousRegistryName, registryName));
+            return;
+        }
+        IntentFilter intentFilter = new IntentFilter();
+        for (String category : registration.getCategories()) {
+            intentFilter.addCategory(category);
+        }
+        for (String action : registration.getActions()) {
+            intentFilter.addAction(action);
+        }
+        Log.d(TAG, "Loaded context broadcast receiver " + registration.getReceiver().getClass().getName());
+        mBroadcastReceiverMap.put((BroadcastReceiver) registration.getReceiver(),
+                new Pair<>(intentFilter, registration.getPermission()));
+    }
+}
@@ -0,0 +1,429 @@
+/*
+ * Copyright 2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.alexaautoclientservice.util;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.amazon.aacsconstants.AACSConstants;
+import com.amazon.aacsconstants.Topic;
+
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatches the AASB messages by priority class on a small pool of worker threads, so the latency critical
+ * messages do not wait behind bulk traffic.
+ *
+ * Every topic belongs to one {@link Priority} class. The messages of a topic are dispatched one at a time in the
+ * order they were scheduled, and the topics of a class take turns in the order they became ready. A worker takes
+ * the next message of the highest class, unless the oldest message of a lower class has waited longer than the
+ * aging threshold of its class, so the low priority traffic cannot starve. The queue latency of every class is
+ * available with {@link #getMetrics()}.
+ *
+ * The scheduler is configured with the "messageScheduler" node of "aacs.general":
+ * <pre>
+ * "messageScheduler": {
+ *   "workerThreads": 2,
+ *   "topicPriorities": { "AddressBook": "LOW", "Navigation": "HIGH" },
+ *   "agingThresholdMs": { "NORMAL": 200, "LOW": 1000 }
+ * }
+ * </pre>
+ * With zero worker threads the messages are dispatched on the thread that schedules them.
+ */
+public class AASBMessageScheduler {
+    private static final String TAG = AACSConstants.AACS + "-" + AASBMessageScheduler.class.getSimpleName();
+    private static final String WORKER_THREAD_NAME = "AASBMessageScheduler-";
+
+    public static final int DEFAULT_WORKER_THREADS = 2;
+    public static final long DEFAULT_NORMAL_AGING_THRESHOLD_MS = 200;
+    public static final long DEFAULT_LOW_AGING_THRESHOLD_MS = 1000;
+
+    private static final String WORKER_THREADS = "workerThreads";
+    private static final String TOPIC_PRIORITIES = "topicPriorities";
+    private static final String AGING_THRESHOLD_MS = "agingThresholdMs";
+
+    public enum Priority {
+        HIGH,
+        NORMAL,
+        LOW,
+    }
+
+    private static final Map<String, Priority> DEFAULT_TOPIC_PRIORITIES;
+    static {
+        Map<String, Priority> priorities = new HashMap<>();
+        priorities.put(Topic.SPEECH_RECOGNIZER, Priority.HIGH);
+        priorities.put(Topic.SPEECH_SYNTHESIZER, Priority.HIGH);
+        priorities.put(Topic.AUDIO_INPUT, Priority.HIGH);
+        priorities.put(Topic.AUDIO_OUTPUT, Priority.HIGH);
+        priorities.put(Topic.ALERTS, Priority.HIGH);
+        priorities.put(Topic.ADDRESS_BOOK, Priority.LOW);
+        priorities.put(Topic.APL, Priority.LOW);
+        priorities.put(Topic.DEVICE_USAGE, Priority.LOW);
+        priorities.put(Topic.LOGGER, Priority.LOW);
+        DEFAULT_TOPIC_PRIORITIES = Collections.unmodifiableMap(priorities);
+    }
+
+    /**
+     * Snapshot of the queue latency of a priority class.
+     */
+    public static class Metrics {
+        private final Priority mPriority;
+        private final int mQueuedMessages;
+        private final long mDispatchedMessages;
+        private final long mAgedMessages;
+        private final long mTotalQueueLatencyMs;
+        private final long mMaxQueueLatencyMs;
+
+        private Metrics(Priority priority, ClassStats stats) {
+            mPriority = priority;
+            mQueuedMessages = stats.mQueuedMessages;
+            mDispatchedMessages = stats.mDispatchedMessages;
+            mAgedMessages = stats.mAgedMessages;
+            mTotalQueueLatencyMs = stats.mTotalQueueLatencyMs;
+            mMaxQueueLatencyMs = stats.mMaxQueueLatencyMs;
+        }
+
+        public Priority getPriority() {
+            return mPriority;
+        }
+
+        /**
+         * @return the number of messages waiting to be dispatched.
+         */
+        public int getQueuedMessages() {
+            return mQueuedMessages;
+        }
+
+        public long getDispatchedMessages() {
+            return mDispatchedMessages;
+        }
+
+        /**
+         * @return the number of messages dispatched ahead of a higher class because they waited too long.
+         */
+        public long getAgedMessages() {
+            return mAgedMessages;
+        }
+
+        public long getAverageQueueLatencyMs() {
+            return mDispatchedMessages == 0 ? 0 : mTotalQueueLatencyMs / mDispatchedMessages;
+        }
+
+        public long getMaxQueueLatencyMs() {
+            return mMaxQueueLatencyMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: queued=%d, dispatched=%d, aged=%d, averageLatencyMs=%d, maxLatencyMs=%d",
+                    mPriority, mQueuedMessages, mDispatchedMessages, mAgedMessages, getAverageQueueLatencyMs(),
+                    mMaxQueueLatencyMs);
+        }
+    }
+
+    private static class ClassStats {
+        int mQueuedMessages;
+        long mDispatchedMessages;
+        long mAgedMessages;
+        long mTotalQueueLatencyMs;
+        long mMaxQueueLatencyMs;
+    }
+
+    private static class Message {
+        final TopicQueue mTopicQueue;
+        final Runnable mTask;
+        final long mSequence;
+        final long mScheduleTimeMs;
+
+        Message(TopicQueue topicQueue, Runnable task, long sequence, long scheduleTimeMs) {
+            mTopicQueue = topicQueue;
+            mTask = task;
+            mSequence = sequence;
+            mScheduleTimeMs = scheduleTimeMs;
+        }
+    }
+
+    // Messages of a topic. A topic is either dispatching, ready in the queue of its class, or empty.
+    private static class TopicQueue {
+        final String mTopic;
+        final Priority mPriority;
+        final ArrayDeque<Message> mMessages = new ArrayDeque<>();
+        boolean mDispatching;
+
+        TopicQueue(String topic, Priority priority) {
+            mTopic = topic;
+            mPriority = priority;
+        }
+    }
+
+    private final Object mLock = new Object();
+    private final Map<String, Priority> mTopicPriorities;
+    private final Map<Priority, Long> mAgingThresholdsMs = new EnumMap<>(Priority.class);
+    private final Map<String, TopicQueue> mTopicQueues = new HashMap<>();
+    private final Map<Priority, ArrayDeque<TopicQueue>> mReadyTopics = new EnumMap<>(Priority.class);
+    private final Map<Priority, ClassStats> mClassStats = new EnumMap<>(Priority.class);
+    private final ExecutorService mWorkers;
+    private long mNextSequence;
+    private boolean mShutDown;
+
+    /**
+     * @param workerThreads number of threads dispatching the messages, 0 to dispatch on the scheduling thread.
+     * @param topicPriorities priority class of the topics, in addition to the default ones.
+     * @param agingThresholdsMs time after which a message of the class is dispatched ahead of the higher classes.
+     */
+    public AASBMessageScheduler(int workerThreads, @NonNull Map<String, Priority> topicPriorities,
+            @NonNull Map<Priority, Long> agingThresholdsMs) {
+        Map<String, Priority> priorities = new HashMap<>(DEFAULT_TOPIC_PRIORITIES);
+        priorities.putAll(topicPriorities);
+        mTopicPriorities = priorities;
+        mAgingThresholdsMs.put(Priority.HIGH, 0L);
+        mAgingThresholdsMs.put(Priority.NORMAL, DEFAULT_NORMAL_AGING_THRESHOLD_MS);
+        mAgingThresholdsMs.put(Priority.LOW, DEFAULT_LOW_AGING_THRESHOLD_MS);
+        mAgingThresholdsMs.putAll(agingThresholdsMs);
+        for (Priority priority : Priority.values()) {
+            mReadyTopics.put(priority, new ArrayDeque<>());
+            mClassStats.put(priority, new ClassStats());
+        }
+
+        if (workerThreads <= 0) {
+            mWorkers = null;
+            return;
+        }
+        AtomicInteger nextWorker = new AtomicInteger();
+        mWorkers = Executors.newFixedThreadPool(
+                workerThreads, runnable -> new Thread(runnable, WORKER_THREAD_NAME + nextWorker.getAndIncrement()));
+        for (int i = 0; i < workerThreads; i++) {
+            mWorkers.submit(this::runWorker);
+        }
+    }
+
+    /**
+     * Creates the scheduler from the "messageScheduler" configuration, which may be null to use the defaults.
+     */
+    public static AASBMessageScheduler create(@Nullable JSONObject config) {
+        if (config == null) {
+            return new AASBMessageScheduler(DEFAULT_WORKER_THREADS, Collections.emptyMap(), Collections.emptyMap());
+        }
+
+        Map<String, Priority> topicPriorities = new HashMap<>();
+        JSONObject topicPrioritiesConfig = config.optJSONObject(TOPIC_PRIORITIES);
+        if (topicPrioritiesConfig != null) {
+            Iterator<String> topics = topicPrioritiesConfig.keys();
+            while (topics.hasNext()) {
+                String topic = topics.next();
+                Priority priority = parsePriority(topicPrioritiesConfig.optString(topic));
+                if (priority != null) {
+                    topicPriorities.put(topic, priority);
+                }
+            }
+        }
+
+        Map<Priority, Long> agingThresholdsMs = new EnumMap<>(Priority.class);
+        JSONObject agingThresholdsConfig = config.optJSONObject(AGING_THRESHOLD_MS);
+        if (agingThresholdsConfig != null) {
+            Iterator<String> priorities = agingThresholdsConfig.keys();
+            while (priorities.hasNext()) {
+                String name = priorities.next();
+                Priority priority = parsePriority(name);
+                long thresholdMs = agingThresholdsConfig.optLong(name, -1);
+                if (priority != null && thresholdMs >= 0) {
+                    agingThresholdsMs.put(priority, thresholdMs);
+                }
+            }
+        }
+
+        return new AASBMessageScheduler(
+                config.optInt(WORKER_THREADS, DEFAULT_WORKER_THREADS), topicPriorities, agingThresholdsMs);
+    }
+
+    private static Priority parsePriority(String name) {
+        try {
+            return Priority.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, String.format("Invalid message priority %s, using the default priority", name));
+            return null;
+        }
+    }
+
+    @NonNull
+    public Priority getPriority(@NonNull String topic) {
+        Priority priority = mTopicPriorities.get(topic);
+        return priority == null ? Priority.NORMAL : priority;
+    }
+
+    /**
+     * Schedules the dispatch of a message. The messages of the same topic are dispatched in the order they are
+     * scheduled.
+     */
+    public void schedule(@NonNull String topic, @NonNull Runnable task) {
+        if (mWorkers == null) {
+            dispatch(topic, task);
+            return;
+        }
+
+        synchronized (mLock) {
+            if (mShutDown) {
+                Log.w(TAG, String.format("Scheduler is shut down, dropping message for topic=%s", topic));
+                return;
+            }
+            TopicQueue topicQueue = mTopicQueues.get(topic);
+            if (topicQueue == null) {
+                topicQueue = new TopicQueue(topic, getPriority(topic));
+                mTopicQueues.put(topic, topicQueue);
+            }
+            topicQueue.mMessages.add(new Message(topicQueue, task, mNextSequence++, SystemClock.uptimeMillis()));
+            mClassStats.get(topicQueue.mPriority).mQueuedMessages++;
+            if (!topicQueue.mDispatching && topicQueue.mMessages.size() == 1) {
+                mReadyTopics.get(topicQueue.mPriority).add(topicQueue);
+                mLock.notify();
+            }
+        }
+    }
+
+    /**
+     * @return a snapshot of the queue latency of every priority class, empty counters when the messages are
+     * dispatched on the scheduling thread.
+     */
+    public Map<Priority, Metrics> getMetrics() {
+        Map<Priority, Metrics> metrics = new EnumMap<>(Priority.class);
+        synchronized (mLock) {
+            for (Priority priority : Priority.values()) {
+                metrics.put(priority, new Metrics(priority, mClassStats.get(priority)));
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Stops the workers. The messages not dispatched yet are dropped.
+     */
+    public void shutDown() {
+        synchronized (mLock) {
+            mShutDown = true;
+            mTopicQueues.clear();
+            for (Priority priority : Priority.values()) {
+                mReadyTopics.get(priority).clear();
+                mClassStats.get(priority).mQueuedMessages = 0;
+            }
+            mLock.notifyAll();
+        }
+        if (mWorkers != null) {
+            mWorkers.shutdown();
+        }
+    }
+
+    private void runWorker() {
+        while (true) {
+            Message message;
+            synchronized (mLock) {
+                message = nextMessageLocked();
+                while (message == null && !mShutDown) {
+                    try {
+                        mLock.wait();
+                    } catch (InterruptedException e) {
+                        Log.w(TAG, "Worker interrupted");
+                        return;
+                    }
+                    message = nextMessageLocked();
+                }
+                if (mShutDown) {
+                    return;
+                }
+            }
+
+            boolean dispatched = false;
+            try {
+                dispatch(message.mTopicQueue.mTopic, message.mTask);
+                dispatched = true;
+            } finally {
+                synchronized (mLock) {
+                    TopicQueue topicQueue = message.mTopicQueue;
+                    topicQueue.mDispatching = false;
+                    if (!mShutDown && !topicQueue.mMessages.isEmpty()) {
+                        mReadyTopics.get(topicQueue.mPriority).add(topicQueue);
+                        mLock.notify();
+                    }
+                    if (!dispatched && !mShutDown) {
+                        // An Error ends this worker, keep the number of workers
+                        mWorkers.submit(this::runWorker);
+                    }
+                }
+            }
+        }
+    }
+
+    private Message nextMessageLocked() {
+        long now = SystemClock.uptimeMillis();
+        TopicQueue next = null;
+        boolean aged = false;
+        for (Priority priority : Priority.values()) {
+            TopicQueue topicQueue = mReadyTopics.get(priority).peek();
+            if (topicQueue == null) {
+                continue;
+            }
+            if (next == null) {
+                next = topicQueue;
+                continue;
+            }
+            Message message = topicQueue.mMessages.peek();
+            if (now - message.mScheduleTimeMs >= mAgingThresholdsMs.get(priority)
+                    && message.mSequence < next.mMessages.peek().mSequence) {
+                next = topicQueue;
+                aged = true;
+            }
+        }
+        if (next == null) {
+            return null;
+        }
+
+        mReadyTopics.get(next.mPriority).poll();
+        next.mDispatching = true;
+        Message message = next.mMessages.poll();
+        long queueLatencyMs = now - message.mScheduleTimeMs;
+        ClassStats stats = mClassStats.get(next.mPriority);
+        stats.mQueuedMessages--;
+        stats.mDispatchedMessages++;
+        stats.mTotalQueueLatencyMs += queueLatencyMs;
+        stats.mMaxQueueLatencyMs = Math.max(stats.mMaxQueueLatencyMs, queueLatencyMs);
+        if (aged) {
+            stats.mAgedMessages++;
+        }
+        return message;
+    }
+
+    private void dispatch(String topic, Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            Log.e(TAG, String.format("Failed to dispatch AASB message for topic=%s. Exception: %s", topic, e));
+        } catch (Error e) {
+            Log.e(TAG, String.format("Error dispatching AASB message for topic=%s. Error: %s", topic, e));
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright 2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.alexaautoclientservice.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact binary trace of the AASB messages and stream data exchanged with the Engine, recorded by the message
+ * logger and replayed by the unit test harness.
+ *
+ * A trace starts with the header "AASB", the format version and the wall clock time of the recording. Each record
+ * is a type byte followed by varints for the time since the previous record in microseconds and the data length,
+ * and the data: the UTF-8 message or the stream bytes. A stream id is written once in a definition record, and the
+ * stream data records refer to it by index. A gap record holds the number of records the recording dropped at its
+ * time. Files ending with ".gz" are compressed with gzip.
+ *
+ * A trace cut short, by a crash or a recording that was not stopped, ends at the last complete record.
+ */
+public final class AASBTrace {
+    private static final int MAGIC = 0x41415342;
+    private static final int VERSION = 1;
+    private static final int GZIP_MAGIC = 0x1f8b;
+    private static final String COMPRESSED_SUFFIX = ".gz";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Record types in the file
+    private static final int MESSAGE_TO_ENGINE = 1;
+    private static final int MESSAGE_FROM_ENGINE = 2;
+    private static final int STREAM_TO_ENGINE = 3;
+    private static final int STREAM_FROM_ENGINE = 4;
+    private static final int STREAM_DEFINITION = 5;
+    private static final int GAP = 6;
+
+    private AASBTrace() {}
+
+    public enum Type {
+        MESSAGE_TO_ENGINE,
+        MESSAGE_FROM_ENGINE,
+        STREAM_TO_ENGINE,
+        STREAM_FROM_ENGINE,
+        GAP;
+
+        public boolean isMessage() {
+            return this == MESSAGE_TO_ENGINE || this == MESSAGE_FROM_ENGINE;
+        }
+
+        public boolean isToEngine() {
+            return this == MESSAGE_TO_ENGINE || this == STREAM_TO_ENGINE;
+        }
+    }
+
+    public static class Record {
+        private final Type mType;
+        private final long mTimeUs;
+        private final String mStreamId;
+        private final byte[] mData;
+
+        Record(Type type, long timeUs, String streamId, byte[] data) {
+            mType = type;
+            mTimeUs = timeUs;
+            mStreamId = streamId;
+            mData = data;
+        }
+
+        public Type getType() {
+            return mType;
+        }
+
+        /**
+         * @return the time of the record in microseconds since the first record of the trace.
+         */
+        public long getTimeUs() {
+            return mTimeUs;
+        }
+
+        /**
+         * @return the id of the stream, or null for a message.
+         */
+        @Nullable
+        public String getStreamId() {
+            return mStreamId;
+        }
+
+        @NonNull
+        public byte[] getData() {
+            return mData;
+        }
+
+        @NonNull
+        public String getMessage() {
+            return new String(mData, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return the number of records the recording dropped before a gap record, or 0 for the other records.
+         */
+        public long getDroppedRecords() {
+            return mType == Type.GAP ? ByteBuffer.wrap(mData).getLong() : 0;
+        }
+    }
+
+    /**
+     * Writes a trace. Not thread safe, the records must be written by a single thread.
+     */
+    public static class Writer implements Closeable, Flushable {
+        private final DataOutputStream mOutput;
+        private final Map<String, Integer> mStreamIndexes = new HashMap<>();
+        private long mFirstTimeUs = -1;
+        private long mLastTimeUs;
+
+        public Writer(@NonNull OutputStream output, long startTimeMillis) throws IOException {
+            mOutput = new DataOutputStream(new BufferedOutputStream(output, BUFFER_SIZE));
+            mOutput.writeInt(MAGIC);
+            mOutput.writeByte(VERSION);
+            mOutput.writeLong(startTimeMillis);
+        }
+
+        /**
+         * @param timeUs monotonic time of the message in microseconds.
+         */
+        public void writeMessage(boolean toEngine, @NonNull String message, long timeUs) throws IOException {
+            byte[] data = message.getBytes(StandardCharsets.UTF_8);
+            writeRecord(toEngine ? MESSAGE_TO_ENGINE : MESSAGE_FROM_ENGINE, timeUs, -1, data, 0, data.length);
+        }
+
+        /**
+         * @param timeUs monotonic time of the data in microseconds.
+         */
+        public void writeStreamData(boolean toEngine, @NonNull String streamId, @NonNull byte[] data, int offset,
+                int length, long timeUs) throws IOException {
+            Integer index = mStreamIndexes.get(streamId);
+            if (index == null) {
+                index = mStreamIndexes.size();
+                mStreamIndexes.put(streamId, index);
+                byte[] id = streamId.getBytes(StandardCharsets.UTF_8);
+                writeRecord(STREAM_DEFINITION, timeUs, index, id, 0, id.length);
+            }
+            writeRecord(toEngine ? STREAM_TO_ENGINE : STREAM_FROM_ENGINE, timeUs, index, data, offset, length);
+        }
+
+        /**
+         * Records that the given number of records were dropped before this time.
+         *
+         * @param timeUs monotonic time of the gap in microseconds.
+         */
+        public void writeGap(long droppedRecords, long timeUs) throws IOException {
+            byte[] data = ByteBuffer.allocate(Long.BYTES).putLong(droppedRecords).array();
+            writeRecord(GAP, timeUs, -1, data, 0, data.length);
+        }
+
+        private void writeRecord(int type, long timeUs, int streamIndex, byte[] data, int offset, int length)
+                throws IOException {
+            if (mFirstTimeUs < 0) {
+                mFirstTimeUs = timeUs;
+            }
+            // Records from different threads may be queued slightly out of order, keep the time monotonic
+            long relativeTimeUs = Math.max(timeUs - mFirstTimeUs, mLastTimeUs);
+            mOutput.writeByte(type);
+            writeVarLong(mOutput, relativeTimeUs - mLastTimeUs);
+            if (streamIndex >= 0) {
+                writeVarLong(mOutput, streamIndex);
+            }
+            writeVarLong(mOutput, length);
+            mOutput.write(data, offset, length);
+            mLastTimeUs = relativeTimeUs;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            mOutput.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            mOutput.close();
+        }
+    }
+
+    /**
+     * Reads a trace written by {@link Writer}.
+     */
+    public static class Reader implements Closeable {
+        private final DataInputStream mInput;
+        private final long mStartTimeMillis;
+        private final List<String> mStreamIds = new ArrayList<>();
+        private long mTimeUs;
+        private boolean mTruncated;
+
+        public Reader(@NonNull InputStream input) throws IOException {
+            mInput = new DataInputStream(new BufferedInputStream(input, BUFFER_SIZE));
+            if (mInput.readInt() != MAGIC) {
+                throw new IOException("Not an AASB trace");
+            }
+            int version = mInput.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported AASB trace version " + version);
+            }
+            mStartTimeMillis = mInput.readLong();
+        }
+
+        /**
+         * @return the wall clock time at which the recording started.
+         */
+        public long getStartTimeMillis() {
+            return mStartTimeMillis;
+        }
+
+        /**
+         * @return true if the trace ended in the middle of a record.
+         */
+        public boolean isTruncated() {
+            return mTruncated;
+        }
+
+        /**
+         * @return the next record, or null at the end of the trace, including the end of a truncated trace.
+         */
+        @Nullable
+        public Record read() throws IOException {
+            try {
+                return readRecord();
+            } catch (EOFException e) {
+                // The last record, or the gzip trailer, was not written completely
+                mTruncated = true;
+                return null;
+            }
+        }
+
+        private Record readRecord() throws IOException {
+            while (true) {
+                int type = mInput.read();
+                if (type < 0) {
+                    return null;
+                }
+                mTimeUs += readVarLong(mInput);
+                boolean isStream = type == STREAM_TO_ENGINE || type == STREAM_FROM_ENGINE || type == STREAM_DEFINITION;
+                int streamIndex = isStream ? (int) readVarLong(mInput) : -1;
+                byte[] data = new byte[(int) readVarLong(mInput)];
+                mInput.readFully(data);
+                switch (type) {
+                    case MESSAGE_TO_ENGINE:
+                        return new Record(Type.MESSAGE_TO_ENGINE, mTimeUs, null, data);
+                    case MESSAGE_FROM_ENGINE:
+                        return new Record(Type.MESSAGE_FROM_ENGINE, mTimeUs, null, data);
+                    case STREAM_TO_ENGINE:
+                        return new Record(Type.STREAM_TO_ENGINE, mTimeUs, getStreamId(streamIndex), data);
+                    case STREAM_FROM_ENGINE:
+                        return new Record(Type.STREAM_FROM_ENGINE, mTimeUs, getStreamId(streamIndex), data);
+                    case GAP:
+                        if (data.length != Long.BYTES) {
+                            throw new IOException("Malformed gap record");
+                        }
+                        return new Record(Type.GAP, mTimeUs, null, data);
+                    case STREAM_DEFINITION:
+                        if (streamIndex != mStreamIds.size()) {
+                            throw new IOException("Unexpected stream index " + streamIndex);
+                        }
+                        mStreamIds.add(new String(data, StandardCharsets.UTF_8));
+                        break;
+                    default:
+                        throw new IOException("Unknown record type " + type);
+                }
+            }
+        }
+
+        private String getStreamId(int streamIndex) throws IOException {
+            if (streamIndex < 0 || streamIndex >= mStreamIds.size()) {
+                throw new IOException("Undefined stream index " + streamIndex);
+            }
+            return mStreamIds.get(streamIndex);
+        }
+
+        @Override
+        public void close() throws IOException {
+            mInput.close();
+        }
+    }
+
+    /**
+     * Creates a trace file, compressed with gzip if its name ends with ".gz".
+     */
+    public static Writer create(@NonNull File file, long startTimeMillis) throws IOException {
+        OutputStream output = new FileOutputStream(file);
+        try {
+            if (file.getName().endsWith(COMPRESSED_SUFFIX)) {
+                output = new GZIPOutputStream(output, BUFFER_SIZE);
+            }
+            return new Writer(output, startTimeMillis);
+        } catch (IOException e) {
+            output.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a trace file, compressed with gzip or not.
+     */
+    public static Reader open(@NonNull File file) throws IOException {
+        InputStream input = new BufferedInputStream(new FileInputStream(file));
+        try {
+            input.mark(2);
+            int magic = (input.read() << 8) | input.read();
+            input.reset();
+            if (magic == GZIP_MAGIC) {
+                input = new GZIPInputStream(input, BUFFER_SIZE);
+            }
+            return new Reader(input);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads all the records of a trace file, up to the last complete record of a truncated trace.
+     */
+    public static List<Record> readAll(@NonNull File file) throws IOException {
+        List<Record> records = new ArrayList<>();
+        try (Reader reader = open(file)) {
+            Record record;
+            while ((record = reader.read()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
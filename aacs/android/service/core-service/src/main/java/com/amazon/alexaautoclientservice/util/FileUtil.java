@@ -62,11 +62,13 @@ public class FileUtil {
     public static final String CERTS_DIR = "certs";
     public static final String EXTERNAL_FILE_DIR = "externalFiles";
     public static final String MODEL_DIR = "aacs.amazonLite";
+    public static final String ADDRESS_BOOK_SPOOL_DIR = "addressBook";
 
     public static final String CONFIG_KEY = "aacs-configuration";
     public static final String EXTRAS_CONFIG_KEY = "aacs-extras";
 
     public static final String AACS_GENERAL_CONFIG = "aacs.general";
+    public static final String AASB_ADDRESS_BOOK_CONFIG = "aasb.addressBook";
     public static final String AACS_DEFAULT_PLATFORM_IMPL_CONFIG = "aacs.defaultPlatformHandlers";
 
     public static final String AACS_CONFIG_NETWORK_INFO_PROVIDER = "NetworkInfoProvider";
@@ -428,6 +430,7 @@ public class FileUtil {
                     translatedConfig.put(key, config.getJSONObject(key));
                 }
             }
+            populateAddressBookSpoolPath(context, translatedConfig);
         } catch (Exception e) {
             Log.e(TAG, String.format("Translation of configuration failed. Error: %s", e.getMessage()));
             return null;
@@ -437,6 +440,29 @@ public class FileUtil {
         return translatedConfig;
     }
 
+    private static void populateAddressBookSpoolPath(Context context, JSONObject translatedConfig)
+            throws JSONException {
+        JSONObject addressBookModuleConfig = translatedConfig.optJSONObject(AASB_ADDRESS_BOOK_CONFIG);
+        if (addressBookModuleConfig == null) {
+            addressBookModuleConfig = new JSONObject();
+            translatedConfig.put(AASB_ADDRESS_BOOK_CONFIG, addressBookModuleConfig);
+        }
+        JSONObject addressBookConfig = addressBookModuleConfig.optJSONObject("AddressBook");
+        if (addressBookConfig == null) {
+            addressBookConfig = new JSONObject();
+            addressBookModuleConfig.put("AddressBook", addressBookConfig);
+        }
+        String spoolPath = addressBookConfig.optString("spoolPath");
+        if (spoolPath == null || spoolPath.equals("")) {
+            File spoolDir = new File(context.getCacheDir(), ADDRESS_BOOK_SPOOL_DIR);
+            if (!spoolDir.exists() && !spoolDir.mkdirs()) {
+                Log.w(TAG, "Cannot create address book spool directory, address books are kept in memory");
+                return;
+            }
+            addressBookConfig.put("spoolPath", spoolDir.getPath());
+        }
+    }
+
     private static void populateDSN(Context context, JSONObject aacsAlexaConfig) throws JSONException {
         if (aacsAlexaConfig.has("deviceInfo")) {
             JSONObject deviceInfo = aacsAlexaConfig.getJSONObject("deviceInfo");
@@ -750,6 +776,22 @@ public class FileUtil {
         }
     }
 
+    public static JSONObject getAASBMessageSchedulerConfiguration() {
+        Object leafNodeValue = getLeafNodeValueFromJson(mGeneralConfiguration, "messageScheduler");
+        if (leafNodeValue instanceof JSONObject) {
+            return (JSONObject) leafNodeValue;
+        }
+        return null;
+    }
+
+    public static JSONObject getStreamFlowControlConfiguration() {
+        Object leafNodeValue = getLeafNodeValueFromJson(mGeneralConfiguration, "streamFlowControl");
+        if (leafNodeValue instanceof JSONObject) {
+            return (JSONObject) leafNodeValue;
+        }
+        return null;
+    }
+
     public static void copyExternalFileToAACS(
             @NonNull Context context, @NonNull Uri fileUri, @NonNull String module, @NonNull String field) {
         // Create copy file in externalFiles directory
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.alexaautoclientservice.util;
+
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.amazon.aacsconstants.AACSConstants;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the startup of AACS as a graph of steps. A step starts once all the steps it depends on succeeded. Steps that
+ * only use thread safe APIs run in parallel on a bounded pool, the other steps run in order on the thread that runs
+ * the startup. The start time and duration of every step are logged when the startup completes, and every step is
+ * traced as a section for systrace. The startup fails if the steps on the pool do not complete within the timeout.
+ */
+public class StartupOrchestrator {
+    private static final String TAG = AACSConstants.AACS + "-" + StartupOrchestrator.class.getSimpleName();
+    private static final int MAX_PARALLEL_STEPS = 4;
+    public static final long DEFAULT_TIMEOUT_MS = 120000;
+
+    /**
+     * A startup step.
+     */
+    public interface Step {
+        /**
+         * @return false if the step failed, in which case the steps depending on it do not run.
+         */
+        boolean run();
+    }
+
+    private static class Node {
+        final String mName;
+        final boolean mOnCallerThread;
+        final Step mStep;
+        final List<String> mDependencies;
+        final List<Node> mDependents = new ArrayList<>();
+        int mPendingDependencies;
+        long mStartTimeMs;
+        long mDurationMs;
+        String mThreadName;
+        boolean mSucceeded;
+        RuntimeException mException;
+
+        Node(String name, boolean onCallerThread, Step step, List<String> dependencies) {
+            mName = name;
+            mOnCallerThread = onCallerThread;
+            mStep = step;
+            mDependencies = dependencies;
+        }
+    }
+
+    private final Map<String, Node> mNodes = new LinkedHashMap<>();
+    private long mTimeoutMs = DEFAULT_TIMEOUT_MS;
+
+    /**
+     * Sets the time the startup waits for the steps running on the pool. Steps on the caller thread are not
+     * interrupted, their duration counts towards the timeout.
+     */
+    public StartupOrchestrator setTimeout(long timeoutMs) {
+        mTimeoutMs = timeoutMs;
+        return this;
+    }
+
+    /**
+     * Adds a step that runs on the pool.
+     */
+    public StartupOrchestrator addStep(@NonNull String name, @NonNull Step step, String... dependencies) {
+        return addStep(name, false, step, dependencies);
+    }
+
+    /**
+     * Adds a step that runs on the thread calling {@link #run()}, for steps using APIs that are not thread safe or
+     * that need the looper of that thread.
+     */
+    public StartupOrchestrator addCallerThreadStep(@NonNull String name, @NonNull Step step, String... dependencies) {
+        return addStep(name, true, step, dependencies);
+    }
+
+    private StartupOrchestrator addStep(String name, boolean onCallerThread, Step step, String... dependencies) {
+        if (mNodes.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate startup step " + name);
+        }
+        List<String> dependencyList = new ArrayList<>();
+        for (String dependency : dependencies) {
+            if (!mNodes.containsKey(dependency)) {
+                // Steps are added after their dependencies, which also rules out cycles
+                throw new IllegalArgumentException("Startup step " + name + " depends on unknown step " + dependency);
+            }
+            dependencyList.add(dependency);
+        }
+        mNodes.put(name, new Node(name, onCallerThread, step, dependencyList));
+        return this;
+    }
+
+    /**
+     * Runs all the steps and waits for them to complete. If a step fails, the steps that are not started yet are
+     * skipped. A runtime exception thrown by a step is rethrown once the running steps completed. If the timeout
+     * expires, the steps still running on the pool are interrupted and the other steps are skipped.
+     *
+     * @return true if all the steps succeeded.
+     */
+    public boolean run() {
+        long startTimeMs = SystemClock.elapsedRealtime();
+        long deadlineNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(mTimeoutMs);
+        for (Node node : mNodes.values()) {
+            node.mPendingDependencies = node.mDependencies.size();
+            for (String dependency : node.mDependencies) {
+                mNodes.get(dependency).mDependents.add(node);
+            }
+        }
+
+        // Steps mostly wait for assets and native libraries to load, so the pool is not bound to the cores
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_PARALLEL_STEPS, runnable -> new Thread(runnable, "StartupStep"));
+        LinkedBlockingQueue<Node> completedPoolSteps = new LinkedBlockingQueue<>();
+        ArrayDeque<Node> readyCallerSteps = new ArrayDeque<>();
+        int runningPoolSteps = 0;
+        int completedSteps = 0;
+        Node failedStep = null;
+
+        try {
+            List<Node> readySteps = new ArrayList<>();
+            for (Node node : mNodes.values()) {
+                if (node.mPendingDependencies == 0) {
+                    readySteps.add(node);
+                }
+            }
+            while (true) {
+                if (failedStep == null) {
+                    for (Node node : readySteps) {
+                        if (node.mOnCallerThread) {
+                            readyCallerSteps.add(node);
+                        } else {
+                            runningPoolSteps++;
+                            executor.execute(() -> {
+                                runStep(node, startTimeMs);
+                                completedPoolSteps.add(node);
+                            });
+                        }
+                    }
+                }
+                readySteps.clear();
+
+                Node completed;
+                if (failedStep == null && !readyCallerSteps.isEmpty()) {
+                    completed = readyCallerSteps.poll();
+                    runStep(completed, startTimeMs);
+                } else if (runningPoolSteps > 0) {
+                    completed = completedPoolSteps.poll(deadlineNs - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (completed == null) {
+                        executor.shutdownNow();
+                        logTrace(SystemClock.elapsedRealtime() - startTimeMs, completedSteps);
+                        Log.e(TAG, String.format("Startup timed out after %d ms", mTimeoutMs));
+                        return false;
+                    }
+                    runningPoolSteps--;
+                } else {
+                    break;
+                }
+
+                completedSteps++;
+                if (!completed.mSucceeded) {
+                    if (failedStep == null) {
+                        failedStep = completed;
+                    }
+                    continue;
+                }
+                for (Node dependent : completed.mDependents) {
+                    if (--dependent.mPendingDependencies == 0) {
+                        readySteps.add(dependent);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.e(TAG, "Interrupted while waiting for startup steps");
+            return false;
+        } finally {
+            executor.shutdown();
+        }
+
+        logTrace(SystemClock.elapsedRealtime() - startTimeMs, completedSteps);
+        if (failedStep != null) {
+            Log.e(TAG, "Startup step failed: " + failedStep.mName);
+            if (failedStep.mException != null) {
+                throw failedStep.mException;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private static void runStep(Node node, long startupStartTimeMs) {
+        node.mThreadName = Thread.currentThread().getName();
+        long startTimeMs = SystemClock.elapsedRealtime();
+        node.mStartTimeMs = startTimeMs - startupStartTimeMs;
+        Trace.beginSection(node.mName);
+        try {
+            node.mSucceeded = node.mStep.run();
+        } catch (RuntimeException e) {
+            Log.e(TAG, String.format("Startup step %s threw %s", node.mName, e));
+            node.mException = e;
+            node.mSucceeded = false;
+        } finally {
+            Trace.endSection();
+            node.mDurationMs = SystemClock.elapsedRealtime() - startTimeMs;
+        }
+    }
+
+    private void logTrace(long totalDurationMs, int completedSteps) {
+        StringBuilder trace = new StringBuilder(String.format(
+                "Startup took %d ms, %d of %d steps run", totalDurationMs, completedSteps, mNodes.size()));
+        for (Node node : mNodes.values()) {
+            if (node.mThreadName == null) {
+                trace.append(String.format("\n  %s: skipped", node.mName));
+            } else {
+                trace.append(String.format("\n  %s: start +%d ms, duration %d ms, thread %s%s", node.mName,
+                        node.mStartTimeMs, node.mDurationMs, node.mThreadName, node.mSucceeded ? "" : ", failed"));
+            }
+        }
+        Log.i(TAG, trace.toString());
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright 2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.alexaautoclientservice.util;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.amazon.aacsconstants.AACSConstants;
+import com.amazon.aace.core.MessageStream;
+import com.amazon.alexaautoclientservice.aacs_extra.StreamFlowListener;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Copies the streams exchanged between the AACS clients and the Engine with watermark based flow control.
+ *
+ * A pushed stream is copied from the client pipe to the Engine in chunks of "pushChunkSize" bytes. The bytes
+ * waiting in the pipe are the backlog of the producer: when it reaches "highWatermarkBytes" the stream is overrun
+ * and the {@link StreamFlowListener}s are notified, and when it drains to "lowWatermarkBytes" the stream is ready
+ * again. A fetched stream is copied from the Engine to the client pipe in chunks of "fetchChunkSize" bytes, and
+ * backs off exponentially up to "maxFetchBackoffMs" while the Engine has no data instead of polling it.
+ *
+ * Every stream counts its bytes, stalls and overruns:
+ * <ul>
+ * <li>push: a stall is a write to the Engine blocking for "stallThresholdMs" or more.</li>
+ * <li>fetch: a stall is a read finding no data in the Engine, and an overrun is a write to the client pipe blocking
+ * for "stallThresholdMs" or more.</li>
+ * </ul>
+ *
+ * The flow control is configured with the "streamFlowControl" node of "aacs.general":
+ * <pre>
+ * "streamFlowControl": {
+ *   "pushChunkSize": 300,
+ *   "fetchChunkSize": 4096,
+ *   "highWatermarkBytes": 16384,
+ *   "lowWatermarkBytes": 4096,
+ *   "stallThresholdMs": 20,
+ *   "maxFetchBackoffMs": 20
+ * }
+ * </pre>
+ */
+public class StreamFlowController {
+    private static final String TAG = AACSConstants.AACS + "-" + StreamFlowController.class.getSimpleName();
+
+    public static final int DEFAULT_PUSH_CHUNK_SIZE = 300;
+    public static final int DEFAULT_FETCH_CHUNK_SIZE = 4096;
+    public static final int DEFAULT_HIGH_WATERMARK_BYTES = 16384;
+    public static final int DEFAULT_LOW_WATERMARK_BYTES = 4096;
+    public static final long DEFAULT_STALL_THRESHOLD_MS = 20;
+    public static final long DEFAULT_MAX_FETCH_BACKOFF_MS = 20;
+
+    private static final int PUSH_MIN_CHUNK_SIZE = 20;
+    private static final long FETCH_MIN_BACKOFF_MS = 1;
+
+    private static final String PUSH_CHUNK_SIZE = "pushChunkSize";
+    private static final String FETCH_CHUNK_SIZE = "fetchChunkSize";
+    private static final String HIGH_WATERMARK_BYTES = "highWatermarkBytes";
+    private static final String LOW_WATERMARK_BYTES = "lowWatermarkBytes";
+    private static final String STALL_THRESHOLD_MS = "stallThresholdMs";
+    private static final String MAX_FETCH_BACKOFF_MS = "maxFetchBackoffMs";
+
+    public enum Direction {
+        PUSH,
+        FETCH,
+    }
+
+    /**
+     * Observes the data copied by the streams, e.g. to record it. Invoked on the thread copying the stream.
+     */
+    public interface StreamTap {
+        void onStreamData(Direction direction, String streamId, byte[] data, int offset, int length);
+    }
+
+    /**
+     * Snapshot of the counters of a stream, or of all the streams of a direction.
+     */
+    public static class Counters {
+        private final String mStreamId;
+        private final Direction mDirection;
+        private final long mBytes;
+        private final long mStalls;
+        private final long mOverruns;
+
+        private Counters(StreamState state) {
+            mStreamId = state.mStreamId;
+            mDirection = state.mDirection;
+            mBytes = state.mBytes.get();
+            mStalls = state.mStalls.get();
+            mOverruns = state.mOverruns.get();
+        }
+
+        /**
+         * @return the id of the stream, or null for the counters of all the streams of the direction.
+         */
+        @Nullable
+        public String getStreamId() {
+            return mStreamId;
+        }
+
+        public Direction getDirection() {
+            return mDirection;
+        }
+
+        public long getBytes() {
+            return mBytes;
+        }
+
+        public long getStalls() {
+            return mStalls;
+        }
+
+        public long getOverruns() {
+            return mOverruns;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s: bytes=%d, stalls=%d, overruns=%d", mDirection,
+                    mStreamId == null ? "total" : mStreamId, mBytes, mStalls, mOverruns);
+        }
+    }
+
+    private static class StreamState {
+        final String mStreamId;
+        final Direction mDirection;
+        final AtomicLong mBytes = new AtomicLong();
+        final AtomicLong mStalls = new AtomicLong();
+        final AtomicLong mOverruns = new AtomicLong();
+        // Only accessed by the thread copying the stream
+        boolean mOverrun;
+
+        StreamState(String streamId, Direction direction) {
+            mStreamId = streamId;
+            mDirection = direction;
+        }
+    }
+
+    private static class Settings {
+        final int mPushChunkSize;
+        final int mFetchChunkSize;
+        final int mHighWatermarkBytes;
+        final int mLowWatermarkBytes;
+        final long mStallThresholdMs;
+        final long mMaxFetchBackoffMs;
+
+        Settings(int pushChunkSize, int fetchChunkSize, int highWatermarkBytes, int lowWatermarkBytes,
+                long stallThresholdMs, long maxFetchBackoffMs) {
+            mPushChunkSize = pushChunkSize;
+            mFetchChunkSize = fetchChunkSize;
+            mHighWatermarkBytes = highWatermarkBytes;
+            mLowWatermarkBytes = lowWatermarkBytes;
+            mStallThresholdMs = stallThresholdMs;
+            mMaxFetchBackoffMs = maxFetchBackoffMs;
+        }
+    }
+
+    private static final Settings DEFAULT_SETTINGS = new Settings(DEFAULT_PUSH_CHUNK_SIZE, DEFAULT_FETCH_CHUNK_SIZE,
+            DEFAULT_HIGH_WATERMARK_BYTES, DEFAULT_LOW_WATERMARK_BYTES, DEFAULT_STALL_THRESHOLD_MS,
+            DEFAULT_MAX_FETCH_BACKOFF_MS);
+
+    private final Set<StreamFlowListener> mListeners = new CopyOnWriteArraySet<>();
+    private final Map<String, StreamState> mStreams = new ConcurrentHashMap<>();
+    private final Map<Direction, StreamState> mTotals = new EnumMap<>(Direction.class);
+    private volatile Settings mSettings = DEFAULT_SETTINGS;
+    private volatile StreamTap mStreamTap;
+
+    public StreamFlowController() {
+        for (Direction direction : Direction.values()) {
+            mTotals.put(direction, new StreamState(null, direction));
+        }
+    }
+
+    /**
+     * Applies the "streamFlowControl" configuration to the streams opened from now on. Null or invalid values keep
+     * the defaults.
+     */
+    public void configure(@Nullable JSONObject config) {
+        if (config == null) {
+            mSettings = DEFAULT_SETTINGS;
+            return;
+        }
+
+        int highWatermarkBytes = optPositiveInt(config, HIGH_WATERMARK_BYTES, DEFAULT_HIGH_WATERMARK_BYTES);
+        int lowWatermarkBytes = config.optInt(LOW_WATERMARK_BYTES, DEFAULT_LOW_WATERMARK_BYTES);
+        if (lowWatermarkBytes < 0 || lowWatermarkBytes >= highWatermarkBytes) {
+            Log.e(TAG,
+                    String.format("Invalid %s=%d, must be less than %s=%d. Using %d", LOW_WATERMARK_BYTES,
+                            lowWatermarkBytes, HIGH_WATERMARK_BYTES, highWatermarkBytes, highWatermarkBytes / 4));
+            lowWatermarkBytes = highWatermarkBytes / 4;
+        }
+        mSettings = new Settings(optPositiveInt(config, PUSH_CHUNK_SIZE, DEFAULT_PUSH_CHUNK_SIZE),
+                optPositiveInt(config, FETCH_CHUNK_SIZE, DEFAULT_FETCH_CHUNK_SIZE), highWatermarkBytes,
+                lowWatermarkBytes, Math.max(config.optLong(STALL_THRESHOLD_MS, DEFAULT_STALL_THRESHOLD_MS), 0),
+                Math.max(config.optLong(MAX_FETCH_BACKOFF_MS, DEFAULT_MAX_FETCH_BACKOFF_MS), FETCH_MIN_BACKOFF_MS));
+    }
+
+    private static int optPositiveInt(JSONObject config, String key, int defaultValue) {
+        int value = config.optInt(key, defaultValue);
+        if (value <= 0) {
+            Log.e(TAG, String.format("Invalid %s=%d, using %d", key, value, defaultValue));
+            return defaultValue;
+        }
+        return value;
+    }
+
+    public void addListener(@NonNull StreamFlowListener listener) {
+        mListeners.add(listener);
+    }
+
+    public void removeListener(@NonNull StreamFlowListener listener) {
+        mListeners.remove(listener);
+    }
+
+    public void setStreamTap(@Nullable StreamTap streamTap) {
+        mStreamTap = streamTap;
+    }
+
+    /**
+     * Copies a stream pushed by a client to the Engine until the client closes it or the Engine fails to write it.
+     * Blocks the calling thread.
+     *
+     * @param streamId id of the stream.
+     * @param input the pipe the client writes to.
+     * @param messageStream the Engine stream opened for writing.
+     */
+    public void push(@NonNull String streamId, @NonNull InputStream input, @NonNull MessageStream messageStream)
+            throws IOException {
+        Settings settings = mSettings;
+        StreamState state = openStream(streamId, Direction.PUSH);
+        try {
+            notifyReady(streamId);
+            byte[] buffer = new byte[settings.mPushChunkSize];
+            int minChunkSize = Math.min(PUSH_MIN_CHUNK_SIZE, buffer.length);
+            while (true) {
+                int backlogBytes = input.available();
+                updateBacklog(state, backlogBytes, settings);
+                int bytesRead = input.read(buffer, 0, Math.max(Math.min(backlogBytes, buffer.length), minChunkSize));
+                if (bytesRead < 0) {
+                    break;
+                }
+                if (bytesRead > 0) {
+                    long startMs = SystemClock.uptimeMillis();
+                    int bytesWritten = messageStream.write(buffer, 0, bytesRead);
+                    if (SystemClock.uptimeMillis() - startMs >= settings.mStallThresholdMs) {
+                        increment(state.mStalls, mTotals.get(Direction.PUSH).mStalls);
+                    }
+                    if (bytesWritten < 0) {
+                        Log.e(TAG,
+                                String.format(
+                                        "Failed to write stream %s to the Engine, error=%d", streamId, bytesWritten));
+                        break;
+                    }
+                    if (bytesWritten < bytesRead) {
+                        Log.w(TAG,
+                                String.format("Engine wrote %d of %d bytes of stream %s", bytesWritten, bytesRead,
+                                        streamId));
+                    }
+                    add(state, bytesWritten);
+                    tap(Direction.PUSH, streamId, buffer, bytesWritten);
+                }
+            }
+        } finally {
+            closeStream(state);
+        }
+    }
+
+    /**
+     * Copies a stream of the Engine to a client until the Engine closes it or the fetch is cancelled. Blocks the
+     * calling thread.
+     *
+     * @param streamId id of the stream.
+     * @param messageStream the Engine stream opened for reading.
+     * @param output the pipe the client reads from.
+     * @param isActive returns false once the client cancelled the fetch.
+     */
+    public void fetch(@NonNull String streamId, @NonNull MessageStream messageStream, @NonNull OutputStream output,
+            @NonNull BooleanSupplier isActive) throws IOException {
+        Settings settings = mSettings;
+        StreamState state = openStream(streamId, Direction.FETCH);
+        StreamState totals = mTotals.get(Direction.FETCH);
+        try {
+            byte[] buffer = new byte[settings.mFetchChunkSize];
+            long backoffMs = 0;
+            while (isActive.getAsBoolean() && !messageStream.isClosed()) {
+                int size = messageStream.read(buffer);
+                if (size > 0) {
+                    long startMs = SystemClock.uptimeMillis();
+                    output.write(buffer, 0, size);
+                    if (SystemClock.uptimeMillis() - startMs >= settings.mStallThresholdMs) {
+                        increment(state.mOverruns, totals.mOverruns);
+                    }
+                    add(state, size);
+                    tap(Direction.FETCH, streamId, buffer, size);
+                    backoffMs = 0;
+                    continue;
+                }
+                if (size < 0) {
+                    Log.e(TAG, String.format("Failed to read stream %s from the Engine", streamId));
+                    break;
+                }
+
+                // The Engine has no data yet, wait for it instead of polling
+                if (backoffMs == 0) {
+                    increment(state.mStalls, totals.mStalls);
+                    backoffMs = FETCH_MIN_BACKOFF_MS;
+                } else {
+                    backoffMs = Math.min(backoffMs * 2, settings.mMaxFetchBackoffMs);
+                }
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException e) {
+                    Log.w(TAG, String.format("Fetching stream %s interrupted", streamId));
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } finally {
+            closeStream(state);
+        }
+    }
+
+    /**
+     * @return a snapshot of the counters of all the streams of every direction since the service started.
+     */
+    public Map<Direction, Counters> getTotalCounters() {
+        Map<Direction, Counters> counters = new EnumMap<>(Direction.class);
+        for (Direction direction : Direction.values()) {
+            counters.put(direction, new Counters(mTotals.get(direction)));
+        }
+        return counters;
+    }
+
+    /**
+     * @return a snapshot of the counters of the streams being copied.
+     */
+    public List<Counters> getStreamCounters() {
+        List<Counters> counters = new ArrayList<>();
+        for (StreamState state : mStreams.values()) {
+            counters.add(new Counters(state));
+        }
+        return counters;
+    }
+
+    private StreamState openStream(String streamId, Direction direction) {
+        StreamState state = new StreamState(streamId, direction);
+        mStreams.put(streamId, state);
+        return state;
+    }
+
+    private void closeStream(StreamState state) {
+        mStreams.remove(state.mStreamId, state);
+        Log.i(TAG, String.format("Closed %s", new Counters(state)));
+    }
+
+    private void updateBacklog(StreamState state, int backlogBytes, Settings settings) {
+        if (!state.mOverrun && backlogBytes >= settings.mHighWatermarkBytes) {
+            state.mOverrun = true;
+            increment(state.mOverruns, mTotals.get(Direction.PUSH).mOverruns);
+            Log.w(TAG, String.format("Stream %s overrun, backlog=%d bytes", state.mStreamId, backlogBytes));
+            for (StreamFlowListener listener : mListeners) {
+                listener.onStreamOverrun(state.mStreamId, backlogBytes);
+            }
+        } else if (state.mOverrun && backlogBytes <= settings.mLowWatermarkBytes) {
+            state.mOverrun = false;
+            notifyReady(state.mStreamId);
+        }
+    }
+
+    private void notifyReady(String streamId) {
+        for (StreamFlowListener listener : mListeners) {
+            listener.onStreamReady(streamId);
+        }
+    }
+
+    private void tap(Direction direction, String streamId, byte[] data, int length) {
+        StreamTap streamTap = mStreamTap;
+        if (streamTap != null) {
+            streamTap.onStreamData(direction, streamId, data, 0, length);
+        }
+    }
+
+    private void add(StreamState state, int bytes) {
+        state.mBytes.addAndGet(bytes);
+        mTotals.get(state.mDirection).mBytes.addAndGet(bytes);
+    }
+
+    private static void increment(AtomicLong counter, AtomicLong total) {
+        counter.incrementAndGet();
+        total.incrementAndGet();
+    }
+}
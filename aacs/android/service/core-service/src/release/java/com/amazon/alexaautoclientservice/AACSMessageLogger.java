@@ -21,12 +21,23 @@ public class AACSMessageLogger {
     public static final String TO_ENGINE = "TO_ENGINE";
     public static final String FROM_ENGINE = "FROM_ENGINE";
 
-    public void setLogFileLocation(String filePath) {
-        return;
+    private static final AACSMessageLogger sInstance = new AACSMessageLogger();
+
+    public static AACSMessageLogger getInstance() {
+        return sInstance;
     }
+
     public void buffer(String direction, String topic, String action, String payload, @Nullable String messageId,
             @Nullable String replyToId) {
         return;
     }
+
+    public void traceMessage(boolean toEngine, String message) {
+        return;
+    }
+
+    public void traceStream(boolean toEngine, String streamId, byte[] data, int offset, int length) {
+        return;
+    }
     // This class is for debug usage, full definition is available in debug build.
 }
@@ -0,0 +1,82 @@
+package com.amazon.alexaautoclientservice.receiver;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.util.Pair;
+
+import com.amazon.alexa.auto.aacs_annotation_api.ContextBroadcastReceiverRegistry;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.P})
+public class TestContextBroadcastReceiverLoader {
+    private static final String CATEGORY = "com.amazon.aacs.test.category";
+    private static final String ACTION = "com.amazon.aacs.test.action";
+    private static final String PERMISSION = "com.amazon.aacs.test.permission";
+
+    public static class TestReceiver extends BroadcastReceiver {
+        static final TestReceiver INSTANCE = new TestReceiver();
+
+        @Override
+        public void onReceive(Context context, Intent intent) {}
+    }
+
+    public static class FirstRegistry implements ContextBroadcastReceiverRegistry {
+        @Override
+        public List<Registration> getRegistrations() {
+            return Collections.singletonList(new Registration(
+                    TestReceiver.INSTANCE, new String[] {CATEGORY}, new String[] {ACTION}, PERMISSION));
+        }
+    }
+
+    public static class SecondRegistry implements ContextBroadcastReceiverRegistry {
+        @Override
+        public List<Registration> getRegistrations() {
+            return Arrays.asList(new Registration(TestReceiver.INSTANCE, new String[0], new String[0], null),
+                    new Registration(new Object(), new String[0], new String[0], null));
+        }
+    }
+
+    private static Map<BroadcastReceiver, Pair<IntentFilter, String>> load(
+            ContextBroadcastReceiverRegistry... registries) {
+        return new ContextBroadcastReceiverLoader(Arrays.asList(registries)).getBroadcastReceivers();
+    }
+
+    @Test
+    public void testReceiverIsLoadedWithItsIntentFilter() {
+        Map<BroadcastReceiver, Pair<IntentFilter, String>> receivers = load(new FirstRegistry());
+
+        Assert.assertEquals(1, receivers.size());
+        Pair<IntentFilter, String> filter = receivers.get(TestReceiver.INSTANCE);
+        Assert.assertTrue(filter.first.hasCategory(CATEGORY));
+        Assert.assertTrue(filter.first.hasAction(ACTION));
+        Assert.assertEquals(PERMISSION, filter.second);
+    }
+
+    @Test
+    public void testRegistryLoadedTwiceIsIgnored() {
+        Assert.assertEquals(1, load(new FirstRegistry(), new FirstRegistry()).size());
+    }
+
+    @Test
+    public void testReceiverRegisteredTwiceKeepsFirstRegistration() {
+        Map<BroadcastReceiver, Pair<IntentFilter, String>> receivers = load(new FirstRegistry(), new SecondRegistry());
+
+        // The second registration of the receiver and the object that is not a receiver are both ignored
+        Assert.assertEquals(1, receivers.size());
+        Assert.assertEquals(PERMISSION, receivers.get(TestReceiver.INSTANCE).second);
+    }
+}
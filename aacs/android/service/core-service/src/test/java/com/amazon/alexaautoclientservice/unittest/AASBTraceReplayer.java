@@ -0,0 +1,345 @@
+package com.amazon.alexaautoclientservice.unittest;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.os.Looper;
+
+import com.amazon.aacsconstants.AASBConstants;
+import com.amazon.aace.core.MessageStream;
+import com.amazon.aacsipc.AACSReceiver;
+import com.amazon.aacsipc.AACSSender;
+import com.amazon.aacsipc.TargetComponent;
+import com.amazon.alexaautoclientservice.AASBHandler;
+import com.amazon.alexaautoclientservice.util.AASBTrace;
+import com.amazon.alexaautoclientservice.util.StreamFlowController;
+
+import org.json.JSONObject;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a recorded AASB trace through the AACS IPC, message handling and stream code against a
+ * {@link TraceEngine}, without a device or the Engine.
+ *
+ * The messages sent to the Engine go from a client {@link AACSSender} to the service {@link AACSReceiver}, which
+ * hands them to the {@link AASBHandler} publishing them to the Engine. The messages of the Engine go through the
+ * {@link AASBHandler} and its message scheduler to a client {@link AACSReceiver}. The streams are copied by
+ * {@link StreamFlowController} on worker threads. Must run on the main looper of a Robolectric test in LEGACY looper
+ * mode.
+ */
+public class AASBTraceReplayer {
+    private static final long DELIVERY_TIMEOUT_MS = 10000;
+    private static final long STREAM_TIMEOUT_MS = 10000;
+    private static final int PIPE_SIZE = 64 * 1024;
+
+    private static final ComponentName SERVICE_COMPONENT =
+            new ComponentName("com.amazon.alexaautoclientservice", "com.amazon.alexaautoclientservice.Replay");
+    private static final ComponentName CLIENT_COMPONENT =
+            new ComponentName("com.amazon.alexaautoclientservice.client", "com.amazon.alexaautoclientservice.Replay");
+
+    /**
+     * Context of the replay: resolves every AASB message of the service to the client receiver, and keeps the
+     * broadcasts of the senders for the replay to route, whichever thread sends them.
+     */
+    private static class ReplayContext extends ContextWrapper {
+        private final PackageManager mPackageManager = mock(PackageManager.class);
+        private final Queue<Intent> mBroadcasts = new ConcurrentLinkedQueue<>();
+
+        ReplayContext(Context base) {
+            super(base);
+            ResolveInfo client = new ResolveInfo();
+            client.activityInfo = new ActivityInfo();
+            client.activityInfo.packageName = CLIENT_COMPONENT.getPackageName();
+            client.activityInfo.name = CLIENT_COMPONENT.getClassName();
+            when(mPackageManager.queryBroadcastReceivers(any(Intent.class), anyInt()))
+                    .thenReturn(Collections.singletonList(client));
+            when(mPackageManager.queryIntentActivities(any(Intent.class), anyInt())).thenReturn(new ArrayList<>());
+            when(mPackageManager.queryIntentServices(any(Intent.class), anyInt())).thenReturn(new ArrayList<>());
+            when(mPackageManager.checkPermission(anyString(), anyString()))
+                    .thenReturn(PackageManager.PERMISSION_GRANTED);
+        }
+
+        @Override
+        public PackageManager getPackageManager() {
+            return mPackageManager;
+        }
+
+        @Override
+        public void sendBroadcast(Intent intent) {
+            mBroadcasts.add(intent);
+        }
+    }
+
+    private final List<AASBTrace.Record> mRecords;
+    private double mSpeed;
+
+    // Guarded by this, the messages of the Engine are sent on the threads publishing to it
+    private final Map<AASBTrace.Type, Map<String, ArrayDeque<Long>>> mSendTimesNs = new HashMap<>();
+    private int mPendingMessages;
+
+    // The fields below are only accessed on the main looper during a replay
+    private ReplayContext mContext;
+    private TraceEngine mEngine;
+    private AACSReceiver mServiceReceiver;
+    private AACSReceiver mClientReceiver;
+    // Ids of the messages handed to the handler and not yet published to the Engine
+    private final Set<String> mUnpublishedIds = ConcurrentHashMap.newKeySet();
+    private ReplayReport mReport;
+
+    public AASBTraceReplayer(List<AASBTrace.Record> records) {
+        mRecords = records;
+    }
+
+    /**
+     * @param speed multiplier of the recorded pace, or 0 to replay as fast as possible. Defaults to 0.
+     */
+    public void setSpeed(double speed) {
+        mSpeed = speed;
+    }
+
+    public ReplayReport replay() throws Exception {
+        mEngine = new TraceEngine(mRecords);
+        mContext = new ReplayContext(RuntimeEnvironment.application);
+        synchronized (this) {
+            mPendingMessages = 0;
+            mSendTimesNs.clear();
+        }
+        mUnpublishedIds.clear();
+        mReport = new ReplayReport();
+
+        // Subscribed before the handler, so the message is expected before the handler can deliver it
+        mEngine.getMessageBroker().subscribe(message -> {
+            onSent(AASBTrace.Type.MESSAGE_FROM_ENGINE, message);
+        }, "*", "*");
+        AASBHandler handler = new AASBHandler(mContext, mEngine.getMessageBroker());
+        AACSSender clientSender = new AACSSender();
+        TargetComponent service = TargetComponent.withComponent(SERVICE_COMPONENT, TargetComponent.Type.RECEIVER);
+        mServiceReceiver = new AACSReceiver.Builder()
+                                   .withAASBCallback(message -> {
+                                       onDelivered(AASBTrace.Type.MESSAGE_TO_ENGINE, message);
+                                       mUnpublishedIds.add(TraceEngine.getMessageId(message));
+                                       handler.handleMessage(true, message);
+                                   })
+                                   .build();
+        mClientReceiver = new AACSReceiver.Builder()
+                                  .withAASBCallback(message -> {
+                                      onDelivered(AASBTrace.Type.MESSAGE_FROM_ENGINE, message);
+                                  })
+                                  .build();
+
+        StreamFlowController streamFlowController = new StreamFlowController();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        Map<String, PipedOutputStream> pushStreams = new HashMap<>();
+        Set<String> fetchStreams = new HashSet<>();
+        List<Future<?>> streamTasks = new ArrayList<>();
+        AtomicLong bytesFetched = new AtomicLong();
+        OutputStream fetchOutput = new OutputStream() {
+            @Override
+            public void write(int b) {
+                bytesFetched.incrementAndGet();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                bytesFetched.addAndGet(len);
+            }
+        };
+
+        long startNs = System.nanoTime();
+        try {
+            for (AASBTrace.Record record : mRecords) {
+                waitForRecordTime(record, startNs);
+                String streamId = record.getStreamId();
+                switch (record.getType()) {
+                    case MESSAGE_TO_ENGINE:
+                        send(clientSender, service, AASBTrace.Type.MESSAGE_TO_ENGINE, record.getMessage());
+                        break;
+                    case MESSAGE_FROM_ENGINE:
+                        if (!mEngine.isReply(record)) {
+                            mEngine.send(record.getMessage());
+                        }
+                        break;
+                    case STREAM_TO_ENGINE:
+                        PipedOutputStream pushStream = pushStreams.get(streamId);
+                        if (pushStream == null) {
+                            PipedInputStream input = new PipedInputStream(PIPE_SIZE);
+                            pushStream = new PipedOutputStream(input);
+                            pushStreams.put(streamId, pushStream);
+                            MessageStream messageStream = handler.openStream(streamId, MessageStream.Mode.WRITE);
+                            streamTasks.add(executor.submit(() -> {
+                                streamFlowController.push(streamId, input, messageStream);
+                                return null;
+                            }));
+                        }
+                        pushStream.write(record.getData());
+                        break;
+                    case STREAM_FROM_ENGINE:
+                        // The Engine stream serves all the recorded data, fetch it once
+                        if (fetchStreams.add(streamId)) {
+                            MessageStream messageStream = handler.openStream(streamId, MessageStream.Mode.READ);
+                            streamTasks.add(executor.submit(() -> {
+                                streamFlowController.fetch(streamId, messageStream, fetchOutput, () -> true);
+                                return null;
+                            }));
+                        }
+                        break;
+                    case GAP:
+                        // The recording dropped records here, the replies to dropped requests are missing
+                        mReport.add(AASBTrace.Type.GAP, record.getDroppedRecords());
+                        break;
+                }
+                deliver();
+            }
+        } finally {
+            for (PipedOutputStream pushStream : pushStreams.values()) {
+                pushStream.close();
+            }
+            for (Future<?> streamTask : streamTasks) {
+                streamTask.get(STREAM_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            }
+            executor.shutdownNow();
+            deliver();
+            handler.cleanUp();
+            clientSender.shutDown();
+            mServiceReceiver.shutdown();
+            mClientReceiver.shutdown();
+        }
+
+        mReport.setDurationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs));
+        mReport.setAnsweredRequests(mEngine.getAnsweredRequests());
+        mReport.add(AASBTrace.Type.STREAM_TO_ENGINE, mEngine.getBytesWritten());
+        mReport.add(AASBTrace.Type.STREAM_FROM_ENGINE, bytesFetched.get());
+        return mReport;
+    }
+
+    private void waitForRecordTime(AASBTrace.Record record, long startNs) throws InterruptedException {
+        if (mSpeed <= 0) {
+            return;
+        }
+        long delayNs = (long) (TimeUnit.MICROSECONDS.toNanos(record.getTimeUs()) / mSpeed);
+        long remainingNs = startNs + delayNs - System.nanoTime();
+        if (remainingNs > 0) {
+            TimeUnit.NANOSECONDS.sleep(remainingNs);
+        }
+    }
+
+    private void send(AACSSender sender, TargetComponent target, AASBTrace.Type type, String message) {
+        String topic;
+        String action;
+        try {
+            JSONObject messageDescription = new JSONObject(message)
+                                                    .getJSONObject(AASBConstants.HEADER)
+                                                    .getJSONObject(AASBConstants.MESSAGE_DESCRIPTION);
+            topic = messageDescription.getString(AASBConstants.TOPIC);
+            action = messageDescription.getString(AASBConstants.ACTION);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid AASB message in the trace: " + message, e);
+        }
+        onSent(type, message);
+        sender.sendAASBMessageAnySize(message, action, topic, target, mContext);
+    }
+
+    private synchronized void onSent(AASBTrace.Type type, String message) {
+        Map<String, ArrayDeque<Long>> sendTimes = mSendTimesNs.get(type);
+        if (sendTimes == null) {
+            sendTimes = new HashMap<>();
+            mSendTimesNs.put(type, sendTimes);
+        }
+        ArrayDeque<Long> times = sendTimes.get(message);
+        if (times == null) {
+            times = new ArrayDeque<>();
+            sendTimes.put(message, times);
+        }
+        times.add(System.nanoTime());
+        mPendingMessages++;
+    }
+
+    private void onDelivered(AASBTrace.Type type, String message) {
+        long sendTimeNs;
+        synchronized (this) {
+            Map<String, ArrayDeque<Long>> sendTimes = mSendTimesNs.get(type);
+            ArrayDeque<Long> times = sendTimes == null ? null : sendTimes.get(message);
+            Long time = times == null ? null : times.poll();
+            if (time == null) {
+                throw new IllegalStateException("Unexpected message delivered: " + message);
+            }
+            if (times.isEmpty()) {
+                sendTimes.remove(message);
+            }
+            mPendingMessages--;
+            sendTimeNs = time;
+        }
+        mReport.add(type, 1);
+        mReport.addLatency(type, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sendTimeNs));
+    }
+
+    private synchronized int getPendingMessages() {
+        return mPendingMessages;
+    }
+
+    /**
+     * Routes the broadcasts of the senders to the receivers and runs the main looper until all the messages sent
+     * so far are delivered, and the messages handed to the handler are published to the Engine.
+     */
+    private void deliver() throws InterruptedException {
+        ShadowLooper looper = Shadows.shadowOf(Looper.getMainLooper());
+        long deadlineMs = System.currentTimeMillis() + DELIVERY_TIMEOUT_MS;
+        while (true) {
+            boolean routed = false;
+            Intent intent;
+            while ((intent = mContext.mBroadcasts.poll()) != null) {
+                routed = true;
+                if (CLIENT_COMPONENT.equals(intent.getComponent())) {
+                    mClientReceiver.receive(intent, null);
+                } else if (SERVICE_COMPONENT.equals(intent.getComponent())) {
+                    mServiceReceiver.receive(intent, null);
+                }
+            }
+            looper.runToEndOfTasks();
+            mUnpublishedIds.removeIf(mEngine::isPublished);
+            if (getPendingMessages() == 0 && mUnpublishedIds.isEmpty() && !routed) {
+                return;
+            }
+            if (System.currentTimeMillis() > deadlineMs) {
+                throw new IllegalStateException(String.format("Timed out delivering %d messages, %d not published",
+                        getPendingMessages(), mUnpublishedIds.size()));
+            }
+            if (!routed) {
+                // The handler and the streamed messages use worker threads
+                Thread.sleep(1);
+            }
+        }
+    }
+}
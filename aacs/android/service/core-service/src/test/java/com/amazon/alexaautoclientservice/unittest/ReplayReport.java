@@ -0,0 +1,97 @@
+package com.amazon.alexaautoclientservice.unittest;
+
+import com.amazon.alexaautoclientservice.util.AASBTrace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Message counts, stream bytes, dropped records and IPC delivery latency measured by {@link AASBTraceReplayer}.
+ */
+public class ReplayReport {
+    private final Map<AASBTrace.Type, Long> mCounts = new EnumMap<>(AASBTrace.Type.class);
+    private final Map<AASBTrace.Type, List<Long>> mLatenciesUs = new EnumMap<>(AASBTrace.Type.class);
+    private long mAnsweredRequests;
+    private long mDurationMs;
+
+    ReplayReport() {
+        for (AASBTrace.Type type : AASBTrace.Type.values()) {
+            mCounts.put(type, 0L);
+            mLatenciesUs.put(type, new ArrayList<>());
+        }
+    }
+
+    void add(AASBTrace.Type type, long count) {
+        mCounts.put(type, mCounts.get(type) + count);
+    }
+
+    void addLatency(AASBTrace.Type type, long latencyUs) {
+        mLatenciesUs.get(type).add(latencyUs);
+    }
+
+    void setAnsweredRequests(long answeredRequests) {
+        mAnsweredRequests = answeredRequests;
+    }
+
+    void setDurationMs(long durationMs) {
+        mDurationMs = durationMs;
+    }
+
+    /**
+     * @return the number of messages delivered, or the number of stream bytes transferred, of the given type. For
+     *         {@link AASBTrace.Type#GAP}, the number of records the recording dropped.
+     */
+    public long getCount(AASBTrace.Type type) {
+        return mCounts.get(type);
+    }
+
+    /**
+     * @return the number of requests the Engine answered with its recorded replies.
+     */
+    public long getAnsweredRequests() {
+        return mAnsweredRequests;
+    }
+
+    public long getDurationMs() {
+        return mDurationMs;
+    }
+
+    /**
+     * @param percentile between 0 and 100.
+     * @return the delivery latency of the messages of the given type in microseconds, or -1 if there is none.
+     */
+    public long getLatencyUs(AASBTrace.Type type, double percentile) {
+        List<Long> latencies = new ArrayList<>(mLatenciesUs.get(type));
+        if (latencies.isEmpty()) {
+            return -1;
+        }
+        Collections.sort(latencies);
+        int index = (int) Math.ceil(percentile / 100 * latencies.size()) - 1;
+        return latencies.get(Math.max(0, Math.min(index, latencies.size() - 1)));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("Replayed in %d ms, %d requests answered%n", mDurationMs, mAnsweredRequests));
+        for (AASBTrace.Type type : AASBTrace.Type.values()) {
+            long count = mCounts.get(type);
+            if (type == AASBTrace.Type.GAP) {
+                builder.append(String.format("%d records dropped by the recording%n", count));
+                continue;
+            }
+            if (!type.isMessage()) {
+                builder.append(String.format("%s: %d bytes%n", type, count));
+                continue;
+            }
+            double seconds = Math.max(mDurationMs, 1) / 1000.0;
+            builder.append(String.format("%s: %d messages (%.1f/s), latency us p50=%d p90=%d p99=%d max=%d%n", type,
+                    count, count / seconds, getLatencyUs(type, 50), getLatencyUs(type, 90), getLatencyUs(type, 99),
+                    getLatencyUs(type, 100)));
+        }
+        return builder.toString();
+    }
+}
@@ -3,24 +3,31 @@ package com.amazon.alexaautoclientservice.unittest;
 import android.content.Context;
 import android.os.Build;
 
+import com.amazon.aace.core.MessageBroker;
 import com.amazon.aacsconstants.Action;
 import com.amazon.aacsconstants.Topic;
 import com.amazon.alexaautoclientservice.AASBHandler;
 import com.amazon.alexaautoclientservice.util.AASBUtil;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(sdk = {Build.VERSION_CODES.P})
 public class TestAASBHandler {
+    private static final long PUBLISH_TIMEOUT_MS = 5000;
+
     private AASBHandler mAASBHandler;
 
     @Before
@@ -40,4 +47,41 @@ public class TestAASBHandler {
         String message = "{}";
         mAASBHandler.messageReceived(message);
     }
+
+    @Test
+    public void testReplyIsNotDelayedBehindBusyTopic() throws Exception {
+        String replyToId = UUID.randomUUID().toString();
+        CountDownLatch busyMessagePublishing = new CountDownLatch(1);
+        CountDownLatch releaseBusyMessage = new CountDownLatch(1);
+        CountDownLatch repliesPublished = new CountDownLatch(2);
+        MessageBroker messageBroker = Mockito.mock(MessageBroker.class);
+        Mockito.doAnswer(invocation -> {
+            String message = invocation.getArgument(0);
+            if (message.contains(replyToId)) {
+                repliesPublished.countDown();
+            } else {
+                busyMessagePublishing.countDown();
+                releaseBusyMessage.await(PUBLISH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            }
+            return null;
+        }).when(messageBroker).publish(Mockito.anyString());
+        AASBHandler handler = new AASBHandler(RuntimeEnvironment.application, messageBroker);
+        try {
+            handler.publish(Topic.AUDIO_OUTPUT, Action.AudioOutput.MEDIA_STATE_CHANGED, "{}");
+            handler.publish(Topic.AUDIO_OUTPUT, Action.AudioOutput.MEDIA_STATE_CHANGED, "{}");
+            Assert.assertTrue(busyMessagePublishing.await(PUBLISH_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+            // A reply of AACS and a reply of a client
+            handler.publish(replyToId, Topic.AUDIO_OUTPUT, Action.AudioOutput.GET_NUM_BYTES_BUFFERED,
+                    "{\"bufferedBytes\":0}");
+            handler.handleMessage(true,
+                    AASBUtil.constructAASBMessage(
+                            replyToId, Topic.AUDIO_OUTPUT, Action.AudioOutput.GET_NUM_BYTES_BUFFERED, "{}"));
+
+            Assert.assertTrue(repliesPublished.await(PUBLISH_TIMEOUT_MS / 5, TimeUnit.MILLISECONDS));
+        } finally {
+            releaseBusyMessage.countDown();
+            handler.cleanUp();
+        }
+    }
 }
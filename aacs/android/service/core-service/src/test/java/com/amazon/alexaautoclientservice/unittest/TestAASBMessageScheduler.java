@@ -0,0 +1,172 @@
+package com.amazon.alexaautoclientservice.unittest;
+
+import android.os.Build;
+
+import com.amazon.aacsconstants.Topic;
+import com.amazon.alexaautoclientservice.util.AASBMessageScheduler;
+import com.amazon.alexaautoclientservice.util.AASBMessageScheduler.Priority;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.P})
+public class TestAASBMessageScheduler {
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private AASBMessageScheduler mScheduler;
+    private final List<String> mDispatched = Collections.synchronizedList(new ArrayList<>());
+
+    @After
+    public void tearDown() {
+        if (mScheduler != null) {
+            mScheduler.shutDown();
+        }
+    }
+
+    @Test
+    public void testHigherClassIsDispatchedFirst() throws Exception {
+        mScheduler = new AASBMessageScheduler(1, Collections.emptyMap(), Collections.emptyMap());
+        CountDownLatch workerBlocked = blockWorker(Topic.ALEXA_CLIENT);
+
+        schedule(Topic.ADDRESS_BOOK, "low1");
+        schedule(Topic.ALEXA_CLIENT, "normal1");
+        schedule(Topic.SPEECH_RECOGNIZER, "high1");
+        schedule(Topic.SPEECH_RECOGNIZER, "high2");
+        schedule(Topic.ADDRESS_BOOK, "low2");
+        CountDownLatch done = scheduleLatch(Topic.ADDRESS_BOOK);
+        workerBlocked.countDown();
+
+        Assert.assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("high1", "high2", "normal1", "low1", "low2"), mDispatched);
+        Map<Priority, AASBMessageScheduler.Metrics> metrics = mScheduler.getMetrics();
+        Assert.assertEquals(2, metrics.get(Priority.HIGH).getDispatchedMessages());
+        Assert.assertEquals(3, metrics.get(Priority.LOW).getDispatchedMessages());
+        Assert.assertEquals(0, metrics.get(Priority.LOW).getQueuedMessages());
+    }
+
+    @Test
+    public void testAgedMessageIsDispatchedAheadOfHigherClass() throws Exception {
+        Map<Priority, Long> agingThresholdsMs = new EnumMap<>(Priority.class);
+        agingThresholdsMs.put(Priority.LOW, 0L);
+        mScheduler = new AASBMessageScheduler(1, Collections.emptyMap(), agingThresholdsMs);
+        CountDownLatch workerBlocked = blockWorker(Topic.ALEXA_CLIENT);
+
+        schedule(Topic.LOGGER, "low");
+        schedule(Topic.AUDIO_OUTPUT, "high");
+        CountDownLatch done = scheduleLatch(Topic.AUDIO_OUTPUT);
+        workerBlocked.countDown();
+
+        Assert.assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("low", "high"), mDispatched);
+        Assert.assertEquals(1, mScheduler.getMetrics().get(Priority.LOW).getAgedMessages());
+    }
+
+    @Test
+    public void testMessagesOfTopicAreDispatchedInOrder() throws Exception {
+        mScheduler = new AASBMessageScheduler(4, Collections.emptyMap(), Collections.emptyMap());
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            expected.add(Integer.toString(i));
+            schedule(Topic.NAVIGATION, Integer.toString(i));
+        }
+        CountDownLatch done = scheduleLatch(Topic.NAVIGATION);
+
+        Assert.assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertEquals(expected, mDispatched);
+    }
+
+    @Test
+    public void testFailedMessageDoesNotStopDispatch() throws Exception {
+        mScheduler = new AASBMessageScheduler(1, Collections.emptyMap(), Collections.emptyMap());
+        mScheduler.schedule(Topic.APL, () -> {
+            throw new IllegalStateException("Failed to dispatch");
+        });
+        schedule(Topic.APL, "next");
+        CountDownLatch done = scheduleLatch(Topic.APL);
+
+        Assert.assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertEquals(Collections.singletonList("next"), mDispatched);
+    }
+
+    @Test
+    public void testErrorDoesNotStopDispatch() throws Exception {
+        mScheduler = new AASBMessageScheduler(1, Collections.emptyMap(), Collections.emptyMap());
+        mScheduler.schedule(Topic.APL, () -> {
+            throw new AssertionError("Failed to dispatch");
+        });
+        schedule(Topic.APL, "next");
+        CountDownLatch done = scheduleLatch(Topic.APL);
+
+        Assert.assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertEquals(Collections.singletonList("next"), mDispatched);
+    }
+
+    @Test
+    public void testWorkerThreadsAreNamed() throws Exception {
+        mScheduler = new AASBMessageScheduler(1, Collections.emptyMap(), Collections.emptyMap());
+        mScheduler.schedule(Topic.APL, () -> mDispatched.add(Thread.currentThread().getName()));
+        CountDownLatch done = scheduleLatch(Topic.APL);
+
+        Assert.assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertEquals(Collections.singletonList("AASBMessageScheduler-0"), mDispatched);
+    }
+
+    @Test
+    public void testCreateFromConfiguration() throws Exception {
+        JSONObject config = new JSONObject()
+                                    .put("workerThreads", 0)
+                                    .put("topicPriorities",
+                                            new JSONObject().put(Topic.NAVIGATION, "HIGH").put(Topic.APL, "INVALID"));
+        mScheduler = AASBMessageScheduler.create(config);
+
+        Assert.assertEquals(Priority.HIGH, mScheduler.getPriority(Topic.NAVIGATION));
+        Assert.assertEquals(Priority.LOW, mScheduler.getPriority(Topic.APL));
+        Assert.assertEquals(Priority.NORMAL, mScheduler.getPriority(Topic.ALEXA_CLIENT));
+        Assert.assertEquals(Priority.HIGH, mScheduler.getPriority(Topic.SPEECH_RECOGNIZER));
+
+        // Without workers the messages are dispatched on the calling thread
+        schedule(Topic.NAVIGATION, "inline");
+        Assert.assertEquals(Collections.singletonList("inline"), mDispatched);
+    }
+
+    private void schedule(String topic, String name) {
+        mScheduler.schedule(topic, () -> mDispatched.add(name));
+    }
+
+    private CountDownLatch scheduleLatch(String topic) {
+        CountDownLatch latch = new CountDownLatch(1);
+        mScheduler.schedule(topic, latch::countDown);
+        return latch;
+    }
+
+    // Keeps the worker busy until the returned latch is released
+    private CountDownLatch blockWorker(String topic) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        mScheduler.schedule(topic, () -> {
+            started.countDown();
+            try {
+                release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Assert.assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        return release;
+    }
+}
@@ -0,0 +1,210 @@
+package com.amazon.alexaautoclientservice.unittest;
+
+import static org.robolectric.annotation.LooperMode.Mode.LEGACY;
+
+import android.os.Build;
+import android.util.Pair;
+
+import com.amazon.aacsconstants.Action;
+import com.amazon.aacsconstants.Topic;
+import com.amazon.alexaautoclientservice.util.AASBTrace;
+import com.amazon.alexaautoclientservice.util.AASBUtil;
+
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.P})
+@LooperMode(LEGACY)
+public class TestAASBTraceReplay {
+    // Path of a trace recorded on a device, replayed by testReplayRecordedTrace
+    private static final String TRACE_PROPERTY = "aacs.replay.trace";
+    private static final String PUSH_STREAM_ID = "pushStreamId";
+    private static final String FETCH_STREAM_ID = "fetchStreamId";
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testTraceRoundTrip() throws Exception {
+        File file = mTemporaryFolder.newFile("trace.aasb.gz");
+        String message = AASBUtil.constructAASBMessage(
+                "", Topic.SPEECH_RECOGNIZER, Action.SpeechRecognizer.WAKEWORD_DETECTED, "");
+        try (AASBTrace.Writer writer = AASBTrace.create(file, 1234)) {
+            writer.writeMessage(false, message, 1000);
+            writer.writeStreamData(true, PUSH_STREAM_ID, new byte[] {1, 2, 3, 4}, 1, 2, 1500);
+            // Out of order time is clamped to keep the trace monotonic
+            writer.writeMessage(true, message, 1200);
+        }
+
+        try (AASBTrace.Reader reader = AASBTrace.open(file)) {
+            Assert.assertEquals(1234, reader.getStartTimeMillis());
+        }
+        List<AASBTrace.Record> records = AASBTrace.readAll(file);
+        Assert.assertEquals(3, records.size());
+        Assert.assertEquals(AASBTrace.Type.MESSAGE_FROM_ENGINE, records.get(0).getType());
+        Assert.assertEquals(0, records.get(0).getTimeUs());
+        Assert.assertEquals(message, records.get(0).getMessage());
+        Assert.assertEquals(AASBTrace.Type.STREAM_TO_ENGINE, records.get(1).getType());
+        Assert.assertEquals(500, records.get(1).getTimeUs());
+        Assert.assertEquals(PUSH_STREAM_ID, records.get(1).getStreamId());
+        Assert.assertArrayEquals(new byte[] {2, 3}, records.get(1).getData());
+        Assert.assertEquals(AASBTrace.Type.MESSAGE_TO_ENGINE, records.get(2).getType());
+        Assert.assertEquals(500, records.get(2).getTimeUs());
+    }
+
+    private static String message(int index) {
+        return AASBUtil.constructAASBMessage(
+                "", Topic.SPEECH_RECOGNIZER, Action.SpeechRecognizer.WAKEWORD_DETECTED, "{\"index\":" + index + "}");
+    }
+
+    private static void truncate(File file, long bytes) throws Exception {
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.setLength(output.length() - bytes);
+        }
+    }
+
+    @Test
+    public void testTruncatedTraceEndsAtLastCompleteRecord() throws Exception {
+        File file = mTemporaryFolder.newFile("trace.aasb");
+        try (AASBTrace.Writer writer = AASBTrace.create(file, 1234)) {
+            for (int i = 0; i < 3; i++) {
+                writer.writeMessage(false, message(i), i);
+            }
+        }
+        // Cut in the middle of the last message
+        truncate(file, 5);
+
+        List<AASBTrace.Record> records = AASBTrace.readAll(file);
+        Assert.assertEquals(2, records.size());
+        Assert.assertEquals(message(1), records.get(1).getMessage());
+        try (AASBTrace.Reader reader = AASBTrace.open(file)) {
+            Assert.assertNotNull(reader.read());
+            Assert.assertNotNull(reader.read());
+            Assert.assertFalse(reader.isTruncated());
+            Assert.assertNull(reader.read());
+            Assert.assertTrue(reader.isTruncated());
+        }
+    }
+
+    @Test
+    public void testTraceWithoutGzipTrailerIsRead() throws Exception {
+        File file = mTemporaryFolder.newFile("trace.aasb.gz");
+        try (AASBTrace.Writer writer = AASBTrace.create(file, 1234)) {
+            for (int i = 0; i < 3; i++) {
+                writer.writeMessage(false, message(i), i);
+            }
+        }
+        // The gzip trailer is the CRC and the size, 4 bytes each
+        truncate(file, 6);
+
+        List<AASBTrace.Record> records = AASBTrace.readAll(file);
+        Assert.assertEquals(3, records.size());
+        Assert.assertEquals(message(2), records.get(2).getMessage());
+    }
+
+    @Test
+    public void testGapIsReplayedAsDroppedRecords() throws Exception {
+        File file = mTemporaryFolder.newFile("trace.aasb");
+        try (AASBTrace.Writer writer = AASBTrace.create(file, System.currentTimeMillis())) {
+            writer.writeMessage(false, message(0), 0);
+            writer.writeGap(7, 100);
+            writer.writeMessage(false, message(1), 200);
+        }
+
+        List<AASBTrace.Record> records = AASBTrace.readAll(file);
+        Assert.assertEquals(AASBTrace.Type.GAP, records.get(1).getType());
+        Assert.assertEquals(100, records.get(1).getTimeUs());
+        Assert.assertEquals(7, records.get(1).getDroppedRecords());
+        Assert.assertEquals(0, records.get(2).getDroppedRecords());
+
+        ReplayReport report = new AASBTraceReplayer(records).replay();
+        Assert.assertEquals(7, report.getCount(AASBTrace.Type.GAP));
+        Assert.assertEquals(2, report.getCount(AASBTrace.Type.MESSAGE_FROM_ENGINE));
+    }
+
+    @Test
+    public void testReplaySyntheticTrace() throws Exception {
+        File file = mTemporaryFolder.newFile("trace.aasb");
+        Pair<String, String> request = AASBUtil.constructAASBMessageReturnID("", Topic.PROPERTY_MANAGER,
+                Action.PropertyManager.GET_PROPERTY, new JSONObject().put("name", "aace.alexa.locale").toString());
+        char[] text = new char[500000];
+        Arrays.fill(text, 'a');
+        try (AASBTrace.Writer writer = AASBTrace.create(file, System.currentTimeMillis())) {
+            writer.writeMessage(false,
+                    AASBUtil.constructAASBMessage(
+                            "", Topic.SPEECH_RECOGNIZER, Action.SpeechRecognizer.WAKEWORD_DETECTED, ""),
+                    0);
+            writer.writeMessage(true, request.second, 100);
+            writer.writeMessage(false,
+                    AASBUtil.constructAASBMessage(request.first, Topic.PROPERTY_MANAGER,
+                            Action.PropertyManager.GET_PROPERTY,
+                            new JSONObject().put("value", "en-US").toString()),
+                    200);
+            // Larger than an intent can carry, so streamed over IPC
+            writer.writeMessage(false,
+                    AASBUtil.constructAASBMessage("", Topic.TEMPLATE_RUNTIME, Action.TemplateRuntime.RENDER_TEMPLATE,
+                            new JSONObject().put("payload", new String(text)).toString()),
+                    300);
+            for (int i = 0; i < 3; i++) {
+                writer.writeStreamData(true, PUSH_STREAM_ID, new byte[300], 0, 300, 400 + i);
+            }
+            for (int i = 0; i < 2; i++) {
+                writer.writeStreamData(false, FETCH_STREAM_ID, new byte[4096], 0, 4096, 500 + i);
+            }
+        }
+
+        ReplayReport report = new AASBTraceReplayer(AASBTrace.readAll(file)).replay();
+
+        Assert.assertEquals(1, report.getCount(AASBTrace.Type.MESSAGE_TO_ENGINE));
+        Assert.assertEquals(3, report.getCount(AASBTrace.Type.MESSAGE_FROM_ENGINE));
+        Assert.assertEquals(1, report.getAnsweredRequests());
+        Assert.assertEquals(900, report.getCount(AASBTrace.Type.STREAM_TO_ENGINE));
+        Assert.assertEquals(8192, report.getCount(AASBTrace.Type.STREAM_FROM_ENGINE));
+        Assert.assertTrue(report.getLatencyUs(AASBTrace.Type.MESSAGE_FROM_ENGINE, 100) >= 0);
+    }
+
+    @Test
+    public void testReplayRecordedTrace() throws Exception {
+        String path = System.getProperty(TRACE_PROPERTY);
+        Assume.assumeTrue("No recorded trace given with -D" + TRACE_PROPERTY, path != null && !path.isEmpty());
+
+        List<AASBTrace.Record> records = AASBTrace.readAll(new File(path));
+        AASBTraceReplayer replayer = new AASBTraceReplayer(records);
+        replayer.setSpeed(Double.parseDouble(System.getProperty(TRACE_PROPERTY + ".speed", "0")));
+        ReplayReport report = replayer.replay();
+
+        // Every recorded message and stream byte is delivered again
+        Map<AASBTrace.Type, Long> recorded = new EnumMap<>(AASBTrace.Type.class);
+        for (AASBTrace.Type type : AASBTrace.Type.values()) {
+            recorded.put(type, 0L);
+        }
+        for (AASBTrace.Record record : records) {
+            long count = record.getData().length;
+            if (record.getType().isMessage()) {
+                count = 1;
+            } else if (record.getType() == AASBTrace.Type.GAP) {
+                count = record.getDroppedRecords();
+            }
+            recorded.put(record.getType(), recorded.get(record.getType()) + count);
+        }
+        for (AASBTrace.Type type : AASBTrace.Type.values()) {
+            Assert.assertEquals(report.toString(), (long) recorded.get(type), report.getCount(type));
+        }
+    }
+}
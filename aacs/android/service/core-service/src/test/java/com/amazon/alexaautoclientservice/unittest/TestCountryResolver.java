@@ -0,0 +1,181 @@
+package com.amazon.alexaautoclientservice.unittest;
+
+import android.os.Build;
+
+import com.amazon.alexaautoclientservice.modules.locationProvider.CountryResolver;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.P})
+public class TestCountryResolver {
+    private static final double SEATTLE_LATITUDE = 47.6062;
+    private static final double SEATTLE_LONGITUDE = -122.3321;
+    private static final double VANCOUVER_LATITUDE = 49.2827;
+    private static final double VANCOUVER_LONGITUDE = -123.1207;
+    private static final long MAX_WAIT_MS = 5000;
+    private static final long SHORT_WAIT_MS = 50;
+
+    private final List<Runnable> mPendingLookups = new ArrayList<>();
+    private int mLookupCount;
+    private CountryResolver mResolver;
+
+    @Before
+    public void setup() {
+        mPendingLookups.clear();
+        mLookupCount = 0;
+        mResolver = new CountryResolver((latitude, longitude) -> {
+            mLookupCount++;
+            return latitude > 49 ? "CA" : "US";
+        }, mPendingLookups::add, CountryResolver.DEFAULT_CELL_PRECISION, 60000);
+    }
+
+    private void runPendingLookups() {
+        List<Runnable> lookups = new ArrayList<>(mPendingLookups);
+        mPendingLookups.clear();
+        for (Runnable lookup : lookups) {
+            lookup.run();
+        }
+    }
+
+    @Test
+    public void testEncodeGeohash() {
+        Assert.assertEquals("c23n", CountryResolver.encodeGeohash(SEATTLE_LATITUDE, SEATTLE_LONGITUDE, 4));
+        Assert.assertEquals("u4pruydqqvj", CountryResolver.encodeGeohash(57.64911, 10.40744, 11));
+    }
+
+    @Test
+    public void testUnresolvedCellIsStaleAndResolvedInBackground() {
+        CountryResolver.Result result = mResolver.resolve(SEATTLE_LATITUDE, SEATTLE_LONGITUDE);
+        Assert.assertEquals("", result.getCountryCode());
+        Assert.assertTrue(result.isStale());
+        Assert.assertEquals(1, mPendingLookups.size());
+
+        runPendingLookups();
+        result = mResolver.resolve(SEATTLE_LATITUDE, SEATTLE_LONGITUDE);
+        Assert.assertEquals("US", result.getCountryCode());
+        Assert.assertFalse(result.isStale());
+        Assert.assertEquals(1, mLookupCount);
+        Assert.assertTrue(mPendingLookups.isEmpty());
+    }
+
+    @Test
+    public void testCellIsLookedUpOnce() {
+        mResolver.onLocationChanged(SEATTLE_LATITUDE, SEATTLE_LONGITUDE);
+        mResolver.resolve(SEATTLE_LATITUDE + 0.001, SEATTLE_LONGITUDE);
+        Assert.assertEquals(1, mPendingLookups.size());
+        runPendingLookups();
+        mResolver.onLocationChanged(SEATTLE_LATITUDE, SEATTLE_LONGITUDE);
+        Assert.assertTrue(mPendingLookups.isEmpty());
+    }
+
+    @Test
+    public void testCrossingCellReturnsLastCountryUntilResolved() {
+        mResolver.onLocationChanged(SEATTLE_LATITUDE, SEATTLE_LONGITUDE);
+        runPendingLookups();
+        Assert.assertEquals("US", mResolver.resolve(SEATTLE_LATITUDE, SEATTLE_LONGITUDE).getCountryCode());
+
+        CountryResolver.Result result = mResolver.resolve(VANCOUVER_LATITUDE, VANCOUVER_LONGITUDE);
+        Assert.assertEquals("US", result.getCountryCode());
+        Assert.assertTrue(result.isStale());
+
+        runPendingLookups();
+        result = mResolver.resolve(VANCOUVER_LATITUDE, VANCOUVER_LONGITUDE);
+        Assert.assertEquals("CA", result.getCountryCode());
+        Assert.assertFalse(result.isStale());
+    }
+
+    @Test
+    public void testFailedLookupIsRetried() {
+        CountryResolver resolver = new CountryResolver((latitude, longitude) -> {
+            mLookupCount++;
+            throw new IOException("offline");
+        }, mPendingLookups::add, CountryResolver.DEFAULT_CELL_PRECISION, 60000);
+        resolver.resolve(SEATTLE_LATITUDE, SEATTLE_LONGITUDE);
+        runPendingLookups();
+        Assert.assertTrue(resolver.resolve(SEATTLE_LATITUDE, SEATTLE_LONGITUDE).isStale());
+        runPendingLookups();
+        Assert.assertEquals(2, mLookupCount);
+    }
+
+    @Test
+    public void testFirstResolveNowWaitsForBackgroundLookup() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Thread[] lookupThread = new Thread[1];
+        CountryResolver resolver = new CountryResolver((latitude, longitude) -> {
+            mLookupCount++;
+            lookupThread[0] = Thread.currentThread();
+            return "US";
+        }, executor, CountryResolver.DEFAULT_CELL_PRECISION, 60000);
+        try {
+            CountryResolver.Result result = resolver.resolveNow(SEATTLE_LATITUDE, SEATTLE_LONGITUDE, MAX_WAIT_MS);
+            Assert.assertEquals("US", result.getCountryCode());
+            Assert.assertFalse(result.isStale());
+            Assert.assertEquals(1, mLookupCount);
+            Assert.assertNotSame(Thread.currentThread(), lookupThread[0]);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testResolveNowWithKnownCountryDoesNotWait() {
+        mResolver.onLocationChanged(SEATTLE_LATITUDE, SEATTLE_LONGITUDE);
+        runPendingLookups();
+
+        long startMs = System.currentTimeMillis();
+        CountryResolver.Result result = mResolver.resolveNow(VANCOUVER_LATITUDE, VANCOUVER_LONGITUDE, MAX_WAIT_MS);
+        Assert.assertTrue(System.currentTimeMillis() - startMs < MAX_WAIT_MS);
+        Assert.assertEquals("US", result.getCountryCode());
+        Assert.assertTrue(result.isStale());
+        Assert.assertEquals(1, mPendingLookups.size());
+        Assert.assertEquals(1, mLookupCount);
+    }
+
+    @Test
+    public void testSlowResolveNowReturnsEmptyCountryAfterMaxWait() {
+        CountryResolver.Result result = mResolver.resolveNow(SEATTLE_LATITUDE, SEATTLE_LONGITUDE, SHORT_WAIT_MS);
+        Assert.assertEquals("", result.getCountryCode());
+        Assert.assertTrue(result.isStale());
+        Assert.assertEquals(0, mLookupCount);
+
+        // The pending lookup fills the cache, without a second lookup for the next request
+        mResolver.resolveNow(SEATTLE_LATITUDE, SEATTLE_LONGITUDE, SHORT_WAIT_MS);
+        Assert.assertEquals(1, mPendingLookups.size());
+        runPendingLookups();
+        result = mResolver.resolveNow(SEATTLE_LATITUDE, SEATTLE_LONGITUDE, SHORT_WAIT_MS);
+        Assert.assertEquals("US", result.getCountryCode());
+        Assert.assertFalse(result.isStale());
+        Assert.assertEquals(1, mLookupCount);
+    }
+
+    @Test
+    public void testFailedResolveNowReturnsEmptyCountry() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountryResolver resolver = new CountryResolver((latitude, longitude) -> {
+            mLookupCount++;
+            throw new IOException("offline");
+        }, executor, CountryResolver.DEFAULT_CELL_PRECISION, 60000);
+        try {
+            long startMs = System.currentTimeMillis();
+            CountryResolver.Result result = resolver.resolveNow(SEATTLE_LATITUDE, SEATTLE_LONGITUDE, MAX_WAIT_MS);
+            Assert.assertTrue(System.currentTimeMillis() - startMs < MAX_WAIT_MS);
+            Assert.assertEquals("", result.getCountryCode());
+            Assert.assertTrue(result.isStale());
+            Assert.assertEquals(1, mLookupCount);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.amazon.alexaautoclientservice.unittest;
+
+import android.os.Build;
+
+import com.amazon.alexaautoclientservice.util.StartupOrchestrator;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.P})
+public class TestStartupOrchestrator {
+    private final List<String> mRunSteps = Collections.synchronizedList(new ArrayList<>());
+
+    private StartupOrchestrator.Step step(String name, boolean result) {
+        return () -> {
+            mRunSteps.add(name);
+            return result;
+        };
+    }
+
+    @Test
+    public void testStepsRunAfterTheirDependencies() {
+        StartupOrchestrator orchestrator = new StartupOrchestrator()
+                                                   .addStep("a", step("a", true))
+                                                   .addStep("b", step("b", true), "a")
+                                                   .addCallerThreadStep("c", step("c", true), "a")
+                                                   .addStep("d", step("d", true), "b", "c");
+
+        Assert.assertTrue(orchestrator.run());
+
+        Assert.assertEquals(4, mRunSteps.size());
+        Assert.assertEquals("a", mRunSteps.get(0));
+        Assert.assertEquals("d", mRunSteps.get(3));
+    }
+
+    @Test
+    public void testCallerThreadStepsRunOnCallerThread() {
+        Thread caller = Thread.currentThread();
+        List<Thread> callerStepThreads = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> poolStepThreads = Collections.synchronizedList(new ArrayList<>());
+        StartupOrchestrator orchestrator = new StartupOrchestrator();
+        for (int i = 0; i < 3; i++) {
+            orchestrator.addStep("pool" + i, () -> poolStepThreads.add(Thread.currentThread()));
+            orchestrator.addCallerThreadStep("caller" + i, () -> callerStepThreads.add(Thread.currentThread()));
+        }
+
+        Assert.assertTrue(orchestrator.run());
+
+        Assert.assertEquals(Collections.nCopies(3, caller), callerStepThreads);
+        Assert.assertEquals(3, poolStepThreads.size());
+        Assert.assertFalse(poolStepThreads.contains(caller));
+    }
+
+    @Test
+    public void testFailedStepSkipsDependents() {
+        StartupOrchestrator orchestrator = new StartupOrchestrator()
+                                                   .addCallerThreadStep("a", step("a", false))
+                                                   .addStep("b", step("b", true), "a")
+                                                   .addCallerThreadStep("c", step("c", true), "b");
+
+        Assert.assertFalse(orchestrator.run());
+
+        Assert.assertEquals(Collections.singletonList("a"), mRunSteps);
+    }
+
+    @Test
+    public void testRunningStepsCompleteWhenStepFails() {
+        CountDownLatch failed = new CountDownLatch(1);
+        StartupOrchestrator orchestrator = new StartupOrchestrator()
+                                                   .addStep("slow", () -> {
+                                                       try {
+                                                           failed.await();
+                                                       } catch (InterruptedException e) {
+                                                           return false;
+                                                       }
+                                                       mRunSteps.add("slow");
+                                                       return true;
+                                                   })
+                                                   .addStep("fail", () -> {
+                                                       failed.countDown();
+                                                       return false;
+                                                   })
+                                                   .addStep("dependent", step("dependent", true), "slow");
+
+        Assert.assertFalse(orchestrator.run());
+
+        Assert.assertEquals(Collections.singletonList("slow"), mRunSteps);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStepExceptionIsRethrown() {
+        new StartupOrchestrator()
+                .addStep("a", () -> {
+                    throw new IllegalStateException("step failure");
+                })
+                .run();
+    }
+
+    @Test
+    public void testTimeoutSkipsRemainingSteps() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        StartupOrchestrator orchestrator = new StartupOrchestrator()
+                                                   .setTimeout(100)
+                                                   .addStep("hang", () -> {
+                                                       try {
+                                                           release.await();
+                                                       } catch (InterruptedException e) {
+                                                           interrupted.countDown();
+                                                       }
+                                                       return true;
+                                                   })
+                                                   .addCallerThreadStep("dependent", step("dependent", true), "hang");
+        try {
+            Assert.assertFalse(orchestrator.run());
+            Assert.assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+            Assert.assertTrue(mRunSteps.isEmpty());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownDependencyIsRejected() {
+        new StartupOrchestrator().addStep("a", step("a", true), "b");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateStepIsRejected() {
+        new StartupOrchestrator().addStep("a", step("a", true)).addCallerThreadStep("a", step("a", true));
+    }
+}
@@ -0,0 +1,180 @@
+package com.amazon.alexaautoclientservice.unittest;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.os.Build;
+
+import com.amazon.aace.core.MessageStream;
+import com.amazon.alexaautoclientservice.aacs_extra.StreamFlowListener;
+import com.amazon.alexaautoclientservice.util.StreamFlowController;
+import com.amazon.alexaautoclientservice.util.StreamFlowController.Counters;
+import com.amazon.alexaautoclientservice.util.StreamFlowController.Direction;
+
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.P})
+public class TestStreamFlowController {
+    private static final String STREAM_ID = "streamId";
+
+    private StreamFlowController mController;
+    private final List<String> mEvents = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        mController = new StreamFlowController();
+        mController.addListener(new StreamFlowListener() {
+            @Override
+            public void onStreamReady(String streamId) {
+                mEvents.add("ready");
+            }
+
+            @Override
+            public void onStreamOverrun(String streamId, int backlogBytes) {
+                mEvents.add("overrun:" + backlogBytes);
+            }
+        });
+    }
+
+    @Test
+    public void testPushIsCopiedInConfiguredChunks() throws Exception {
+        mController.configure(new JSONObject().put("pushChunkSize", 100));
+        MessageStream messageStream = mockWriteStream();
+
+        mController.push(STREAM_ID, new ByteArrayInputStream(new byte[250]), messageStream);
+
+        verify(messageStream, times(2)).write(any(byte[].class), eq(0), eq(100));
+        verify(messageStream, times(1)).write(any(byte[].class), eq(0), eq(50));
+        Counters totals = mController.getTotalCounters().get(Direction.PUSH);
+        Assert.assertEquals(250, totals.getBytes());
+        Assert.assertEquals(0, totals.getOverruns());
+        Assert.assertEquals(Arrays.asList("ready"), mEvents);
+        Assert.assertTrue(mController.getStreamCounters().isEmpty());
+    }
+
+    @Test
+    public void testPushOverrunIsReportedUntilBacklogDrains() throws Exception {
+        mController.configure(new JSONObject()
+                                      .put("pushChunkSize", 10)
+                                      .put("highWatermarkBytes", 50)
+                                      .put("lowWatermarkBytes", 20));
+        MessageStream messageStream = mockWriteStream();
+
+        mController.push(STREAM_ID, new ByteArrayInputStream(new byte[100]), messageStream);
+
+        Assert.assertEquals(Arrays.asList("ready", "overrun:100", "ready"), mEvents);
+        Counters totals = mController.getTotalCounters().get(Direction.PUSH);
+        Assert.assertEquals(100, totals.getBytes());
+        Assert.assertEquals(1, totals.getOverruns());
+    }
+
+    @Test
+    public void testInvalidConfigurationKeepsDefaults() throws Exception {
+        mController.configure(new JSONObject()
+                                      .put("pushChunkSize", -1)
+                                      .put("highWatermarkBytes", 50)
+                                      .put("lowWatermarkBytes", 80));
+        MessageStream messageStream = mockWriteStream();
+
+        mController.push(STREAM_ID, new ByteArrayInputStream(new byte[600]), messageStream);
+
+        verify(messageStream, times(2))
+                .write(any(byte[].class), eq(0), eq(StreamFlowController.DEFAULT_PUSH_CHUNK_SIZE));
+        // The low watermark falls back below the high watermark, so the stream becomes ready again
+        Assert.assertEquals(Arrays.asList("ready", "overrun:600", "ready"), mEvents);
+    }
+
+    @Test
+    public void testPushStopsOnEngineWriteError() throws Exception {
+        mController.configure(new JSONObject().put("pushChunkSize", 100));
+        MessageStream messageStream = mock(MessageStream.class);
+        when(messageStream.write(any(byte[].class), anyInt(), anyInt())).thenReturn(100, -1);
+
+        mController.push(STREAM_ID, new ByteArrayInputStream(new byte[300]), messageStream);
+
+        verify(messageStream, times(2)).write(any(byte[].class), eq(0), eq(100));
+        Assert.assertEquals(100, mController.getTotalCounters().get(Direction.PUSH).getBytes());
+    }
+
+    @Test
+    public void testPushCountsBytesWrittenByEngine() throws Exception {
+        mController.configure(new JSONObject().put("pushChunkSize", 100));
+        MessageStream messageStream = mock(MessageStream.class);
+        when(messageStream.write(any(byte[].class), anyInt(), anyInt())).thenReturn(60);
+
+        mController.push(STREAM_ID, new ByteArrayInputStream(new byte[200]), messageStream);
+
+        Assert.assertEquals(120, mController.getTotalCounters().get(Direction.PUSH).getBytes());
+    }
+
+    @Test
+    public void testFetchWaitsForEngineDataUntilCancelled() throws Exception {
+        MessageStream messageStream = mock(MessageStream.class);
+        when(messageStream.isClosed()).thenReturn(false);
+        when(messageStream.read(any(byte[].class))).thenReturn(0, 0, 4, 0);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AtomicInteger checks = new AtomicInteger();
+
+        mController.fetch(STREAM_ID, messageStream, output, () -> checks.incrementAndGet() <= 5);
+
+        Assert.assertEquals(4, output.size());
+        Counters totals = mController.getTotalCounters().get(Direction.FETCH);
+        Assert.assertEquals(4, totals.getBytes());
+        Assert.assertEquals(2, totals.getStalls());
+        Assert.assertTrue(mEvents.isEmpty());
+    }
+
+    @Test
+    public void testFetchStopsWhenEngineClosesStream() throws Exception {
+        MessageStream messageStream = mock(MessageStream.class);
+        when(messageStream.isClosed()).thenReturn(false, false, true);
+        when(messageStream.read(any(byte[].class))).thenReturn(8);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        mController.fetch(STREAM_ID, messageStream, output, () -> true);
+
+        Assert.assertEquals(16, output.size());
+        verify(messageStream, times(2)).read(any(byte[].class));
+        verify(messageStream, times(0)).write(any(byte[].class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testFetchStopsOnEngineReadError() throws Exception {
+        MessageStream messageStream = mock(MessageStream.class);
+        when(messageStream.isClosed()).thenReturn(false);
+        when(messageStream.read(any(byte[].class))).thenReturn(8, -1);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        mController.fetch(STREAM_ID, messageStream, output, () -> true);
+
+        Assert.assertEquals(8, output.size());
+        Assert.assertEquals(0, mController.getTotalCounters().get(Direction.FETCH).getStalls());
+    }
+
+    // The Engine stream writes all the bytes it is given
+    private static MessageStream mockWriteStream() {
+        MessageStream messageStream = mock(MessageStream.class);
+        when(messageStream.write(any(byte[].class), anyInt(), anyInt()))
+                .thenAnswer(invocation -> invocation.getArgument(2));
+        return messageStream;
+    }
+}
@@ -0,0 +1,191 @@
+package com.amazon.alexaautoclientservice.unittest;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.amazon.aacsconstants.AASBConstants;
+import com.amazon.aace.core.MessageBroker;
+import com.amazon.aace.core.MessageStream;
+import com.amazon.alexaautoclientservice.util.AASBTrace;
+
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Engine, answering through a mocked {@link MessageBroker} from a recorded trace.
+ *
+ * The replies the Engine sent to the requests recorded in the trace are not replayed on their own, they are sent
+ * when the request is published again, on the publishing thread. The streams the Engine produced are served from
+ * the recorded data, and the data written to the Engine streams is counted.
+ */
+public class TraceEngine {
+    private final MessageBroker mMessageBroker = mock(MessageBroker.class);
+    private final List<MessageBroker.MessageHandler> mHandlers = new CopyOnWriteArrayList<>();
+    // Recorded replies of the Engine by the id of the request
+    private final Map<String, List<String>> mReplies = new HashMap<>();
+    private final Set<AASBTrace.Record> mReplyRecords = new HashSet<>();
+    // Recorded data of the Engine streams by stream id
+    private final Map<String, ArrayDeque<byte[]>> mStreamData = new ConcurrentHashMap<>();
+    private final AtomicLong mBytesWritten = new AtomicLong();
+    // Ids of the messages published so far, added once their replies are sent
+    private final Set<String> mPublishedIds = ConcurrentHashMap.newKeySet();
+    // Guarded by this
+    private long mPublishedMessages;
+    private long mAnsweredRequests;
+
+    public TraceEngine(List<AASBTrace.Record> records) {
+        Set<String> requestIds = new HashSet<>();
+        for (AASBTrace.Record record : records) {
+            if (record.getType() == AASBTrace.Type.MESSAGE_TO_ENGINE) {
+                requestIds.add(getId(record.getMessage(), AASBConstants.ID));
+            }
+        }
+        for (AASBTrace.Record record : records) {
+            if (record.getType() == AASBTrace.Type.MESSAGE_FROM_ENGINE) {
+                String replyToId = getId(record.getMessage(), AASBConstants.REPLY_TO_ID);
+                if (!replyToId.isEmpty() && requestIds.contains(replyToId)) {
+                    List<String> replies = mReplies.get(replyToId);
+                    if (replies == null) {
+                        replies = new ArrayList<>();
+                        mReplies.put(replyToId, replies);
+                    }
+                    replies.add(record.getMessage());
+                    mReplyRecords.add(record);
+                }
+            } else if (record.getType() == AASBTrace.Type.STREAM_FROM_ENGINE) {
+                ArrayDeque<byte[]> data = mStreamData.get(record.getStreamId());
+                if (data == null) {
+                    data = new ArrayDeque<>();
+                    mStreamData.put(record.getStreamId(), data);
+                }
+                data.add(record.getData());
+            }
+        }
+
+        doAnswer(invocation -> {
+            mHandlers.add(invocation.getArgument(0));
+            return null;
+        }).when(mMessageBroker).subscribe(any(), anyString(), anyString());
+        doAnswer(invocation -> {
+            onPublish(invocation.getArgument(0));
+            return null;
+        }).when(mMessageBroker).publish(anyString());
+        when(mMessageBroker.openStream(anyString(), any()))
+                .thenAnswer(invocation -> openStream(invocation.getArgument(0), invocation.getArgument(1)));
+    }
+
+    public MessageBroker getMessageBroker() {
+        return mMessageBroker;
+    }
+
+    /**
+     * @return true if the record is a reply the Engine sends when the request is published.
+     */
+    public boolean isReply(AASBTrace.Record record) {
+        return mReplyRecords.contains(record);
+    }
+
+    /**
+     * Sends a message from the Engine to the subscribers.
+     */
+    public void send(String message) {
+        for (MessageBroker.MessageHandler handler : mHandlers) {
+            handler.messageReceived(message);
+        }
+    }
+
+    /**
+     * @return true once the message with the given id was published and the Engine sent its replies.
+     */
+    public boolean isPublished(String messageId) {
+        return mPublishedIds.contains(messageId);
+    }
+
+    public synchronized long getPublishedMessages() {
+        return mPublishedMessages;
+    }
+
+    public synchronized long getAnsweredRequests() {
+        return mAnsweredRequests;
+    }
+
+    public long getBytesWritten() {
+        return mBytesWritten.get();
+    }
+
+    private synchronized void onPublish(String message) {
+        mPublishedMessages++;
+        String messageId = getId(message, AASBConstants.ID);
+        List<String> replies = mReplies.remove(messageId);
+        if (replies != null) {
+            mAnsweredRequests++;
+            for (String reply : replies) {
+                send(reply);
+            }
+        }
+        mPublishedIds.add(messageId);
+    }
+
+    static String getMessageId(String message) {
+        return getId(message, AASBConstants.ID);
+    }
+
+    private MessageStream openStream(String streamId, MessageStream.Mode mode) {
+        MessageStream stream = mock(MessageStream.class);
+        if (mode == MessageStream.Mode.WRITE) {
+            when(stream.write(any(byte[].class), anyInt(), anyInt())).thenAnswer(invocation -> {
+                int size = invocation.getArgument(2);
+                mBytesWritten.addAndGet(size);
+                return size;
+            });
+            return stream;
+        }
+
+        ArrayDeque<byte[]> data = mStreamData.remove(streamId);
+        ArrayDeque<byte[]> chunks = data == null ? new ArrayDeque<>() : data;
+        when(stream.isClosed()).thenAnswer(invocation -> chunks.isEmpty());
+        when(stream.read(any(byte[].class))).thenAnswer(invocation -> {
+            byte[] buffer = invocation.getArgument(0);
+            byte[] chunk = chunks.poll();
+            if (chunk == null) {
+                return 0;
+            }
+            int size = Math.min(chunk.length, buffer.length);
+            System.arraycopy(chunk, 0, buffer, 0, size);
+            if (size < chunk.length) {
+                // Keep the rest of the recorded data for the next read
+                byte[] rest = new byte[chunk.length - size];
+                System.arraycopy(chunk, size, rest, 0, rest.length);
+                chunks.addFirst(rest);
+            }
+            return size;
+        });
+        return stream;
+    }
+
+    private static String getId(String message, String key) {
+        try {
+            JSONObject header = new JSONObject(message).getJSONObject(AASBConstants.HEADER);
+            if (AASBConstants.ID.equals(key)) {
+                return header.optString(AASBConstants.ID);
+            }
+            return header.getJSONObject(AASBConstants.MESSAGE_DESCRIPTION).optString(key);
+        } catch (Exception e) {
+            return "";
+        }
+    }
+}
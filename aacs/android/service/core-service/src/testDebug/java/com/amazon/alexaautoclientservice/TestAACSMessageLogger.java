@@ -0,0 +1,189 @@
+package com.amazon.alexaautoclientservice;
+
+import android.os.Build;
+
+import com.amazon.aacsconstants.Action;
+import com.amazon.aacsconstants.Topic;
+import com.amazon.alexaautoclientservice.util.AASBTrace;
+
+import org.json.JSONArray;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPInputStream;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Build.VERSION_CODES.P})
+public class TestAACSMessageLogger {
+    private static final int QUEUE_CAPACITY = 64;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private final CountDownLatch mWriterReleased = new CountDownLatch(1);
+    private AACSMessageLogger mLogger;
+    private File mLogFile;
+
+    @Before
+    public void setup() {
+        mLogger = new AACSMessageLogger(QUEUE_CAPACITY, runnable -> {
+            Thread thread = new Thread(() -> {
+                try {
+                    mWriterReleased.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                runnable.run();
+            });
+            thread.setDaemon(true);
+            return thread;
+        });
+        mLogFile = new File(mTemporaryFolder.getRoot(), "aasb.log");
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        mWriterReleased.countDown();
+        mLogger.stop();
+        mLogger.awaitWritten();
+    }
+
+    private void logMessages(int count) {
+        for (int i = 0; i < count; i++) {
+            mLogger.buffer(AACSMessageLogger.FROM_ENGINE, Topic.SPEECH_RECOGNIZER,
+                    Action.SpeechRecognizer.WAKEWORD_DETECTED, "{}", "messageId" + i, "");
+        }
+    }
+
+    private void stopLogging() throws InterruptedException {
+        mWriterReleased.countDown();
+        mLogger.stop();
+        mLogger.awaitWritten();
+    }
+
+    private static JSONArray readSegment(File file) throws Exception {
+        InputStream input = new FileInputStream(file);
+        if (file.getName().endsWith(".gz")) {
+            input = new GZIPInputStream(input);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream stream = input) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) >= 0) {
+                output.write(buffer, 0, read);
+            }
+        }
+        return new JSONArray(new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testLogIsValidJson() throws Exception {
+        mLogger.start(mLogFile.getPath(), AACSMessageLogger.DEFAULT_MAX_FILE_SIZE, 2, false);
+        logMessages(3);
+        stopLogging();
+
+        // The segment ends with an empty object so the entries can all end with a comma
+        JSONArray entries = readSegment(mLogFile);
+        Assert.assertEquals(4, entries.length());
+        Assert.assertEquals("messageId2", entries.getJSONObject(2).getString("messageId"));
+    }
+
+    @Test
+    public void testStartRotatesExistingLog() throws Exception {
+        try (FileOutputStream output = new FileOutputStream(mLogFile)) {
+            output.write("[{}]".getBytes(StandardCharsets.UTF_8));
+        }
+
+        mLogger.start(mLogFile.getPath(), AACSMessageLogger.DEFAULT_MAX_FILE_SIZE, 2, false);
+        logMessages(1);
+        stopLogging();
+
+        Assert.assertEquals(2, readSegment(mLogFile).length());
+        Assert.assertEquals(1, readSegment(new File(mLogFile.getPath() + ".1")).length());
+    }
+
+    @Test
+    public void testRotationKeepsRetentionCount() throws Exception {
+        // Every entry is larger than the maximum size, so the log is rotated after each of them
+        mLogger.start(mLogFile.getPath(), 1, 2, false);
+        logMessages(5);
+        stopLogging();
+
+        Assert.assertEquals(1, readSegment(mLogFile).length());
+        JSONArray latest = readSegment(new File(mLogFile.getPath() + ".1"));
+        Assert.assertEquals(2, latest.length());
+        Assert.assertEquals("messageId4", latest.getJSONObject(0).getString("messageId"));
+        Assert.assertEquals(
+                "messageId3", readSegment(new File(mLogFile.getPath() + ".2")).getJSONObject(0).getString("messageId"));
+        Assert.assertFalse(new File(mLogFile.getPath() + ".3").exists());
+    }
+
+    @Test
+    public void testRotatedSegmentsAreCompressed() throws Exception {
+        mLogger.start(mLogFile.getPath(), 1, 2, true);
+        logMessages(2);
+        stopLogging();
+
+        Assert.assertFalse(new File(mLogFile.getPath() + ".1").exists());
+        Assert.assertEquals("messageId1",
+                readSegment(new File(mLogFile.getPath() + ".1.gz")).getJSONObject(0).getString("messageId"));
+        Assert.assertEquals("messageId0",
+                readSegment(new File(mLogFile.getPath() + ".2.gz")).getJSONObject(0).getString("messageId"));
+    }
+
+    @Test
+    public void testMessagesAreDroppedWhenQueueIsFull() throws Exception {
+        // The writer is held back, the start record takes one slot of the queue
+        mLogger.start(mLogFile.getPath(), AACSMessageLogger.DEFAULT_MAX_FILE_SIZE, 2, false);
+        logMessages(QUEUE_CAPACITY + 10);
+        Assert.assertEquals(11, mLogger.getDroppedCount());
+
+        stopLogging();
+        // The queued messages and the closing empty object
+        Assert.assertEquals(QUEUE_CAPACITY - 1 + 1, readSegment(mLogFile).length());
+    }
+
+    @Test
+    public void testDroppedTraceRecordsAreWrittenAsGap() throws Exception {
+        File traceFile = new File(mTemporaryFolder.getRoot(), "trace.aasb");
+        // The writer is held back, the trace start record takes one slot of the queue
+        mLogger.startTrace(traceFile.getPath());
+        for (int i = 0; i < QUEUE_CAPACITY + 10; i++) {
+            mLogger.traceMessage(false, "{}");
+        }
+        stopLogging();
+
+        // The gap is written with the first record written after the drops, then the queued messages
+        List<AASBTrace.Record> records = AASBTrace.readAll(traceFile);
+        Assert.assertEquals(1 + QUEUE_CAPACITY - 1, records.size());
+        Assert.assertEquals(AASBTrace.Type.GAP, records.get(0).getType());
+        Assert.assertEquals(11, records.get(0).getDroppedRecords());
+        Assert.assertEquals(AASBTrace.Type.MESSAGE_FROM_ENGINE, records.get(1).getType());
+    }
+
+    @Test
+    public void testRetentionCountZeroDeletesLog() throws Exception {
+        mLogger.start(mLogFile.getPath(), 1, 0, false);
+        logMessages(2);
+        stopLogging();
+
+        Assert.assertEquals(1, readSegment(mLogFile).length());
+        Assert.assertFalse(new File(mLogFile.getPath() + ".1").exists());
+    }
+}
@@ -31,4 +31,7 @@ public interface AACSContext {
     void deregisterAASBPlatformInterface(String module, String name);
     JSONObject getConfiguration(String configKey);
     void addEngineStatusListener(EngineStatusListener listener);
+    // The flow control of the pushed streams is optional, the default implementation does not report it.
+    default void addStreamFlowListener(StreamFlowListener listener) {}
+    default void removeStreamFlowListener(StreamFlowListener listener) {}
 }
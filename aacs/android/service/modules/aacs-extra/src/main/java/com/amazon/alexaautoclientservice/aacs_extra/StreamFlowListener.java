@@ -0,0 +1,24 @@
+/*
+ * Copyright 2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.alexaautoclientservice.aacs_extra;
+
+// StreamFlowListener observes the flow control of the streams pushed by the clients to the Engine.
+// The callbacks are invoked on the thread copying the stream and must not block.
+public interface StreamFlowListener {
+    // The stream can take more data: it was opened, or its backlog drained below the low watermark.
+    void onStreamReady(String streamId);
+    // The producer of the stream is outrunning the Engine: its backlog reached the high watermark.
+    void onStreamOverrun(String streamId, int backlogBytes);
+}
@@ -14,22 +14,59 @@
  */
 package com.amazon.maccandroid;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
 import com.amazon.maccandroid.model.PlayerEvents;
 import com.amazon.maccandroid.model.errors.CapabilityAgentError;
 import com.amazon.maccandroid.model.errors.MediaAppPlayerError;
 import com.amazon.maccandroid.model.players.DiscoveredPlayer;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
+/**
+ * Reports the state changes of the media apps to the {@link MACCAndroidClient}.
+ * <p>
+ * The playback events are reported as soon as they happen. The events that only ask for the player state to be
+ * read again ({@link PlayerEvents#TrackChanged} and {@link PlayerEvents#PlayModeChanged}) are reported at most once
+ * every {@link #STATE_CHANGE_REPORT_INTERVAL_MS} per player; the events of that interval are merged and reported
+ * with the next playback event of the player, or with the pending events of all the other players when the interval
+ * ends.
+ */
 public class MediaAppsStateReporter {
     private static final String TAG = MediaAppsStateReporter.class.getSimpleName();
+    // package private for testing
+    /*package*/ static final long STATE_CHANGE_REPORT_INTERVAL_MS = 1000;
+    private static final Set<PlayerEvents> STATE_CHANGE_EVENTS =
+            EnumSet.of(PlayerEvents.TrackChanged, PlayerEvents.PlayModeChanged);
 
     private static MediaAppsStateReporter sInstance;
     private MACCAndroidClient mMACCAndroidClient;
+    private Handler mHandler;
+
+    // Guarded by this
+    private final Map<String, Long> mLastStateChangeReportTime = new HashMap<>();
+    private final Map<String, Set<PlayerEvents>> mPendingStateChangeEvents = new LinkedHashMap<>();
+    private boolean mFlushScheduled;
 
-    private MediaAppsStateReporter() {}
+    private final Runnable mFlushPendingStateChangeEvents = new Runnable() {
+        @Override
+        public void run() {
+            flushPendingStateChangeEvents();
+        }
+    };
+
+    // package private for testing
+    /*package*/ MediaAppsStateReporter() {}
 
     public static MediaAppsStateReporter getInstance() {
         if (sInstance == null) {
@@ -40,6 +77,7 @@ public class MediaAppsStateReporter {
 
     void initalize(MACCAndroidClient maccAndroidClient) {
         mMACCAndroidClient = maccAndroidClient;
+        mHandler = new Handler(Looper.getMainLooper());
     }
 
     void reportError(String playerId, CapabilityAgentError error) {
@@ -66,9 +104,89 @@ public class MediaAppsStateReporter {
     }
 
     void reportPlayerEvent(String playerId, Set<PlayerEvents> playerEvents) {
-        if (!isInitalized() || !isAppAuthorized(playerId))
+        if (!isInitalized() || !isAppAuthorized(playerId) || playerEvents.isEmpty())
+            return;
+
+        Set<PlayerEvents> eventsToReport = EnumSet.noneOf(PlayerEvents.class);
+        eventsToReport.addAll(playerEvents);
+        synchronized (this) {
+            long now = SystemClock.elapsedRealtime();
+            Set<PlayerEvents> pendingEvents = mPendingStateChangeEvents.get(playerId);
+            if (!STATE_CHANGE_EVENTS.containsAll(eventsToReport)) {
+                // A playback event carries the pending state changes of the player
+                if (pendingEvents != null) {
+                    eventsToReport.addAll(pendingEvents);
+                    mPendingStateChangeEvents.remove(playerId);
+                }
+            } else if (pendingEvents != null) {
+                pendingEvents.addAll(eventsToReport);
+                Log.i(TAG, "reportPlayerEvent | coalesced " + playerEvents);
+                return;
+            } else if (isStateChangeReportedRecently(playerId, now)) {
+                mPendingStateChangeEvents.put(playerId, eventsToReport);
+                scheduleFlush(now);
+                Log.i(TAG, "reportPlayerEvent | delayed " + playerEvents);
+                return;
+            }
+            if (!Collections.disjoint(eventsToReport, STATE_CHANGE_EVENTS)) {
+                mLastStateChangeReportTime.put(playerId, now);
+            }
+        }
+
+        sendPlayerEvents(playerId, eventsToReport);
+    }
+
+    private boolean isStateChangeReportedRecently(String playerId, long now) {
+        Long lastReportTime = mLastStateChangeReportTime.get(playerId);
+        return lastReportTime != null && now - lastReportTime < STATE_CHANGE_REPORT_INTERVAL_MS;
+    }
+
+    private void scheduleFlush(long now) {
+        if (mFlushScheduled) {
+            return;
+        }
+        long delay = STATE_CHANGE_REPORT_INTERVAL_MS;
+        for (String playerId : mPendingStateChangeEvents.keySet()) {
+            delay = Math.min(delay, mLastStateChangeReportTime.get(playerId) + STATE_CHANGE_REPORT_INTERVAL_MS - now);
+        }
+        mFlushScheduled = true;
+        mHandler.postDelayed(mFlushPendingStateChangeEvents, Math.max(delay, 0));
+    }
+
+    /**
+     * Reports in one pass the pending state changes of all the players which interval has ended.
+     */
+    /*package*/ void flushPendingStateChangeEvents() {
+        Map<String, Set<PlayerEvents>> eventsToReport = new LinkedHashMap<>();
+        synchronized (this) {
+            mFlushScheduled = false;
+            long now = SystemClock.elapsedRealtime();
+            Iterator<Map.Entry<String, Set<PlayerEvents>>> iterator = mPendingStateChangeEvents.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Set<PlayerEvents>> entry = iterator.next();
+                if (!isStateChangeReportedRecently(entry.getKey(), now)) {
+                    eventsToReport.put(entry.getKey(), entry.getValue());
+                    mLastStateChangeReportTime.put(entry.getKey(), now);
+                    iterator.remove();
+                }
+            }
+            if (!mPendingStateChangeEvents.isEmpty()) {
+                scheduleFlush(now);
+            }
+        }
+
+        if (eventsToReport.isEmpty()) {
             return;
+        }
+        Log.i(TAG, "flushPendingStateChangeEvents | players: " + eventsToReport.keySet());
+        for (Map.Entry<String, Set<PlayerEvents>> entry : eventsToReport.entrySet()) {
+            if (isAppAuthorized(entry.getKey())) {
+                sendPlayerEvents(entry.getKey(), entry.getValue());
+            }
+        }
+    }
 
+    private void sendPlayerEvents(String playerId, Set<PlayerEvents> playerEvents) {
         Log.i(TAG, "reportPlayerEvent | " + playerEvents);
 
         MediaApp app = MediaAppsRepository.getInstance().getAuthorizedMediaApp(playerId);
@@ -17,7 +17,6 @@ package com.amazon.maccandroid;
 
 import android.os.Bundle;
 import android.support.v4.media.MediaMetadataCompat;
-import android.support.v4.media.RatingCompat;
 import android.support.v4.media.session.MediaControllerCompat;
 import android.support.v4.media.session.PlaybackStateCompat;
 
@@ -25,15 +24,17 @@ import com.amazon.maccandroid.model.APIConstants;
 import com.amazon.maccandroid.model.PlayerEvents;
 import com.amazon.maccandroid.model.PlayerPlaybackInfo;
 import com.amazon.maccandroid.model.errors.MediaAppPlayerError;
-import com.amazon.maccandroid.model.state.MediaAppMetaData;
 import com.amazon.maccandroid.model.state.MediaAppPlaybackState;
 
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
 
 public class MediaControllerCallback extends MediaControllerCompat.Callback {
     private static final String TAG = MediaControllerCallback.class.getSimpleName();
+    private static final Set<PlayerPlaybackInfo.Change> POSITION_ONLY =
+            EnumSet.of(PlayerPlaybackInfo.Change.POSITION);
 
     private final String mMediaAppPackageName;
     private PlaybackStateCompat mPrevState;
@@ -76,15 +77,23 @@ public class MediaControllerCallback extends MediaControllerCompat.Callback {
             Log.e(TAG, "onPlaybackStateChanged state is null");
             return;
         }
-        Log.i(TAG, "onPlaybackStateChanged : " + state);
         int playbackState = state.getState();
 
-        mMediaApp.setPlayerPlaybackInfo(new PlayerPlaybackInfo.Builder()
-                                                .playerPlaybackState(mMediaApp.getPlayerPlaybackInfo())
-                                                .playbackState(state)
-                                                .build());
+        PlayerPlaybackInfo playerPlaybackInfo = new PlayerPlaybackInfo.Builder()
+                                                        .playerPlaybackState(mMediaApp.getPlayerPlaybackInfo())
+                                                        .playbackState(state)
+                                                        .build();
+        Set<PlayerPlaybackInfo.Change> changes = playerPlaybackInfo.diff(mMediaApp.getPlayerPlaybackInfo());
+        mMediaApp.setPlayerPlaybackInfo(playerPlaybackInfo);
 
         super.onPlaybackStateChanged(state);
+        // Position updates are read with the player state and don't produce any player event
+        if (mPrevState != null && POSITION_ONLY.containsAll(changes)
+                && playbackState != PlaybackStateCompat.STATE_ERROR) {
+            mPrevState = state;
+            return;
+        }
+        Log.i(TAG, "onPlaybackStateChanged : " + state + " | changes: " + changes);
         if (mPrevState == null || mPrevState.getActions() != state.getActions()) {
             mEventsToSendQueue.add(PlayerEvents.PlayModeChanged);
         }
@@ -229,30 +238,26 @@ public class MediaControllerCallback extends MediaControllerCompat.Callback {
         super.onMetadataChanged(metadata);
         final Set<PlayerEvents> eventsToSend = new HashSet<>();
 
-        // Getting both current rating and previous rating
-        RatingCompat currRating = metadata.getRating(MediaMetadataCompat.METADATA_KEY_RATING);
-        RatingCompat prevRating = mMediaApp.getPlayerPlaybackInfo().getMetadata() == null
-                ? null
-                : mMediaApp.getPlayerPlaybackInfo().getMetadata().getRating(MediaMetadataCompat.METADATA_KEY_RATING);
-        // If rating has changed then send a PlayModeChangedEvent
-        if ((prevRating == null && currRating != null)
-                || (prevRating != null && currRating != null && !currRating.equals(prevRating))) {
+        PlayerPlaybackInfo previousPlayerPlaybackInfo = mMediaApp.getPlayerPlaybackInfo();
+        PlayerPlaybackInfo playerPlaybackInfo = new PlayerPlaybackInfo.Builder()
+                                                        .playerPlaybackState(previousPlayerPlaybackInfo)
+                                                        .metadata(metadata)
+                                                        .build();
+        Set<PlayerPlaybackInfo.Change> changes = playerPlaybackInfo.diff(previousPlayerPlaybackInfo);
+        mMediaApp.setPlayerPlaybackInfo(playerPlaybackInfo);
+
+        // If the rating has changed then send a PlayModeChanged
+        if (changes.contains(PlayerPlaybackInfo.Change.FAVORITE) && playerPlaybackInfo.getFavorite() != null) {
             eventsToSend.add(PlayerEvents.PlayModeChanged);
         }
 
         // any other metadata field in playbackstate changed then we need to send a track
         // changed
-        if ((mMediaApp.getPlayerPlaybackInfo().getMetadata() == null)
-                || (!new MediaAppMetaData(metadata).equals(
-                        new MediaAppMetaData(mMediaApp.getPlayerPlaybackInfo().getMetadata())))) {
+        if (previousPlayerPlaybackInfo == null || previousPlayerPlaybackInfo.getMetadata() == null
+                || changes.contains(PlayerPlaybackInfo.Change.METADATA)) {
             eventsToSend.add(PlayerEvents.TrackChanged);
         }
 
-        mMediaApp.setPlayerPlaybackInfo(new PlayerPlaybackInfo.Builder()
-                                                .playerPlaybackState(mMediaApp.getPlayerPlaybackInfo())
-                                                .metadata(metadata)
-                                                .build());
-
         if (!eventsToSend.isEmpty()) {
             MediaAppsStateReporter.getInstance().reportPlayerEvent(mMediaApp.getLocalPlayerId(), eventsToSend);
         }
@@ -261,21 +266,21 @@ public class MediaControllerCallback extends MediaControllerCompat.Callback {
     @Override
     public void onRepeatModeChanged(int repeatMode) {
         super.onRepeatModeChanged(repeatMode);
-        mMediaApp.setPlayerPlaybackInfo(new PlayerPlaybackInfo.Builder()
-                                                .playerPlaybackState(mMediaApp.getPlayerPlaybackInfo())
-                                                .repeatMode(repeatMode)
-                                                .build());
-        sendPlayModeChanged();
+        PlayerPlaybackInfo playerPlaybackInfo = new PlayerPlaybackInfo.Builder()
+                                                        .playerPlaybackState(mMediaApp.getPlayerPlaybackInfo())
+                                                        .repeatMode(repeatMode)
+                                                        .build();
+        updatePlayModeAndReport(playerPlaybackInfo, PlayerPlaybackInfo.Change.REPEAT_MODE);
     }
 
     @Override
     public void onShuffleModeChanged(int shuffleMode) {
         super.onShuffleModeChanged(shuffleMode);
-        mMediaApp.setPlayerPlaybackInfo(new PlayerPlaybackInfo.Builder()
-                                                .playerPlaybackState(mMediaApp.getPlayerPlaybackInfo())
-                                                .shuffleMode(shuffleMode)
-                                                .build());
-        sendPlayModeChanged();
+        PlayerPlaybackInfo playerPlaybackInfo = new PlayerPlaybackInfo.Builder()
+                                                        .playerPlaybackState(mMediaApp.getPlayerPlaybackInfo())
+                                                        .shuffleMode(shuffleMode)
+                                                        .build();
+        updatePlayModeAndReport(playerPlaybackInfo, PlayerPlaybackInfo.Change.SHUFFLE_MODE);
     }
 
     @Override
@@ -296,6 +301,15 @@ public class MediaControllerCallback extends MediaControllerCompat.Callback {
         }
     }
 
+    private void updatePlayModeAndReport(PlayerPlaybackInfo playerPlaybackInfo, PlayerPlaybackInfo.Change playMode) {
+        boolean changed = playerPlaybackInfo.diff(mMediaApp.getPlayerPlaybackInfo()).contains(playMode);
+        mMediaApp.setPlayerPlaybackInfo(playerPlaybackInfo);
+        // The media session reports the play modes again when it is refreshed
+        if (changed) {
+            sendPlayModeChanged();
+        }
+    }
+
     private void sendPlayModeChanged() {
         final Set<PlayerEvents> eventsToSend = new HashSet<>();
         eventsToSend.add(PlayerEvents.PlayModeChanged);
@@ -4,22 +4,61 @@
 package com.amazon.maccandroid.model;
 
 import android.support.v4.media.MediaMetadataCompat;
+import android.support.v4.media.RatingCompat;
 import android.support.v4.media.session.PlaybackStateCompat;
 
+import com.amazon.maccandroid.model.state.MediaAppMetaData;
+
+import java.util.EnumSet;
+import java.util.Objects;
+
 /**
  * Class representing the playback state ({@link PlaybackStateCompat}, {@link MediaMetadataCompat},
  * etc) of a player.
+ * <p>
+ * A {@link PlayerPlaybackInfo} is an immutable snapshot of the player; every change of the media
+ * session creates a new snapshot with the {@link Builder}. The reported view of the metadata is
+ * derived once per {@link MediaMetadataCompat}, so snapshots created for playback state, repeat or
+ * shuffle changes share it, and two snapshots are compared field by field with {@link #diff}.
  */
 public class PlayerPlaybackInfo {
-    private PlaybackStateCompat mPlaybackState;
-    private MediaMetadataCompat mMetadata;
-    int mRepeatMode;
-    int mShuffleMode;
+    /**
+     * Fields of the snapshot that may change between two snapshots.
+     */
+    public enum Change {
+        PLAYBACK_STATE,
+        ACTIONS,
+        ERROR,
+        POSITION,
+        METADATA,
+        FAVORITE,
+        REPEAT_MODE,
+        SHUFFLE_MODE,
+        ;
+    }
+
+    private static final MediaAppMetaData NO_METADATA = new MediaAppMetaData();
+
+    private final PlaybackStateCompat mPlaybackState;
+    private final MediaMetadataCompat mMetadata;
+    private final MediaAppMetaData mMediaAppMetaData;
+    private final PlayBackStateFields.favorite mFavorite;
+    private final int mRepeatMode;
+    private final int mShuffleMode;
 
     public PlayerPlaybackInfo(
             PlaybackStateCompat playbackState, MediaMetadataCompat metadata, int repeatMode, int shuffleMode) {
+        this(playbackState, metadata, metadata == null ? NO_METADATA : new MediaAppMetaData(metadata),
+                getFavorite(metadata), repeatMode, shuffleMode);
+    }
+
+    private PlayerPlaybackInfo(PlaybackStateCompat playbackState, MediaMetadataCompat metadata,
+            MediaAppMetaData mediaAppMetaData, PlayBackStateFields.favorite favorite, int repeatMode,
+            int shuffleMode) {
         mPlaybackState = playbackState;
         mMetadata = metadata;
+        mMediaAppMetaData = mediaAppMetaData;
+        mFavorite = favorite;
         mRepeatMode = repeatMode;
         mShuffleMode = shuffleMode;
     }
@@ -40,6 +79,92 @@ public class PlayerPlaybackInfo {
         return mShuffleMode;
     }
 
+    /**
+     * @return the reported view of the metadata, with empty fields if the player has no metadata.
+     */
+    public MediaAppMetaData getMediaAppMetaData() {
+        return mMediaAppMetaData;
+    }
+
+    /**
+     * @return the favorite state of the current item, or null if the player doesn't rate it.
+     */
+    public PlayBackStateFields.favorite getFavorite() {
+        return mFavorite;
+    }
+
+    /**
+     * Compares this snapshot with a previous snapshot of the same player.
+     *
+     * @param previous the previous snapshot, or null if there is none.
+     * @return the fields that changed, all of them if there is no previous snapshot.
+     */
+    public EnumSet<Change> diff(PlayerPlaybackInfo previous) {
+        if (previous == null) {
+            return EnumSet.allOf(Change.class);
+        }
+        EnumSet<Change> changes = EnumSet.noneOf(Change.class);
+        if (previous.mPlaybackState != mPlaybackState) {
+            if (previous.mPlaybackState == null || mPlaybackState == null) {
+                changes.add(Change.PLAYBACK_STATE);
+                changes.add(Change.ACTIONS);
+                changes.add(Change.ERROR);
+                changes.add(Change.POSITION);
+            } else {
+                diffPlaybackState(previous.mPlaybackState, mPlaybackState, changes);
+            }
+        }
+        if (previous.mMetadata != mMetadata && !mMediaAppMetaData.equals(previous.mMediaAppMetaData)) {
+            changes.add(Change.METADATA);
+        }
+        if (previous.mFavorite != mFavorite) {
+            changes.add(Change.FAVORITE);
+        }
+        if (previous.mRepeatMode != mRepeatMode) {
+            changes.add(Change.REPEAT_MODE);
+        }
+        if (previous.mShuffleMode != mShuffleMode) {
+            changes.add(Change.SHUFFLE_MODE);
+        }
+        return changes;
+    }
+
+    private static void diffPlaybackState(
+            PlaybackStateCompat previous, PlaybackStateCompat current, EnumSet<Change> changes) {
+        if (previous.getState() != current.getState()) {
+            changes.add(Change.PLAYBACK_STATE);
+        }
+        if (previous.getActions() != current.getActions()) {
+            changes.add(Change.ACTIONS);
+        }
+        if (previous.getErrorCode() != current.getErrorCode()
+                || !Objects.equals(previous.getErrorMessage(), current.getErrorMessage())) {
+            changes.add(Change.ERROR);
+        }
+        if (previous.getPosition() != current.getPosition()
+                || previous.getLastPositionUpdateTime() != current.getLastPositionUpdateTime()
+                || previous.getPlaybackSpeed() != current.getPlaybackSpeed()) {
+            changes.add(Change.POSITION);
+        }
+    }
+
+    private static PlayBackStateFields.favorite getFavorite(MediaMetadataCompat metadata) {
+        if (metadata == null) {
+            return null;
+        }
+        RatingCompat rating = metadata.getRating(MediaMetadataCompat.METADATA_KEY_RATING);
+        if (rating == null) {
+            return null;
+        }
+        if (!rating.isRated()) {
+            return PlayBackStateFields.favorite.NOT_RATED;
+        } else if (rating.isThumbUp()) {
+            return PlayBackStateFields.favorite.FAVORITED;
+        } else {
+            return PlayBackStateFields.favorite.UNFAVORITED;
+        }
+    }
+
     /**
      * Builder class for {@link PlayerPlaybackInfo} to encapsulate the default values for each field and
      * make it easy to create new {@link PlayerPlaybackInfo} objects from existing {@link PlayerPlaybackInfo}
@@ -53,6 +178,7 @@ public class PlayerPlaybackInfo {
 
         private PlaybackStateCompat playbackState = DEFAULT_PLAYBACK_STATE;
         private MediaMetadataCompat metadata = DEFAULT_METADATA;
+        private PlayerPlaybackInfo base;
         private int repeatMode = DEFAULT_REPEAT_MODE;
         private int shuffleMode = DEFAULT_SHUFFLE_MODE;
 
@@ -60,6 +186,11 @@ public class PlayerPlaybackInfo {
          * Build a new {@link PlayerPlaybackInfo} using the values provided to this {@link Builder}.
          */
         public PlayerPlaybackInfo build() {
+            if (base != null && base.mMetadata == metadata) {
+                // Share the view of the metadata derived for the other snapshot
+                return new PlayerPlaybackInfo(playbackState, metadata, base.mMediaAppMetaData, base.mFavorite,
+                        repeatMode, shuffleMode);
+            }
             return new PlayerPlaybackInfo(playbackState, metadata, repeatMode, shuffleMode);
         }
 
@@ -74,6 +205,7 @@ public class PlayerPlaybackInfo {
             if (playerPlaybackInfo == null) {
                 return this;
             }
+            base = playerPlaybackInfo;
             playbackState = playerPlaybackInfo.mPlaybackState;
             metadata = playerPlaybackInfo.mMetadata;
             repeatMode = playerPlaybackInfo.mRepeatMode;
@@ -16,11 +16,11 @@
 package com.amazon.maccandroid.model.state;
 
 import android.os.SystemClock;
-import android.support.v4.media.MediaMetadataCompat;
 import android.support.v4.media.session.PlaybackStateCompat;
 
 import com.amazon.maccandroid.MediaApp;
 import com.amazon.maccandroid.model.PlayBackStateFields;
+import com.amazon.maccandroid.model.PlayerPlaybackInfo;
 import com.amazon.maccandroid.model.SupportedOperations;
 
 import java.util.HashSet;
@@ -52,32 +52,16 @@ public class MediaAppPlaybackState {
             mMediaAppMetaData = new MediaAppMetaData();
             return;
         }
-        PlaybackStateCompat playBackState = app.getPlayerPlaybackInfo().getPlaybackState();
+        PlayerPlaybackInfo playerPlaybackInfo = app.getPlayerPlaybackInfo();
+        PlaybackStateCompat playBackState = playerPlaybackInfo.getPlaybackState();
 
-        mPlaybackState = getExternalMediaPlayerState(app.getPlayerPlaybackInfo().getPlaybackState().getState());
+        mPlaybackState = getExternalMediaPlayerState(playBackState.getState());
         mSupportedOperations = supportedOperations.getSupportedOperations(app);
         mPositionMilliseconds = getPositionMilliseconds(playBackState);
-        mShuffleMode = getShuffleEnabled(app.getPlayerPlaybackInfo().getShuffleMode());
-        mRepeatMode = getRepeatEnabled(app.getPlayerPlaybackInfo().getRepeatMode());
-        mFavourite = getFavorite(app.getPlayerPlaybackInfo().getMetadata());
-        MediaMetadataCompat metadata = app.getPlayerPlaybackInfo().getMetadata();
-        mMediaAppMetaData = metadata == null ? new MediaAppMetaData() : new MediaAppMetaData(metadata);
-    }
-
-    private PlayBackStateFields.favorite getFavorite(MediaMetadataCompat metadata) {
-        if (metadata == null) {
-            return null;
-        }
-        if (metadata.getRating(MediaMetadataCompat.METADATA_KEY_RATING) == null) {
-            return null;
-        }
-        if (!metadata.getRating(MediaMetadataCompat.METADATA_KEY_RATING).isRated()) {
-            return PlayBackStateFields.favorite.NOT_RATED;
-        } else if (metadata.getRating(MediaMetadataCompat.METADATA_KEY_RATING).isThumbUp()) {
-            return PlayBackStateFields.favorite.FAVORITED;
-        } else {
-            return PlayBackStateFields.favorite.UNFAVORITED;
-        }
+        mShuffleMode = getShuffleEnabled(playerPlaybackInfo.getShuffleMode());
+        mRepeatMode = getRepeatEnabled(playerPlaybackInfo.getRepeatMode());
+        mFavourite = playerPlaybackInfo.getFavorite();
+        mMediaAppMetaData = playerPlaybackInfo.getMediaAppMetaData();
     }
 
     private PlayBackStateFields.repeat getRepeatEnabled(int repeatMode) {
@@ -0,0 +1,93 @@
+package com.amazon.maccandroid;
+
+import android.content.Context;
+
+import com.amazon.maccandroid.model.PlayerEvents;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class MediaAppsStateReporterTest {
+    public static final String TEST_PACKAGE_NAME = "testReporterPackageName";
+    public static final String TEST_CLASS_NAME = "testClassName";
+    public static final String TEST_SPI_VERSION = "testSpiVersion";
+    public static final String TEST_PLAYER_COOKIE = "testPlayerCookie";
+    private MediaAppsStateReporter mClassUnderTest;
+    private MACCAndroidClient mMockMACCAndroidClient;
+
+    @Before
+    public void setUp() throws Exception {
+        MediaApp mediaApp = new MediaApp(
+                Mockito.mock(Context.class), TEST_PACKAGE_NAME, TEST_CLASS_NAME, TEST_SPI_VERSION, TEST_PLAYER_COOKIE) {
+            @Override
+            void initValidationData(Context context) {}
+        };
+        MediaAppsRepository.getInstance().addDiscoveredMediaApp(mediaApp);
+        MediaAppsRepository.getInstance().addAuthorizedMediaApp(mediaApp);
+        mMockMACCAndroidClient = Mockito.mock(MACCAndroidClient.class);
+        mClassUnderTest = new MediaAppsStateReporter();
+        mClassUnderTest.initalize(mMockMACCAndroidClient);
+    }
+
+    @Test
+    public void testStateChangesAreRateLimited() {
+        mClassUnderTest.reportPlayerEvent(TEST_PACKAGE_NAME, EnumSet.of(PlayerEvents.TrackChanged));
+        verifyReported(EnumSet.of(PlayerEvents.TrackChanged));
+
+        Mockito.reset(mMockMACCAndroidClient);
+        mClassUnderTest.reportPlayerEvent(TEST_PACKAGE_NAME, EnumSet.of(PlayerEvents.PlayModeChanged));
+        mClassUnderTest.reportPlayerEvent(TEST_PACKAGE_NAME, EnumSet.of(PlayerEvents.TrackChanged));
+        mClassUnderTest.flushPendingStateChangeEvents();
+        Mockito.verifyZeroInteractions(mMockMACCAndroidClient);
+    }
+
+    @Test
+    public void testDelayedStateChangesAreMergedAndReportedAfterInterval() {
+        mClassUnderTest.reportPlayerEvent(TEST_PACKAGE_NAME, EnumSet.of(PlayerEvents.TrackChanged));
+        Mockito.reset(mMockMACCAndroidClient);
+
+        mClassUnderTest.reportPlayerEvent(TEST_PACKAGE_NAME, EnumSet.of(PlayerEvents.PlayModeChanged));
+        mClassUnderTest.reportPlayerEvent(TEST_PACKAGE_NAME, EnumSet.of(PlayerEvents.TrackChanged));
+        ShadowLooper.idleMainLooper(
+                MediaAppsStateReporter.STATE_CHANGE_REPORT_INTERVAL_MS - 1, TimeUnit.MILLISECONDS);
+        Mockito.verifyZeroInteractions(mMockMACCAndroidClient);
+
+        ShadowLooper.idleMainLooper(1, TimeUnit.MILLISECONDS);
+        verifyReported(EnumSet.of(PlayerEvents.PlayModeChanged, PlayerEvents.TrackChanged));
+
+        // A state change right after the merged report waits for the next interval
+        Mockito.reset(mMockMACCAndroidClient);
+        mClassUnderTest.reportPlayerEvent(TEST_PACKAGE_NAME, EnumSet.of(PlayerEvents.TrackChanged));
+        ShadowLooper.idleMainLooper(MediaAppsStateReporter.STATE_CHANGE_REPORT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        verifyReported(EnumSet.of(PlayerEvents.TrackChanged));
+    }
+
+    @Test
+    public void testPlaybackEventCarriesPendingStateChanges() {
+        mClassUnderTest.reportPlayerEvent(TEST_PACKAGE_NAME, EnumSet.of(PlayerEvents.PlayModeChanged));
+        mClassUnderTest.reportPlayerEvent(TEST_PACKAGE_NAME, EnumSet.of(PlayerEvents.TrackChanged));
+        Mockito.reset(mMockMACCAndroidClient);
+
+        mClassUnderTest.reportPlayerEvent(TEST_PACKAGE_NAME, EnumSet.of(PlayerEvents.PlaybackStarted));
+        verifyReported(EnumSet.of(PlayerEvents.PlaybackStarted, PlayerEvents.TrackChanged));
+
+        Mockito.reset(mMockMACCAndroidClient);
+        mClassUnderTest.reportPlayerEvent(TEST_PACKAGE_NAME, EnumSet.of(PlayerEvents.PlaybackStopped));
+        verifyReported(EnumSet.of(PlayerEvents.PlaybackStopped));
+    }
+
+    private void verifyReported(Set<PlayerEvents> playerEvents) {
+        Mockito.verify(mMockMACCAndroidClient)
+                .reportPlayerEvents(Mockito.eq(TEST_PACKAGE_NAME), Mockito.eq(playerEvents), Mockito.any(),
+                        Mockito.any());
+    }
+}
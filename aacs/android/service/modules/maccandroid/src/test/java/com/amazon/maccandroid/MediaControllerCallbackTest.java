@@ -268,4 +268,45 @@ public class MediaControllerCallbackTest {
         Mockito.verify(mMockMediaAppsStateReporter)
                 .reportError(Mockito.eq(TEST_PACKAGE_NAME), Mockito.eq(MediaAppPlayerError.UNKNOWN_ERROR));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPositionOnlyChangesAreNotReported() {
+        mClassUnderTest.onPlaybackStateChanged(
+                new PlaybackStateCompat.Builder().setState(PlaybackStateCompat.STATE_PLAYING, 1000, 1.0f).build());
+        Mockito.reset(mMockMediaAppsStateReporter);
+
+        mClassUnderTest.onPlaybackStateChanged(
+                new PlaybackStateCompat.Builder().setState(PlaybackStateCompat.STATE_PLAYING, 2000, 1.0f).build());
+        mClassUnderTest.onPlaybackStateChanged(
+                new PlaybackStateCompat.Builder().setState(PlaybackStateCompat.STATE_PLAYING, 3000, 1.0f).build());
+        Mockito.verifyZeroInteractions(mMockMediaAppsStateReporter);
+        assertEquals(3000, mMediaApp.getPlayerPlaybackInfo().getPlaybackState().getPosition());
+
+        mClassUnderTest.onPlaybackStateChanged(
+                new PlaybackStateCompat.Builder().setState(PlaybackStateCompat.STATE_PAUSED, 3000, 0.0f).build());
+        Set<PlayerEvents> eventsToSend = new HashSet<>();
+        eventsToSend.add(PlayerEvents.PlaybackStopped);
+        Mockito.verify(mMockMediaAppsStateReporter)
+                .reportPlayerEvent(Mockito.eq(TEST_PACKAGE_NAME), Mockito.eq(eventsToSend));
+    }
+
+    @Test
+    public void testUnchangedPlayModesAreNotReported() {
+        Set<PlayerEvents> eventsToSend = new HashSet<>();
+        eventsToSend.add(PlayerEvents.PlayModeChanged);
+
+        mClassUnderTest.onRepeatModeChanged(PlaybackStateCompat.REPEAT_MODE_ALL);
+        Mockito.verify(mMockMediaAppsStateReporter)
+                .reportPlayerEvent(Mockito.eq(TEST_PACKAGE_NAME), Mockito.eq(eventsToSend));
+
+        Mockito.reset(mMockMediaAppsStateReporter);
+        mClassUnderTest.onRepeatModeChanged(PlaybackStateCompat.REPEAT_MODE_ALL);
+        mClassUnderTest.onShuffleModeChanged(PlaybackStateCompat.SHUFFLE_MODE_NONE);
+        Mockito.verifyZeroInteractions(mMockMediaAppsStateReporter);
+
+        mClassUnderTest.onShuffleModeChanged(PlaybackStateCompat.SHUFFLE_MODE_ALL);
+        Mockito.verify(mMockMediaAppsStateReporter)
+                .reportPlayerEvent(Mockito.eq(TEST_PACKAGE_NAME), Mockito.eq(eventsToSend));
+        assertEquals(PlaybackStateCompat.REPEAT_MODE_ALL, mMediaApp.getPlayerPlaybackInfo().getRepeatMode());
+    }
+}
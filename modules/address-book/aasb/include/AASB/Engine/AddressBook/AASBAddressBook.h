@@ -20,9 +20,12 @@
 #include <AACE/Engine/MessageBroker/MessageBrokerInterface.h>
 #include <AASB/Message/AddressBook/AddressBook/AddressBook.h>
 
+#include <chrono>
 #include <string>
 #include <memory>
+#include <mutex>
 #include <unordered_map>
+#include <vector>
 
 namespace aasb {
 namespace engine {
@@ -35,19 +38,69 @@ class AASBAddressBook
         : public aace::addressBook::AddressBook
         , public std::enable_shared_from_this<AASBAddressBook> {
 private:
-    AASBAddressBook() = default;
+    AASBAddressBook(const std::string& spoolPath);
 
     bool initialize(std::shared_ptr<aace::engine::messageBroker::MessageBrokerInterface> messageBroker);
 
 public:
+    ~AASBAddressBook();
+
+    /**
+     * Creates the handler.
+     *
+     * @param [in] spoolPath Private directory where the chunks of the address books are spooled, or an empty string
+     *        to keep them in memory, up to a limit on the size of each address book.
+     */
     static std::shared_ptr<AASBAddressBook> create(
-        std::shared_ptr<aace::engine::messageBroker::MessageBrokerInterface> messageBroker);
+        std::shared_ptr<aace::engine::messageBroker::MessageBrokerInterface> messageBroker,
+        const std::string& spoolPath = "");
 
     // aace::addressBook::AddressBook
     bool getEntries(const std::string& addressBookSourceId, std::weak_ptr<IAddressBookEntriesFactory> factory) override;
 
+private:
+    /// The chunks of an address book, one JSON string per chunk. The chunks are spooled to a file, one line per
+    /// chunk, so only one chunk is held in memory while the address book is received and uploaded. Without a spool
+    /// path the chunks are kept in memory.
+    struct AddressBookChunks {
+        std::string spoolFile;
+        std::vector<std::string> chunks;
+        size_t size = 0;
+    };
+
+    /// An address book being received in chunks.
+    struct PendingAddressBook {
+        std::string name;
+        AddressBookType type;
+        AddressBookChunks chunks;
+        int chunkCount = 0;
+        std::chrono::steady_clock::time_point lastActivity;
+    };
+
+    bool beginAddressBook(const std::string& addressBookSourceId, const std::string& name, AddressBookType type);
+    bool appendAddressBookChunk(
+        const std::string& addressBookSourceId,
+        aasb::message::addressBook::addressBook::AddressBook& addressBookData);
+    bool commitAddressBook(const std::string& addressBookSourceId, int chunkCount);
+    void removeAddressBookData(const std::string& addressBookSourceId);
+
+    /// Deletes the spool files left in the spool path, by a previous run that did not remove them.
+    void removeStaleSpoolFiles();
+
+    /// Discards the pending address books not appended to for longer than the timeout. Requires @c m_pendingMutex.
+    void evictStalePendingAddressBooks();
+
+    static void addEntries(
+        const aasb::message::addressBook::addressBook::AddressBook& addressBook,
+        std::shared_ptr<IAddressBookEntriesFactory> factory);
+
 private:
     std::unordered_map<std::string, aasb::message::addressBook::addressBook::AddressBook> m_addressBookCache;
+    std::unordered_map<std::string, PendingAddressBook> m_pendingAddressBooks;
+    /// Chunks of the committed chunked address books, by address book source id.
+    std::unordered_map<std::string, AddressBookChunks> m_spooledAddressBooks;
+    std::string m_spoolPath;
+    std::mutex m_pendingMutex;
     std::weak_ptr<aace::engine::messageBroker::MessageBrokerInterface> m_messageBroker;
 };
 
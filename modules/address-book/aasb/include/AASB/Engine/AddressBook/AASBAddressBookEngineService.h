@@ -30,11 +30,18 @@ public:
 private:
     AASBAddressBookEngineService(const aace::engine::core::ServiceDescription& description);
 
+    bool configureAddressBook(std::istream& configuration);
+
 protected:
+    bool configureMessageInterface(const std::string& name, bool enabled, std::istream& configuration) override;
     bool postRegister() override;
 
 public:
     virtual ~AASBAddressBookEngineService() = default;
+
+private:
+    /// Private directory where the address book chunks are spooled, or empty to keep them in memory.
+    std::string m_spoolPath;
 };
 
 }  // namespace addressBook
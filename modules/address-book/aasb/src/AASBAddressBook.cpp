@@ -19,12 +19,21 @@
 #include <AASB/Message/AddressBook/AddressBook/AddAddressBookMessage.h>
 #include <AASB/Message/AddressBook/AddressBook/AddressBook.h>
 #include <AASB/Message/AddressBook/AddressBook/AddressBookType.h>
+#include <AASB/Message/AddressBook/AddressBook/AppendAddressBookChunkMessage.h>
+#include <AASB/Message/AddressBook/AddressBook/BeginAddressBookMessage.h>
+#include <AASB/Message/AddressBook/AddressBook/CommitAddressBookMessage.h>
 #include <AASB/Message/AddressBook/AddressBook/ContactName.h>
 #include <AASB/Message/AddressBook/AddressBook/NavigationName.h>
 #include <AASB/Message/AddressBook/AddressBook/PhoneData.h>
 #include <AASB/Message/AddressBook/AddressBook/PostalAddress.h>
 #include <AASB/Message/AddressBook/AddressBook/RemoveAddressBookMessage.h>
 
+#include <cstdio>
+#include <cstring>
+#include <dirent.h>
+#include <fstream>
+#include <unistd.h>
+
 namespace aasb {
 namespace engine {
 namespace addressBook {
@@ -32,15 +41,44 @@ namespace addressBook {
 // String to identify log entries originating from this file.
 static const std::string TAG("aasb.addressbook.AASBAddressBook");
 
+// Time after which an address book begun and not appended to or committed is discarded.
+static constexpr std::chrono::minutes PENDING_ADDRESS_BOOK_TIMEOUT(5);
+
+// Maximum size of the chunks of an address book kept in memory, when no spool path is configured.
+static constexpr size_t MAX_IN_MEMORY_ADDRESS_BOOK_SIZE = 4 * 1024 * 1024;
+
+// Prefix of the spool file names in the spool path.
+static const std::string SPOOL_FILE_PREFIX("aac_address_book_");
+
 // aliases
 using Message = aace::engine::messageBroker::Message;
 
+static void removeSpoolFile(const std::string& path) {
+    if (!path.empty() && std::remove(path.c_str()) != 0) {
+        AACE_WARN(LX(TAG).m("removeSpoolFileFailed").d("path", path));
+    }
+}
+
+AASBAddressBook::AASBAddressBook(const std::string& spoolPath) : m_spoolPath(spoolPath) {
+}
+
+AASBAddressBook::~AASBAddressBook() {
+    for (auto& next : m_pendingAddressBooks) {
+        removeSpoolFile(next.second.chunks.spoolFile);
+    }
+    for (auto& next : m_spooledAddressBooks) {
+        removeSpoolFile(next.second.spoolFile);
+    }
+}
+
 std::shared_ptr<AASBAddressBook> AASBAddressBook::create(
-    std::shared_ptr<aace::engine::messageBroker::MessageBrokerInterface> messageBroker) {
+    std::shared_ptr<aace::engine::messageBroker::MessageBrokerInterface> messageBroker,
+    const std::string& spoolPath) {
     try {
         ThrowIfNull(messageBroker, "invalidMessageBrokerInterface");
 
-        auto handler = std::shared_ptr<AASBAddressBook>(new AASBAddressBook());
+        auto handler = std::shared_ptr<AASBAddressBook>(new AASBAddressBook(spoolPath));
+        handler->removeStaleSpoolFiles();
 
         // initialize the handler
         ThrowIfNot(handler->initialize(messageBroker), "initializeAASBAddressBookFailed");
@@ -52,6 +90,23 @@ std::shared_ptr<AASBAddressBook> AASBAddressBook::create(
     }
 }
 
+void AASBAddressBook::removeStaleSpoolFiles() {
+    if (m_spoolPath.empty()) {
+        return;
+    }
+    DIR* dir = opendir(m_spoolPath.c_str());
+    if (dir == nullptr) {
+        AACE_WARN(LX(TAG).m("openSpoolPathFailed").d("spoolPath", m_spoolPath));
+        return;
+    }
+    while (auto entry = readdir(dir)) {
+        if (std::strncmp(entry->d_name, SPOOL_FILE_PREFIX.c_str(), SPOOL_FILE_PREFIX.size()) == 0) {
+            removeSpoolFile(m_spoolPath + "/" + entry->d_name);
+        }
+    }
+    closedir(dir);
+}
+
 bool AASBAddressBook::initialize(std::shared_ptr<aace::engine::messageBroker::MessageBrokerInterface> messageBroker) {
     try {
         m_messageBroker = messageBroker;
@@ -66,6 +121,7 @@ bool AASBAddressBook::initialize(std::shared_ptr<aace::engine::messageBroker::Me
                     ThrowIfNull(sp, "invalidWeakPtrReference");
                     aasb::message::addressBook::addressBook::AddAddressBookMessage::Payload payload =
                         nlohmann::json::parse(message.payload());
+                    sp->removeAddressBookData(payload.addressBookSourceId);
                     sp->m_addressBookCache[payload.addressBookSourceId] = payload.addressBookData;
                     bool success = sp->addAddressBook(
                         payload.addressBookSourceId, payload.name, static_cast<AddressBookType>(payload.type));
@@ -82,6 +138,60 @@ bool AASBAddressBook::initialize(std::shared_ptr<aace::engine::messageBroker::Me
                 }
             });
 
+        messageBroker->subscribe(
+            aasb::message::addressBook::addressBook::BeginAddressBookMessage::topic(),
+            aasb::message::addressBook::addressBook::BeginAddressBookMessage::action(),
+            [wp](const Message& message) {
+                try {
+                    auto sp = wp.lock();
+                    ThrowIfNull(sp, "invalidWeakPtrReference");
+                    aasb::message::addressBook::addressBook::BeginAddressBookMessage::Payload payload =
+                        nlohmann::json::parse(message.payload());
+                    sp->beginAddressBook(
+                        payload.addressBookSourceId, payload.name, static_cast<AddressBookType>(payload.type));
+                } catch (std::exception& ex) {
+                    AACE_ERROR(LX(TAG, "BeginAddressBookMessage").d("reason", ex.what()));
+                }
+            });
+
+        messageBroker->subscribe(
+            aasb::message::addressBook::addressBook::AppendAddressBookChunkMessage::topic(),
+            aasb::message::addressBook::addressBook::AppendAddressBookChunkMessage::action(),
+            [wp](const Message& message) {
+                try {
+                    auto sp = wp.lock();
+                    ThrowIfNull(sp, "invalidWeakPtrReference");
+                    aasb::message::addressBook::addressBook::AppendAddressBookChunkMessage::Payload payload =
+                        nlohmann::json::parse(message.payload());
+                    sp->appendAddressBookChunk(payload.addressBookSourceId, payload.addressBookData);
+                } catch (std::exception& ex) {
+                    AACE_ERROR(LX(TAG, "AppendAddressBookChunkMessage").d("reason", ex.what()));
+                }
+            });
+
+        messageBroker->subscribe(
+            aasb::message::addressBook::addressBook::CommitAddressBookMessage::topic(),
+            aasb::message::addressBook::addressBook::CommitAddressBookMessage::action(),
+            [wp](const Message& message) {
+                try {
+                    auto sp = wp.lock();
+                    ThrowIfNull(sp, "invalidWeakPtrReference");
+                    aasb::message::addressBook::addressBook::CommitAddressBookMessage::Payload payload =
+                        nlohmann::json::parse(message.payload());
+                    bool success = sp->commitAddressBook(payload.addressBookSourceId, payload.chunkCount);
+
+                    auto m_messageBroker_lock = sp->m_messageBroker.lock();
+                    ThrowIfNull(m_messageBroker_lock, "invalidMessageBrokerReference");
+
+                    aasb::message::addressBook::addressBook::CommitAddressBookMessageReply commitAddressBookMessageReply;
+                    commitAddressBookMessageReply.header.messageDescription.replyToId = message.messageId();
+                    commitAddressBookMessageReply.payload.success = success;
+                    m_messageBroker_lock->publish(commitAddressBookMessageReply.toString()).send();
+                } catch (std::exception& ex) {
+                    AACE_ERROR(LX(TAG, "CommitAddressBookMessage").d("reason", ex.what()));
+                }
+            });
+
         messageBroker->subscribe(
             aasb::message::addressBook::addressBook::RemoveAddressBookMessage::topic(),
             aasb::message::addressBook::addressBook::RemoveAddressBookMessage::action(),
@@ -92,11 +202,7 @@ bool AASBAddressBook::initialize(std::shared_ptr<aace::engine::messageBroker::Me
                     aasb::message::addressBook::addressBook::RemoveAddressBookMessage::Payload payload =
                         nlohmann::json::parse(message.payload());
                     auto addressBookSourceId = payload.addressBookSourceId;
-                    if (!addressBookSourceId.empty()) {
-                        sp->m_addressBookCache.erase(addressBookSourceId);
-                    } else {
-                        sp->m_addressBookCache.clear();
-                    }
+                    sp->removeAddressBookData(addressBookSourceId);
                     bool success = sp->removeAddressBook(addressBookSourceId);
 
                     auto m_messageBroker_lock = sp->m_messageBroker.lock();
@@ -119,6 +225,198 @@ bool AASBAddressBook::initialize(std::shared_ptr<aace::engine::messageBroker::Me
     }
 }
 
+void AASBAddressBook::removeAddressBookData(const std::string& addressBookSourceId) {
+    if (!addressBookSourceId.empty()) {
+        m_addressBookCache.erase(addressBookSourceId);
+    } else {
+        m_addressBookCache.clear();
+    }
+
+    std::lock_guard<std::mutex> lock(m_pendingMutex);
+    for (auto it = m_pendingAddressBooks.begin(); it != m_pendingAddressBooks.end();) {
+        if (addressBookSourceId.empty() || it->first == addressBookSourceId) {
+            removeSpoolFile(it->second.chunks.spoolFile);
+            it = m_pendingAddressBooks.erase(it);
+        } else {
+            ++it;
+        }
+    }
+    for (auto it = m_spooledAddressBooks.begin(); it != m_spooledAddressBooks.end();) {
+        if (addressBookSourceId.empty() || it->first == addressBookSourceId) {
+            removeSpoolFile(it->second.spoolFile);
+            it = m_spooledAddressBooks.erase(it);
+        } else {
+            ++it;
+        }
+    }
+}
+
+void AASBAddressBook::evictStalePendingAddressBooks() {
+    auto now = std::chrono::steady_clock::now();
+    for (auto it = m_pendingAddressBooks.begin(); it != m_pendingAddressBooks.end();) {
+        if (now - it->second.lastActivity > PENDING_ADDRESS_BOOK_TIMEOUT) {
+            AACE_WARN(LX(TAG)
+                          .m("discardingStaleAddressBook")
+                          .d("addressBookSourceId", it->first)
+                          .d("chunkCount", it->second.chunkCount));
+            removeSpoolFile(it->second.chunks.spoolFile);
+            it = m_pendingAddressBooks.erase(it);
+        } else {
+            ++it;
+        }
+    }
+}
+
+bool AASBAddressBook::beginAddressBook(
+    const std::string& addressBookSourceId,
+    const std::string& name,
+    AddressBookType type) {
+    try {
+        ThrowIf(addressBookSourceId.empty(), "invalidAddressBookSourceId");
+
+        // spool the chunks to a file only readable by the engine
+        std::string spoolFile;
+        if (!m_spoolPath.empty()) {
+            std::vector<char> spoolFileTemplate;
+            std::string path = m_spoolPath + "/" + SPOOL_FILE_PREFIX + "XXXXXX";
+            spoolFileTemplate.assign(path.begin(), path.end());
+            spoolFileTemplate.push_back('\0');
+            int fd = mkstemp(spoolFileTemplate.data());
+            ThrowIf(fd < 0, "mkstempFailed");
+            close(fd);
+            spoolFile = spoolFileTemplate.data();
+        }
+
+        std::lock_guard<std::mutex> lock(m_pendingMutex);
+        evictStalePendingAddressBooks();
+        auto it = m_pendingAddressBooks.find(addressBookSourceId);
+        if (it != m_pendingAddressBooks.end()) {
+            AACE_WARN(LX(TAG).m("discardingUncommittedAddressBook").d("addressBookSourceId", addressBookSourceId));
+            removeSpoolFile(it->second.chunks.spoolFile);
+        }
+        PendingAddressBook pending;
+        pending.name = name;
+        pending.type = type;
+        pending.chunks.spoolFile = spoolFile;
+        pending.lastActivity = std::chrono::steady_clock::now();
+        m_pendingAddressBooks[addressBookSourceId] = std::move(pending);
+        return true;
+    } catch (std::exception& ex) {
+        AACE_ERROR(LX(TAG).d("reason", ex.what()));
+        return false;
+    }
+}
+
+bool AASBAddressBook::appendAddressBookChunk(
+    const std::string& addressBookSourceId,
+    aasb::message::addressBook::addressBook::AddressBook& addressBookData) {
+    try {
+        std::lock_guard<std::mutex> lock(m_pendingMutex);
+        evictStalePendingAddressBooks();
+        auto it = m_pendingAddressBooks.find(addressBookSourceId);
+        ThrowIf(it == m_pendingAddressBooks.end(), "addressBookNotStarted");
+
+        auto& pending = it->second;
+        auto chunk = nlohmann::json(addressBookData).dump();
+        if (!pending.chunks.spoolFile.empty()) {
+            std::ofstream spool(pending.chunks.spoolFile, std::ios::app);
+            ThrowIfNot(spool.is_open(), "openSpoolFileFailed");
+            spool << chunk << '\n';
+            spool.close();
+            ThrowIf(spool.fail(), "writeSpoolFileFailed");
+        } else {
+            ThrowIf(
+                pending.chunks.size + chunk.size() > MAX_IN_MEMORY_ADDRESS_BOOK_SIZE, "addressBookTooLargeWithoutSpool");
+            pending.chunks.size += chunk.size();
+            pending.chunks.chunks.push_back(std::move(chunk));
+        }
+
+        pending.chunkCount++;
+        pending.lastActivity = std::chrono::steady_clock::now();
+        return true;
+    } catch (std::exception& ex) {
+        AACE_ERROR(LX(TAG).d("reason", ex.what()).d("addressBookSourceId", addressBookSourceId));
+        return false;
+    }
+}
+
+bool AASBAddressBook::commitAddressBook(const std::string& addressBookSourceId, int chunkCount) {
+    try {
+        PendingAddressBook pending;
+        {
+            std::lock_guard<std::mutex> lock(m_pendingMutex);
+            auto it = m_pendingAddressBooks.find(addressBookSourceId);
+            ThrowIf(it == m_pendingAddressBooks.end(), "addressBookNotStarted");
+            pending = std::move(it->second);
+            m_pendingAddressBooks.erase(it);
+
+            if (pending.chunkCount != chunkCount) {
+                removeSpoolFile(pending.chunks.spoolFile);
+                Throw("missingAddressBookChunks");
+            }
+
+            // the committed chunks replace any previous data of the address book
+            auto spooled = m_spooledAddressBooks.find(addressBookSourceId);
+            if (spooled != m_spooledAddressBooks.end()) {
+                removeSpoolFile(spooled->second.spoolFile);
+            }
+            m_spooledAddressBooks[addressBookSourceId] = std::move(pending.chunks);
+        }
+        m_addressBookCache.erase(addressBookSourceId);
+
+        return addAddressBook(addressBookSourceId, pending.name, pending.type);
+    } catch (std::exception& ex) {
+        AACE_ERROR(LX(TAG)
+                       .d("reason", ex.what())
+                       .d("addressBookSourceId", addressBookSourceId)
+                       .d("chunkCount", chunkCount));
+        return false;
+    }
+}
+
+void AASBAddressBook::addEntries(
+    const aasb::message::addressBook::addressBook::AddressBook& addressBook,
+    std::shared_ptr<IAddressBookEntriesFactory> factory) {
+    for (const auto& navName : addressBook.navigationNames) {
+        AACE_DEBUG(LX(TAG).d("navName:entryId", navName.entryId));
+        factory->addName(navName.entryId, navName.name, "", "", navName.phoneticName);
+    }
+
+    for (const auto& contactName : addressBook.contactNames) {
+        AACE_DEBUG(LX(TAG).d("contactName:entryId", contactName.entryId));
+        factory->addName(
+            contactName.entryId,
+            contactName.firstName,
+            contactName.lastName,
+            contactName.nickname,
+            contactName.phoneticFirstName,
+            contactName.phoneticLastName);
+    }
+
+    for (const auto& phone : addressBook.phoneData) {
+        AACE_DEBUG(LX(TAG).d("phone:entryId", phone.entryId).sensitive("label", phone.label));
+        factory->addPhone(phone.entryId, phone.label, phone.number);
+    }
+
+    for (const auto& postalAddress : addressBook.postalAddresses) {
+        AACE_DEBUG(LX(TAG).d("postalAddress:entryId", postalAddress.entryId).sensitive("label", postalAddress.label));
+        factory->addPostalAddress(
+            postalAddress.entryId,
+            postalAddress.label,
+            postalAddress.addressLine1,
+            postalAddress.addressLine2,
+            postalAddress.addressLine3,
+            postalAddress.city,
+            postalAddress.stateOrRegion,
+            postalAddress.districtOrCounty,
+            postalAddress.postalCode,
+            postalAddress.country,
+            postalAddress.latitudeInDegrees,
+            postalAddress.longitudeInDegrees,
+            postalAddress.accuracyInMeters);
+    }
+}
+
 //
 // aace::addressBook::AddressBook
 //
@@ -136,48 +434,36 @@ bool AASBAddressBook::getEntries(
 
         AACE_VERBOSE(LX(TAG).d("addressBookSourceId", addressBookSourceId));
 
-        auto addressBookIter = m_addressBookCache.find(addressBookSourceId);
-        if (addressBookIter != m_addressBookCache.end()) {
-            const auto& addressBook = addressBookIter->second;
-
-            for (const auto& navName : addressBook.navigationNames) {
-                AACE_DEBUG(LX(TAG).d("navName:entryId", navName.entryId));
-                sp->addName(navName.entryId, navName.name, "", "", navName.phoneticName);
+        bool spooled = false;
+        AddressBookChunks chunks;
+        {
+            std::lock_guard<std::mutex> lock(m_pendingMutex);
+            auto it = m_spooledAddressBooks.find(addressBookSourceId);
+            if (it != m_spooledAddressBooks.end()) {
+                spooled = true;
+                chunks = it->second;
             }
+        }
 
-            for (const auto& contactName : addressBook.contactNames) {
-                AACE_DEBUG(LX(TAG).d("contactName:entryId", contactName.entryId));
-                sp->addName(
-                    contactName.entryId,
-                    contactName.firstName,
-                    contactName.lastName,
-                    contactName.nickname,
-                    contactName.phoneticFirstName,
-                    contactName.phoneticLastName);
+        if (spooled && !chunks.spoolFile.empty()) {
+            // read back one chunk at a time
+            std::ifstream spool(chunks.spoolFile);
+            ThrowIfNot(spool.is_open(), "openSpoolFileFailed");
+            std::string line;
+            while (std::getline(spool, line)) {
+                aasb::message::addressBook::addressBook::AddressBook chunk = nlohmann::json::parse(line);
+                addEntries(chunk, sp);
             }
-
-            for (const auto& phone : addressBook.phoneData) {
-                AACE_DEBUG(LX(TAG).d("phone:entryId", phone.entryId).sensitive("label", phone.label));
-                sp->addPhone(phone.entryId, phone.label, phone.number);
+            ThrowIf(spool.bad(), "readSpoolFileFailed");
+        } else if (spooled) {
+            for (const auto& next : chunks.chunks) {
+                aasb::message::addressBook::addressBook::AddressBook chunk = nlohmann::json::parse(next);
+                addEntries(chunk, sp);
             }
-
-            for (const auto& postalAddress : addressBook.postalAddresses) {
-                AACE_DEBUG(
-                    LX(TAG).d("postalAddress:entryId", postalAddress.entryId).sensitive("label", postalAddress.label));
-                sp->addPostalAddress(
-                    postalAddress.entryId,
-                    postalAddress.label,
-                    postalAddress.addressLine1,
-                    postalAddress.addressLine2,
-                    postalAddress.addressLine3,
-                    postalAddress.city,
-                    postalAddress.stateOrRegion,
-                    postalAddress.districtOrCounty,
-                    postalAddress.postalCode,
-                    postalAddress.country,
-                    postalAddress.latitudeInDegrees,
-                    postalAddress.longitudeInDegrees,
-                    postalAddress.accuracyInMeters);
+        } else {
+            auto addressBookIter = m_addressBookCache.find(addressBookSourceId);
+            if (addressBookIter != m_addressBookCache.end()) {
+                addEntries(addressBookIter->second, sp);
             }
         }
 
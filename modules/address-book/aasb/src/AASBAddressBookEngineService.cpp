@@ -35,6 +35,43 @@ AASBAddressBookEngineService::AASBAddressBookEngineService(const aace::engine::c
         aace::engine::messageBroker::MessageHandlerEngineService(description, minRequiredVersion, {"AddressBook"}) {
 }
 
+bool AASBAddressBookEngineService::configureMessageInterface(
+    const std::string& name,
+    bool enabled,
+    std::istream& configuration) {
+    try {
+        // call inherited configure method
+        ThrowIfNot(
+            MessageHandlerEngineService::configureMessageInterface(name, enabled, configuration),
+            "configureMessageInterfaceFailed");
+
+        // handle specific interface configuration options
+        if (enabled && name == "AddressBook") {
+            ThrowIfNot(configureAddressBook(configuration), "configureAddressBookFailed");
+        }
+
+        return true;
+    } catch (std::exception& ex) {
+        AACE_ERROR(LX(TAG).d("reason", ex.what()));
+        return false;
+    }
+}
+
+bool AASBAddressBookEngineService::configureAddressBook(std::istream& configuration) {
+    try {
+        auto root = nlohmann::json::parse(configuration);
+        auto spoolPath = root["/spoolPath"_json_pointer];
+        if (spoolPath != nullptr) {
+            ThrowIfNot(spoolPath.is_string(), "invalidSpoolPath");
+            m_spoolPath = spoolPath.get<std::string>();
+        }
+        return true;
+    } catch (std::exception& ex) {
+        AACE_ERROR(LX(TAG).d("reason", ex.what()));
+        return false;
+    }
+}
+
 bool AASBAddressBookEngineService::postRegister() {
     try {
         auto aasbServiceInterface =
@@ -44,7 +81,7 @@ bool AASBAddressBookEngineService::postRegister() {
 
         // AddressBook
         if (isInterfaceEnabled("AddressBook")) {
-            auto addressBook = AASBAddressBook::create(aasbServiceInterface->getMessageBroker());
+            auto addressBook = AASBAddressBook::create(aasbServiceInterface->getMessageBroker(), m_spoolPath);
             ThrowIfNull(addressBook, "invalidAddressBookHandler");
             getContext()->registerPlatformInterface(addressBook);
         }
@@ -20,7 +20,9 @@
 #include <thread>
 #include <deque>
 #include <unordered_map>
+#include <unordered_set>
 #include <condition_variable>
+#include <functional>
 
 #include <AVSCommon/SDKInterfaces/AuthObserverInterface.h>
 #include <AVSCommon/SDKInterfaces/AuthDelegateInterface.h>
@@ -30,10 +32,12 @@
 #include <AACE/Network/NetworkInfoProvider.h>
 #include <AACE/Engine/Network/NetworkInfoObserver.h>
 #include <AACE/Engine/Network/NetworkObservableInterface.h>
+#include <AACE/Engine/Storage/LocalStorageInterface.h>
 
 #include "AddressBookObserver.h"
 #include "AddressBookServiceInterface.h"
 #include "AddressBookCloudUploaderRESTAgent.h"
+#include "AddressBookUploadManifest.h"
 
 namespace aace {
 namespace engine {
@@ -108,7 +112,8 @@ private:
         NetworkInfoObserver::NetworkStatus networkStatus,
         std::shared_ptr<aace::engine::network::NetworkObservableInterface> networkObserver,
         std::shared_ptr<aace::engine::alexa::AlexaEndpointInterface> alexaEndpoints,
-        bool cleanAllAddressBooksAtStart);
+        bool cleanAllAddressBooksAtStart,
+        std::shared_ptr<aace::engine::storage::LocalStorageInterface> localStorage);
 
 public:
     static std::shared_ptr<AddressBookCloudUploader> create(
@@ -118,7 +123,8 @@ public:
         NetworkInfoObserver::NetworkStatus networkStatus,
         std::shared_ptr<aace::engine::network::NetworkObservableInterface> networkObserver,
         std::shared_ptr<aace::engine::alexa::AlexaEndpointInterface> alexaEndpoints,
-        bool cleanAllAddressBooksAtStart);
+        bool cleanAllAddressBooksAtStart,
+        std::shared_ptr<aace::engine::storage::LocalStorageInterface> localStorage = nullptr);
 
     // AddressBookObserver
     bool addressBookAdded(std::shared_ptr<AddressBookEntity> addressBookEntity) override;
@@ -146,12 +152,28 @@ private:
     const Event popNextEventFromQ();
 
     bool handleUpload(std::shared_ptr<AddressBookEntity> addressBookEntity);
+    bool handleDeltaUpload(
+        std::shared_ptr<AddressBookEntity> addressBookEntity,
+        const std::vector<std::shared_ptr<rapidjson::Document>>& documents,
+        const AddressBookUploadManifest::EntryHashes& entryHashes,
+        AddressBookUploadManifest::Record& record);
     bool handleRemove(std::shared_ptr<AddressBookEntity> addressBookEntity);
 
     bool checkAndAutoProvisionAccount();
     std::string prepareForUpload(std::shared_ptr<AddressBookEntity> addressBookEntity);
-    bool upload(const std::string& cloudAddressBookId, std::shared_ptr<rapidjson::Document>);
-    bool uploadEntries(const std::string& cloudAddressBookId, std::shared_ptr<rapidjson::Document> document);
+    bool upload(
+        const std::string& cloudAddressBookId,
+        std::shared_ptr<rapidjson::Document>,
+        std::queue<std::string>& failedEntries);
+    bool uploadEntries(
+        const std::string& cloudAddressBookId,
+        std::shared_ptr<rapidjson::Document> document,
+        std::queue<std::string>& failedEntries);
+    bool uploadDocuments(
+        const std::string& cloudAddressBookId,
+        const std::vector<std::shared_ptr<rapidjson::Document>>& documents,
+        std::unordered_set<std::string>& failedEntries);
+    bool runInParallel(size_t count, std::function<bool(size_t index)> task);
 
     std::string createAddressBook(std::shared_ptr<AddressBookEntity> addressBookEntity);
     bool deleteAddressBook(std::shared_ptr<AddressBookEntity> addressBookEntity);
@@ -167,8 +189,8 @@ private:
         const std::string& addressBookId,
         std::shared_ptr<rapidjson::Document> document,
         HTTPResponse& httpResponse);
-    UploadFlowState handleParseHTTPResponse(const HTTPResponse& httpResponse);
-    UploadFlowState handleError(const std::string& addressBookId);
+    UploadFlowState handleParseHTTPResponse(const HTTPResponse& httpResponse, std::queue<std::string>& failedEntries);
+    void handleError(const std::string& addressBookId);
 
     void logNetworkMetrics(const HTTPResponse& httpResponse);
 
@@ -196,6 +218,9 @@ private:
     std::shared_ptr<aace::engine::network::NetworkObservableInterface> m_networkObserver;
     std::shared_ptr<AddressBookCloudUploaderRESTAgent> m_addressBookCloudUploaderRESTAgent;
 
+    /// Content hashes of uploaded entries, used to upload only what changed. @c nullptr if storage is unavailable.
+    std::shared_ptr<AddressBookUploadManifest> m_uploadManifest;
+
     std::shared_ptr<alexaClientSDK::avsCommon::sdkInterfaces::AuthDelegateInterface> m_authDelegate;
     std::shared_ptr<alexaClientSDK::avsCommon::utils::DeviceInfo> m_deviceInfo;
 
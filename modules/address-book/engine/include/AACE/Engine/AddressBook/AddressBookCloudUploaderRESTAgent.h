@@ -63,6 +63,7 @@ public:
         const std::string& addressBookType,
         std::string& cloudAddressBookId);
     bool deleteCloudAddressBook(const std::string& cloudAddressBookId);
+    bool deleteCloudAddressBookEntry(const std::string& cloudAddressBookId, const std::string& entrySourceId);
 
     HTTPResponse uploadDocumentToCloud(
         std::shared_ptr<rapidjson::Document> document,
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+#ifndef AACE_ENGINE_ADDRESS_BOOK_ADDRESS_BOOK_UPLOAD_MANIFEST_H
+#define AACE_ENGINE_ADDRESS_BOOK_ADDRESS_BOOK_UPLOAD_MANIFEST_H
+
+#include <memory>
+#include <mutex>
+#include <string>
+#include <unordered_map>
+#include <vector>
+
+#include <rapidjson/document.h>
+
+#include <AACE/Engine/Storage/LocalStorageInterface.h>
+
+namespace aace {
+namespace engine {
+namespace addressBook {
+
+/**
+ * Records, per address book source id, the cloud address book an address book was last uploaded to and a content
+ * hash of every entry that was accepted by the cloud. Comparing the hashes of a newly provided address book with the
+ * recorded ones yields the entries that have to be added, replaced or deleted in the cloud.
+ */
+class AddressBookUploadManifest {
+public:
+    /// Maps an entry source id to the content hash of the entry.
+    using EntryHashes = std::unordered_map<std::string, std::string>;
+
+    struct Delta {
+        /// Entries not present in the cloud address book.
+        std::vector<std::string> added;
+
+        /// Entries present in the cloud address book with different content.
+        std::vector<std::string> modified;
+
+        /// Entries present in the cloud address book but no longer provided.
+        std::vector<std::string> removed;
+
+        bool empty() const {
+            return added.empty() && modified.empty() && removed.empty();
+        }
+    };
+
+    struct Record {
+        std::string cloudAddressBookId;
+        EntryHashes entries;
+    };
+
+    explicit AddressBookUploadManifest(std::shared_ptr<aace::engine::storage::LocalStorageInterface> localStorage);
+
+    /**
+     * Computes a stable content hash for an address book entry.
+     *
+     * @param entry The entry object as uploaded to the cloud, including the @c entrySourceId and @c data members.
+     */
+    static std::string hashEntry(const rapidjson::Value& entry);
+
+    /**
+     * Computes the difference between the recorded entries and the provided ones.
+     */
+    static Delta diff(const EntryHashes& recorded, const EntryHashes& current);
+
+    /**
+     * Retrieves the record of the last upload of an address book.
+     *
+     * @return @c false if the address book has no valid record.
+     */
+    bool get(const std::string& addressBookSourceId, Record& record);
+
+    bool put(const std::string& addressBookSourceId, const Record& record);
+
+    void remove(const std::string& addressBookSourceId);
+
+    void clear();
+
+private:
+    std::shared_ptr<aace::engine::storage::LocalStorageInterface> m_localStorage;
+
+    /// Serializes read-modify-write access to the storage table.
+    std::mutex m_mutex;
+};
+
+}  // namespace addressBook
+}  // namespace engine
+}  // namespace aace
+
+#endif  // AACE_ENGINE_ADDRESS_BOOK_ADDRESS_BOOK_UPLOAD_MANIFEST_H
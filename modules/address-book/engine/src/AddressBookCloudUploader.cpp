@@ -55,6 +55,9 @@ static const int MAX_ALLOWED_ADDRESS_LINE_SIZE = 60;
 /// Max event retry
 static const int MAX_EVENT_RETRY = 3;
 
+/// Max number of concurrent requests while uploading batches or deleting entries
+static const size_t MAX_PARALLEL_REQUESTS = 4;
+
 /// Invalid Address Id
 static const std::string INVALID_ADDRESS_BOOK_SOURCE_ID = "INVALID";
 
@@ -88,6 +91,15 @@ static const std::string METRIC_NETWORK_BAD_USER_INPUT = "Network.BadUserInput";
 /// Metric for any Network Error
 static const std::string METRIC_NETWORK_ERROR = "Network.Error";
 
+/// Count metric for address books uploaded from scratch
+static const std::string METRIC_UPLOAD_FULL = "Upload.Full";
+
+/// Count metric for address books updated with only the changed entries
+static const std::string METRIC_UPLOAD_DELTA = "Upload.Delta";
+
+/// Count metric for entries that did not need to be uploaded again
+static const std::string METRIC_UPLOAD_UNCHANGED_ENTRIES = "Upload.UnchangedEntries";
+
 /// Address book AVS service type
 static const std::string ADDRESS_BOOK_SERVICE_TYPE_AVS = "AVS";
 
@@ -104,7 +116,8 @@ std::shared_ptr<AddressBookCloudUploader> AddressBookCloudUploader::create(
     NetworkInfoObserver::NetworkStatus networkStatus,
     std::shared_ptr<aace::engine::network::NetworkObservableInterface> networkObserver,
     std::shared_ptr<aace::engine::alexa::AlexaEndpointInterface> alexaEndpoints,
-    bool cleanAllAddressBooksAtStart) {
+    bool cleanAllAddressBooksAtStart,
+    std::shared_ptr<aace::engine::storage::LocalStorageInterface> localStorage) {
     try {
         auto addressBookCloudUploader = std::shared_ptr<AddressBookCloudUploader>(new AddressBookCloudUploader());
         ThrowIfNot(
@@ -115,7 +128,8 @@ std::shared_ptr<AddressBookCloudUploader> AddressBookCloudUploader::create(
                 networkStatus,
                 networkObserver,
                 alexaEndpoints,
-                cleanAllAddressBooksAtStart),
+                cleanAllAddressBooksAtStart,
+                localStorage),
             "initializeAddressBookCloudUploaderFailed");
 
         return addressBookCloudUploader;
@@ -132,7 +146,8 @@ bool AddressBookCloudUploader::initialize(
     NetworkInfoObserver::NetworkStatus networkStatus,
     std::shared_ptr<aace::engine::network::NetworkObservableInterface> networkObserver,
     std::shared_ptr<aace::engine::alexa::AlexaEndpointInterface> alexaEndpoints,
-    bool cleanAllAddressBooksAtStart) {
+    bool cleanAllAddressBooksAtStart,
+    std::shared_ptr<aace::engine::storage::LocalStorageInterface> localStorage) {
     try {
         m_addressBookService = addressBookService;
         m_authDelegate = authDelegate;
@@ -144,6 +159,12 @@ bool AddressBookCloudUploader::initialize(
             authDelegate, m_deviceInfo, alexaEndpoints);
         ThrowIfNull(m_addressBookCloudUploaderRESTAgent, "createAddressBookCloudRESTAgentFailed");
 
+        if (localStorage != nullptr) {
+            m_uploadManifest = std::make_shared<AddressBookUploadManifest>(localStorage);
+        } else {
+            AACE_WARN(LX(TAG).m("localStorageNotAvailable").d("reason", "deltaUploadDisabled"));
+        }
+
         m_authDelegate->addAuthObserver(shared_from_this());
         if (m_networkObserver != nullptr) {  // This could be null when NetworkInfoProvider interface is not registered.
             m_networkObserver->addObserver(shared_from_this());
@@ -191,6 +212,10 @@ void AddressBookCloudUploader::onAuthStateChange(
         case AuthObserverInterface::State::UNRECOVERABLE_ERROR:
             m_addressBookEventQ.clear();
             m_addressBookCloudUploaderRESTAgent->reset();
+            // The next user may not have any of the recorded cloud address books.
+            if (m_uploadManifest != nullptr) {
+                m_uploadManifest->clear();
+            }
             break;
         case AuthObserverInterface::State::REFRESHED:
             m_waitStatusChange.notify_all();
@@ -894,12 +919,27 @@ bool AddressBookCloudUploader::handleUpload(std::shared_ptr<AddressBookEntity> a
             return true;
         }
 
-        int numberOfEntries = 0;
+        AddressBookUploadManifest::EntryHashes entryHashes;
         for (auto document : documents) {
             auto entries = document->FindMember("entries");
             if (entries != document->MemberEnd()) {
-                numberOfEntries += entries->value.Size();
+                for (auto& entry : entries->value.GetArray()) {
+                    entryHashes[entry["entrySourceId"].GetString()] = AddressBookUploadManifest::hashEntry(entry);
+                }
+            }
+        }
+        auto numberOfEntries = entryHashes.size();
+
+        AddressBookUploadManifest::Record record;
+        if (m_uploadManifest != nullptr && m_uploadManifest->get(addressBookSourceId, record)) {
+            if (handleDeltaUpload(addressBookEntity, documents, entryHashes, record)) {
+                return true;
             }
+            // Fall back to uploading the whole address book.
+            AACE_WARN(LX(TAG, "handleUpload").m("deltaUploadFailed").d("addressBookSourceId", addressBookSourceId));
+        }
+        if (m_uploadManifest != nullptr) {
+            m_uploadManifest->remove(addressBookSourceId);
         }
 
         //Preparing for the upload
@@ -908,10 +948,8 @@ bool AddressBookCloudUploader::handleUpload(std::shared_ptr<AddressBookEntity> a
 
         double uploadStartTimer = getCurrentTimeInMs();
 
-        //Upload json document in a loop.
-        for (auto document : documents) {
-            ThrowIfNot(upload(cloudAddressBookId, document), "uploadDocumentFailed");
-        }
+        std::unordered_set<std::string> failedEntries;
+        ThrowIfNot(uploadDocuments(cloudAddressBookId, documents, failedEntries), "uploadDocumentFailed");
 
         // It is assumed that between contacts and navigation addresses the difference is payload that should not
         // influence the latency for uploading one batch of address book entries.
@@ -919,6 +957,19 @@ bool AddressBookCloudUploader::handleUpload(std::shared_ptr<AddressBookEntity> a
         double timeToUploadOneBatch = totalDuration / documents.size();
         emitTimerMetrics(
             METRIC_PROGRAM_NAME_SUFFIX, "handleUpload", METRIC_TIME_TO_UPLOAD_ONE_BATCH, timeToUploadOneBatch);
+        emitCounterMetrics(METRIC_PROGRAM_NAME_SUFFIX, "handleUpload", METRIC_UPLOAD_FULL, 1);
+
+        if (m_uploadManifest != nullptr) {
+            // Entries rejected by the cloud are left out so that they are uploaded again next time.
+            record.cloudAddressBookId = cloudAddressBookId;
+            record.entries.clear();
+            for (auto& next : entryHashes) {
+                if (failedEntries.find(next.first) == failedEntries.end()) {
+                    record.entries.insert(next);
+                }
+            }
+            m_uploadManifest->put(addressBookSourceId, record);
+        }
 
         AACE_INFO(LX(TAG, "handleUpload")
                       .m("SuccessfullyUploaded")
@@ -932,6 +983,158 @@ bool AddressBookCloudUploader::handleUpload(std::shared_ptr<AddressBookEntity> a
     }
 }
 
+bool AddressBookCloudUploader::handleDeltaUpload(
+    std::shared_ptr<AddressBookEntity> addressBookEntity,
+    const std::vector<std::shared_ptr<rapidjson::Document>>& documents,
+    const AddressBookUploadManifest::EntryHashes& entryHashes,
+    AddressBookUploadManifest::Record& record) {
+    std::string addressBookSourceId = INVALID_ADDRESS_BOOK_SOURCE_ID;
+    try {
+        addressBookSourceId = addressBookEntity->getSourceId();
+        ThrowIfNot(m_addressBookCloudUploaderRESTAgent->isAccountProvisioned(), "accountNotProvisioned");
+
+        // The cloud address book is shared by all address books of the same type, so it is only reusable when
+        // this address book was the last one uploaded to it.
+        std::string cloudAddressBookId;
+        ThrowIfNot(
+            m_addressBookCloudUploaderRESTAgent->getCloudAddressBookId(
+                m_deviceInfo->getDeviceSerialNumber(), addressBookEntity->toJSONAddressBookType(), cloudAddressBookId),
+            "getCloudAddressBookIdFailed");
+        ThrowIf(cloudAddressBookId != record.cloudAddressBookId, "cloudAddressBookChanged");
+
+        auto delta = AddressBookUploadManifest::diff(record.entries, entryHashes);
+        AACE_INFO(LX(TAG, "handleDeltaUpload")
+                      .d("addressBookSourceId", addressBookSourceId)
+                      .d("added", delta.added.size())
+                      .d("modified", delta.modified.size())
+                      .d("removed", delta.removed.size()));
+
+        emitCounterMetrics(METRIC_PROGRAM_NAME_SUFFIX, "handleDeltaUpload", METRIC_UPLOAD_DELTA, 1);
+        emitCounterMetrics(
+            METRIC_PROGRAM_NAME_SUFFIX,
+            "handleDeltaUpload",
+            METRIC_UPLOAD_UNCHANGED_ENTRIES,
+            entryHashes.size() - delta.added.size() - delta.modified.size());
+
+        if (delta.empty()) {
+            return true;
+        }
+
+        // Modified entries are replaced by deleting and uploading them again.
+        std::vector<std::string> deletions(delta.removed);
+        deletions.insert(deletions.end(), delta.modified.begin(), delta.modified.end());
+        bool deleted = runInParallel(deletions.size(), [this, &cloudAddressBookId, &deletions](size_t index) {
+            return m_addressBookCloudUploaderRESTAgent->deleteCloudAddressBookEntry(
+                cloudAddressBookId, deletions[index]);
+        });
+        ThrowIfNot(deleted, "deleteEntriesFailed");
+
+        for (auto& entryId : deletions) {
+            record.entries.erase(entryId);
+        }
+
+        // Repackage the changed entries into batches of their own.
+        std::unordered_set<std::string> changed(delta.added.begin(), delta.added.end());
+        changed.insert(delta.modified.begin(), delta.modified.end());
+
+        std::vector<std::shared_ptr<rapidjson::Document>> deltaDocuments;
+        for (auto& document : documents) {
+            for (auto& entry : (*document)["entries"].GetArray()) {
+                if (changed.find(entry["entrySourceId"].GetString()) == changed.end()) {
+                    continue;
+                }
+                if (deltaDocuments.empty() || (*deltaDocuments.back())["entries"].Size() >= UPLOAD_BATCH_SIZE) {
+                    auto deltaDocument = std::make_shared<rapidjson::Document>();
+                    deltaDocument->SetObject();
+                    deltaDocument->AddMember(
+                        "entries", rapidjson::Value(rapidjson::kArrayType), deltaDocument->GetAllocator());
+                    deltaDocuments.push_back(deltaDocument);
+                }
+                auto& allocator = deltaDocuments.back()->GetAllocator();
+                (*deltaDocuments.back())["entries"].PushBack(rapidjson::Value(entry, allocator), allocator);
+            }
+        }
+
+        std::unordered_set<std::string> failedEntries;
+        bool uploaded = uploadDocuments(cloudAddressBookId, deltaDocuments, failedEntries);
+        if (uploaded) {
+            for (auto& entryId : changed) {
+                if (failedEntries.find(entryId) == failedEntries.end()) {
+                    record.entries[entryId] = entryHashes.at(entryId);
+                }
+            }
+            m_uploadManifest->put(addressBookSourceId, record);
+        }
+        ThrowIfNot(uploaded, "uploadDocumentFailed");
+
+        AACE_INFO(LX(TAG, "handleDeltaUpload")
+                      .m("SuccessfullyUploaded")
+                      .d("addressBookSourceId", addressBookSourceId)
+                      .d("numberOfEntries", changed.size()));
+        return true;
+    } catch (std::exception& ex) {
+        AACE_ERROR(LX(TAG, "handleDeltaUpload").d("addressBookSourceId", addressBookSourceId).d("reason", ex.what()));
+        return false;
+    }
+}
+
+bool AddressBookCloudUploader::uploadDocuments(
+    const std::string& cloudAddressBookId,
+    const std::vector<std::shared_ptr<rapidjson::Document>>& documents,
+    std::unordered_set<std::string>& failedEntries) {
+    std::mutex failedEntriesMutex;
+    std::atomic<bool> uploadFailed(false);
+    bool uploaded = runInParallel(
+        documents.size(),
+        [this, &cloudAddressBookId, &documents, &failedEntries, &failedEntriesMutex, &uploadFailed](size_t index) {
+            std::queue<std::string> failed;
+            if (!upload(cloudAddressBookId, documents[index], failed)) {
+                uploadFailed = true;
+                return false;
+            }
+            std::lock_guard<std::mutex> guard(failedEntriesMutex);
+            while (!failed.empty()) {
+                failedEntries.insert(failed.front());
+                failed.pop();
+            }
+            return true;
+        });
+
+    if (uploadFailed) {
+        // All workers are joined at this point, so the cloud address book is deleted once, and no other batch is
+        // still being uploaded into it.
+        handleError(cloudAddressBookId);
+    }
+    return uploaded;
+}
+
+bool AddressBookCloudUploader::runInParallel(size_t count, std::function<bool(size_t index)> task) {
+    // Workers pick up the next pending index, so each worker serializes and compresses its next batch while the
+    // others are waiting on the network.
+    std::atomic<size_t> next(0);
+    std::atomic<bool> success(true);
+    auto worker = [this, count, &task, &next, &success]() {
+        size_t index;
+        while (success && !m_isShuttingDown && (index = next++) < count) {
+            if (!task(index)) {
+                success = false;
+            }
+        }
+    };
+
+    std::vector<std::thread> workers;
+    auto numberOfWorkers = std::min(count, MAX_PARALLEL_REQUESTS);
+    for (size_t i = 1; i < numberOfWorkers; i++) {
+        workers.emplace_back(worker);
+    }
+    worker();
+    for (auto& thread : workers) {
+        thread.join();
+    }
+
+    return success && !m_isShuttingDown;
+}
+
 bool AddressBookCloudUploader::handleRemove(std::shared_ptr<AddressBookEntity> addressBookEntity) {
     std::string addressBookSourceId = INVALID_ADDRESS_BOOK_SOURCE_ID;
     try {
@@ -940,6 +1143,9 @@ bool AddressBookCloudUploader::handleRemove(std::shared_ptr<AddressBookEntity> a
         addressBookSourceId = addressBookEntity->getSourceId();
 
         ThrowIfNot(deleteAddressBook(addressBookEntity), "addressBookDeleteFailed");
+        if (m_uploadManifest != nullptr) {
+            m_uploadManifest->remove(addressBookSourceId);
+        }
 
         AACE_INFO(LX(TAG, "handleRemove")
                       .m("Removed Successfully")
@@ -1074,11 +1280,12 @@ std::string AddressBookCloudUploader::prepareForUpload(std::shared_ptr<AddressBo
 
 bool AddressBookCloudUploader::upload(
     const std::string& cloudAddressBookId,
-    std::shared_ptr<rapidjson::Document> document) {
+    std::shared_ptr<rapidjson::Document> document,
+    std::queue<std::string>& failedEntries) {
     try {
         AACE_DEBUG(LX(TAG, "upload").d("entries.Size()", document->FindMember("entries")->value.Size()));
 
-        ThrowIfNot(uploadEntries(cloudAddressBookId, document), "uploadEntriesFailed");
+        ThrowIfNot(uploadEntries(cloudAddressBookId, document, failedEntries), "uploadEntriesFailed");
 
         return true;
     } catch (std::exception& ex) {
@@ -1089,7 +1296,8 @@ bool AddressBookCloudUploader::upload(
 
 bool AddressBookCloudUploader::uploadEntries(
     const std::string& cloudAddressBookId,
-    std::shared_ptr<rapidjson::Document> document) {
+    std::shared_ptr<rapidjson::Document> document,
+    std::queue<std::string>& failedEntries) {
     HTTPResponse httpResponse;
     auto flowState = UploadFlowState::POST;
     bool success = true;
@@ -1104,10 +1312,11 @@ bool AddressBookCloudUploader::uploadEntries(
                 nextFlowState = handleUploadEntries(cloudAddressBookId, document, httpResponse);
                 break;
             case UploadFlowState::PARSE:
-                nextFlowState = handleParseHTTPResponse(httpResponse);
+                nextFlowState = handleParseHTTPResponse(httpResponse, failedEntries);
                 break;
             case UploadFlowState::ERROR:
-                nextFlowState = handleError(cloudAddressBookId);
+                // The cloud address book is cleaned up by uploadDocuments once all the batches are done.
+                nextFlowState = UploadFlowState::FINISH;
                 success = false;
                 break;
             case UploadFlowState::FINISH:
@@ -1119,7 +1328,7 @@ bool AddressBookCloudUploader::uploadEntries(
     return success;
 }
 
-AddressBookCloudUploader::UploadFlowState AddressBookCloudUploader::handleError(const std::string& cloudAddressBookId) {
+void AddressBookCloudUploader::handleError(const std::string& cloudAddressBookId) {
     try {
         ThrowIfNot(
             m_addressBookCloudUploaderRESTAgent->deleteCloudAddressBook(cloudAddressBookId),
@@ -1127,8 +1336,6 @@ AddressBookCloudUploader::UploadFlowState AddressBookCloudUploader::handleError(
     } catch (std::exception& ex) {
         AACE_ERROR(LX(TAG, "handleError").d("reason", ex.what()));
     }
-
-    return UploadFlowState::FINISH;
 }
 
 AddressBookCloudUploader::UploadFlowState AddressBookCloudUploader::handleUploadEntries(
@@ -1163,9 +1370,9 @@ AddressBookCloudUploader::UploadFlowState AddressBookCloudUploader::handleUpload
 }
 
 AddressBookCloudUploader::UploadFlowState AddressBookCloudUploader::handleParseHTTPResponse(
-    const HTTPResponse& httpResponse) {
+    const HTTPResponse& httpResponse,
+    std::queue<std::string>& failedEntries) {
     try {
-        std::queue<std::string> failedEntries;
         ThrowIfNot(
             m_addressBookCloudUploaderRESTAgent->parseCreateAddressBookEntryResponse(httpResponse, failedEntries),
             "responseJsonParseFailed");
@@ -1294,6 +1501,10 @@ bool AddressBookCloudUploader::cleanAllCloudAddressBooks() {
                 "deleteCloudAddressBookFailed");
         }
 
+        if (m_uploadManifest != nullptr) {
+            m_uploadManifest->clear();
+        }
+
         return true;
 
     } catch (std::exception& ex) {
@@ -13,6 +13,8 @@
  * permissions and limitations under the License.
  */
 
+#include <cctype>
+
 #include <AACE/Engine/Core/EngineMacros.h>
 #include <AACE/Engine/AddressBook/AddressBookCloudUploaderRESTAgent.h>
 
@@ -584,6 +586,51 @@ bool AddressBookCloudUploaderRESTAgent::deleteCloudAddressBook(const std::string
     }
 }
 
+/**
+ * Percent-encodes a string for use as a single URL path segment.
+ */
+static std::string encodePathSegment(const std::string& value) {
+    static const char* HEX = "0123456789ABCDEF";
+    std::string encoded;
+    encoded.reserve(value.size());
+    for (unsigned char c : value) {
+        if (isalnum(c) || c == '-' || c == '_' || c == '.' || c == '~') {
+            encoded.push_back(c);
+        } else {
+            encoded.push_back('%');
+            encoded.push_back(HEX[c >> 4]);
+            encoded.push_back(HEX[c & 0x0F]);
+        }
+    }
+    return encoded;
+}
+
+bool AddressBookCloudUploaderRESTAgent::deleteCloudAddressBookEntry(
+    const std::string& addressBookId,
+    const std::string& entrySourceId) {
+    AddressBookCloudUploaderRESTAgent::HTTPResponse httpResponse;
+    bool validFlag = false;
+
+    auto httpHeaderData = buildCommonHTTPHeader();
+    try {
+        auto url = m_acmsEndpoint + FORWARD_SLASH + USERS_PATH + FORWARD_SLASH + getPceId() + FORWARD_SLASH +
+                   ADDRESSBOOK_PATH + FORWARD_SLASH + addressBookId + FORWARD_SLASH + ENTRIES_PATH + FORWARD_SLASH +
+                   encodePathSegment(entrySourceId);
+        for (int retry = 0; retry < HTTP_RETRY_COUNT; retry++) {
+            httpResponse = doDelete(url, httpHeaderData);
+            if (parseCommonHTTPResponse(httpResponse)) {
+                validFlag = true;
+                break;
+            }
+        }
+        ThrowIfNot(validFlag, "httpDoDeleteFailed" + getHTTPErrorString(httpResponse));
+        return true;
+    } catch (std::exception& ex) {
+        AACE_ERROR(LX(TAG, "deleteCloudAddressBookEntry").d("entrySourceId", entrySourceId).d("reason", ex.what()));
+        return false;
+    }
+}
+
 std::string AddressBookCloudUploaderRESTAgent::buildFailedEntriesJson(std::queue<std::string>& failedList) {
     rapidjson::Document document;
     document.SetObject();
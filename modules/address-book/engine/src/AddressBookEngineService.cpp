@@ -20,6 +20,7 @@
 #include <AACE/Engine/Core/EngineMacros.h>
 #include <AACE/Engine/Alexa/AlexaEngineService.h>
 #include <AACE/Engine/Network/NetworkEngineService.h>
+#include <AACE/Engine/Storage/LocalStorageInterface.h>
 #include <AACE/Engine/Utils/Metrics/Metrics.h>
 
 #include <AACE/Engine/AddressBook/AddressBookEngineService.h>
@@ -122,6 +123,10 @@ bool AddressBookEngineService::registerPlatformInterfaceType(
             getContext()->getServiceInterface<aace::engine::alexa::AlexaEndpointInterface>("aace.alexa");
         ThrowIfNull(alexaEndpoints, "alexaEndpointsInvalid");
 
+        // local storage is optional, without it every address book is uploaded in full
+        auto localStorage =
+            getContext()->getServiceInterface<aace::engine::storage::LocalStorageInterface>("aace.storage");
+
         m_addressBookCloudUploader = aace::engine::addressBook::AddressBookCloudUploader::create(
             m_addressBookEngineImpl,
             authDelegate,
@@ -129,7 +134,8 @@ bool AddressBookEngineService::registerPlatformInterfaceType(
             networkStatus,
             networkObserver,
             alexaEndpoints,
-            m_cleanAllAddressBooksAtStart);
+            m_cleanAllAddressBooksAtStart,
+            localStorage);
         ThrowIfNull(m_addressBookCloudUploader, "createAddressBookCloudUploaderFailed");
 
         // set the engine interface reference
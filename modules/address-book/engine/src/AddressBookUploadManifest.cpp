@@ -0,0 +1,144 @@
+/*
+ * Copyright 2019-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+// JSON for Modern C++
+#include <nlohmann/json.hpp>
+
+#include <cinttypes>
+#include <cstdio>
+
+#include <rapidjson/stringbuffer.h>
+#include <rapidjson/writer.h>
+
+#include <AACE/Engine/Core/EngineMacros.h>
+#include <AACE/Engine/AddressBook/AddressBookUploadManifest.h>
+
+namespace aace {
+namespace engine {
+namespace addressBook {
+
+// String to identify log entries originating from this file.
+static const std::string TAG("aace.addressBook.addressBookUploadManifest");
+
+/// Local storage table holding one record per address book source id
+static const std::string UPLOAD_MANIFEST_TABLE = "aace.addressBook.uploadManifest";
+
+/// FNV-1a 64 bit offset basis
+static const uint64_t FNV_OFFSET_BASIS = 14695981039346656037ULL;
+
+/// FNV-1a 64 bit prime
+static const uint64_t FNV_PRIME = 1099511628211ULL;
+
+using json = nlohmann::json;
+
+AddressBookUploadManifest::AddressBookUploadManifest(
+    std::shared_ptr<aace::engine::storage::LocalStorageInterface> localStorage) :
+        m_localStorage(std::move(localStorage)) {
+}
+
+std::string AddressBookUploadManifest::hashEntry(const rapidjson::Value& entry) {
+    rapidjson::StringBuffer buffer;
+    rapidjson::Writer<rapidjson::StringBuffer> writer(buffer);
+    entry.Accept(writer);
+
+    // std::hash is not guaranteed to be stable across builds, and the hashes are persisted.
+    uint64_t hash = FNV_OFFSET_BASIS;
+    const char* data = buffer.GetString();
+    for (size_t i = 0; i < buffer.GetSize(); i++) {
+        hash ^= static_cast<unsigned char>(data[i]);
+        hash *= FNV_PRIME;
+    }
+
+    char hex[17];
+    snprintf(hex, sizeof(hex), "%016" PRIx64, hash);
+    return std::string(hex);
+}
+
+AddressBookUploadManifest::Delta AddressBookUploadManifest::diff(
+    const EntryHashes& recorded,
+    const EntryHashes& current) {
+    Delta delta;
+    for (auto& next : current) {
+        auto it = recorded.find(next.first);
+        if (it == recorded.end()) {
+            delta.added.push_back(next.first);
+        } else if (it->second != next.second) {
+            delta.modified.push_back(next.first);
+        }
+    }
+    for (auto& next : recorded) {
+        if (current.find(next.first) == current.end()) {
+            delta.removed.push_back(next.first);
+        }
+    }
+    return delta;
+}
+
+bool AddressBookUploadManifest::get(const std::string& addressBookSourceId, Record& record) {
+    try {
+        ThrowIfNull(m_localStorage, "localStorageNotAvailable");
+        std::lock_guard<std::mutex> lock(m_mutex);
+        auto value = m_localStorage->get(UPLOAD_MANIFEST_TABLE, addressBookSourceId, "");
+        if (value.empty()) {
+            return false;
+        }
+
+        auto root = json::parse(value);
+        ThrowIfNot(root.contains("cloudAddressBookId") && root["cloudAddressBookId"].is_string(), "invalidRecord");
+        ThrowIfNot(root.contains("entries") && root["entries"].is_object(), "invalidRecord");
+
+        record.cloudAddressBookId = root["cloudAddressBookId"];
+        record.entries.clear();
+        for (auto& item : root["entries"].items()) {
+            record.entries[item.key()] = item.value().get<std::string>();
+        }
+        return !record.cloudAddressBookId.empty();
+    } catch (std::exception& ex) {
+        AACE_ERROR(LX(TAG, "get").d("addressBookSourceId", addressBookSourceId).d("reason", ex.what()));
+        return false;
+    }
+}
+
+bool AddressBookUploadManifest::put(const std::string& addressBookSourceId, const Record& record) {
+    try {
+        ThrowIfNull(m_localStorage, "localStorageNotAvailable");
+        json root = {{"cloudAddressBookId", record.cloudAddressBookId}, {"entries", record.entries}};
+
+        std::lock_guard<std::mutex> lock(m_mutex);
+        ThrowIfNot(m_localStorage->put(UPLOAD_MANIFEST_TABLE, addressBookSourceId, root.dump()), "putFailed");
+        return true;
+    } catch (std::exception& ex) {
+        AACE_ERROR(LX(TAG, "put").d("addressBookSourceId", addressBookSourceId).d("reason", ex.what()));
+        return false;
+    }
+}
+
+void AddressBookUploadManifest::remove(const std::string& addressBookSourceId) {
+    if (m_localStorage != nullptr) {
+        std::lock_guard<std::mutex> lock(m_mutex);
+        m_localStorage->removeKey(UPLOAD_MANIFEST_TABLE, addressBookSourceId);
+    }
+}
+
+void AddressBookUploadManifest::clear() {
+    if (m_localStorage != nullptr) {
+        std::lock_guard<std::mutex> lock(m_mutex);
+        m_localStorage->removeTable(UPLOAD_MANIFEST_TABLE);
+    }
+}
+
+}  // namespace addressBook
+}  // namespace engine
+}  // namespace aace
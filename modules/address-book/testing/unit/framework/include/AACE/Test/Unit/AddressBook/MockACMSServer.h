@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+#ifndef AACE_TEST_UNIT_ADDRESS_BOOK_MOCK_ACMS_SERVER_H
+#define AACE_TEST_UNIT_ADDRESS_BOOK_MOCK_ACMS_SERVER_H
+
+#include <atomic>
+#include <map>
+#include <memory>
+#include <mutex>
+#include <string>
+#include <thread>
+#include <vector>
+
+namespace aace {
+namespace test {
+namespace unit {
+namespace addressBook {
+
+/**
+ * Local stand-in for the ACMS address book REST service. It listens on the loopback interface, keeps the address
+ * books and their entries in memory, and counts the requests it serves so that tests can verify what the
+ * @c AddressBookCloudUploader sent without any network access.
+ */
+class MockACMSServer {
+public:
+    struct Counters {
+        int addressBooksCreated = 0;
+        int addressBooksDeleted = 0;
+        int addressBookDeleteRequests = 0;
+        int entryBatchesUploaded = 0;
+        int entriesUploaded = 0;
+        int entriesDeleted = 0;
+    };
+
+    static std::unique_ptr<MockACMSServer> create();
+
+    ~MockACMSServer();
+
+    /// @return The endpoint to configure as the ACMS endpoint, e.g. "http://127.0.0.1:43210".
+    std::string getEndpoint();
+
+    Counters getCounters();
+    void resetCounters();
+
+    /// Makes the next @c count uploads of an entry batch fail with an HTTP error without storing the entries.
+    void failNextEntryBatches(int count);
+
+    /// @return The ids of the entries stored in the address book of the given type, e.g. "automotive".
+    std::vector<std::string> getEntryIds(const std::string& addressBookType);
+
+private:
+    struct AddressBook {
+        std::string sourceId;
+        std::string type;
+        std::map<std::string, std::string> entries;
+    };
+
+    struct Request {
+        std::string method;
+        std::string path;
+        std::string query;
+        std::string body;
+    };
+
+    MockACMSServer() = default;
+    bool initialize();
+    void serve();
+    void handleConnection(int socket);
+    bool readRequest(int socket, Request& request);
+    int route(const Request& request, std::string& responseBody);
+
+    int m_listenSocket = -1;
+    int m_port = 0;
+    std::atomic<bool> m_running{false};
+    std::thread m_thread;
+
+    std::mutex m_mutex;
+    std::map<std::string, AddressBook> m_addressBooks;
+    int m_nextAddressBookId = 1;
+    int m_entryBatchesToFail = 0;
+    Counters m_counters;
+};
+
+}  // namespace addressBook
+}  // namespace unit
+}  // namespace test
+}  // namespace aace
+
+#endif  // AACE_TEST_UNIT_ADDRESS_BOOK_MOCK_ACMS_SERVER_H
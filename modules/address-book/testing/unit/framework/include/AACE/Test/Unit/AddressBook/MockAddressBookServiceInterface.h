@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+#ifndef AACE_TEST_UNIT_ADDRESS_BOOK_MOCK_ADDRESS_BOOK_SERVICE_INTERFACE_H
+#define AACE_TEST_UNIT_ADDRESS_BOOK_MOCK_ADDRESS_BOOK_SERVICE_INTERFACE_H
+
+#include <gmock/gmock.h>
+
+#include <AACE/Engine/AddressBook/AddressBookServiceInterface.h>
+
+namespace aace {
+namespace test {
+namespace unit {
+namespace addressBook {
+
+class MockAddressBookServiceInterface : public aace::engine::addressBook::AddressBookServiceInterface {
+public:
+    MOCK_METHOD2(
+        addObserver,
+        void(std::shared_ptr<aace::engine::addressBook::AddressBookObserver> observer, const std::string& serviceType));
+    MOCK_METHOD1(removeObserver, void(std::shared_ptr<aace::engine::addressBook::AddressBookObserver> observer));
+    MOCK_METHOD2(
+        getEntries,
+        bool(const std::string& id, std::weak_ptr<aace::addressBook::AddressBook::IAddressBookEntriesFactory> factory));
+    MOCK_METHOD1(setDelegate, void(std::shared_ptr<aace::engine::addressBook::AddressBookDelegateInterface> delegate));
+    MOCK_METHOD0(servicesEnablementChanged, void());
+};
+
+}  // namespace addressBook
+}  // namespace unit
+}  // namespace test
+}  // namespace aace
+
+#endif  // AACE_TEST_UNIT_ADDRESS_BOOK_MOCK_ADDRESS_BOOK_SERVICE_INTERFACE_H
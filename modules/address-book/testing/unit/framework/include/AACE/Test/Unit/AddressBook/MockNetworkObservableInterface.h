@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+#ifndef AACE_TEST_UNIT_ADDRESS_BOOK_MOCK_NETWORK_OBSERVABLE_INTERFACE_H
+#define AACE_TEST_UNIT_ADDRESS_BOOK_MOCK_NETWORK_OBSERVABLE_INTERFACE_H
+
+#include <gmock/gmock.h>
+
+#include <AACE/Engine/Network/NetworkObservableInterface.h>
+
+namespace aace {
+namespace test {
+namespace unit {
+namespace addressBook {
+
+class MockNetworkObservableInterface : public aace::engine::network::NetworkObservableInterface {
+public:
+    MOCK_METHOD1(addObserver, void(std::shared_ptr<aace::engine::network::NetworkInfoObserver> observer));
+    MOCK_METHOD1(removeObserver, void(std::shared_ptr<aace::engine::network::NetworkInfoObserver> observer));
+};
+
+}  // namespace addressBook
+}  // namespace unit
+}  // namespace test
+}  // namespace aace
+
+#endif  // AACE_TEST_UNIT_ADDRESS_BOOK_MOCK_NETWORK_OBSERVABLE_INTERFACE_H
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+#ifndef AACE_TEST_UNIT_ADDRESS_BOOK_STUB_LOCAL_STORAGE_H
+#define AACE_TEST_UNIT_ADDRESS_BOOK_STUB_LOCAL_STORAGE_H
+
+#include <map>
+#include <mutex>
+
+#include <AACE/Engine/Storage/LocalStorageInterface.h>
+
+namespace aace {
+namespace test {
+namespace unit {
+namespace addressBook {
+
+/// In-memory @c LocalStorageInterface implementation.
+class StubLocalStorage : public aace::engine::storage::LocalStorageInterface {
+public:
+    bool put(const std::string& table, const std::string& key, const std::string& value) override {
+        std::lock_guard<std::mutex> lock(m_mutex);
+        m_tables[table][key] = value;
+        return true;
+    }
+
+    std::string get(const std::string& table, const std::string& key) override {
+        return get(table, key, "");
+    }
+
+    std::string get(const std::string& table, const std::string& key, const std::string& defaultValue) override {
+        std::lock_guard<std::mutex> lock(m_mutex);
+        auto it = m_tables.find(table);
+        if (it == m_tables.end() || it->second.find(key) == it->second.end()) {
+            return defaultValue;
+        }
+        return it->second[key];
+    }
+
+    bool removeKey(const std::string& table, const std::string& key) override {
+        std::lock_guard<std::mutex> lock(m_mutex);
+        auto it = m_tables.find(table);
+        return it != m_tables.end() && it->second.erase(key) > 0;
+    }
+
+    bool removeTable(const std::string& table) override {
+        std::lock_guard<std::mutex> lock(m_mutex);
+        return m_tables.erase(table) > 0;
+    }
+
+    bool containsKey(const std::string& table, const std::string& key) override {
+        std::lock_guard<std::mutex> lock(m_mutex);
+        auto it = m_tables.find(table);
+        return it != m_tables.end() && it->second.find(key) != it->second.end();
+    }
+
+    bool containsTable(const std::string& table) override {
+        std::lock_guard<std::mutex> lock(m_mutex);
+        return m_tables.find(table) != m_tables.end();
+    }
+
+    std::vector<std::string> keys(const std::string& table) override {
+        std::vector<std::string> result;
+        for (auto& next : list(table)) {
+            result.push_back(next.first);
+        }
+        return result;
+    }
+
+    std::vector<KeyValuePair> list(const std::string& table) override {
+        std::lock_guard<std::mutex> lock(m_mutex);
+        std::vector<KeyValuePair> result;
+        auto it = m_tables.find(table);
+        if (it != m_tables.end()) {
+            result.assign(it->second.begin(), it->second.end());
+        }
+        return result;
+    }
+
+    bool begin() override {
+        return true;
+    }
+
+    bool commit() override {
+        return true;
+    }
+
+    bool cancel() override {
+        return true;
+    }
+
+private:
+    std::mutex m_mutex;
+    std::map<std::string, std::map<std::string, std::string>> m_tables;
+};
+
+}  // namespace addressBook
+}  // namespace unit
+}  // namespace test
+}  // namespace aace
+
+#endif  // AACE_TEST_UNIT_ADDRESS_BOOK_STUB_LOCAL_STORAGE_H
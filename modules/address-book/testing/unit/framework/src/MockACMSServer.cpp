@@ -0,0 +1,339 @@
+/*
+ * Copyright 2019-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+// JSON for Modern C++
+#include <nlohmann/json.hpp>
+
+#include <arpa/inet.h>
+#include <netinet/in.h>
+#include <poll.h>
+#include <sys/socket.h>
+#include <unistd.h>
+
+#include <algorithm>
+#include <sstream>
+
+#include "zlib.h"
+
+#include <AACE/Test/Unit/AddressBook/MockACMSServer.h>
+
+namespace aace {
+namespace test {
+namespace unit {
+namespace addressBook {
+
+using json = nlohmann::json;
+
+static const std::string COMMS_ID = "mockCommsId";
+static const std::string PCE_ID = "mockPceId";
+
+static const std::string ADDRESS_BOOKS_PATH = "/users/" + PCE_ID + "/addressbooks";
+
+static std::vector<std::string> split(const std::string& path) {
+    std::vector<std::string> segments;
+    std::stringstream stream(path);
+    std::string segment;
+    while (std::getline(stream, segment, '/')) {
+        if (!segment.empty()) {
+            segments.push_back(segment);
+        }
+    }
+    return segments;
+}
+
+static std::string decodePathSegment(const std::string& value) {
+    std::string decoded;
+    for (size_t i = 0; i < value.size(); i++) {
+        if (value[i] == '%' && i + 2 < value.size()) {
+            decoded.push_back(static_cast<char>(std::stoi(value.substr(i + 1, 2), nullptr, 16)));
+            i += 2;
+        } else {
+            decoded.push_back(value[i]);
+        }
+    }
+    return decoded;
+}
+
+static bool gunzip(const std::string& gzipped, std::string& bytes) {
+    z_stream zstr = {};
+    if (inflateInit2(&zstr, MAX_WBITS + 16) != Z_OK) {
+        return false;
+    }
+    zstr.next_in = reinterpret_cast<Bytef*>(const_cast<char*>(gzipped.data()));
+    zstr.avail_in = gzipped.size();
+
+    char buffer[4096];
+    int ret;
+    do {
+        zstr.next_out = reinterpret_cast<Bytef*>(buffer);
+        zstr.avail_out = sizeof(buffer);
+        ret = inflate(&zstr, Z_NO_FLUSH);
+        if (ret != Z_OK && ret != Z_STREAM_END) {
+            inflateEnd(&zstr);
+            return false;
+        }
+        bytes.append(buffer, sizeof(buffer) - zstr.avail_out);
+    } while (ret != Z_STREAM_END);
+
+    inflateEnd(&zstr);
+    return true;
+}
+
+std::unique_ptr<MockACMSServer> MockACMSServer::create() {
+    auto server = std::unique_ptr<MockACMSServer>(new MockACMSServer());
+    if (!server->initialize()) {
+        return nullptr;
+    }
+    return server;
+}
+
+bool MockACMSServer::initialize() {
+    m_listenSocket = socket(AF_INET, SOCK_STREAM, 0);
+    if (m_listenSocket < 0) {
+        return false;
+    }
+
+    sockaddr_in address = {};
+    address.sin_family = AF_INET;
+    address.sin_addr.s_addr = htonl(INADDR_LOOPBACK);
+    address.sin_port = 0;
+    socklen_t length = sizeof(address);
+    if (bind(m_listenSocket, reinterpret_cast<sockaddr*>(&address), length) != 0 ||
+        listen(m_listenSocket, 16) != 0 ||
+        getsockname(m_listenSocket, reinterpret_cast<sockaddr*>(&address), &length) != 0) {
+        close(m_listenSocket);
+        return false;
+    }
+    m_port = ntohs(address.sin_port);
+
+    m_running = true;
+    m_thread = std::thread(&MockACMSServer::serve, this);
+    return true;
+}
+
+MockACMSServer::~MockACMSServer() {
+    m_running = false;
+    if (m_thread.joinable()) {
+        m_thread.join();
+    }
+    if (m_listenSocket >= 0) {
+        close(m_listenSocket);
+    }
+}
+
+std::string MockACMSServer::getEndpoint() {
+    return "http://127.0.0.1:" + std::to_string(m_port);
+}
+
+MockACMSServer::Counters MockACMSServer::getCounters() {
+    std::lock_guard<std::mutex> lock(m_mutex);
+    return m_counters;
+}
+
+void MockACMSServer::resetCounters() {
+    std::lock_guard<std::mutex> lock(m_mutex);
+    m_counters = Counters();
+}
+
+void MockACMSServer::failNextEntryBatches(int count) {
+    std::lock_guard<std::mutex> lock(m_mutex);
+    m_entryBatchesToFail = count;
+}
+
+std::vector<std::string> MockACMSServer::getEntryIds(const std::string& addressBookType) {
+    std::lock_guard<std::mutex> lock(m_mutex);
+    std::vector<std::string> ids;
+    for (auto& next : m_addressBooks) {
+        if (next.second.type == addressBookType) {
+            for (auto& entry : next.second.entries) {
+                ids.push_back(entry.first);
+            }
+        }
+    }
+    std::sort(ids.begin(), ids.end());
+    return ids;
+}
+
+void MockACMSServer::serve() {
+    pollfd descriptor = {m_listenSocket, POLLIN, 0};
+    while (m_running) {
+        if (poll(&descriptor, 1, 100) <= 0) {
+            continue;
+        }
+        int connection = accept(m_listenSocket, nullptr, nullptr);
+        if (connection >= 0) {
+            handleConnection(connection);
+            close(connection);
+        }
+    }
+}
+
+bool MockACMSServer::readRequest(int socket, Request& request) {
+    std::string data;
+    char buffer[4096];
+    size_t headerEnd;
+    while ((headerEnd = data.find("\r\n\r\n")) == std::string::npos) {
+        auto count = recv(socket, buffer, sizeof(buffer), 0);
+        if (count <= 0) {
+            return false;
+        }
+        data.append(buffer, count);
+    }
+
+    std::istringstream headers(data.substr(0, headerEnd));
+    std::string target;
+    headers >> request.method >> target;
+    auto queryStart = target.find('?');
+    request.path = target.substr(0, queryStart);
+    request.query = queryStart == std::string::npos ? "" : target.substr(queryStart + 1);
+
+    size_t contentLength = 0;
+    bool gzipped = false;
+    bool expectContinue = false;
+    std::string line;
+    while (std::getline(headers, line)) {
+        std::string lower(line);
+        std::transform(lower.begin(), lower.end(), lower.begin(), ::tolower);
+        if (lower.find("content-length:") == 0) {
+            contentLength = std::stoul(line.substr(15));
+        } else if (lower.find("content-encoding:") == 0 && lower.find("gzip") != std::string::npos) {
+            gzipped = true;
+        } else if (lower.find("expect:") == 0 && lower.find("100-continue") != std::string::npos) {
+            expectContinue = true;
+        }
+    }
+
+    std::string body = data.substr(headerEnd + 4);
+    if (expectContinue && body.size() < contentLength) {
+        static const std::string CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n";
+        send(socket, CONTINUE.data(), CONTINUE.size(), 0);
+    }
+    while (body.size() < contentLength) {
+        auto count = recv(socket, buffer, sizeof(buffer), 0);
+        if (count <= 0) {
+            return false;
+        }
+        body.append(buffer, count);
+    }
+
+    if (gzipped) {
+        return gunzip(body, request.body);
+    }
+    request.body = std::move(body);
+    return true;
+}
+
+void MockACMSServer::handleConnection(int socket) {
+    Request request;
+    if (!readRequest(socket, request)) {
+        return;
+    }
+
+    std::string body;
+    int code = route(request, body);
+
+    std::string response = "HTTP/1.1 " + std::to_string(code) + (code == 200 ? " OK" : " Error") +
+                           "\r\nContent-Type: application/json\r\nContent-Length: " + std::to_string(body.size()) +
+                           "\r\nConnection: close\r\n\r\n" + body;
+    send(socket, response.data(), response.size(), 0);
+}
+
+int MockACMSServer::route(const Request& request, std::string& responseBody) {
+    std::lock_guard<std::mutex> lock(m_mutex);
+    try {
+        if (request.method == "GET" && request.path == "/accounts") {
+            responseBody =
+                json::array({{{"signedInUser", true}, {"commsId", COMMS_ID}, {"commsProvisionStatus", "PROVISIONED"}}})
+                    .dump();
+            return 200;
+        }
+        if (request.method == "GET" && request.path == "/users/" + COMMS_ID + "/identities") {
+            responseBody = json({{"pceId", PCE_ID}}).dump();
+            return 200;
+        }
+        if (request.path.find(ADDRESS_BOOKS_PATH) != 0) {
+            return 404;
+        }
+
+        // addressbooks[/{addressBookId}[/entries[/{entrySourceId}]]]
+        auto segments = split(request.path.substr(ADDRESS_BOOKS_PATH.size()));
+        if (segments.empty() && request.method == "GET") {
+            auto sourceId = request.query.substr(request.query.find('=') + 1);
+            json addressBooks = json::array();
+            for (auto& next : m_addressBooks) {
+                if (next.second.sourceId == sourceId) {
+                    addressBooks.push_back({{"addressBookId", next.first}, {"addressBookType", next.second.type}});
+                }
+            }
+            responseBody = json({{"addressBooks", addressBooks}}).dump();
+            return 200;
+        }
+        if (segments.empty() && request.method == "POST") {
+            auto payload = json::parse(request.body);
+            auto addressBookId = "addressBook" + std::to_string(m_nextAddressBookId++);
+            auto& created = m_addressBooks[addressBookId];
+            created.sourceId = payload["addressBookSourceId"].get<std::string>();
+            created.type = payload["addressBookType"].get<std::string>();
+            m_counters.addressBooksCreated++;
+            responseBody = json({{"addressBookId", addressBookId}}).dump();
+            return 200;
+        }
+
+        if (segments.size() == 1 && request.method == "DELETE") {
+            m_counters.addressBookDeleteRequests++;
+        }
+        auto addressBook = m_addressBooks.find(segments[0]);
+        if (addressBook == m_addressBooks.end()) {
+            return 404;
+        }
+        if (segments.size() == 1 && request.method == "DELETE") {
+            m_addressBooks.erase(addressBook);
+            m_counters.addressBooksDeleted++;
+            return 200;
+        }
+        if (segments.size() == 2 && segments[1] == "entries" && request.method == "POST") {
+            if (m_entryBatchesToFail > 0) {
+                m_entryBatchesToFail--;
+                return 500;
+            }
+            auto payload = json::parse(request.body);
+            json references = json::array();
+            for (auto& entry : payload["entries"]) {
+                std::string entrySourceId = entry["entrySourceId"];
+                addressBook->second.entries[entrySourceId] = entry.dump();
+                references.push_back({{"entrySourceId", entrySourceId}, {"status", "SUCCESS"}});
+                m_counters.entriesUploaded++;
+            }
+            m_counters.entryBatchesUploaded++;
+            responseBody = json({{"references", references}}).dump();
+            return 200;
+        }
+        if (segments.size() == 3 && segments[1] == "entries" && request.method == "DELETE") {
+            if (addressBook->second.entries.erase(decodePathSegment(segments[2])) == 0) {
+                return 404;
+            }
+            m_counters.entriesDeleted++;
+            return 200;
+        }
+        return 404;
+    } catch (std::exception& ex) {
+        return 400;
+    }
+}
+
+}  // namespace addressBook
+}  // namespace unit
+}  // namespace test
+}  // namespace aace
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+#include <gtest/gtest.h>
+#include <gmock/gmock.h>
+
+#include <AACE/AddressBook/AddressBookEngineInterface.h>
+#include <AACE/Engine/MessageBroker/MessageBrokerInterface.h>
+#include <AASB/Engine/AddressBook/AASBAddressBook.h>
+#include <AASB/Message/AddressBook/AddressBook/AppendAddressBookChunkMessage.h>
+#include <AASB/Message/AddressBook/AddressBook/BeginAddressBookMessage.h>
+#include <AASB/Message/AddressBook/AddressBook/CommitAddressBookMessage.h>
+#include <AASB/Message/AddressBook/AddressBook/PhoneData.h>
+#include <AASB/Message/AddressBook/AddressBook/RemoveAddressBookMessage.h>
+
+#include <cstdio>
+#include <cstdlib>
+#include <dirent.h>
+#include <fstream>
+#include <unistd.h>
+#include <vector>
+
+namespace aace {
+namespace test {
+namespace unit {
+namespace addressBook {
+
+namespace {
+
+using Message = aace::engine::messageBroker::Message;
+using PublishMessage = aace::engine::messageBroker::PublishMessage;
+using IAddressBookEntriesFactory = aace::addressBook::AddressBook::IAddressBookEntriesFactory;
+using AddressBookType = aace::addressBook::AddressBook::AddressBookType;
+
+/// Message broker dispatching the published incoming messages to the subscribed handlers.
+class FakeMessageBroker : public aace::engine::messageBroker::MessageBrokerInterface {
+public:
+    void subscribe(const std::string& topic, MessageHandler handler, Message::Direction direction) override {
+        m_handlers[topic] = handler;
+    }
+
+    void subscribe(
+        const std::string& topic,
+        const std::string& action,
+        MessageHandler handler,
+        Message::Direction direction) override {
+        m_handlers[topic + "/" + action] = handler;
+    }
+
+    PublishMessage publish(const std::string& message, Message::Direction direction) override {
+        return PublishMessage(
+            direction, message, std::chrono::milliseconds(0), [](const PublishMessage& pm, bool sync) -> Message {
+                return Message::INVALID;
+            });
+    }
+
+    void receive(const std::string& msg) {
+        Message message(msg, Message::Direction::INCOMING);
+        auto it = m_handlers.find(message.topic() + "/" + message.action());
+        ASSERT_NE(it, m_handlers.end());
+        it->second(message);
+    }
+
+private:
+    std::unordered_map<std::string, MessageHandler> m_handlers;
+};
+
+class MockAddressBookEngineInterface : public aace::addressBook::AddressBookEngineInterface {
+public:
+    MOCK_METHOD3(
+        onAddAddressBook,
+        bool(const std::string& addressBookSourceId, const std::string& name, const AddressBookType type));
+    MOCK_METHOD1(onRemoveAddressBook, bool(const std::string& addressBookSourceId));
+};
+
+class MockAddressBookEntriesFactory : public IAddressBookEntriesFactory {
+public:
+    MOCK_METHOD2(addName, bool(const std::string& entryId, const std::string& name));
+    MOCK_METHOD3(addName, bool(const std::string& entryId, const std::string& firstName, const std::string& lastName));
+    MOCK_METHOD6(
+        addName,
+        bool(
+            const std::string& entryId,
+            const std::string& firstName,
+            const std::string& lastName,
+            const std::string& nickname,
+            const std::string& phoneticFirstName,
+            const std::string& phoneticLastName));
+    MOCK_METHOD3(addPhone, bool(const std::string& entryId, const std::string& label, const std::string& number));
+    MOCK_METHOD1(addEntry, bool(const std::string& payload));
+
+    bool addPostalAddress(
+        const std::string& entryId,
+        const std::string& label,
+        const std::string& addressLine1,
+        const std::string& addressLine2,
+        const std::string& addressLine3,
+        const std::string& city,
+        const std::string& stateOrRegion,
+        const std::string& districtOrCounty,
+        const std::string& postalCode,
+        const std::string& country,
+        float latitudeInDegrees,
+        float longitudeInDegrees,
+        float accuracyInMeters) override {
+        return true;
+    }
+};
+
+}  // namespace
+
+class AASBAddressBookTest : public ::testing::Test {
+public:
+    void SetUp() override {
+        std::string path = ::testing::TempDir() + "aasb_address_book_test_XXXXXX";
+        std::vector<char> spoolPathTemplate(path.begin(), path.end());
+        spoolPathTemplate.push_back('\0');
+        ASSERT_NE(mkdtemp(spoolPathTemplate.data()), nullptr);
+        m_spoolPath = spoolPathTemplate.data();
+
+        m_messageBroker = std::make_shared<FakeMessageBroker>();
+        m_engineInterface = std::make_shared<testing::NiceMock<MockAddressBookEngineInterface>>();
+        m_entriesFactory = std::make_shared<testing::NiceMock<MockAddressBookEntriesFactory>>();
+        ON_CALL(*m_engineInterface, onAddAddressBook(testing::_, testing::_, testing::_))
+            .WillByDefault(testing::Return(true));
+        ON_CALL(*m_engineInterface, onRemoveAddressBook(testing::_)).WillByDefault(testing::Return(true));
+    }
+
+    void TearDown() override {
+        for (auto& file : listSpoolPath()) {
+            std::remove((m_spoolPath + "/" + file).c_str());
+        }
+        rmdir(m_spoolPath.c_str());
+    }
+
+protected:
+    std::shared_ptr<aasb::engine::addressBook::AASBAddressBook> createAddressBook(const std::string& spoolPath) {
+        auto addressBook = aasb::engine::addressBook::AASBAddressBook::create(m_messageBroker, spoolPath);
+        if (addressBook != nullptr) {
+            addressBook->setEngineInterface(m_engineInterface);
+        }
+        return addressBook;
+    }
+
+    void sendAddressBook(const std::string& addressBookSourceId, int chunkCount) {
+        aasb::message::addressBook::addressBook::BeginAddressBookMessage begin;
+        begin.payload.addressBookSourceId = addressBookSourceId;
+        begin.payload.name = "Contacts";
+        begin.payload.type = aasb::message::addressBook::addressBook::AddressBookType::CONTACT;
+        m_messageBroker->receive(begin.toString());
+
+        for (int i = 0; i < chunkCount; i++) {
+            aasb::message::addressBook::addressBook::AppendAddressBookChunkMessage append;
+            append.payload.addressBookSourceId = addressBookSourceId;
+            aasb::message::addressBook::addressBook::PhoneData phone;
+            phone.entryId = "entry" + std::to_string(i);
+            phone.label = "mobile";
+            phone.number = "555-010" + std::to_string(i);
+            append.payload.addressBookData.phoneData.push_back(phone);
+            m_messageBroker->receive(append.toString());
+        }
+
+        aasb::message::addressBook::addressBook::CommitAddressBookMessage commit;
+        commit.payload.addressBookSourceId = addressBookSourceId;
+        commit.payload.chunkCount = chunkCount;
+        m_messageBroker->receive(commit.toString());
+    }
+
+    std::vector<std::string> listSpoolPath() {
+        std::vector<std::string> files;
+        DIR* dir = opendir(m_spoolPath.c_str());
+        if (dir != nullptr) {
+            while (auto entry = readdir(dir)) {
+                std::string name = entry->d_name;
+                if (name != "." && name != "..") {
+                    files.push_back(name);
+                }
+            }
+            closedir(dir);
+        }
+        return files;
+    }
+
+    std::string m_spoolPath;
+    std::shared_ptr<FakeMessageBroker> m_messageBroker;
+    std::shared_ptr<testing::NiceMock<MockAddressBookEngineInterface>> m_engineInterface;
+    std::shared_ptr<testing::NiceMock<MockAddressBookEntriesFactory>> m_entriesFactory;
+};
+
+TEST_F(AASBAddressBookTest, spoolsChunksInConfiguredSpoolPath) {
+    auto addressBook = createAddressBook(m_spoolPath);
+    ASSERT_NE(addressBook, nullptr);
+
+    EXPECT_CALL(*m_engineInterface, onAddAddressBook("id1", "Contacts", AddressBookType::CONTACT)).Times(1);
+    sendAddressBook("id1", 2);
+
+    auto files = listSpoolPath();
+    ASSERT_EQ(files.size(), 1u);
+    EXPECT_EQ(files[0].find("aac_address_book_"), 0u);
+
+    EXPECT_CALL(*m_entriesFactory, addPhone("entry0", "mobile", "555-0100")).Times(1);
+    EXPECT_CALL(*m_entriesFactory, addPhone("entry1", "mobile", "555-0101")).Times(1);
+    EXPECT_TRUE(addressBook->getEntries("id1", m_entriesFactory));
+
+    aasb::message::addressBook::addressBook::RemoveAddressBookMessage remove;
+    remove.payload.addressBookSourceId = "id1";
+    m_messageBroker->receive(remove.toString());
+    EXPECT_TRUE(listSpoolPath().empty());
+}
+
+TEST_F(AASBAddressBookTest, removesSpoolFilesOnDestruction) {
+    auto addressBook = createAddressBook(m_spoolPath);
+    ASSERT_NE(addressBook, nullptr);
+    sendAddressBook("id1", 1);
+    EXPECT_EQ(listSpoolPath().size(), 1u);
+
+    addressBook.reset();
+    EXPECT_TRUE(listSpoolPath().empty());
+}
+
+TEST_F(AASBAddressBookTest, removesStaleSpoolFilesOnCreate) {
+    std::ofstream(m_spoolPath + "/aac_address_book_stale1").put('x');
+    std::ofstream(m_spoolPath + "/unrelated").put('x');
+
+    auto addressBook = createAddressBook(m_spoolPath);
+    ASSERT_NE(addressBook, nullptr);
+
+    auto files = listSpoolPath();
+    ASSERT_EQ(files.size(), 1u);
+    EXPECT_EQ(files[0], "unrelated");
+}
+
+TEST_F(AASBAddressBookTest, keepsChunksInMemoryWithoutSpoolPath) {
+    auto addressBook = createAddressBook("");
+    ASSERT_NE(addressBook, nullptr);
+
+    EXPECT_CALL(*m_engineInterface, onAddAddressBook("id1", "Contacts", AddressBookType::CONTACT)).Times(1);
+    sendAddressBook("id1", 2);
+    EXPECT_TRUE(listSpoolPath().empty());
+
+    EXPECT_CALL(*m_entriesFactory, addPhone("entry0", "mobile", "555-0100")).Times(1);
+    EXPECT_CALL(*m_entriesFactory, addPhone("entry1", "mobile", "555-0101")).Times(1);
+    EXPECT_TRUE(addressBook->getEntries("id1", m_entriesFactory));
+}
+
+TEST_F(AASBAddressBookTest, failsSpoolingToMissingSpoolPath) {
+    auto addressBook = createAddressBook(m_spoolPath + "/missing");
+    ASSERT_NE(addressBook, nullptr);
+
+    EXPECT_CALL(*m_engineInterface, onAddAddressBook(testing::_, testing::_, testing::_)).Times(0);
+    sendAddressBook("id1", 1);
+    EXPECT_TRUE(listSpoolPath().empty());
+}
+
+}  // namespace addressBook
+}  // namespace unit
+}  // namespace test
+}  // namespace aace
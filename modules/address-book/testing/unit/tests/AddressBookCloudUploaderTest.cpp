@@ -24,6 +24,9 @@
 
 #include <AACE/AddressBook/AddressBook.h>
 #include <AACE/Engine/AddressBook/AddressBookCloudUploader.h>
+#include <AACE/Test/Unit/AddressBook/MockAddressBookServiceInterface.h>
+#include <AACE/Test/Unit/AddressBook/MockAuthDelegateInterface.h>
+#include <AACE/Test/Unit/AddressBook/MockNetworkObservableInterface.h>
 
 namespace aace {
 namespace test {
@@ -38,43 +41,12 @@ static const std::string AUTH_TOKEN = "MockAuthToken";
 
 using json = nlohmann::json;
 
-class MockAuthDelegateInterface : public alexaClientSDK::avsCommon::sdkInterfaces::AuthDelegateInterface {
-public:
-    MOCK_METHOD1(
-        addAuthObserver,
-        void(std::shared_ptr<alexaClientSDK::avsCommon::sdkInterfaces::AuthObserverInterface> observer));
-    MOCK_METHOD1(
-        removeAuthObserver,
-        void(std::shared_ptr<alexaClientSDK::avsCommon::sdkInterfaces::AuthObserverInterface> observer));
-    MOCK_METHOD0(getAuthToken, std::string());
-    MOCK_METHOD1(onAuthFailure, void(const std::string& token));
-};
-
 class MockNetworkInfoProvider : public aace::network::NetworkInfoProvider {
 public:
     MOCK_METHOD0(getNetworkStatus, aace::network::NetworkInfoProvider::NetworkStatus());
     MOCK_METHOD0(getWifiSignalStrength, int());
 };
 
-class MockNetworkObservableInterface : public aace::engine::network::NetworkObservableInterface {
-public:
-    MOCK_METHOD1(addObserver, void(std::shared_ptr<aace::engine::network::NetworkInfoObserver> observer));
-    MOCK_METHOD1(removeObserver, void(std::shared_ptr<aace::engine::network::NetworkInfoObserver> observer));
-};
-
-class MockAddressBookServiceInterface : public aace::engine::addressBook::AddressBookServiceInterface {
-public:
-    MOCK_METHOD2(
-        addObserver,
-        void(std::shared_ptr<aace::engine::addressBook::AddressBookObserver> observer, const std::string& serviceType));
-    MOCK_METHOD1(removeObserver, void(std::shared_ptr<aace::engine::addressBook::AddressBookObserver> observer));
-    MOCK_METHOD2(
-        getEntries,
-        bool(const std::string& id, std::weak_ptr<aace::addressBook::AddressBook::IAddressBookEntriesFactory> factory));
-    MOCK_METHOD1(setDelegate, void(std::shared_ptr<aace::engine::addressBook::AddressBookDelegateInterface> delegate));
-    MOCK_METHOD0(servicesEnablementChanged, void());
-};
-
 class DummyAlexaEndpointInterface : public aace::engine::alexa::AlexaEndpointInterface {
 public:
     std::string getAVSGateway() override {
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2019-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+// JSON for Modern C++
+#include <nlohmann/json.hpp>
+
+#include <gtest/gtest.h>
+#include <gmock/gmock.h>
+
+#include <AVSCommon/AVS/Initialization/AlexaClientSDKInit.h>
+
+#include <AACE/AddressBook/AddressBook.h>
+#include <AACE/Engine/AddressBook/AddressBookCloudUploader.h>
+#include <AACE/Test/Unit/AddressBook/MockACMSServer.h>
+#include <AACE/Test/Unit/AddressBook/MockAddressBookServiceInterface.h>
+#include <AACE/Test/Unit/AddressBook/MockAuthDelegateInterface.h>
+#include <AACE/Test/Unit/AddressBook/MockNetworkObservableInterface.h>
+#include <AACE/Test/Unit/AddressBook/StubLocalStorage.h>
+
+namespace aace {
+namespace test {
+namespace unit {
+namespace addressBook {
+
+namespace {
+
+/// Time to wait for the uploader to reach the expected cloud state
+static const std::chrono::seconds TIMEOUT(10);
+
+using json = nlohmann::json;
+
+// clang-format off
+static const std::string CAPABILITIES_CONFIG_JSON =
+    "{"
+    "    \"deviceInfo\":{"
+    "        \"deviceSerialNumber\":\"MockAddressBookTest\", "
+    "        \"clientId\":\"MockClientId\","
+    "        \"productId\":\"MockProductID\","
+    "        \"manufacturerName\":\"MockManufacturerName\","
+    "        \"description\":\"MockDescription\""
+    "    }"
+    " }";
+// clang-format on
+
+class LocalAlexaEndpoint : public aace::engine::alexa::AlexaEndpointInterface {
+public:
+    explicit LocalAlexaEndpoint(const std::string& acmsEndpoint) : m_acmsEndpoint(acmsEndpoint) {
+    }
+    std::string getAVSGateway() override {
+        return "";
+    }
+    std::string getLWAEndpoint() override {
+        return "";
+    }
+    std::string getACMSEndpoint() override {
+        return m_acmsEndpoint;
+    }
+    std::string getFeatureDiscoveryEndpoint() override {
+        return "";
+    }
+
+private:
+    std::string m_acmsEndpoint;
+};
+
+static std::string buildContact(const std::string& entryId, const std::string& firstName, const std::string& number) {
+    // clang-format off
+    json payload = {
+        {"entryId", entryId},
+        {"name", {{"firstName", firstName}}},
+        {"phoneNumbers", {{{"label", "mobile"}, {"number", number}}}}
+    };
+    // clang-format on
+    return payload.dump();
+}
+
+template <typename Predicate>
+static bool waitFor(Predicate predicate) {
+    auto deadline = std::chrono::steady_clock::now() + TIMEOUT;
+    while (!predicate()) {
+        if (std::chrono::steady_clock::now() > deadline) {
+            return false;
+        }
+        std::this_thread::sleep_for(std::chrono::milliseconds(50));
+    }
+    return true;
+}
+
+}  // namespace
+
+class AddressBookDeltaUploadTest : public ::testing::Test {
+public:
+    void SetUp() override {
+        auto inString = std::shared_ptr<std::istringstream>(new std::istringstream(CAPABILITIES_CONFIG_JSON));
+        alexaClientSDK::avsCommon::avs::initialization::AlexaClientSDKInit::initialize({inString});
+
+        m_server = MockACMSServer::create();
+        ASSERT_NE(nullptr, m_server);
+
+        m_localStorage = std::make_shared<StubLocalStorage>();
+        m_mockAuthDelegate = std::make_shared<testing::NiceMock<MockAuthDelegateInterface>>();
+        m_mockNetworkObservable = std::make_shared<testing::NiceMock<MockNetworkObservableInterface>>();
+        m_mockAddressBookService = std::make_shared<testing::NiceMock<MockAddressBookServiceInterface>>();
+        m_contactAddressBook = std::make_shared<aace::engine::addressBook::AddressBookEntity>(
+            "1000", "TestAddressBook", aace::engine::addressBook::AddressBookType::CONTACT);
+
+        ON_CALL(*m_mockAuthDelegate, getAuthToken()).WillByDefault(testing::Return(std::string("MockAuthToken")));
+        ON_CALL(*m_mockAddressBookService, getEntries("1000", testing::_))
+            .WillByDefault(testing::Invoke(
+                [this](
+                    const std::string& id,
+                    std::weak_ptr<aace::addressBook::AddressBook::IAddressBookEntriesFactory> factory) -> bool {
+                    std::lock_guard<std::mutex> lock(m_mutex);
+                    m_getEntriesCount++;
+                    if (auto sharedRef = factory.lock()) {
+                        for (auto& entry : m_entries) {
+                            sharedRef->addEntry(entry);
+                        }
+                    }
+                    return true;
+                }));
+
+        m_addressBookCloudUploader = createUploader();
+        ASSERT_NE(nullptr, m_addressBookCloudUploader);
+    }
+
+    void TearDown() override {
+        if (m_addressBookCloudUploader != nullptr) {
+            m_addressBookCloudUploader->shutdown();
+        }
+        m_server.reset();
+        if (alexaClientSDK::avsCommon::avs::initialization::AlexaClientSDKInit::isInitialized()) {
+            alexaClientSDK::avsCommon::avs::initialization::AlexaClientSDKInit::uninitialize();
+        }
+    }
+
+    std::shared_ptr<aace::engine::addressBook::AddressBookCloudUploader> createUploader() {
+        auto deviceInfo = alexaClientSDK::avsCommon::utils::DeviceInfo::create(
+            alexaClientSDK::avsCommon::utils::configuration::ConfigurationNode::getRoot());
+        auto uploader = aace::engine::addressBook::AddressBookCloudUploader::create(
+            m_mockAddressBookService,
+            m_mockAuthDelegate,
+            std::move(deviceInfo),
+            aace::network::NetworkInfoProvider::NetworkStatus::CONNECTED,
+            m_mockNetworkObservable,
+            std::make_shared<LocalAlexaEndpoint>(m_server->getEndpoint()),
+            false,
+            m_localStorage);
+        if (uploader != nullptr) {
+            uploader->onAuthStateChange(
+                alexaClientSDK::avsCommon::sdkInterfaces::AuthObserverInterface::State::REFRESHED,
+                alexaClientSDK::avsCommon::sdkInterfaces::AuthObserverInterface::Error::SUCCESS);
+        }
+        return uploader;
+    }
+
+    void setEntries(const std::vector<std::string>& entries) {
+        std::lock_guard<std::mutex> lock(m_mutex);
+        m_entries = entries;
+    }
+
+    bool uploadAndWaitForEntries(const std::vector<std::string>& expectedIds) {
+        m_addressBookCloudUploader->addressBookAdded(m_contactAddressBook);
+        return waitFor([this, &expectedIds]() { return m_server->getEntryIds("automotive") == expectedIds; });
+    }
+
+    std::unique_ptr<MockACMSServer> m_server;
+    std::shared_ptr<StubLocalStorage> m_localStorage;
+    std::shared_ptr<testing::NiceMock<MockAuthDelegateInterface>> m_mockAuthDelegate;
+    std::shared_ptr<testing::NiceMock<MockNetworkObservableInterface>> m_mockNetworkObservable;
+    std::shared_ptr<testing::NiceMock<MockAddressBookServiceInterface>> m_mockAddressBookService;
+    std::shared_ptr<aace::engine::addressBook::AddressBookEntity> m_contactAddressBook;
+    std::shared_ptr<aace::engine::addressBook::AddressBookCloudUploader> m_addressBookCloudUploader;
+
+    std::mutex m_mutex;
+    std::vector<std::string> m_entries;
+    std::atomic<int> m_getEntriesCount{0};
+};
+
+TEST_F(AddressBookDeltaUploadTest, FirstUploadSendsAllEntries) {
+    std::vector<std::string> entries;
+    std::vector<std::string> ids;
+    for (int i = 0; i < 250; i++) {
+        auto id = "entry" + std::to_string(1000 + i);
+        entries.push_back(buildContact(id, "Name" + std::to_string(i), "+1555000" + std::to_string(1000 + i)));
+        ids.push_back(id);
+    }
+    setEntries(entries);
+
+    ASSERT_TRUE(uploadAndWaitForEntries(ids));
+
+    auto counters = m_server->getCounters();
+    EXPECT_EQ(1, counters.addressBooksCreated);
+    EXPECT_EQ(3, counters.entryBatchesUploaded);
+    EXPECT_EQ(250, counters.entriesUploaded);
+}
+
+TEST_F(AddressBookDeltaUploadTest, FailedBatchDeletesAddressBookOnceAfterOtherBatches) {
+    std::vector<std::string> entries;
+    std::vector<std::string> ids;
+    for (int i = 0; i < 250; i++) {
+        auto id = "entry" + std::to_string(1000 + i);
+        entries.push_back(buildContact(id, "Name" + std::to_string(i), "+1555000" + std::to_string(1000 + i)));
+        ids.push_back(id);
+    }
+    setEntries(entries);
+    m_server->failNextEntryBatches(1);
+
+    // The failed upload is retried in full.
+    ASSERT_TRUE(uploadAndWaitForEntries(ids));
+
+    // The two other batches of the first attempt are uploaded before its address book is deleted, once, then the
+    // retry uploads the three batches into a new address book.
+    auto counters = m_server->getCounters();
+    EXPECT_EQ(1, counters.addressBookDeleteRequests);
+    EXPECT_EQ(1, counters.addressBooksDeleted);
+    EXPECT_EQ(2, counters.addressBooksCreated);
+    EXPECT_EQ(5, counters.entryBatchesUploaded);
+}
+
+TEST_F(AddressBookDeltaUploadTest, UnchangedAddressBookIsNotUploadedAgain) {
+    setEntries({buildContact("001", "Alice", "+15550001"), buildContact("002", "Bob", "+15550002")});
+    ASSERT_TRUE(uploadAndWaitForEntries({"001", "002"}));
+    m_server->resetCounters();
+
+    m_addressBookCloudUploader->addressBookAdded(m_contactAddressBook);
+    ASSERT_TRUE(waitFor([this]() { return m_getEntriesCount == 2; }));
+
+    // Allow the uploader to finish processing the address book.
+    std::this_thread::sleep_for(std::chrono::seconds(2));
+    auto counters = m_server->getCounters();
+    EXPECT_EQ(0, counters.entriesUploaded);
+    EXPECT_EQ(0, counters.entriesDeleted);
+    EXPECT_EQ(0, counters.addressBooksCreated);
+    EXPECT_EQ(0, counters.addressBooksDeleted);
+}
+
+TEST_F(AddressBookDeltaUploadTest, OnlyChangedEntriesAreUploaded) {
+    setEntries({buildContact("001", "Alice", "+15550001"),
+                buildContact("002", "Bob", "+15550002"),
+                buildContact("003", "Carol", "+15550003")});
+    ASSERT_TRUE(uploadAndWaitForEntries({"001", "002", "003"}));
+    m_server->resetCounters();
+
+    // 001 unchanged, 002 modified, 003 removed, 004 added
+    setEntries({buildContact("001", "Alice", "+15550001"),
+                buildContact("002", "Bob", "+15559999"),
+                buildContact("004", "Dave", "+15550004")});
+    ASSERT_TRUE(uploadAndWaitForEntries({"001", "002", "004"}));
+
+    auto counters = m_server->getCounters();
+    EXPECT_EQ(0, counters.addressBooksCreated);
+    EXPECT_EQ(0, counters.addressBooksDeleted);
+    EXPECT_EQ(2, counters.entriesDeleted);
+    EXPECT_EQ(2, counters.entriesUploaded);
+}
+
+TEST_F(AddressBookDeltaUploadTest, ManifestSurvivesUploaderRestart) {
+    setEntries({buildContact("001", "Alice", "+15550001"), buildContact("002", "Bob", "+15550002")});
+    ASSERT_TRUE(uploadAndWaitForEntries({"001", "002"}));
+
+    m_addressBookCloudUploader->shutdown();
+    m_addressBookCloudUploader = createUploader();
+    ASSERT_NE(nullptr, m_addressBookCloudUploader);
+    m_server->resetCounters();
+
+    setEntries({buildContact("001", "Alice", "+15550001"),
+                buildContact("002", "Bob", "+15550002"),
+                buildContact("003", "Carol", "+15550003")});
+    ASSERT_TRUE(uploadAndWaitForEntries({"001", "002", "003"}));
+
+    auto counters = m_server->getCounters();
+    EXPECT_EQ(0, counters.addressBooksCreated);
+    EXPECT_EQ(1, counters.entriesUploaded);
+}
+
+TEST_F(AddressBookDeltaUploadTest, RemovedAddressBookIsUploadedInFullAgain) {
+    setEntries({buildContact("001", "Alice", "+15550001")});
+    ASSERT_TRUE(uploadAndWaitForEntries({"001"}));
+
+    m_addressBookCloudUploader->addressBookRemoved(m_contactAddressBook);
+    ASSERT_TRUE(waitFor([this]() { return m_server->getEntryIds("automotive").empty(); }));
+    m_server->resetCounters();
+
+    ASSERT_TRUE(uploadAndWaitForEntries({"001"}));
+    auto counters = m_server->getCounters();
+    EXPECT_EQ(1, counters.addressBooksCreated);
+    EXPECT_EQ(1, counters.entriesUploaded);
+}
+
+}  // namespace addressBook
+}  // namespace unit
+}  // namespace test
+}  // namespace aace
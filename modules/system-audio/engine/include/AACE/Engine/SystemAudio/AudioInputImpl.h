@@ -16,12 +16,17 @@
 #ifndef AACE_ENGINE_SYSTEMAUDIO_AUDIO_INPUT_IMPL_H
 #define AACE_ENGINE_SYSTEMAUDIO_AUDIO_INPUT_IMPL_H
 
+#include <chrono>
 #include <memory>
-#if defined(DUMP_AUDIO) || defined(UTTERANCE_FILE_INPUT)
+#ifdef DUMP_AUDIO
 #include <fstream>
 #endif
 #include <AACE/Audio/AudioInput.h>
+#include <AACE/Engine/SystemAudio/RingBuffer.h>
 #include <AACE/Engine/SystemAudio/Throttle.h>
+#ifdef UTTERANCE_FILE_INPUT
+#include <AACE/Engine/SystemAudio/UtteranceInjector.h>
+#endif
 #include <aal/aal.h>
 
 namespace aace {
@@ -50,6 +55,9 @@ public:
 private:
     AudioInputImpl(int moduleId, const std::string& deviceName, int sampleRate, const std::string& name);
     aal_handle_t createRecorder();
+    void deliver(const int16_t* data, const size_t length);
+    // logs the samples dropped by the capture callback, at most once per interval unless forced
+    void reportOverruns(bool force);
 
     int m_moduleId;
     std::string m_name;
@@ -58,13 +66,19 @@ private:
     int m_sampleRate;
 #ifdef DUMP_AUDIO
     std::ofstream m_audioDump;
+    std::unique_ptr<RingBufferWorker<int16_t>> m_audioDumpWriter;
 #endif
 #ifdef UTTERANCE_FILE_INPUT
-    std::ifstream m_utterance;
+    std::unique_ptr<UtteranceInjector> m_injector;
 #endif
 #ifdef THROTTLE_AUDIO
     Throttle<int16_t> m_throttle;
 #endif
+    // decouples the AAL capture callback from the subscribers of this audio input
+    RingBufferWorker<int16_t> m_delivery;
+    // accessed only on the delivery worker, or after it was joined
+    size_t m_reportedDroppedCount = 0;
+    std::chrono::steady_clock::time_point m_lastOverrunReport;
 };
 
 }  // namespace systemAudio
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2019-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+#ifndef AACE_ENGINE_SYSTEMAUDIO_RING_BUFFER_H
+#define AACE_ENGINE_SYSTEMAUDIO_RING_BUFFER_H
+
+#include <algorithm>
+#include <atomic>
+#include <chrono>
+#include <condition_variable>
+#include <cstring>
+#include <functional>
+#include <mutex>
+#include <thread>
+#include <vector>
+
+namespace aace {
+namespace engine {
+namespace systemAudio {
+
+/**
+ * RingBuffer is a bounded single-producer / single-consumer queue of samples. All storage is
+ * allocated up front, so neither @c write() nor @c read() allocate memory. When the buffer is
+ * full, @c write() stores as much as fits and drops the rest instead of blocking the producer.
+ */
+template <typename T>
+class RingBuffer {
+public:
+    explicit RingBuffer(size_t capacity) : m_buffer(capacity + 1), m_head{0}, m_tail{0} {
+    }
+
+    /**
+     * Copies up to @c length samples into the buffer. Safe to call from a real-time thread.
+     *
+     * @return The number of samples actually written.
+     */
+    size_t write(const T* data, size_t length) {
+        const size_t size = m_buffer.size();
+        const size_t tail = m_tail.load(std::memory_order_relaxed);
+        const size_t head = m_head.load(std::memory_order_acquire);
+        const size_t count = std::min(length, (head + size - tail - 1) % size);
+
+        const size_t first = std::min(count, size - tail);
+        std::memcpy(&m_buffer[tail], data, first * sizeof(T));
+        std::memcpy(&m_buffer[0], data + first, (count - first) * sizeof(T));
+
+        m_tail.store((tail + count) % size, std::memory_order_release);
+        return count;
+    }
+
+    /**
+     * Copies up to @c length samples out of the buffer.
+     *
+     * @return The number of samples actually read.
+     */
+    size_t read(T* data, size_t length) {
+        const size_t size = m_buffer.size();
+        const size_t head = m_head.load(std::memory_order_relaxed);
+        const size_t tail = m_tail.load(std::memory_order_acquire);
+        const size_t count = std::min(length, (tail + size - head) % size);
+
+        const size_t first = std::min(count, size - head);
+        std::memcpy(data, &m_buffer[head], first * sizeof(T));
+        std::memcpy(data + first, &m_buffer[0], (count - first) * sizeof(T));
+
+        m_head.store((head + count) % size, std::memory_order_release);
+        return count;
+    }
+
+    size_t available() const {
+        const size_t size = m_buffer.size();
+        return (m_tail.load(std::memory_order_acquire) + size - m_head.load(std::memory_order_acquire)) % size;
+    }
+
+    size_t capacity() const {
+        return m_buffer.size() - 1;
+    }
+
+private:
+    std::vector<T> m_buffer;
+    std::atomic<size_t> m_head;
+    std::atomic<size_t> m_tail;
+};
+
+/**
+ * RingBufferWorker decouples a producer from a slow consumer. Data pushed from the producer side
+ * is copied into a @c RingBuffer and delivered to the output function in a separate thread, so
+ * the producer (for example an AAL capture callback) never waits on the consumer. Samples that
+ * do not fit into the ring are dropped and counted.
+ */
+template <typename T>
+class RingBufferWorker {
+public:
+    using OutputFunc = std::function<void(const T* data, size_t length)>;
+
+    RingBufferWorker(size_t capacity, size_t chunk_size, OutputFunc output) :
+            m_ring{capacity}, m_chunk(chunk_size), m_output{std::move(output)} {
+    }
+
+    ~RingBufferWorker() {
+        stop();
+    }
+
+    void start() {
+        std::lock_guard<std::mutex> lock(m_mutex);
+        if (m_thread.joinable()) {
+            return;
+        }
+        m_quit = false;
+        m_thread = std::thread([this] { run(); });
+    }
+
+    /**
+     * Delivers any remaining data and joins the worker thread.
+     */
+    void stop() {
+        {
+            std::lock_guard<std::mutex> lock(m_mutex);
+            if (!m_thread.joinable()) {
+                return;
+            }
+            m_quit = true;
+            m_cv.notify_all();
+        }
+        m_thread.join();
+        m_thread = std::thread();
+    }
+
+    /**
+     * Queues data for delivery without blocking on the consumer.
+     *
+     * @return The number of samples that had to be dropped because the ring was full.
+     */
+    size_t push(const T* data, size_t length) {
+        size_t dropped = length - m_ring.write(data, length);
+        if (dropped > 0) {
+            m_dropped.fetch_add(dropped, std::memory_order_relaxed);
+        }
+        m_cv.notify_one();
+        return dropped;
+    }
+
+    size_t getDroppedCount() const {
+        return m_dropped.load(std::memory_order_relaxed);
+    }
+
+private:
+    void run() {
+        std::unique_lock<std::mutex> lock(m_mutex, std::defer_lock);
+        for (;;) {
+            lock.lock();
+            // the producer does not take the lock when notifying, so use a bounded wait
+            m_cv.wait_for(lock, std::chrono::milliseconds(10), [this] { return m_ring.available() > 0 || m_quit; });
+            bool quit = m_quit;
+            lock.unlock();
+
+            drain();
+            if (quit) {
+                return;
+            }
+        }
+    }
+
+    void drain() {
+        size_t count;
+        while ((count = m_ring.read(m_chunk.data(), m_chunk.size())) > 0) {
+            m_output(m_chunk.data(), count);
+        }
+    }
+
+private:
+    RingBuffer<T> m_ring;
+    std::vector<T> m_chunk;
+    OutputFunc m_output;
+    std::atomic<size_t> m_dropped{0};
+
+    std::mutex m_mutex;
+    std::condition_variable m_cv;
+    std::thread m_thread;
+    bool m_quit = false;
+};
+
+}  // namespace systemAudio
+}  // namespace engine
+}  // namespace aace
+
+#endif  // AACE_ENGINE_SYSTEMAUDIO_RING_BUFFER_H
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+#ifndef AACE_ENGINE_SYSTEMAUDIO_UTTERANCE_INJECTOR_H
+#define AACE_ENGINE_SYSTEMAUDIO_UTTERANCE_INJECTOR_H
+
+#include <chrono>
+#include <condition_variable>
+#include <fstream>
+#include <functional>
+#include <mutex>
+#include <string>
+#include <thread>
+#include <vector>
+
+namespace aace {
+namespace engine {
+namespace systemAudio {
+
+/**
+ * UtteranceInjector plays back a raw 16-bit PCM file as if it was captured by a microphone.
+ * Fragments are delivered in real time on a dedicated thread. Each deadline is derived from the
+ * number of samples delivered since the start on the monotonic clock, so the pacing does not drift
+ * over long files. The injection can be cancelled at any time, and @c stop() joins the thread.
+ */
+class UtteranceInjector {
+public:
+    using OutputFunc = std::function<void(const int16_t* data, size_t length)>;
+
+    UtteranceInjector(int sampleRate, std::chrono::milliseconds fragmentDuration, OutputFunc output);
+    ~UtteranceInjector();
+
+    /**
+     * Opens @c path and starts the injection thread.
+     *
+     * @return @c false if the file could not be opened or an injection is already running.
+     */
+    bool start(const std::string& path);
+
+    /**
+     * Cancels the injection if it is still running and waits for the injection thread to finish.
+     *
+     * @return @c true if an injection had been started since the last call to @c stop().
+     */
+    bool stop();
+
+    bool isActive();
+
+private:
+    void run();
+
+    using Clock = std::chrono::steady_clock;
+
+    const int m_sampleRate;
+    OutputFunc m_output;
+    std::vector<int16_t> m_fragment;
+    std::ifstream m_file;
+
+    std::mutex m_mutex;
+    std::condition_variable m_cv;
+    std::thread m_thread;
+    bool m_cancel = false;
+    bool m_active = false;
+};
+
+}  // namespace systemAudio
+}  // namespace engine
+}  // namespace aace
+
+#endif  // AACE_ENGINE_SYSTEMAUDIO_UTTERANCE_INJECTOR_H
@@ -15,11 +15,15 @@
 
 #include <AACE/Engine/SystemAudio/AudioInputImpl.h>
 #include <AACE/Engine/Core/EngineMacros.h>
+#include <chrono>
 #include <cstdio>
 #include <thread>
 
 #define DEFAULT_AUDIO_FRAGMENT_DURATION 20
 #define DEFAULT_AUDIO_FRAGMENT_SAMPLES 320
+#define DEFAULT_SAMPLE_RATE 16000
+// capacity of the capture and dump rings, in milliseconds of audio
+#define DEFAULT_RING_DURATION 1000
 
 namespace aace {
 namespace engine {
@@ -28,28 +32,64 @@ namespace systemAudio {
 // String to identify log entries originating from this file.
 static const std::string TAG("aace.systemAudio.AudioInputImpl");
 
+// minimum interval between two capture overrun warnings
+static constexpr std::chrono::seconds OVERRUN_REPORT_INTERVAL(1);
+
+static size_t ringCapacity(int sampleRate) {
+    return static_cast<size_t>(sampleRate > 0 ? sampleRate : DEFAULT_SAMPLE_RATE) * DEFAULT_RING_DURATION / 1000;
+}
+
 void AudioInputImpl::onStreamStart() {
 #ifdef DUMP_AUDIO
     std::string dumpFile = std::tmpnam(nullptr);
     AACE_VERBOSE(LX("microphone").d("name", m_name).d("audioDump", dumpFile));
     m_audioDump.open(dumpFile, std::ios::out | std::ios::binary);
+    m_audioDumpWriter->start();
 #endif
 }
 
 // static
 void AudioInputImpl::onStreamStop(aal_status_t reason) {
 #ifdef DUMP_AUDIO
+    // drain pending samples to the file before closing it
+    m_audioDumpWriter->stop();
     m_audioDump.close();
+    if (auto dropped = m_audioDumpWriter->getDroppedCount()) {
+        AACE_WARN(LX(TAG).m("audioDumpIncomplete").d("name", m_name).d("droppedSamples", dropped));
+    }
 #endif
 }
 
 // static
 void AudioInputImpl::onStreamDataCallback(const int16_t* data, const size_t length) {
+    // runs on the AAL capture thread: only copy into the rings, never block or allocate here
 #ifdef DUMP_AUDIO
-    if (m_audioDump.is_open()) {
-        m_audioDump.write(reinterpret_cast<const char*>(data), length * 2);
-    }
+    m_audioDumpWriter->push(data, length);
 #endif
+    // dropped samples are counted by the ring and reported from the delivery worker
+    m_delivery.push(data, length);
+}
+
+void AudioInputImpl::reportOverruns(bool force) {
+    auto dropped = m_delivery.getDroppedCount();
+    if (dropped == m_reportedDroppedCount) {
+        return;
+    }
+    auto now = std::chrono::steady_clock::now();
+    if (!force && now - m_lastOverrunReport < OVERRUN_REPORT_INTERVAL) {
+        return;
+    }
+    AACE_WARN(LX(TAG)
+                  .m("captureOverrun")
+                  .d("name", m_name)
+                  .d("droppedSamples", dropped - m_reportedDroppedCount)
+                  .d("totalDroppedSamples", dropped));
+    m_reportedDroppedCount = dropped;
+    m_lastOverrunReport = now;
+}
+
+void AudioInputImpl::deliver(const int16_t* data, const size_t length) {
+    reportOverruns(false);
 #ifdef THROTTLE_AUDIO
     m_throttle.write(data, length);
 #else
@@ -95,13 +135,38 @@ AudioInputImpl::AudioInputImpl(
             std::chrono::milliseconds(DEFAULT_AUDIO_FRAGMENT_DURATION),
             [this](const int16_t* data, size_t length) { write(data, length); })
 #endif
-{
+        ,
+        m_delivery(
+            ringCapacity(sampleRate),
+            DEFAULT_AUDIO_FRAGMENT_SAMPLES,
+            [this](const int16_t* data, size_t length) { deliver(data, length); }) {
+#ifdef DUMP_AUDIO
+    m_audioDumpWriter = std::unique_ptr<RingBufferWorker<int16_t>>(new RingBufferWorker<int16_t>(
+        ringCapacity(sampleRate), DEFAULT_AUDIO_FRAGMENT_SAMPLES, [this](const int16_t* data, size_t length) {
+            if (m_audioDump.is_open()) {
+                m_audioDump.write(reinterpret_cast<const char*>(data), length * sizeof(int16_t));
+            }
+        }));
+#endif
+#ifdef UTTERANCE_FILE_INPUT
+    m_injector = std::unique_ptr<UtteranceInjector>(new UtteranceInjector(
+        sampleRate > 0 ? sampleRate : DEFAULT_SAMPLE_RATE,
+        std::chrono::milliseconds(DEFAULT_AUDIO_FRAGMENT_DURATION),
+        [this](const int16_t* data, size_t length) { write(data, length); }));
+#endif
 }
 
 AudioInputImpl::~AudioInputImpl() {
+#ifdef UTTERANCE_FILE_INPUT
+    m_injector->stop();
+#endif
     if (m_recorder) {
         aal_recorder_destroy(m_recorder);
     }
+    m_delivery.stop();
+#ifdef DUMP_AUDIO
+    m_audioDumpWriter->stop();
+#endif
 }
 
 std::unique_ptr<AudioInputImpl> AudioInputImpl::create(
@@ -146,28 +211,10 @@ aal_handle_t AudioInputImpl::createRecorder() {
 
 bool AudioInputImpl::startAudioInput() {
 #ifdef UTTERANCE_FILE_INPUT
-    m_utterance.open("__utterance__", std::ios::binary);
-    if (m_utterance.is_open()) {
+    // join a previous injection that ran to the end of its file
+    m_injector->stop();
+    if (m_injector->start("__utterance__")) {
         AACE_VERBOSE(LX(TAG).m("Read audio from file"));
-        std::thread thread([this]() {
-            auto fragTime = std::chrono::high_resolution_clock::now();
-            int16_t buffer[DEFAULT_AUDIO_FRAGMENT_SAMPLES] = {0};
-            for (;;) {
-                if (!m_utterance.is_open() || m_utterance.eof()) {
-                    break;
-                }
-
-                m_utterance.read(reinterpret_cast<char*>(buffer), sizeof(buffer));
-                auto count = m_utterance.gcount();
-                m_utterance.tellg();
-
-                write(buffer, count / sizeof(int16_t));
-
-                fragTime += std::chrono::milliseconds(DEFAULT_AUDIO_FRAGMENT_DURATION);
-                std::this_thread::sleep_until(fragTime);
-            }
-        });
-        thread.detach();
         return true;
     }
 #endif
@@ -178,6 +225,7 @@ bool AudioInputImpl::startAudioInput() {
             ThrowIfNull(m_recorder, "createRecorderFailed");
         }
 
+        m_delivery.start();
         aal_recorder_play(m_recorder);
         return true;
     } catch (std::exception& ex) {
@@ -188,8 +236,7 @@ bool AudioInputImpl::startAudioInput() {
 
 bool AudioInputImpl::stopAudioInput() {
 #ifdef UTTERANCE_FILE_INPUT
-    if (m_utterance.is_open()) {
-        m_utterance.close();
+    if (m_injector->stop()) {
         return true;
     }
 #endif
@@ -198,6 +245,9 @@ bool AudioInputImpl::stopAudioInput() {
         AACE_VERBOSE(LX(TAG));
         ThrowIfNull(m_recorder, "nullRecorder");
         aal_recorder_stop(m_recorder);
+        // deliver the samples still in the ring and join the worker until the next start
+        m_delivery.stop();
+        reportOverruns(true);
         return true;
     } catch (std::exception& ex) {
         AACE_ERROR(LX(TAG).d("reason", ex.what()));
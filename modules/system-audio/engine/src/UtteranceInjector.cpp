@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+#include <AACE/Engine/SystemAudio/UtteranceInjector.h>
+#include <AACE/Engine/Core/EngineMacros.h>
+
+namespace aace {
+namespace engine {
+namespace systemAudio {
+
+// String to identify log entries originating from this file.
+static const std::string TAG("aace.systemAudio.UtteranceInjector");
+
+UtteranceInjector::UtteranceInjector(int sampleRate, std::chrono::milliseconds fragmentDuration, OutputFunc output) :
+        m_sampleRate(sampleRate),
+        m_output(std::move(output)),
+        m_fragment(static_cast<size_t>(sampleRate * fragmentDuration.count() / 1000)) {
+}
+
+UtteranceInjector::~UtteranceInjector() {
+    stop();
+}
+
+bool UtteranceInjector::start(const std::string& path) {
+    std::lock_guard<std::mutex> lock(m_mutex);
+    if (m_active || m_thread.joinable()) {
+        return false;
+    }
+
+    m_file.open(path, std::ios::binary);
+    if (!m_file.is_open()) {
+        return false;
+    }
+
+    AACE_VERBOSE(LX(TAG).d("path", path).d("sampleRate", m_sampleRate).d("fragmentSamples", m_fragment.size()));
+    m_cancel = false;
+    m_active = true;
+    m_thread = std::thread(&UtteranceInjector::run, this);
+    return true;
+}
+
+bool UtteranceInjector::stop() {
+    {
+        std::lock_guard<std::mutex> lock(m_mutex);
+        if (!m_thread.joinable()) {
+            return false;
+        }
+        m_cancel = true;
+        m_cv.notify_all();
+    }
+    m_thread.join();
+    m_thread = std::thread();
+    return true;
+}
+
+bool UtteranceInjector::isActive() {
+    std::lock_guard<std::mutex> lock(m_mutex);
+    return m_active;
+}
+
+void UtteranceInjector::run() {
+    const auto start = Clock::now();
+    uint64_t delivered = 0;
+    uint64_t lateFragments = 0;
+
+    std::unique_lock<std::mutex> lock(m_mutex, std::defer_lock);
+    while (!m_file.eof()) {
+        m_file.read(reinterpret_cast<char*>(m_fragment.data()), m_fragment.size() * sizeof(int16_t));
+        auto count = static_cast<size_t>(m_file.gcount()) / sizeof(int16_t);
+        if (count == 0) {
+            break;
+        }
+
+        m_output(m_fragment.data(), count);
+        delivered += count;
+
+        // compute the next deadline from the total sample count to avoid accumulating rounding errors
+        auto deadline = start + std::chrono::microseconds(delivered * 1000000 / m_sampleRate);
+        if (Clock::now() > deadline) {
+            lateFragments++;
+        }
+
+        lock.lock();
+        if (m_cv.wait_until(lock, deadline, [this] { return m_cancel; })) {
+            lock.unlock();
+            break;
+        }
+        lock.unlock();
+    }
+
+    auto elapsed = std::chrono::duration_cast<std::chrono::milliseconds>(Clock::now() - start);
+    AACE_VERBOSE(LX(TAG)
+                     .m("injectionFinished")
+                     .d("samples", delivered)
+                     .d("elapsedMs", elapsed.count())
+                     .d("lateFragments", lateFragments));
+
+    lock.lock();
+    m_file.close();
+    m_active = false;
+}
+
+}  // namespace systemAudio
+}  // namespace engine
+}  // namespace aace
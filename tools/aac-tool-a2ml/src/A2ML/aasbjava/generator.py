@@ -0,0 +1,386 @@
+import os, re, logging
+from Cheetah.Template import Template
+
+class Generator:
+
+    # java types of the primitive A2ML types, with their streaming reader and writer expressions
+    type_map = {
+        "string": {
+            "type": "String",
+            "read": "reader.nextString()",
+            "write": "writer.value(%s)",
+        },
+        "int": {
+            "type": "int",
+            "boxed": "Integer",
+            "read": "reader.nextInt()",
+            "write": "writer.value(%s)",
+        },
+        "long": {
+            "type": "long",
+            "boxed": "Long",
+            "read": "reader.nextLong()",
+            "write": "writer.value(%s)",
+            "suffix": "L",
+        },
+        "int32": {
+            "type": "int",
+            "boxed": "Integer",
+            "read": "reader.nextInt()",
+            "write": "writer.value(%s)",
+        },
+        "int64": {
+            "type": "long",
+            "boxed": "Long",
+            "read": "reader.nextLong()",
+            "write": "writer.value(%s)",
+            "suffix": "L",
+        },
+        "float": {
+            "type": "float",
+            "boxed": "Float",
+            "read": "(float) reader.nextDouble()",
+            # boxed so the shortest decimal representation of the float is written
+            "write": "writer.value(Float.valueOf(%s))",
+            "suffix": "f",
+        },
+        "double": {
+            "type": "double",
+            "boxed": "Double",
+            "read": "reader.nextDouble()",
+            "write": "writer.value(%s)",
+        },
+        "bool": {
+            "type": "boolean",
+            "boxed": "Boolean",
+            "read": "reader.nextBoolean()",
+            "write": "writer.value(%s)",
+        },
+        "dict": {
+            "type": "Map<String, String>",
+            "read": "AASBJson.readStringMap(reader)",
+            "write": "AASBJson.writeStringMap(writer, %s)",
+        },
+        "list": {
+            "type": "List<String>",
+            "read": "AASBJson.readList(reader, JsonReader::nextString)",
+            "write": "AASBJson.writeList(writer, %s, JsonWriter::value)",
+        },
+    }
+
+    java_package_root = "com.amazon."
+    codec_namespace = "aasb.message"
+    codec_class = "AASBJson"
+
+    def __init__( self, model ):
+        self.model = model
+        self.template_path = os.path.abspath( os.path.join( __file__, "..", "templates" ) )
+
+    def generate( self, output_folder ):
+        self.output_folder = output_folder
+        self._generate_file( self.codec_namespace, self.codec_class, "codec.java.tmpl", {} )
+        for next in self.model.get_exported_interfaces():
+            self.generate_interface( next )
+
+    def generate_interface( self, interface ):
+        # message versioning not supported yet!
+        if interface.version != self.model.version:
+            raise Exception( f"Interface version does not match expected message version: specified={interface.version}, expected={self.model.version}" )
+        for next in interface.get_message_names():
+            message = interface.get_message( next )
+            if not message:
+                raise Exception( "Unknown message type: %s" % next )
+            if message.messageType == "publish":
+                self.generate_type( message, message.name, "message.java.tmpl" )
+            if message.reply:
+                self.generate_type( message, "%sReply" % message.name, "reply.java.tmpl" )
+        for next in list(interface.get_type_names( "enum" )) + list(interface.get_type_names( "struct" )):
+            type_def = interface.get_type( next )
+            if not type_def:
+                raise Exception( "Unknown type: %s" % next )
+            self.generate_type( type_def, type_def.name, f"{type_def.type}.java.tmpl" )
+
+    def generate_type( self, type_def, class_name, type_tmpl ):
+        self._generate_file( type_def.namespace, class_name, type_tmpl, { "type": type_def, "class_name": class_name } )
+
+    def _generate_file( self, namespace, class_name, type_tmpl, args ):
+        args = dict( args, generator=self, package=self.get_package( namespace ) )
+        header_template = Template( file=os.path.join( self.template_path, "header.java.tmpl" ), searchList=[args] )
+        type_template = Template( file=os.path.join( self.template_path, type_tmpl ),
+            searchList=[args,{ "header": header_template }] )
+        output_file_path = os.path.join( self.output_folder, "java", *self.get_package( namespace ).split( "." ) )
+        os.makedirs( output_file_path, exist_ok=True )
+        with open( os.path.join( output_file_path, f"{class_name}.java" ), "w" ) as file:
+            file.write( str( type_template ) )
+
+    def get_package( self, namespace ):
+        # package names are lower case so the generated folders do not depend on a case sensitive file system
+        return self.java_package_root + namespace.lower()
+
+    def get_codec_import( self ):
+        return "%s.%s" % (self.get_package( self.codec_namespace ), self.codec_class)
+
+    def split_namespace_name( self, name ):
+        components = name.split( "." )
+        if len( components ) == 1:
+            return (None,name)
+        else:
+            return (".".join( components[0:-1] ), components[-1])
+
+    #
+    # type resolution
+    #
+
+    def resolve_type( self, type_name, interface ):
+        """
+        Resolves an A2ML type to a tuple of (kind, java type, type definition). Kind is "primitive", "enum",
+        "struct" or "list", in which case the type definition is the resolved element type tuple.
+        """
+        if type_name in self.type_map:
+            return ("primitive", self.type_map[type_name]["type"], type_name)
+        if type_name.startswith( "list:" ):
+            element = self.resolve_type( type_name.split( ":", 1 )[1], interface )
+            return ("list", "List<%s>" % self.get_boxed_type( element ), element)
+        type_def = self.find_type( type_name, interface )
+        if not type_def:
+            raise Exception( f"Unknown type: {type_name} in interface {interface.name}" )
+        if type_def.type == "alias":
+            return self.resolve_type( type_def.alias, type_def.interface )
+        java_type = type_def.name
+        if type_def.namespace != self.current_namespace:
+            java_type = "%s.%s" % (self.get_package( type_def.namespace ), type_def.name)
+        return (type_def.type, java_type, type_def)
+
+    def find_type( self, type_name, interface ):
+        if interface.has_type( type_name ):
+            return interface.get_type( type_name )
+        namespace, name = self.split_namespace_name( type_name )
+        for next in self.model.interfaces.values():
+            if next.namespace == namespace and next.has_type( type_name ):
+                return next.get_type( type_name )
+        return None
+
+    def get_boxed_type( self, resolved ):
+        kind, java_type, type_def = resolved
+        if kind == "primitive":
+            return self.type_map[type_def].get( "boxed", java_type )
+        return java_type
+
+    def is_reference( self, resolved ):
+        return resolved[0] != "primitive" or not "boxed" in self.type_map[resolved[2]]
+
+    #
+    # value helpers
+    #
+
+    def get_field_name( self, value_def ):
+        return "m%s%s" % (value_def.name[0].upper(), value_def.name[1:])
+
+    def get_constant_name( self, value_def ):
+        return re.sub( "([a-z0-9])([A-Z])", r"\1_\2", value_def.name ).upper()
+
+    def get_source( self, value_def ):
+        return self.get_constant_name( value_def ) if value_def.value is not None else self.get_field_name( value_def )
+
+    def get_accessor_suffix( self, value_def ):
+        return "%s%s" % (value_def.name[0].upper(), value_def.name[1:])
+
+    def get_java_value( self, resolved, value ):
+        kind, java_type, type_def = resolved
+        if kind == "list":
+            if value in ({}, [], None, ""):
+                return "Collections.emptyList()"
+            raise Exception( f"Unsupported list value: {value}" )
+        if kind == "enum":
+            if value in (None, ""):
+                return "null"
+            # values may be written as C++ enumerators, e.g. ConnectionStatus::DISCONNECTED
+            return "%s.%s" % (java_type, str( value ).split( "::" )[-1].split( "." )[-1])
+        if kind == "struct":
+            if value in ({}, None):
+                return "null"
+            raise Exception( f"Unsupported struct value: {value}" )
+        if type_def == "string":
+            return '"%s"' % str( value ).replace( "\\", "\\\\" ).replace( '"', '\\"' )
+        if type_def == "bool":
+            return "true" if value in (True, "true", "True") else "false"
+        if type_def == "dict":
+            return "Collections.emptyMap()"
+        if type_def == "list":
+            if value in ({}, [], None, ""):
+                return "Collections.emptyList()"
+            raise Exception( f"Unsupported list value: {value}" )
+        return "%s%s" % (value, self.type_map[type_def].get( "suffix", "" ))
+
+    def get_copy_expression( self, resolved, expression ):
+        # collections are copied when set, so the built values stay immutable and can share them
+        kind, java_type, type_def = resolved
+        if kind == "list" or (kind == "primitive" and type_def == "list"):
+            return "AASBJson.copyList(%s)" % expression
+        if kind == "primitive" and type_def == "dict":
+            return "AASBJson.copyMap(%s)" % expression
+        return expression
+
+    def get_read_expression( self, resolved ):
+        kind, java_type, type_def = resolved
+        if kind == "primitive":
+            return self.type_map[type_def]["read"]
+        if kind == "list":
+            element_kind, element_type, element_def = type_def
+            if element_kind == "primitive":
+                return "AASBJson.readList(reader, r -> %s)" % self.type_map[element_def]["read"].replace( "reader.", "r." )
+            return "AASBJson.readList(reader, %s::read)" % element_type
+        return "%s.read(reader)" % java_type
+
+    def get_write_statement( self, resolved, expression ):
+        kind, java_type, type_def = resolved
+        if kind == "primitive":
+            return self.type_map[type_def]["write"] % expression + ";"
+        if kind == "list":
+            element_kind, element_type, element_def = type_def
+            if element_kind == "primitive":
+                element_write = self.type_map[element_def]["write"].replace( "writer.", "w." ) % "v"
+                return "AASBJson.writeList(writer, %s, (w, v) -> %s);" % (expression, element_write)
+            return "AASBJson.writeList(writer, %s, (w, v) -> v.write(w));" % expression
+        return "%s.write(writer);" % expression
+
+    #
+    # code generation
+    #
+
+    def get_value_class( self, class_name, values, namespace, interface, modifiers, indent ):
+        """
+        Returns an immutable value class with a builder and its streaming serializer and deserializer.
+        """
+        self.current_namespace = namespace
+        fields = []
+        for next in values or []:
+            resolved = self.resolve_type( next.type, interface )
+            fields.append( (next, resolved) )
+        lines = []
+        lines.append( "%sfinal class %s {" % (modifiers, class_name) )
+        # values with a constant value are not settable
+        constants = [(value_def, resolved) for value_def, resolved in fields if value_def.value is not None]
+        settable = [(value_def, resolved) for value_def, resolved in fields if value_def.value is None]
+        for value_def, resolved in constants:
+            lines.append( "    private static final %s %s = %s;" % (resolved[1], self.get_constant_name( value_def ), self.get_java_value( resolved, value_def.value )) )
+        if constants:
+            lines.append( "" )
+        for value_def, resolved in settable:
+            lines.append( "    private final %s %s;" % (resolved[1], self.get_field_name( value_def )) )
+        if settable:
+            lines.append( "" )
+        # constructor
+        lines.append( "    private %s(Builder builder) {" % class_name )
+        for value_def, resolved in settable:
+            field = self.get_field_name( value_def )
+            lines.append( "        %s = builder.%s;" % (field, field) )
+        lines.append( "    }" )
+        # getters
+        for value_def, resolved in fields:
+            lines.append( "" )
+            if value_def.description:
+                lines.append( "    /**" )
+                lines.append( "     * @return %s" % self.get_doc( value_def.description ) )
+                lines.append( "     */" )
+            source = self.get_source( value_def )
+            lines.append( "    public %s get%s() {" % (resolved[1], self.get_accessor_suffix( value_def )) )
+            lines.append( "        return %s;" % source )
+            lines.append( "    }" )
+        lines.append( "" )
+        lines.append( "    public static Builder builder() {" )
+        lines.append( "        return new Builder();" )
+        lines.append( "    }" )
+        # builder
+        lines.append( "" )
+        lines.append( "    public static final class Builder {" )
+        for value_def, resolved in settable:
+            field = self.get_field_name( value_def )
+            if value_def.optional:
+                lines.append( "        private %s %s = %s;" % (resolved[1], field, self.get_java_value( resolved, value_def.default )) )
+            else:
+                lines.append( "        private %s %s;" % (resolved[1], field) )
+        required = [(value_def, resolved) for value_def, resolved in settable if value_def.required]
+        for value_def, resolved in required:
+            if not self.is_reference( resolved ):
+                lines.append( "        private boolean mHas%s;" % self.get_accessor_suffix( value_def ) )
+        lines.append( "" )
+        lines.append( "        private Builder() {}" )
+        for value_def, resolved in settable:
+            field = self.get_field_name( value_def )
+            lines.append( "" )
+            lines.append( "        public Builder set%s(%s %s) {" % (self.get_accessor_suffix( value_def ), resolved[1], value_def.name) )
+            lines.append( "            %s = %s;" % (field, self.get_copy_expression( resolved, value_def.name )) )
+            if value_def.required and not self.is_reference( resolved ):
+                lines.append( "            mHas%s = true;" % self.get_accessor_suffix( value_def ) )
+            lines.append( "            return this;" )
+            lines.append( "        }" )
+        lines.append( "" )
+        lines.append( "        /**" )
+        lines.append( "         * @throws IllegalStateException if a required value is not set." )
+        lines.append( "         */" )
+        lines.append( "        public %s build() {" % class_name )
+        for value_def, resolved in required:
+            check = self.get_field_name( value_def ) + " != null" if self.is_reference( resolved ) else "mHas%s" % self.get_accessor_suffix( value_def )
+            lines.append( '            AASBJson.checkRequired(%s, "%s");' % (check, value_def.name) )
+        lines.append( "            return new %s(this);" % class_name )
+        lines.append( "        }" )
+        lines.append( "    }" )
+        # serializer
+        lines.append( "" )
+        lines.append( "    public void write(JsonWriter writer) throws IOException {" )
+        lines.append( "        writer.beginObject();" )
+        for value_def, resolved in fields:
+            source = self.get_source( value_def )
+            statement = self.get_write_statement( resolved, source )
+            if self.is_reference( resolved ) and value_def.value is None:
+                # unset optional values are omitted
+                lines.append( "        if (%s != null) {" % source )
+                lines.append( '            writer.name("%s");' % value_def.name )
+                lines.append( "            %s" % statement )
+                lines.append( "        }" )
+            else:
+                lines.append( '        writer.name("%s");' % value_def.name )
+                lines.append( "        %s" % statement )
+        lines.append( "        writer.endObject();" )
+        lines.append( "    }" )
+        # deserializer
+        lines.append( "" )
+        lines.append( "    /**" )
+        lines.append( "     * @throws IOException if the JSON is malformed or a required value is missing." )
+        lines.append( "     */" )
+        lines.append( "    public static %s read(JsonReader reader) throws IOException {" % class_name )
+        lines.append( "        Builder builder = new Builder();" )
+        lines.append( "        reader.beginObject();" )
+        lines.append( "        while (reader.hasNext()) {" )
+        if settable:
+            lines.append( "            switch (reader.nextName()) {" )
+            for value_def, resolved in settable:
+                lines.append( '                case "%s":' % value_def.name )
+                if self.is_reference( resolved ):
+                    lines.append( "                    builder.set%s(AASBJson.isNull(reader) ? null : %s);" % (self.get_accessor_suffix( value_def ), self.get_read_expression( resolved )) )
+                else:
+                    lines.append( "                    builder.set%s(%s);" % (self.get_accessor_suffix( value_def ), self.get_read_expression( resolved )) )
+                lines.append( "                    break;" )
+            lines.append( "                default:" )
+            lines.append( "                    reader.skipValue();" )
+            lines.append( "            }" )
+        else:
+            lines.append( "            reader.nextName();" )
+            lines.append( "            reader.skipValue();" )
+        lines.append( "        }" )
+        lines.append( "        reader.endObject();" )
+        lines.append( "        try {" )
+        lines.append( "            return builder.build();" )
+        lines.append( "        } catch (IllegalStateException e) {" )
+        lines.append( "            throw new IOException(e.getMessage());" )
+        lines.append( "        }" )
+        lines.append( "    }" )
+        lines.append( "}" )
+        return "\n".join( [("%s%s" % (indent, next) if next else next) for next in lines] )
+
+    def get_enum_constants( self, type_def ):
+        return ",\n".join( ["    %s" % next for next in type_def.get_value_names()] ) + ";"
+
+    def get_doc( self, description ):
+        return " ".join( str( description ).split() ).replace( "*/", "*&#47;" )
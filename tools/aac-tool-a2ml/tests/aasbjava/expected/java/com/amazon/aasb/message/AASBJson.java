@@ -0,0 +1,253 @@
+/*
+ * Copyright 2017-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+/*********************************************************
+**********************************************************
+**********************************************************
+
+THIS FILE IS AUTOGENERATED. DO NOT EDIT
+
+**********************************************************
+**********************************************************
+*********************************************************/
+
+package com.amazon.aasb.message;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Streaming JSON support for the generated AASB message classes. Messages are written and read token by token with
+ * {@link JsonWriter} and {@link JsonReader}, so no intermediate JSON tree is allocated.
+ */
+public final class AASBJson {
+    /**
+     * Reads a value of a list.
+     */
+    public interface ElementReader<T> {
+        T read(JsonReader reader) throws IOException;
+    }
+
+    /**
+     * Writes a value of a list.
+     */
+    public interface ElementWriter<T> {
+        void write(JsonWriter writer, T value) throws IOException;
+    }
+
+    /**
+     * The header of a message.
+     */
+    public static final class Header {
+        private String mVersion;
+        private String mMessageType;
+        private String mId;
+        private String mTopic;
+        private String mAction;
+        private String mReplyToId;
+
+        public String getVersion() {
+            return mVersion;
+        }
+
+        public String getMessageType() {
+            return mMessageType;
+        }
+
+        public String getId() {
+            return mId;
+        }
+
+        public String getTopic() {
+            return mTopic;
+        }
+
+        public String getAction() {
+            return mAction;
+        }
+
+        public String getReplyToId() {
+            return mReplyToId;
+        }
+    }
+
+    private AASBJson() {}
+
+    public static String generateId() {
+        return UUID.randomUUID().toString();
+    }
+
+    public static void writeHeader(JsonWriter writer, String version, String messageType, String id, String topic,
+            String action, String replyToId) throws IOException {
+        writer.beginObject();
+        writer.name("version").value(version);
+        writer.name("messageType").value(messageType);
+        writer.name("id").value(id);
+        writer.name("messageDescription").beginObject();
+        writer.name("topic").value(topic);
+        writer.name("action").value(action);
+        if (replyToId != null) {
+            writer.name("replyToId").value(replyToId);
+        }
+        writer.endObject();
+        writer.endObject();
+    }
+
+    public static Header readHeader(JsonReader reader) throws IOException {
+        Header header = new Header();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "version":
+                    header.mVersion = reader.nextString();
+                    break;
+                case "messageType":
+                    header.mMessageType = reader.nextString();
+                    break;
+                case "id":
+                    header.mId = reader.nextString();
+                    break;
+                case "messageDescription":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "topic":
+                                header.mTopic = reader.nextString();
+                                break;
+                            case "action":
+                                header.mAction = reader.nextString();
+                                break;
+                            case "replyToId":
+                                header.mReplyToId = reader.nextString();
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return header;
+    }
+
+    /**
+     * @throws IOException if the header is missing or does not describe the expected message.
+     */
+    public static void checkHeader(Header header, String topic, String action, String messageType)
+            throws IOException {
+        if (header == null) {
+            throw new IOException("Missing header");
+        }
+        if (header.mId == null) {
+            throw new IOException("Missing message id");
+        }
+        if (!topic.equals(header.mTopic) || !action.equals(header.mAction)) {
+            throw new IOException(String.format(
+                    "Expected message %s/%s but was %s/%s", topic, action, header.mTopic, header.mAction));
+        }
+        if (header.mMessageType != null && !messageType.equals(header.mMessageType)) {
+            throw new IOException(String.format("Expected %s message but was %s", messageType, header.mMessageType));
+        }
+        if ("Reply".equals(messageType) && header.mReplyToId == null) {
+            throw new IOException("Missing replyToId");
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if a required value is not set.
+     */
+    public static void checkRequired(boolean set, String name) {
+        if (!set) {
+            throw new IllegalStateException("Missing required value: " + name);
+        }
+    }
+
+    /**
+     * Consumes the next value if it is null.
+     *
+     * @return true if the next value was null.
+     */
+    public static boolean isNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return true;
+        }
+        return false;
+    }
+
+    public static <T> List<T> readList(JsonReader reader, ElementReader<T> elementReader) throws IOException {
+        List<T> list = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            list.add(elementReader.read(reader));
+        }
+        reader.endArray();
+        return Collections.unmodifiableList(list);
+    }
+
+    public static <T> void writeList(JsonWriter writer, List<T> list, ElementWriter<T> elementWriter)
+            throws IOException {
+        writer.beginArray();
+        for (T value : list) {
+            elementWriter.write(writer, value);
+        }
+        writer.endArray();
+    }
+
+    /**
+     * @return an unmodifiable copy of the list, or null if the list is null.
+     */
+    public static <T> List<T> copyList(List<T> list) {
+        return list == null ? null : Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    public static Map<String, String> readStringMap(JsonReader reader) throws IOException {
+        Map<String, String> map = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            map.put(reader.nextName(), reader.nextString());
+        }
+        reader.endObject();
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * @return an unmodifiable copy of the map, or null if the map is null.
+     */
+    public static <K, V> Map<K, V> copyMap(Map<K, V> map) {
+        return map == null ? null : Collections.unmodifiableMap(new HashMap<>(map));
+    }
+
+    public static void writeStringMap(JsonWriter writer, Map<String, String> map) throws IOException {
+        writer.beginObject();
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writer.name(entry.getKey()).value(entry.getValue());
+        }
+        writer.endObject();
+    }
+}
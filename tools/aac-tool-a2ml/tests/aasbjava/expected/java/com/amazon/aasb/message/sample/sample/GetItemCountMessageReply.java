@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+/*********************************************************
+**********************************************************
+**********************************************************
+
+THIS FILE IS AUTOGENERATED. DO NOT EDIT
+
+**********************************************************
+**********************************************************
+*********************************************************/
+
+package com.amazon.aasb.message.sample.sample;
+
+import android.util.JsonReader;
+import android.util.JsonWriter;
+
+import com.amazon.aasb.message.AASBJson;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Message reply definition:
+ *    aasb.message.sample.sample.GetItemCountMessageReply
+ */
+public final class GetItemCountMessageReply {
+    public static final String TOPIC = "Sample";
+    public static final String ACTION = "GetItemCount";
+    public static final String VERSION = "4.0";
+    public static final String MESSAGE_TYPE = "Reply";
+
+    private final String mId;
+    private final String mReplyToId;
+    private final Payload mPayload;
+
+    public GetItemCountMessageReply(String replyToId, Payload payload) {
+        this(AASBJson.generateId(), replyToId, payload);
+    }
+
+    public GetItemCountMessageReply(String id, String replyToId, Payload payload) {
+        mId = id;
+        mReplyToId = replyToId;
+        mPayload = payload;
+    }
+
+    public String getId() {
+        return mId;
+    }
+
+    /**
+     * @return the id of the message this message replies to.
+     */
+    public String getReplyToId() {
+        return mReplyToId;
+    }
+
+    public Payload getPayload() {
+        return mPayload;
+    }
+
+    public static final class Payload {
+        private final int mCount;
+
+        private Payload(Builder builder) {
+            mCount = builder.mCount;
+        }
+
+        /**
+         * @return The number of items.
+         */
+        public int getCount() {
+            return mCount;
+        }
+
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        public static final class Builder {
+            private int mCount;
+            private boolean mHasCount;
+
+            private Builder() {}
+
+            public Builder setCount(int count) {
+                mCount = count;
+                mHasCount = true;
+                return this;
+            }
+
+            /**
+             * @throws IllegalStateException if a required value is not set.
+             */
+            public Payload build() {
+                AASBJson.checkRequired(mHasCount, "count");
+                return new Payload(this);
+            }
+        }
+
+        public void write(JsonWriter writer) throws IOException {
+            writer.beginObject();
+            writer.name("count");
+            writer.value(mCount);
+            writer.endObject();
+        }
+
+        /**
+         * @throws IOException if the JSON is malformed or a required value is missing.
+         */
+        public static Payload read(JsonReader reader) throws IOException {
+            Builder builder = new Builder();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "count":
+                        builder.setCount(reader.nextInt());
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            try {
+                return builder.build();
+            } catch (IllegalStateException e) {
+                throw new IOException(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the message as JSON without building an intermediate tree.
+     */
+    public void write(Writer out) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        writer.name("header");
+        AASBJson.writeHeader(writer, VERSION, MESSAGE_TYPE, mId, TOPIC, ACTION, mReplyToId);
+        writer.name("payload");
+        mPayload.write(writer);
+        writer.endObject();
+        writer.flush();
+    }
+
+    public String toJson() {
+        StringWriter out = new StringWriter();
+        try {
+            write(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+    /**
+     * Reads the message from JSON. Unknown values are skipped.
+     * @throws IOException if the JSON is malformed, is not a GetItemCountMessageReply or misses a required value.
+     */
+    public static GetItemCountMessageReply read(Reader in) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        AASBJson.Header header = null;
+        Payload payload = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "header":
+                    header = AASBJson.readHeader(reader);
+                    break;
+                case "payload":
+                    payload = Payload.read(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        AASBJson.checkHeader(header, TOPIC, ACTION, MESSAGE_TYPE);
+        if (payload == null) {
+            throw new IOException("Missing payload");
+        }
+        return new GetItemCountMessageReply(header.getId(), header.getReplyToId(), payload);
+    }
+
+    public static GetItemCountMessageReply fromJson(String json) throws IOException {
+        return read(new StringReader(json));
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+/*********************************************************
+**********************************************************
+**********************************************************
+
+THIS FILE IS AUTOGENERATED. DO NOT EDIT
+
+**********************************************************
+**********************************************************
+*********************************************************/
+
+package com.amazon.aasb.message.sample.sample;
+
+import android.util.JsonReader;
+import android.util.JsonWriter;
+
+import com.amazon.aasb.message.AASBJson;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Type definition:
+ *    aasb.message.sample.sample.Item
+ */
+public final class Item {
+    private final String mId;
+    private final List<String> mTags;
+    private final List<Double> mScores;
+    private final int mPriority;
+
+    private Item(Builder builder) {
+        mId = builder.mId;
+        mTags = builder.mTags;
+        mScores = builder.mScores;
+        mPriority = builder.mPriority;
+    }
+
+    /**
+     * @return The item identifier.
+     */
+    public String getId() {
+        return mId;
+    }
+
+    /**
+     * @return The tags of the item.
+     */
+    public List<String> getTags() {
+        return mTags;
+    }
+
+    /**
+     * @return The scores of the item.
+     */
+    public List<Double> getScores() {
+        return mScores;
+    }
+
+    public int getPriority() {
+        return mPriority;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private String mId;
+        private List<String> mTags = Collections.emptyList();
+        private List<Double> mScores;
+        private int mPriority = 0;
+
+        private Builder() {}
+
+        public Builder setId(String id) {
+            mId = id;
+            return this;
+        }
+
+        public Builder setTags(List<String> tags) {
+            mTags = AASBJson.copyList(tags);
+            return this;
+        }
+
+        public Builder setScores(List<Double> scores) {
+            mScores = AASBJson.copyList(scores);
+            return this;
+        }
+
+        public Builder setPriority(int priority) {
+            mPriority = priority;
+            return this;
+        }
+
+        /**
+         * @throws IllegalStateException if a required value is not set.
+         */
+        public Item build() {
+            AASBJson.checkRequired(mId != null, "id");
+            AASBJson.checkRequired(mScores != null, "scores");
+            return new Item(this);
+        }
+    }
+
+    public void write(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        if (mId != null) {
+            writer.name("id");
+            writer.value(mId);
+        }
+        if (mTags != null) {
+            writer.name("tags");
+            AASBJson.writeList(writer, mTags, JsonWriter::value);
+        }
+        if (mScores != null) {
+            writer.name("scores");
+            AASBJson.writeList(writer, mScores, (w, v) -> w.value(v));
+        }
+        writer.name("priority");
+        writer.value(mPriority);
+        writer.endObject();
+    }
+
+    /**
+     * @throws IOException if the JSON is malformed or a required value is missing.
+     */
+    public static Item read(JsonReader reader) throws IOException {
+        Builder builder = new Builder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    builder.setId(AASBJson.isNull(reader) ? null : reader.nextString());
+                    break;
+                case "tags":
+                    builder.setTags(AASBJson.isNull(reader) ? null : AASBJson.readList(reader, JsonReader::nextString));
+                    break;
+                case "scores":
+                    builder.setScores(AASBJson.isNull(reader) ? null : AASBJson.readList(reader, r -> r.nextDouble()));
+                    break;
+                case "priority":
+                    builder.setPriority(reader.nextInt());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        try {
+            return builder.build();
+        } catch (IllegalStateException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+}
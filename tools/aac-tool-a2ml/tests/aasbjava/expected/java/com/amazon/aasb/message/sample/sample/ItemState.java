@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+/*********************************************************
+**********************************************************
+**********************************************************
+
+THIS FILE IS AUTOGENERATED. DO NOT EDIT
+
+**********************************************************
+**********************************************************
+*********************************************************/
+
+package com.amazon.aasb.message.sample.sample;
+
+import android.util.JsonReader;
+import android.util.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Enum definition:
+ *    aasb.message.sample.sample.ItemState
+ */
+public enum ItemState {
+    IDLE,
+    ACTIVE;
+
+    /**
+     * Returns the constant matching the value, ignoring case.
+     * @throws IllegalArgumentException if no constant matches.
+     */
+    public static ItemState fromString(String value) {
+        for (ItemState next : values()) {
+            if (next.name().equalsIgnoreCase(value)) {
+                return next;
+            }
+        }
+        throw new IllegalArgumentException("invalidItemStateType: " + value);
+    }
+
+    public void write(JsonWriter writer) throws IOException {
+        writer.value(name());
+    }
+
+    /**
+     * @throws IOException if the value is not a constant of the enum.
+     */
+    public static ItemState read(JsonReader reader) throws IOException {
+        String value = reader.nextString();
+        try {
+            return fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+}
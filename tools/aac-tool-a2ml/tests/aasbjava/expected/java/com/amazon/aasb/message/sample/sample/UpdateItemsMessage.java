@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017-2022 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+/*********************************************************
+**********************************************************
+**********************************************************
+
+THIS FILE IS AUTOGENERATED. DO NOT EDIT
+
+**********************************************************
+**********************************************************
+*********************************************************/
+
+package com.amazon.aasb.message.sample.sample;
+
+import android.util.JsonReader;
+import android.util.JsonWriter;
+
+import com.amazon.aasb.message.AASBJson;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Message definition:
+ *    aasb.message.sample.sample.UpdateItemsMessage
+ */
+public final class UpdateItemsMessage {
+    public static final String TOPIC = "Sample";
+    public static final String ACTION = "UpdateItems";
+    public static final String VERSION = "4.0";
+    public static final String MESSAGE_TYPE = "Publish";
+
+    private final String mId;
+    private final Payload mPayload;
+
+    public UpdateItemsMessage(Payload payload) {
+        this(AASBJson.generateId(), payload);
+    }
+
+    public UpdateItemsMessage(String id, Payload payload) {
+        mId = id;
+        mPayload = payload;
+    }
+
+    public String getId() {
+        return mId;
+    }
+
+    public Payload getPayload() {
+        return mPayload;
+    }
+
+    public static final class Payload {
+        private final List<Item> mItems;
+        private final Map<String, String> mAttributes;
+        private final ItemState mState;
+
+        private Payload(Builder builder) {
+            mItems = builder.mItems;
+            mAttributes = builder.mAttributes;
+            mState = builder.mState;
+        }
+
+        /**
+         * @return The items.
+         */
+        public List<Item> getItems() {
+            return mItems;
+        }
+
+        /**
+         * @return The attributes of the items.
+         */
+        public Map<String, String> getAttributes() {
+            return mAttributes;
+        }
+
+        /**
+         * @return The state of the items.
+         */
+        public ItemState getState() {
+            return mState;
+        }
+
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        public static final class Builder {
+            private List<Item> mItems;
+            private Map<String, String> mAttributes = Collections.emptyMap();
+            private ItemState mState;
+
+            private Builder() {}
+
+            public Builder setItems(List<Item> items) {
+                mItems = AASBJson.copyList(items);
+                return this;
+            }
+
+            public Builder setAttributes(Map<String, String> attributes) {
+                mAttributes = AASBJson.copyMap(attributes);
+                return this;
+            }
+
+            public Builder setState(ItemState state) {
+                mState = state;
+                return this;
+            }
+
+            /**
+             * @throws IllegalStateException if a required value is not set.
+             */
+            public Payload build() {
+                AASBJson.checkRequired(mItems != null, "items");
+                AASBJson.checkRequired(mState != null, "state");
+                return new Payload(this);
+            }
+        }
+
+        public void write(JsonWriter writer) throws IOException {
+            writer.beginObject();
+            if (mItems != null) {
+                writer.name("items");
+                AASBJson.writeList(writer, mItems, (w, v) -> v.write(w));
+            }
+            if (mAttributes != null) {
+                writer.name("attributes");
+                AASBJson.writeStringMap(writer, mAttributes);
+            }
+            if (mState != null) {
+                writer.name("state");
+                mState.write(writer);
+            }
+            writer.endObject();
+        }
+
+        /**
+         * @throws IOException if the JSON is malformed or a required value is missing.
+         */
+        public static Payload read(JsonReader reader) throws IOException {
+            Builder builder = new Builder();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "items":
+                        builder.setItems(AASBJson.isNull(reader) ? null : AASBJson.readList(reader, Item::read));
+                        break;
+                    case "attributes":
+                        builder.setAttributes(AASBJson.isNull(reader) ? null : AASBJson.readStringMap(reader));
+                        break;
+                    case "state":
+                        builder.setState(AASBJson.isNull(reader) ? null : ItemState.read(reader));
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            try {
+                return builder.build();
+            } catch (IllegalStateException e) {
+                throw new IOException(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the message as JSON without building an intermediate tree.
+     */
+    public void write(Writer out) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        writer.name("header");
+        AASBJson.writeHeader(writer, VERSION, MESSAGE_TYPE, mId, TOPIC, ACTION, null);
+        writer.name("payload");
+        mPayload.write(writer);
+        writer.endObject();
+        writer.flush();
+    }
+
+    public String toJson() {
+        StringWriter out = new StringWriter();
+        try {
+            write(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+    /**
+     * Reads the message from JSON. Unknown values are skipped.
+     * @throws IOException if the JSON is malformed, is not a UpdateItemsMessage or misses a required value.
+     */
+    public static UpdateItemsMessage read(Reader in) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        AASBJson.Header header = null;
+        Payload payload = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "header":
+                    header = AASBJson.readHeader(reader);
+                    break;
+                case "payload":
+                    payload = Payload.read(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        AASBJson.checkHeader(header, TOPIC, ACTION, MESSAGE_TYPE);
+        if (payload == null) {
+            throw new IOException("Missing payload");
+        }
+        return new UpdateItemsMessage(header.getId(), payload);
+    }
+
+    public static UpdateItemsMessage fromJson(String json) throws IOException {
+        return read(new StringReader(json));
+    }
+}
@@ -0,0 +1,59 @@
+#!/usr/bin/python3
+"""
+Golden file test of the AASB Java generator.
+
+Generates the Java classes of the sample interface in aasbjava/input and compares them with aasbjava/expected.
+Run from the tool folder with the tool requirements (cheetah, pyyaml) installed:
+
+    python3 -m unittest discover -s tests
+
+Set A2ML_UPDATE_GOLDEN=1 to regenerate the expected files after an intended change of the generator.
+"""
+import os, sys, shutil, tempfile, unittest
+
+TESTS_ROOT = os.path.abspath( os.path.dirname( __file__ ) )
+sys.path.insert( 0, os.path.join( TESTS_ROOT, "..", "src" ) )
+
+from A2ML.processor import A2MLProcessor
+
+MESSAGE_VERSION = "4.0"
+
+class AASBJavaGeneratorTest( unittest.TestCase ):
+
+    def setUp( self ):
+        self.input_folder = os.path.join( TESTS_ROOT, "aasbjava", "input" )
+        self.expected_folder = os.path.join( TESTS_ROOT, "aasbjava", "expected" )
+        self.output_folder = tempfile.mkdtemp()
+
+    def tearDown( self ):
+        shutil.rmtree( self.output_folder, ignore_errors=True )
+
+    def list_files( self, folder ):
+        files = []
+        for (path, dirnames, filenames) in os.walk( folder ):
+            for name in filenames:
+                files.append( os.path.relpath( os.path.join( path, name ), folder ) )
+        return sorted( files )
+
+    def test_generated_files_match_expected( self ):
+        A2MLProcessor({
+            "input": [self.input_folder],
+            "dependencies": [],
+            "output": self.output_folder,
+            "parser": "a2ml",
+            "generator": "aasbjava",
+            "message_version": MESSAGE_VERSION
+        }).run()
+
+        if os.environ.get( "A2ML_UPDATE_GOLDEN" ) == "1":
+            shutil.rmtree( self.expected_folder, ignore_errors=True )
+            shutil.copytree( self.output_folder, self.expected_folder )
+
+        generated_files = self.list_files( self.output_folder )
+        self.assertEqual( self.list_files( self.expected_folder ), generated_files )
+        for next in generated_files:
+            with open( os.path.join( self.output_folder, next ) ) as generated, open( os.path.join( self.expected_folder, next ) ) as expected:
+                self.assertEqual( expected.read(), generated.read(), f"Generated file differs: {next}" )
+
+if __name__ == "__main__":
+    unittest.main()